@@ -1,6 +1,7 @@
 package it.greentrails.backend;
 
 import it.greentrails.backend.utils.ArchiviazioneProperties;
+import it.greentrails.backend.utils.TokenProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -8,7 +9,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 @SpringBootApplication
-@EnableConfigurationProperties(ArchiviazioneProperties.class)
+@EnableConfigurationProperties({ArchiviazioneProperties.class, TokenProperties.class})
 public class BackendApplication {
 
   public static void main(String[] args) {
@@ -0,0 +1,67 @@
+package it.greentrails.backend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+// Totali delle recensioni di un'attività, aggiornati a ogni salvataggio ed eliminazione:
+// numero, somma e distribuzione delle stelle e quante recensioni indicano ciascun valore di
+// ecosostenibilità
+/*@ nullable_by_default @*/
+@Getter
+@Setter
+@Entity
+@Table(name = "aggregato_recensioni")
+public class AggregatoRecensioni {
+
+  @Id
+  @Column(name = "id_attivita", nullable = false)
+  private Long idAttivita;
+
+  @Column(name = "numero", nullable = false)
+  private long numero;
+
+  @Column(name = "somma_stelle", nullable = false)
+  private long sommaStelle;
+
+  @Column(name = "stelle_0", nullable = false)
+  private long stelle0;
+
+  @Column(name = "stelle_1", nullable = false)
+  private long stelle1;
+
+  @Column(name = "stelle_2", nullable = false)
+  private long stelle2;
+
+  @Column(name = "stelle_3", nullable = false)
+  private long stelle3;
+
+  @Column(name = "stelle_4", nullable = false)
+  private long stelle4;
+
+  @Column(name = "stelle_5", nullable = false)
+  private long stelle5;
+
+  @Column(name = "politiche_antispreco", nullable = false)
+  private long politicheAntispreco;
+
+  @Column(name = "prodotti_locali", nullable = false)
+  private long prodottiLocali;
+
+  @Column(name = "energia_verde", nullable = false)
+  private long energiaVerde;
+
+  @Column(name = "raccolta_differenziata", nullable = false)
+  private long raccoltaDifferenziata;
+
+  @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+  @Column(name = "limite_emissione_CO2", nullable = false)
+  private long limiteEmissioneCO2;
+
+  @Column(name = "contatto_con_natura", nullable = false)
+  private long contattoConNatura;
+
+}
@@ -8,10 +8,13 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
@@ -24,6 +27,8 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 import org.springframework.data.geo.Point;
@@ -32,7 +37,13 @@ import org.springframework.data.geo.Point;
 @Getter
 @Setter
 @Entity
-@Table(name = "attivita")
+@Table(name = "attivita", indexes = {
+    @Index(name = "idx_attivita_media", columnList = "media")
+})
+@NamedEntityGraph(name = "Attivita.dettagli", attributeNodes = {
+    @NamedAttributeNode("gestore"),
+    @NamedAttributeNode("valoriEcosostenibilita")
+})
 public class Attivita {
 
   @Id
@@ -125,7 +136,9 @@ public class Attivita {
   @Column(name = "eliminata", nullable = false)
   private boolean eliminata = false;
 
+  // Alla prima lettura le categorie vengono caricate per tutte le attività della stessa query
   @ManyToMany
+  @Fetch(FetchMode.SUBSELECT)
   @JoinTable(name = "assegnazione_categorie",
       joinColumns = @JoinColumn(name = "id_attivita"),
       inverseJoinColumns = @JoinColumn(name = "id_categoria"))
@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -32,7 +33,9 @@ import lombok.Setter;
 public class PrenotazioneAlloggio {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prenotazione_alloggio_seq")
+  @SequenceGenerator(name = "prenotazione_alloggio_seq",
+      sequenceName = "prenotazione_alloggio_seq", allocationSize = 50)
   @Column(name = "id", nullable = false)
   private Long id;
 
@@ -56,13 +59,14 @@ public class PrenotazioneAlloggio {
   @PositiveOrZero(message = "Il numero dei bambini non può essere negativo.")
   private int numBambini;
 
-  @Temporal(TemporalType.TIME)
+  // TIMESTAMP e non TIME: il giorno serve ai controlli di disponibilità
+  @Temporal(TemporalType.TIMESTAMP)
   @Column(name = "data_inizio", nullable = false)
   @NotNull(message = "La data di inizio non può essere vuota.")
   @FutureOrPresent(message = "La data di inizio non può essere antecedente alla data odierna.")
   private Date dataInizio;
 
-  @Temporal(TemporalType.TIME)
+  @Temporal(TemporalType.TIMESTAMP)
   @Column(name = "data_fine", nullable = false)
   @NotNull(message = "La data di fine non può essere vuota.")
   @FutureOrPresent(message = "La data di fine non può essere antecedente alla data odierna.")
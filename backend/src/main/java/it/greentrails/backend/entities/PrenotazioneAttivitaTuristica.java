@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -32,7 +33,13 @@ import lombok.Setter;
 public class PrenotazioneAttivitaTuristica {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // Con IDENTITY Hibernate deve eseguire ogni INSERT subito per leggere l'id: con una sequenza
+  // a blocchi gli id arrivano dalla memoria e gli INSERT possono viaggiare in batch
+  // (su MySQL la tabella della sequenza la prepara MigrazioneSchema)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE,
+      generator = "prenotazione_attivita_turistica_seq")
+  @SequenceGenerator(name = "prenotazione_attivita_turistica_seq",
+      sequenceName = "prenotazione_attivita_turistica_seq", allocationSize = 50)
   @Column(name = "id", nullable = false)
   private Long id;
 
@@ -56,13 +63,14 @@ public class PrenotazioneAttivitaTuristica {
   @PositiveOrZero(message = "Il numero dei bambini non può essere negativo.")
   private int numBambini;
 
-  @Temporal(TemporalType.TIME)
+  // TIMESTAMP e non TIME: il calendario e la ricostruzione devono usare lo stesso istante
+  @Temporal(TemporalType.TIMESTAMP)
   @Column(name = "data_inizio", nullable = false)
   @NotNull(message = "La data di inizio non può essere vuota.")
   @FutureOrPresent(message = "La data di inizio non può essere antecedente alla data odierna.")
   private Date dataInizio;
 
-  @Temporal(TemporalType.TIME)
+  @Temporal(TemporalType.TIMESTAMP)
   @Column(name = "data_fine")
   @FutureOrPresent(message = "La data di fine non può essere antecedente alla data odierna.")
   private Date dataFine;
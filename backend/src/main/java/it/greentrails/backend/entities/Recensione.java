@@ -23,7 +23,11 @@ import lombok.Setter;
 @Setter
 @Entity
 @Table(name = "recensione", indexes = {
-    @Index(name = "idx_recensione_visitatore", columnList = "id_visitatore")
+    @Index(name = "idx_recensione_visitatore", columnList = "id_visitatore, id"),
+    @Index(name = "idx_recensione_attivita", columnList = "id_attivita, id"),
+    @Index(name = "idx_recensione_attivita_stelle",
+        columnList = "id_attivita, valutazione_stelle_esperienza, id"),
+    @Index(name = "idx_recensione_media", columnList = "media")
 })
 public class Recensione {
 
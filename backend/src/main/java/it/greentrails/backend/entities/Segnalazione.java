@@ -7,6 +7,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -22,7 +23,9 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "segnalazione")
+@Table(name = "segnalazione", indexes = {
+    @Index(name = "idx_segnalazione_media", columnList = "media")
+})
 public class Segnalazione {
 
   @Id
@@ -0,0 +1,6 @@
+package it.greentrails.backend.enums;
+
+public enum OrdinamentoRecensioni {
+  RECENTI,
+  VALUTAZIONE
+}
@@ -0,0 +1,7 @@
+package it.greentrails.backend.enums;
+
+public enum TipoProprietarioMedia {
+  ATTIVITA,
+  RECENSIONE,
+  SEGNALAZIONE
+}
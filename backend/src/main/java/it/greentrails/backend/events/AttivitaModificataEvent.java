@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.Attivita;
+
+// Pubblicato a ogni salvataggio (o eliminazione logica) di un'attività
+public record AttivitaModificataEvent(Attivita attivita) {
+
+}
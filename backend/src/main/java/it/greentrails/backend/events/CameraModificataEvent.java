@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.Camera;
+
+// Pubblicato a ogni salvataggio o eliminazione di una camera
+public record CameraModificataEvent(Camera camera, boolean eliminata) {
+
+}
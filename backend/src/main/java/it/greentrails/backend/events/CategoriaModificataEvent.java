@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.Categoria;
+
+// Pubblicato a ogni salvataggio o eliminazione di una categoria
+public record CategoriaModificataEvent(Categoria categoria, boolean eliminata) {
+
+}
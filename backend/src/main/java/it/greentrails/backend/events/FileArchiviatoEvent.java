@@ -0,0 +1,6 @@
+package it.greentrails.backend.events;
+
+// Pubblicato quando un file caricato è stato salvato ed è leggibile
+public record FileArchiviatoEvent(String media, String filename) {
+
+}
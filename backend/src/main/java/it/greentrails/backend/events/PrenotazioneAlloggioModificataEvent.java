@@ -0,0 +1,9 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+
+// Pubblicato a ogni salvataggio o eliminazione di una prenotazione di un alloggio
+public record PrenotazioneAlloggioModificataEvent(PrenotazioneAlloggio prenotazione,
+                                                  boolean eliminata) {
+
+}
@@ -0,0 +1,9 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+
+// Pubblicato a ogni salvataggio o eliminazione di una prenotazione di un'attività turistica
+public record PrenotazioneAttivitaTuristicaModificataEvent(
+    PrenotazioneAttivitaTuristica prenotazione, boolean eliminata) {
+
+}
@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.Recensione;
+
+// Pubblicato a ogni salvataggio o eliminazione di una recensione
+public record RecensioneModificataEvent(Recensione recensione, boolean eliminata) {
+
+}
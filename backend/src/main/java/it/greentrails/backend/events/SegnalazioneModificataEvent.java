@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.Segnalazione;
+
+// Pubblicato a ogni salvataggio o eliminazione di una segnalazione
+public record SegnalazioneModificataEvent(Segnalazione segnalazione, boolean eliminata) {
+
+}
@@ -0,0 +1,8 @@
+package it.greentrails.backend.events;
+
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+
+// Pubblicato a ogni salvataggio o eliminazione di valori di ecosostenibilità
+public record ValoriModificatiEvent(ValoriEcosostenibilita valori, boolean eliminati) {
+
+}
@@ -0,0 +1,128 @@
+package it.greentrails.backend.gestioneattivita.aggregati;
+
+import it.greentrails.backend.entities.AggregatoRecensioni;
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.gestioneattivita.repository.AggregatoRecensioniRepository;
+import it.greentrails.backend.gestioneattivita.repository.ContributoRecensione;
+import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+// Mantiene AggregatoRecensioni: ogni recensione salvata o eliminata aggiunge o toglie il suo
+// contributo, e la ricostruzione ricalcola tutto con una sola scansione di recensione
+@Component
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class AggregatiRecensioni {
+
+  static final int DIMENSIONE_BLOCCO = 1000;
+
+  /*@ spec_public non_null @*/
+  private final AggregatoRecensioniRepository repository;
+  /*@ spec_public non_null @*/
+  private final RecensioneRepository recensioneRepository;
+  /*@ spec_public non_null @*/
+  private final EntityManager entityManager;
+  /*@ spec_public non_null @*/
+  private final BulkWriter bulkWriter;
+  /*@ spec_public non_null @*/
+  private final TransactionOperations transazione;
+
+  // Va chiamato nella transazione che scrive la recensione. Il lock sulla riga dell'attività
+  // serializza gli aggiornamenti della stessa attività, compresa la creazione dell'aggregato
+  /*@ requires segno == 1 || segno == -1; @*/
+  @Transactional
+  public void applica(/*@ nullable @*/ ContributoRecensione contributo, int segno) {
+    if (contributo == null || contributo.idAttivita() == null) {
+      return;
+    }
+    Long idAttivita = contributo.idAttivita();
+    if (entityManager.find(Attivita.class, idAttivita, LockModeType.PESSIMISTIC_WRITE) == null) {
+      return;
+    }
+    AggregatoRecensioni aggregato = repository.findById(idAttivita)
+        .orElseGet(() -> nuovo(idAttivita));
+    somma(aggregato, contributo, segno);
+    repository.save(aggregato);
+  }
+
+  /*@ ensures \result != null; @*/
+  public AggregatoRecensioni trova(/*@ nullable @*/ Long idAttivita) {
+    return idAttivita == null ? nuovo(null)
+        : repository.findById(idAttivita).orElseGet(() -> nuovo(idAttivita));
+  }
+
+  // Al primo avvio con recensioni già presenti la tabella è vuota
+  @EventListener(ApplicationReadyEvent.class)
+  public void inizializza() {
+    if (repository.count() == 0 && recensioneRepository.count() > 0) {
+      ricostruisci();
+    }
+  }
+
+  // Scansione a blocchi in ordine di id: in memoria resta un aggregato per attività.
+  // La sostituzione avviene in una sola transazione, ma le recensioni modificate mentre la
+  // scansione è in corso possono non risultare: va eseguita quando le scritture sono poche
+  /*@ ensures \result >= 0; @*/
+  public int ricostruisci() {
+    Map<Long, AggregatoRecensioni> aggregati = new HashMap<>();
+    long ultimoId = 0;
+    List<ContributoRecensione> blocco;
+    do {
+      blocco = recensioneRepository.findContributiDopo(ultimoId,
+          Limit.of(DIMENSIONE_BLOCCO));
+      for (ContributoRecensione contributo : blocco) {
+        somma(aggregati.computeIfAbsent(contributo.idAttivita(), AggregatiRecensioni::nuovo),
+            contributo, 1);
+        ultimoId = contributo.id();
+      }
+    } while (blocco.size() == DIMENSIONE_BLOCCO);
+    transazione.executeWithoutResult(stato -> {
+      repository.deleteAllInBatch();
+      bulkWriter.inserisci(aggregati.values());
+    });
+    return aggregati.size();
+  }
+
+  private static AggregatoRecensioni nuovo(Long idAttivita) {
+    AggregatoRecensioni aggregato = new AggregatoRecensioni();
+    aggregato.setIdAttivita(idAttivita);
+    return aggregato;
+  }
+
+  static void somma(AggregatoRecensioni a, ContributoRecensione c, int segno) {
+    a.setNumero(a.getNumero() + segno);
+    a.setSommaStelle(a.getSommaStelle() + (long) segno * c.stelle());
+    switch (c.stelle()) {
+      case 0 -> a.setStelle0(a.getStelle0() + segno);
+      case 1 -> a.setStelle1(a.getStelle1() + segno);
+      case 2 -> a.setStelle2(a.getStelle2() + segno);
+      case 3 -> a.setStelle3(a.getStelle3() + segno);
+      case 4 -> a.setStelle4(a.getStelle4() + segno);
+      default -> a.setStelle5(a.getStelle5() + segno);
+    }
+    a.setPoliticheAntispreco(a.getPoliticheAntispreco() + conta(c.politicheAntispreco(), segno));
+    a.setProdottiLocali(a.getProdottiLocali() + conta(c.prodottiLocali(), segno));
+    a.setEnergiaVerde(a.getEnergiaVerde() + conta(c.energiaVerde(), segno));
+    a.setRaccoltaDifferenziata(a.getRaccoltaDifferenziata()
+        + conta(c.raccoltaDifferenziata(), segno));
+    a.setLimiteEmissioneCO2(a.getLimiteEmissioneCO2() + conta(c.limiteEmissioneCO2(), segno));
+    a.setContattoConNatura(a.getContattoConNatura() + conta(c.contattoConNatura(), segno));
+  }
+
+  private static long conta(Boolean valore, int segno) {
+    return Boolean.TRUE.equals(valore) ? segno : 0;
+  }
+
+}
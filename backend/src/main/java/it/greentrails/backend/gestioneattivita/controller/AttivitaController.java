@@ -1,18 +1,28 @@
 package it.greentrails.backend.gestioneattivita.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.CategorieAlloggio;
 import it.greentrails.backend.enums.CategorieAttivitaTuristica;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
+import it.greentrails.backend.gestioneattivita.service.SchedaAttivita;
 import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaService;
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import it.greentrails.backend.utils.service.ResponseGenerator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.geo.Point;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -23,16 +33,22 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping(path = "api/attivita")
 @RequiredArgsConstructor
 public class AttivitaController {
 
+  static final String NDJSON = "application/x-ndjson";
+  static final int LIMITE_PAGINA = 100;
+
   private final AttivitaService attivitaService;
   private final GestioneUtenzeService gestioneUtenzeService;
   private final ValoriEcosostenibilitaService valoriEcosostenibilitaService;
   private final ArchiviazioneService archiviazioneService;
+  private final ObjectMapper objectMapper;
+  private final CacheRisposte cacheRisposte;
 
   @PostMapping
   private ResponseEntity<Object> creaAttivita(
@@ -109,12 +125,14 @@ public class AttivitaController {
   private ResponseEntity<Object> visualizzaAttivita(
       @PathVariable("id") final Long id
   ) {
-    try {
-      Attivita attivita = attivitaService.findById(id);
-      return ResponseGenerator.generateResponse(HttpStatus.OK, attivita);
-    } catch (Exception e) {
-      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
-    }
+    return cacheRisposte.risposta("attivita/" + id, () -> {
+      try {
+        Attivita attivita = attivitaService.findById(id);
+        return ResponseGenerator.generateResponse(HttpStatus.OK, attivita);
+      } catch (Exception e) {
+        return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+      }
+    });
   }
 
   @GetMapping("perGestore")
@@ -122,8 +140,8 @@ public class AttivitaController {
       @AuthenticationPrincipal Utente utente
   ) {
     try {
-      return ResponseGenerator.generateResponse(HttpStatus.OK,
-          attivitaService.findAllAttivitaByGestore(utente.getId()));
+      return ResponseGenerator.generateResponse(HttpStatus.OK, SchedaAttivita.di(
+          attivitaService.findAllAttivitaByGestore(utente.getId())));
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -133,11 +151,10 @@ public class AttivitaController {
   private ResponseEntity<Object> visualizzaAttivitaPerPrezzo(
       @RequestParam(value = "limite", required = false) Integer limite
   ) {
-    if (limite == null) {
-      limite = 10;
-    }
-    return ResponseGenerator.generateResponse(HttpStatus.OK,
-        attivitaService.getAttivitaTuristicheEconomiche(limite));
+    int n = limite == null ? 10 : limite;
+    return cacheRisposte.risposta("attivita/perPrezzo?limite=" + n, () ->
+        ResponseGenerator.generateResponse(HttpStatus.OK, SchedaAttivita.di(
+            attivitaService.getAttivitaTuristicheEconomiche(n))));
   }
 
   @PostMapping("{id}")
@@ -230,28 +247,67 @@ public class AttivitaController {
   private ResponseEntity<Object> getAlloggi(
       @RequestParam(value = "limite", required = false) Integer limite
   ) {
-    if (limite == null) {
-      limite = 5;
-    }
-    return ResponseGenerator.generateResponse(HttpStatus.OK,
-        attivitaService.getAlloggi(limite));
+    int n = limite == null ? 5 : limite;
+    return cacheRisposte.risposta("attivita/alloggi?limite=" + n, () ->
+        ResponseGenerator.generateResponse(HttpStatus.OK,
+            SchedaAttivita.di(attivitaService.getAlloggi(n))));
   }
 
   @GetMapping("attivitaTuristiche")
   private ResponseEntity<Object> getAttivitaTuristiche(
       @RequestParam(value = "limite", required = false) Integer limite
   ) {
-    if (limite == null) {
-      limite = 5;
-    }
-    return ResponseGenerator.generateResponse(HttpStatus.OK,
-        attivitaService.getAttivitaTuristiche(limite));
+    int n = limite == null ? 5 : limite;
+    return cacheRisposte.risposta("attivita/attivitaTuristiche?limite=" + n, () ->
+        ResponseGenerator.generateResponse(HttpStatus.OK,
+            SchedaAttivita.di(attivitaService.getAttivitaTuristiche(n))));
   }
 
   @GetMapping("all")
-  private ResponseEntity<Object> findAll() {
-    return ResponseGenerator.generateResponse(HttpStatus.OK,
-        attivitaService.findAll());
+  private ResponseEntity<Object> findAll(
+      @RequestParam(value = "dopo", required = false) final Long dopo,
+      @RequestParam(value = "limite", required = false) final Integer limite
+  ) {
+    if (dopo == null && limite == null) {
+      return cacheRisposte.risposta("attivita/all", () ->
+          ResponseGenerator.generateResponse(HttpStatus.OK,
+              SchedaAttivita.di(attivitaService.findAll())));
+    }
+    int n = limite == null ? LIMITE_PAGINA : limite;
+    return cacheRisposte.risposta("attivita/all?dopo=" + dopo + "&limite=" + n, () -> {
+      try {
+        return ResponseGenerator.generateResponse(HttpStatus.OK,
+            SchedaAttivita.di(attivitaService.findAllDopo(dopo, n)));
+      } catch (Exception e) {
+        return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+      }
+    });
+  }
+
+  // Un'attività per riga (NDJSON), scritta man mano che viene letta dal database; come negli
+  // altri elenchi, del gestore escono solo i dati pubblici
+  @GetMapping(value = "all", produces = NDJSON)
+  private ResponseEntity<StreamingResponseBody> esportaAll() {
+    ObjectWriter writer = objectMapper.writer()
+        .withRootValueSeparator("\n")
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    StreamingResponseBody corpo = output -> {
+      long scritte;
+      try (SequenceWriter righe = writer.writeValues(output)) {
+        scritte = attivitaService.esportaAttivita(attivita -> {
+          try {
+            righe.write(SchedaAttivita.di(attivita));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+      if (scritte > 0) {
+        output.write('\n');
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(corpo);
   }
 
 }
@@ -6,6 +6,7 @@ import it.greentrails.backend.entities.Camera;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -27,6 +28,7 @@ public class CameraController {
 
   private final AttivitaService attivitaService;
   private final CameraService cameraService;
+  private final CacheRisposte cacheRisposte;
 
   @PostMapping
   private ResponseEntity<Object> creaCamera(
@@ -76,17 +78,19 @@ public class CameraController {
   private ResponseEntity<Object> visualizzaCamerePerAlloggio(
       @PathVariable("idAlloggio") final Long idAlloggio
   ) {
-    try {
-      Attivita alloggio = attivitaService.findById(idAlloggio);
-      if (!alloggio.isAlloggio()) {
-        return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
-            "L'attività non è un alloggio.");
+    return cacheRisposte.risposta("camere/perAlloggio/" + idAlloggio, () -> {
+      try {
+        Attivita alloggio = attivitaService.findById(idAlloggio);
+        if (!alloggio.isAlloggio()) {
+          return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+              "L'attività non è un alloggio.");
+        }
+        return ResponseGenerator.generateResponse(HttpStatus.OK,
+            cameraService.getCamereByAlloggio(alloggio));
+      } catch (Exception e) {
+        return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
       }
-      return ResponseGenerator.generateResponse(HttpStatus.OK,
-          cameraService.getCamereByAlloggio(alloggio));
-    } catch (Exception e) {
-      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
-    }
+    });
   }
 
   @DeleteMapping("{id}")
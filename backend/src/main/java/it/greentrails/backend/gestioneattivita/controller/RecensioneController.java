@@ -5,6 +5,7 @@ import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.RecensioneService;
@@ -12,6 +13,7 @@ import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaSer
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
+import java.security.InvalidParameterException;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -31,6 +33,8 @@ import org.springframework.web.multipart.MultipartFile;
 @RequiredArgsConstructor
 public class RecensioneController {
 
+  static final int DIMENSIONE_PAGINA = 20;
+
   private final RecensioneService recensioneService;
   private final AttivitaService attivitaService;
   private final GestioneUtenzeService gestioneUtenzeService;
@@ -93,6 +97,63 @@ public class RecensioneController {
     }
   }
 
+  @GetMapping("perAttivita/{idAttivita}/pagina")
+  private ResponseEntity<Object> visualizzaPaginaPerAttivita(
+      @PathVariable("idAttivita") final Long idAttivita,
+      @RequestParam(value = "ordinamento", required = false)
+      final OrdinamentoRecensioni ordinamento,
+      @RequestParam(value = "cursore", required = false) final String cursore,
+      @RequestParam(value = "dimensione", required = false) final Integer dimensione
+  ) {
+    try {
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          recensioneService.getPaginaByAttivita(idAttivita, ordinamento, cursore,
+              dimensione == null ? DIMENSIONE_PAGINA : dimensione));
+    } catch (InvalidParameterException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
+  @GetMapping("perVisitatore")
+  private ResponseEntity<Object> visualizzaPaginaPerVisitatore(
+      @AuthenticationPrincipal Utente utente,
+      @RequestParam(value = "cursore", required = false) final String cursore,
+      @RequestParam(value = "dimensione", required = false) final Integer dimensione
+  ) {
+    try {
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          recensioneService.getPaginaByVisitatore(utente, cursore,
+              dimensione == null ? DIMENSIONE_PAGINA : dimensione));
+    } catch (InvalidParameterException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
+  @GetMapping("perAttivita/{idAttivita}/riepilogo")
+  private ResponseEntity<Object> visualizzaRiepilogoPerAttivita(
+      @PathVariable("idAttivita") final Long idAttivita
+  ) {
+    try {
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          recensioneService.getRiepilogoByAttivita(idAttivita));
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
+  @PostMapping("riepiloghi")
+  private ResponseEntity<Object> ricostruisciRiepiloghi() {
+    try {
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          recensioneService.ricostruisciRiepiloghi());
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
 
   @DeleteMapping("{id}")
   private ResponseEntity<Object> cancellaRecensione(
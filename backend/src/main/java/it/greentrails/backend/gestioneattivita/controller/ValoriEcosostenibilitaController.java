@@ -7,6 +7,7 @@ import it.greentrails.backend.entities.ValoriEcosostenibilita;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ public class ValoriEcosostenibilitaController {
 
   private final ValoriEcosostenibilitaService valoriEcosostenibilitaService;
   private final AttivitaService attivitaService;
+  private final CacheRisposte cacheRisposte;
 
   @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
   @PostMapping
@@ -63,12 +65,14 @@ public class ValoriEcosostenibilitaController {
   private ResponseEntity<Object> visualizzaValoriEcosostenibilita(
       @PathVariable("id") final Long id
   ) {
-    try {
-      return ResponseGenerator.generateResponse(HttpStatus.OK,
-          valoriEcosostenibilitaService.findById(id));
-    } catch (Exception e) {
-      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
-    }
+    return cacheRisposte.risposta("valori/" + id, () -> {
+      try {
+        return ResponseGenerator.generateResponse(HttpStatus.OK,
+            valoriEcosostenibilitaService.findById(id));
+      } catch (Exception e) {
+        return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+      }
+    });
   }
 
   @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
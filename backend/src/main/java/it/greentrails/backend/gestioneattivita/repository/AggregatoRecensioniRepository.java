@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+import it.greentrails.backend.entities.AggregatoRecensioni;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AggregatoRecensioniRepository extends JpaRepository<AggregatoRecensioni, Long> {
+
+}
@@ -0,0 +1,6 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+// Una riga di assegnazione_categorie, letta senza caricare le entità
+public record AssegnazioneCategoria(Long idAttivita, Long idCategoria) {
+
+}
@@ -2,22 +2,30 @@ package it.greentrails.backend.gestioneattivita.repository;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Categoria;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface AttivitaRepository extends JpaRepository<Attivita, Long> {
 
+  // Gestore e valori nella stessa SELECT delle attività, invece di una query per riga
+  String DETTAGLI = "Attivita.dettagli";
+
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a WHERE a.gestore.id = ?1")
   Page<Attivita> findByGestore(Long idGestore, Pageable pageable);
 
   @Query("SELECT a FROM Attivita a WHERE a.valoriEcosostenibilita.id = ?1")
   Optional<Attivita> findByValori(Long idValori);
 
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a WHERE a.nome ILIKE %?1% OR a.citta ILIKE %?1%")
   List<Attivita> findByQuery(String query);
 
@@ -29,23 +37,71 @@ public interface AttivitaRepository extends JpaRepository<Attivita, Long> {
   List<Attivita> findByCategorie(@Param("categorie") List<Categoria> categorie,
       @Param("numCategorie") long numCategorie);
 
+  @Query("SELECT a.id FROM Attivita a JOIN a.categorie c WHERE c.id IN :idCategorie "
+      + "AND a.eliminata = false GROUP BY a.id HAVING COUNT(DISTINCT c) = :numCategorie "
+      + "ORDER BY a.id")
+  List<Long> findIdByCategorie(@Param("idCategorie") List<Long> idCategorie,
+      @Param("numCategorie") long numCategorie);
+
+  @Query("SELECT DISTINCT a.id FROM Attivita a JOIN a.categorie c "
+      + "WHERE c.id IN :idCategorie AND a.eliminata = false ORDER BY a.id")
+  List<Long> findIdByAlmenoUnaCategoria(@Param("idCategorie") List<Long> idCategorie);
+
+  // Una sola pagina di id, senza caricare le attività che verrebbero scartate
+  @Query("SELECT a.id FROM Attivita a WHERE a.eliminata = false AND a.id NOT IN "
+      + "(SELECT e.id FROM Attivita e JOIN e.categorie c WHERE c.id IN :idCategorie) "
+      + "ORDER BY a.id")
+  List<Long> findIdSenzaCategorie(@Param("idCategorie") List<Long> idCategorie,
+      Pageable pageable);
+
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository"
+      + ".AssegnazioneCategoria(a.id, c.id) FROM Attivita a JOIN a.categorie c "
+      + "WHERE a.id IN :idAttivita")
+  List<AssegnazioneCategoria> findAssegnazioniCategorie(
+      @Param("idAttivita") List<Long> idAttivita);
+
+  @Query("SELECT a FROM Attivita a JOIN FETCH a.gestore JOIN FETCH a.valoriEcosostenibilita "
+      + "WHERE a.id IN ?1")
+  List<Attivita> findAllConDettagli(Collection<Long> idAttivita);
+
+  @Override
+  @EntityGraph(DETTAGLI)
+  List<Attivita> findAllById(Iterable<Long> ids);
+
   @Query("SELECT a FROM Attivita a WHERE a.media = ?1")
   Optional<Attivita> findOneByMedia(String media);
 
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository.MediaProprietario("
+      + "a.id, a.media, a.gestore.id) FROM Attivita a WHERE a.id > ?1 ORDER BY a.id")
+  List<MediaProprietario> findMediaDopo(long ultimoId, Limit limite);
+
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a WHERE a.prezzo IS NOT NULL ORDER BY a.prezzo ASC")
   Page<Attivita> getAllByPrezzo(Pageable pageable);
 
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a WHERE a.isAlloggio = true")
   Page<Attivita> getAlloggi(Pageable pageable);
 
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a WHERE a.isAlloggio = false")
   Page<Attivita> getAttivitaTuristiche(Pageable pageable);
 
+  @EntityGraph(DETTAGLI)
   @Query("SELECT a FROM Attivita a")
   List<Attivita> findAll();
 
+  // Paginazione per chiave: usa l'indice della chiave primaria anche sulle pagine lontane
+  @EntityGraph(DETTAGLI)
+  @Query("SELECT a FROM Attivita a WHERE a.id > ?1 ORDER BY a.id")
+  List<Attivita> findDopo(long ultimoId, Limit limite);
+
   @Query(value = "SELECT * FROM attivita WHERE "
       + "ST_Distance_Sphere(coordinate, POINT(?2, ?1)) <= ?3", nativeQuery = true)
   List<Attivita> findByPosizione(double lat, double lon, double raggio);
 
+  @Query(value = "SELECT * FROM attivita WHERE eliminata = false "
+      + "ORDER BY ST_Distance_Sphere(coordinate, POINT(?2, ?1)) LIMIT ?3", nativeQuery = true)
+  List<Attivita> findPiuVicine(double lat, double lon, int limite);
+
 }
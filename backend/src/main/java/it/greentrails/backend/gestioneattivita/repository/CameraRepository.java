@@ -1,8 +1,23 @@
 package it.greentrails.backend.gestioneattivita.repository;
 
 import it.greentrails.backend.entities.Camera;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CameraRepository extends JpaRepository<Camera, Long> {
 
-}
\ No newline at end of file
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository"
+      + ".DisponibilitaCamera(c.id, c.alloggio.id, c.disponibilita) FROM Camera c")
+  List<DisponibilitaCamera> findDisponibilita();
+
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository"
+      + ".PrezzoCamera(c.id, c.alloggio.id, c.prezzo) FROM Camera c")
+  List<PrezzoCamera> findPrezzi();
+
+  @Query("SELECT c FROM Camera c JOIN FETCH c.alloggio a JOIN FETCH a.gestore "
+      + "JOIN FETCH a.valoriEcosostenibilita WHERE c.id IN ?1")
+  List<Camera> findAllConAlloggio(Collection<Long> idCamere);
+
+}
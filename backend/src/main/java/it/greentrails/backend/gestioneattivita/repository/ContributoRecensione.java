@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+// Quello che una recensione aggiunge ai totali della sua attività, letto senza caricarla
+public record ContributoRecensione(Long id, Long idAttivita, int stelle,
+    Boolean politicheAntispreco, Boolean prodottiLocali, Boolean energiaVerde,
+    Boolean raccoltaDifferenziata, Boolean limiteEmissioneCO2, Boolean contattoConNatura) {
+
+}
@@ -0,0 +1,5 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+public record DisponibilitaCamera(Long idCamera, Long idAlloggio, Integer disponibilita) {
+
+}
@@ -0,0 +1,6 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+// La cartella media di un'entità e l'utente che la possiede, letti senza caricare le entità
+public record MediaProprietario(Long id, String media, Long idUtente) {
+
+}
@@ -0,0 +1,5 @@
+package it.greentrails.backend.gestioneattivita.repository;
+
+public record PrezzoCamera(Long idCamera, Long idAlloggio, double prezzo) {
+
+}
@@ -1,12 +1,16 @@
 package it.greentrails.backend.gestioneattivita.repository;
 
 import it.greentrails.backend.entities.Recensione;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface RecensioneRepository extends JpaRepository<Recensione, Long> {
 
@@ -16,6 +20,43 @@ public interface RecensioneRepository extends JpaRepository<Recensione, Long> {
   @Query("SELECT r FROM Recensione r WHERE r.visitatore.id = ?1")
   List<Recensione> findByVisitatore(Long idVisitatore);
 
+  // Pagine a cursore: la condizione riprende dopo l'ultima recensione restituita e l'ordine
+  // segue gli indici su (id_attivita, ...) e (id_visitatore, id), quindi ogni pagina legge
+  // solo le sue righe
+  String PAGINA = "SELECT r FROM Recensione r LEFT JOIN FETCH r.visitatore "
+      + "JOIN FETCH r.attivita JOIN FETCH r.valoriEcosostenibilita ";
+
+  @Query(PAGINA + "WHERE r.attivita.id = ?1 AND r.id < ?2 ORDER BY r.id DESC")
+  List<Recensione> findByAttivitaPrimaDi(Long idAttivita, long id, Limit limite);
+
+  @Query(PAGINA + "WHERE r.attivita.id = ?1 AND (r.valutazioneStelleEsperienza < ?2 "
+      + "OR (r.valutazioneStelleEsperienza = ?2 AND r.id < ?3)) "
+      + "ORDER BY r.valutazioneStelleEsperienza DESC, r.id DESC")
+  List<Recensione> findByAttivitaPerValutazioneDopo(Long idAttivita, int stelle, long id,
+      Limit limite);
+
+  @Query(PAGINA + "WHERE r.visitatore.id = ?1 AND r.id < ?2 ORDER BY r.id DESC")
+  List<Recensione> findByVisitatorePrimaDi(Long idVisitatore, long id, Limit limite);
+
   @Query("SELECT r FROM Recensione r WHERE r.media = ?1")
   Optional<Recensione> findOneByMedia(String media);
-}
\ No newline at end of file
+
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository.MediaProprietario("
+      + "r.id, r.media, r.visitatore.id) FROM Recensione r "
+      + "WHERE r.id > ?1 AND r.media IS NOT NULL ORDER BY r.id")
+  List<MediaProprietario> findMediaDopo(long ultimoId, Limit limite);
+
+  String CONTRIBUTO = "SELECT new it.greentrails.backend.gestioneattivita.repository."
+      + "ContributoRecensione(r.id, r.attivita.id, r.valutazioneStelleEsperienza, "
+      + "v.politicheAntispreco, v.prodottiLocali, v.energiaVerde, v.raccoltaDifferenziata, "
+      + "v.limiteEmissioneCO2, v.contattoConNatura) "
+      + "FROM Recensione r JOIN r.valoriEcosostenibilita v ";
+
+  // Senza flush: se la recensione è gestita e già modificata si leggono i valori salvati
+  @Query(CONTRIBUTO + "WHERE r.id = ?1")
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+  Optional<ContributoRecensione> findContributo(Long id);
+
+  @Query(CONTRIBUTO + "WHERE r.id > ?1 ORDER BY r.id")
+  List<ContributoRecensione> findContributiDopo(long ultimoId, Limit limite);
+}
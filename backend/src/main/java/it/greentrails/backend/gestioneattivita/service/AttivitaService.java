@@ -4,6 +4,7 @@ import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /*@ nullable_by_default @*/
 public interface AttivitaService {
@@ -34,4 +35,10 @@ public interface AttivitaService {
 
   /*@ ensures \result != null; @*/
   List<Attivita> findAll();
+
+  /*@ ensures \result != null; @*/
+  List<Attivita> findAllDopo(/*@ nullable @*/ Long ultimoId, int limite) throws Exception;
+
+  /*@ requires consumatore != null; @*/
+  long esportaAttivita(Consumer<Attivita> consumatore);
 }
\ No newline at end of file
@@ -2,29 +2,47 @@ package it.greentrails.backend.gestioneattivita.service;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.events.AttivitaModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import jakarta.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 /*@ nullable_by_default @*/
 public class AttivitaServiceImpl implements AttivitaService {
 
+  static final int LIMITE_MASSIMO = 1000;
+  static final int DIMENSIONE_BLOCCO = 500;
+
   /*@ spec_public non_null @*/
   private final AttivitaRepository repository;
 
-  // repository is guaranteed non-null by Spring constructor injection
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  /*@ spec_public non_null @*/
+  private final EntityManager entityManager;
+
+  // repository, eventPublisher and entityManager are guaranteed non-null by Spring constructor
+  // injection
 
   @Override
   public Attivita saveAttivita(/*@ nullable @*/ Attivita attivita) throws Exception {
     if (attivita == null) {
       throw new Exception("L'attività è vuota.");
     }
-    return repository.save(attivita);
+    Attivita salvata = repository.save(attivita);
+    eventPublisher.publishEvent(new AttivitaModificataEvent(salvata));
+    return salvata;
   }
 
   @Override
@@ -93,4 +111,38 @@ public class AttivitaServiceImpl implements AttivitaService {
     return repository.findAll();
   }
 
-}
\ No newline at end of file
+  /*@
+    @ also
+    @ ensures \result != null;
+    @*/
+  @Override
+  public List<Attivita> findAllDopo(/*@ nullable @*/ Long ultimoId, int limite)
+      throws Exception {
+    if (limite <= 0 || limite > LIMITE_MASSIMO) {
+      throw new Exception("Il limite non è valido.");
+    }
+    return repository.findDopo(ultimoId == null ? 0 : ultimoId, Limit.of(limite));
+  }
+
+  // Scorre il catalogo a blocchi per chiave; dopo ogni blocco il contesto di persistenza
+  // viene svuotato, così la memoria occupata non dipende dalla dimensione del catalogo.
+  @Override
+  @Transactional(readOnly = true)
+  public long esportaAttivita(Consumer<Attivita> consumatore) {
+    long totale = 0;
+    long ultimoId = 0;
+    List<Attivita> blocco = repository.findDopo(ultimoId, Limit.of(DIMENSIONE_BLOCCO));
+    while (!blocco.isEmpty()) {
+      for (Attivita attivita : blocco) {
+        consumatore.accept(attivita);
+      }
+      totale += blocco.size();
+      ultimoId = blocco.get(blocco.size() - 1).getId();
+      entityManager.clear();
+      blocco = blocco.size() < DIMENSIONE_BLOCCO ? List.of()
+          : repository.findDopo(ultimoId, Limit.of(DIMENSIONE_BLOCCO));
+    }
+    return totale;
+  }
+
+}
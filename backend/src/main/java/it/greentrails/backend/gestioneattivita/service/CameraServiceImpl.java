@@ -2,11 +2,13 @@ package it.greentrails.backend.gestioneattivita.service;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.events.CameraModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,8 +18,10 @@ public class CameraServiceImpl implements CameraService {
 
   /*@ spec_public non_null @*/
   private final CameraRepository repository;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
-  // repository is guaranteed non-null by Spring constructor injection
+  // repository and eventPublisher are guaranteed non-null by Spring constructor injection
 
   /*@
     @ also
@@ -28,7 +32,9 @@ public class CameraServiceImpl implements CameraService {
     if (camera == null) {
       throw new Exception("La camera è vuota.");
     }
-    return repository.save(camera);
+    Camera salvata = repository.save(camera);
+    eventPublisher.publishEvent(new CameraModificataEvent(salvata, false));
+    return salvata;
   }
 
   /*@
@@ -80,6 +86,7 @@ public class CameraServiceImpl implements CameraService {
     }
     repository.delete(camera);
     repository.flush();
+    eventPublisher.publishEvent(new CameraModificataEvent(camera, true));
     return repository.findById(camera.getId()).isEmpty();
   }
 }
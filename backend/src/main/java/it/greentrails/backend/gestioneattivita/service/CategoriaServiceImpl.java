@@ -1,9 +1,11 @@
 package it.greentrails.backend.gestioneattivita.service;
 
 import it.greentrails.backend.entities.Categoria;
+import it.greentrails.backend.events.CategoriaModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.CategoriaRepository;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,7 +16,10 @@ public class CategoriaServiceImpl implements CategoriaService {
   /*@ spec_public non_null @*/
   private final CategoriaRepository repository;
 
-  // repository is guaranteed non-null by Spring constructor injection
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  // repository and eventPublisher are guaranteed non-null by Spring constructor injection
 
   /*@
     @ also
@@ -25,7 +30,9 @@ public class CategoriaServiceImpl implements CategoriaService {
     if (categoria == null) {
       throw new Exception("Non è possibile salvare questa categoria.");
     }
-    return repository.save(categoria);
+    Categoria salvata = repository.save(categoria);
+    eventPublisher.publishEvent(new CategoriaModificataEvent(salvata, false));
+    return salvata;
   }
 
   /*@
@@ -38,6 +45,7 @@ public class CategoriaServiceImpl implements CategoriaService {
     }
     repository.delete(categoria);
     repository.flush();
+    eventPublisher.publishEvent(new CategoriaModificataEvent(categoria, true));
     return repository.findById(categoria.getId()).isEmpty();
 
   }
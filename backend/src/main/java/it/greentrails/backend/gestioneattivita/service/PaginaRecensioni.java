@@ -0,0 +1,11 @@
+package it.greentrails.backend.gestioneattivita.service;
+
+import it.greentrails.backend.entities.Recensione;
+import java.util.List;
+
+// Una pagina del feed delle recensioni; il cursore va passato per chiedere la successiva ed è
+// null sull'ultima
+/*@ nullable_by_default @*/
+public record PaginaRecensioni(List<Recensione> recensioni, String cursore) {
+
+}
@@ -3,6 +3,7 @@ package it.greentrails.backend.gestioneattivita.service;
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
 import java.util.List;
 
 /*@ nullable_by_default @*/
@@ -25,8 +26,31 @@ public interface RecensioneService {
     @*/
   List<Recensione> getRecensioniByAttivita(/*@ nullable @*/ Attivita attivita) throws Exception;
 
+  /*@
+    @ ensures \result != null;
+    @*/
+  PaginaRecensioni getPaginaByAttivita(/*@ nullable @*/ Long idAttivita,
+      /*@ nullable @*/ OrdinamentoRecensioni ordinamento, /*@ nullable @*/ String cursore,
+      int dimensione) throws Exception;
+
+  /*@
+    @ ensures \result != null;
+    @*/
+  PaginaRecensioni getPaginaByVisitatore(/*@ nullable @*/ Utente utente,
+      /*@ nullable @*/ String cursore, int dimensione) throws Exception;
+
   /*@
     @ ensures \result != null;
     @*/
   List<Recensione> getAllRecensioniByVisitatore(/*@ nullable @*/ Utente utente) throws Exception;
+
+  /*@
+    @ ensures \result != null;
+    @*/
+  RiepilogoRecensioni getRiepilogoByAttivita(/*@ nullable @*/ Long idAttivita) throws Exception;
+
+  /*@
+    @ ensures \result >= 0;
+    @*/
+  int ricostruisciRiepiloghi();
 }
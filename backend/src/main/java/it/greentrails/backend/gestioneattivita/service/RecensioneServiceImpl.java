@@ -3,33 +3,61 @@ package it.greentrails.backend.gestioneattivita.service;
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
+import it.greentrails.backend.events.RecensioneModificataEvent;
+import it.greentrails.backend.gestioneattivita.aggregati.AggregatiRecensioni;
+import it.greentrails.backend.gestioneattivita.repository.ContributoRecensione;
 import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import java.security.InvalidParameterException;
 import java.util.List;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 /*@ nullable_by_default @*/
 public class RecensioneServiceImpl implements RecensioneService {
 
+  static final int DIMENSIONE_MASSIMA = 100;
+  private static final int STELLE_MASSIME = 5;
+
   /*@ spec_public non_null @*/
   private final RecensioneRepository repository;
 
-  // repository is guaranteed non-null by Spring constructor injection
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  /*@ spec_public non_null @*/
+  private final AggregatiRecensioni aggregati;
+
+  // repository, eventPublisher and aggregati are guaranteed non-null by Spring constructor
+  // injection
 
   /*@
     @ also
     @ ensures \result != null;
     @*/
   @Override
+  @Transactional
   public Recensione saveRecensione(/*@ nullable @*/ Recensione recensione) throws Exception {
     if (recensione == null) {
       throw new Exception("La recensione è vuota.");
     }
-    return repository.save(recensione);
+    // Se la recensione esiste già, i totali perdono i valori salvati e prendono i nuovi
+    if (recensione.getId() != null) {
+      repository.findContributo(recensione.getId())
+          .ifPresent(precedente -> aggregati.applica(precedente, -1));
+    }
+    Recensione salvata = repository.save(recensione);
+    aggregati.applica(contributo(salvata), 1);
+    eventPublisher.publishEvent(new RecensioneModificataEvent(salvata, false));
+    return salvata;
   }
 
   /*@
@@ -52,12 +80,16 @@ public class RecensioneServiceImpl implements RecensioneService {
     @ requires recensione != null;
     @*/
   @Override
+  @Transactional
   public boolean deleteRecensione(Recensione recensione) throws Exception {
     if (recensione == null) {
       throw new Exception("La recensione è vuota.");
     }
+    repository.findContributo(recensione.getId())
+        .ifPresent(salvato -> aggregati.applica(salvato, -1));
     repository.delete(recensione);
     repository.flush();
+    eventPublisher.publishEvent(new RecensioneModificataEvent(recensione, true));
     return repository.findById(recensione.getId()).isEmpty();
   }
 
@@ -74,6 +106,84 @@ public class RecensioneServiceImpl implements RecensioneService {
     return repository.findByAttivita(attivita.getId(), Pageable.unpaged()).toList();
   }
 
+  // Recensione non ha una data: gli id sono assegnati in ordine di inserimento, quindi le più
+  // recenti sono quelle con l'id più alto. Il cursore è l'ultimo id restituito, preceduto
+  // dalle stelle quando l'ordine è per valutazione
+  /*@
+    @ also
+    @ ensures \result != null;
+    @*/
+  @Override
+  public PaginaRecensioni getPaginaByAttivita(/*@ nullable @*/ Long idAttivita,
+      /*@ nullable @*/ OrdinamentoRecensioni ordinamento, /*@ nullable @*/ String cursore,
+      int dimensione) throws Exception {
+    if (idAttivita == null || idAttivita < 0) {
+      throw new Exception("L'id non è valido.");
+    }
+    Limit limite = limite(dimensione);
+    if (ordinamento == OrdinamentoRecensioni.VALUTAZIONE) {
+      long[] posizione = cursore == null ? new long[]{STELLE_MASSIME + 1, Long.MAX_VALUE}
+          : leggiCursore(cursore, 2);
+      List<Recensione> recensioni = repository.findByAttivitaPerValutazioneDopo(idAttivita,
+          (int) posizione[0], posizione[1], limite);
+      return pagina(recensioni, dimensione, true);
+    }
+    long prima = cursore == null ? Long.MAX_VALUE : leggiCursore(cursore, 1)[0];
+    return pagina(repository.findByAttivitaPrimaDi(idAttivita, prima, limite), dimensione,
+        false);
+  }
+
+  /*@
+    @ also
+    @ ensures \result != null;
+    @*/
+  @Override
+  public PaginaRecensioni getPaginaByVisitatore(/*@ nullable @*/ Utente utente,
+      /*@ nullable @*/ String cursore, int dimensione) throws Exception {
+    if (utente == null) {
+      throw new Exception("L'utente è vuoto.");
+    }
+    long prima = cursore == null ? Long.MAX_VALUE : leggiCursore(cursore, 1)[0];
+    return pagina(repository.findByVisitatorePrimaDi(utente.getId(), prima,
+        limite(dimensione)), dimensione, false);
+  }
+
+  // Un elemento in più dice se esiste una pagina successiva
+  private static Limit limite(int dimensione) {
+    if (dimensione <= 0 || dimensione > DIMENSIONE_MASSIMA) {
+      throw new InvalidParameterException("La dimensione della pagina non è valida.");
+    }
+    return Limit.of(dimensione + 1);
+  }
+
+  private static PaginaRecensioni pagina(List<Recensione> recensioni, int dimensione,
+      boolean perValutazione) {
+    if (recensioni.size() <= dimensione) {
+      return new PaginaRecensioni(recensioni, null);
+    }
+    Recensione ultima = recensioni.get(dimensione - 1);
+    String cursore = perValutazione
+        ? ultima.getValutazioneStelleEsperienza() + "_" + ultima.getId()
+        : String.valueOf(ultima.getId());
+    return new PaginaRecensioni(recensioni.subList(0, dimensione), cursore);
+  }
+
+  private static long[] leggiCursore(String cursore, int parti) {
+    String[] valori = cursore.split("_", -1);
+    if (valori.length != parti) {
+      throw new InvalidParameterException("Il cursore non è valido.");
+    }
+    long[] posizione = new long[parti];
+    try {
+      for (int i = 0; i < parti; i++) {
+        posizione[i] = Long.parseLong(valori[i]);
+      }
+    } catch (NumberFormatException e) {
+      throw new InvalidParameterException("Il cursore non è valido.");
+    }
+    return posizione;
+  }
+
   /*@
     @ also
     @ requires utente != null;
@@ -86,4 +196,33 @@ public class RecensioneServiceImpl implements RecensioneService {
     }
     return repository.findByVisitatore(utente.getId());
   }
+
+  /*@
+    @ also
+    @ ensures \result != null;
+    @*/
+  @Override
+  public RiepilogoRecensioni getRiepilogoByAttivita(/*@ nullable @*/ Long idAttivita)
+      throws Exception {
+    if (idAttivita == null || idAttivita < 0) {
+      throw new Exception("L'id non è valido.");
+    }
+    return RiepilogoRecensioni.di(aggregati.trova(idAttivita));
+  }
+
+  @Override
+  public int ricostruisciRiepiloghi() {
+    return aggregati.ricostruisci();
+  }
+
+  private static ContributoRecensione contributo(Recensione recensione) {
+    ValoriEcosostenibilita valori = recensione.getValoriEcosostenibilita();
+    if (recensione.getAttivita() == null || valori == null) {
+      return null;
+    }
+    return new ContributoRecensione(recensione.getId(), recensione.getAttivita().getId(),
+        recensione.getValutazioneStelleEsperienza(), valori.getPoliticheAntispreco(),
+        valori.getProdottiLocali(), valori.getEnergiaVerde(), valori.getRaccoltaDifferenziata(),
+        valori.getLimiteEmissioneCO2(), valori.getContattoConNatura());
+  }
 }
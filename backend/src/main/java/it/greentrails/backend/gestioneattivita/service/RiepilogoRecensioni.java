@@ -0,0 +1,30 @@
+package it.greentrails.backend.gestioneattivita.service;
+
+import it.greentrails.backend.entities.AggregatoRecensioni;
+import java.util.List;
+
+// I totali delle recensioni di un'attività come li vede il client: media delle stelle,
+// recensioni per numero di stelle (indice = stelle) e per valore di ecosostenibilità
+/*@ nullable_by_default @*/
+public record RiepilogoRecensioni(Long idAttivita, long numero, double media, List<Long> stelle,
+    Ecosostenibilita ecosostenibilita) {
+
+  public record Ecosostenibilita(long politicheAntispreco, long prodottiLocali,
+      long energiaVerde, long raccoltaDifferenziata, long limiteEmissioneCO2,
+      long contattoConNatura) {
+
+  }
+
+  /*@ requires aggregato != null; ensures \result != null; @*/
+  public static RiepilogoRecensioni di(AggregatoRecensioni aggregato) {
+    long numero = aggregato.getNumero();
+    return new RiepilogoRecensioni(aggregato.getIdAttivita(), numero,
+        numero == 0 ? 0 : (double) aggregato.getSommaStelle() / numero,
+        List.of(aggregato.getStelle0(), aggregato.getStelle1(), aggregato.getStelle2(),
+            aggregato.getStelle3(), aggregato.getStelle4(), aggregato.getStelle5()),
+        new Ecosostenibilita(aggregato.getPoliticheAntispreco(), aggregato.getProdottiLocali(),
+            aggregato.getEnergiaVerde(), aggregato.getRaccoltaDifferenziata(),
+            aggregato.getLimiteEmissioneCO2(), aggregato.getContattoConNatura()));
+  }
+
+}
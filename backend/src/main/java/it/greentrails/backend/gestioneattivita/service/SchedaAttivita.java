@@ -0,0 +1,47 @@
+package it.greentrails.backend.gestioneattivita.service;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Categoria;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.CategorieAttivitaTuristica;
+import java.util.List;
+import org.springframework.data.geo.Point;
+
+// Vista in sola lettura di un'attività per gli elenchi: stessi campi dell'entità, ma del
+// gestore restano solo i dati pubblici
+/*@ nullable_by_default @*/
+public record SchedaAttivita(Long id, Gestore gestore, String nome, String indirizzo, String cap,
+    String citta, String provincia, Point coordinate, Double prezzo, String descrizioneBreve,
+    String descrizioneLunga, String media, Integer disponibilita,
+    ValoriEcosostenibilita valoriEcosostenibilita, CategorieAlloggio categoriaAlloggio,
+    CategorieAttivitaTuristica categoriaAttivitaTuristica, boolean alloggio, boolean eliminata,
+    List<Categoria> categorie) {
+
+  public record Gestore(Long id, String nome, String cognome) {
+
+    static Gestore di(Utente utente) {
+      return utente == null ? null
+          : new Gestore(utente.getId(), utente.getNome(), utente.getCognome());
+    }
+  }
+
+  /*@ requires attivita != null; @*/
+  public static SchedaAttivita di(Attivita attivita) {
+    return new SchedaAttivita(attivita.getId(), Gestore.di(attivita.getGestore()),
+        attivita.getNome(), attivita.getIndirizzo(), attivita.getCap(), attivita.getCitta(),
+        attivita.getProvincia(), attivita.getCoordinate(), attivita.getPrezzo(),
+        attivita.getDescrizioneBreve(), attivita.getDescrizioneLunga(), attivita.getMedia(),
+        attivita.getDisponibilita(), attivita.getValoriEcosostenibilita(),
+        attivita.getCategoriaAlloggio(), attivita.getCategoriaAttivitaTuristica(),
+        attivita.isAlloggio(), attivita.isEliminata(),
+        attivita.getCategorie() == null ? List.of() : List.copyOf(attivita.getCategorie()));
+  }
+
+  /*@ requires attivita != null; ensures \result != null; @*/
+  public static List<SchedaAttivita> di(List<Attivita> attivita) {
+    return attivita.stream().map(SchedaAttivita::di).toList();
+  }
+
+}
@@ -1,9 +1,11 @@
 package it.greentrails.backend.gestioneattivita.service;
 
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.events.ValoriModificatiEvent;
 import it.greentrails.backend.gestioneattivita.repository.ValoriEcosostenibilitaRepository;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,7 +16,10 @@ public class ValoriEcosostenibilitaServiceImpl implements ValoriEcosostenibilita
   /*@ spec_public non_null @*/
   private final ValoriEcosostenibilitaRepository repository;
 
-  // repository is guaranteed non-null by Spring constructor injection
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  // repository and eventPublisher are guaranteed non-null by Spring constructor injection
 
   /*@
     @ also
@@ -25,7 +30,9 @@ public class ValoriEcosostenibilitaServiceImpl implements ValoriEcosostenibilita
     if (valori == null) {
       throw new Exception("Non è possibile salvare questo valore di ecosostenibilità.");
     }
-    return repository.save(valori);
+    ValoriEcosostenibilita salvati = repository.save(valori);
+    eventPublisher.publishEvent(new ValoriModificatiEvent(salvati, false));
+    return salvati;
   }
 
 
@@ -39,6 +46,7 @@ public class ValoriEcosostenibilitaServiceImpl implements ValoriEcosostenibilita
     }
     repository.delete(valori);
     repository.flush();
+    eventPublisher.publishEvent(new ValoriModificatiEvent(valori, true));
     return repository.findById(valori.getId()).isEmpty();
   }
 
@@ -10,5 +10,5 @@ public interface ItinerariAdapter {
     @ requires preferenze != null;
     @ ensures \result != null;
     @*/
-  Itinerario pianificazioneAutomatica(Preferenze preferenze);
+  Itinerario pianificazioneAutomatica(Preferenze preferenze) throws Exception;
 }
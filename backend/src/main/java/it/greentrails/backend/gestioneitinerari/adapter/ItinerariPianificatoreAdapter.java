@@ -0,0 +1,190 @@
+package it.greentrails.backend.gestioneitinerari.adapter;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneitinerari.exceptions.PianificazioneNonDisponibileException;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari.Candidato;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+// Pianificazione secondo le preferenze del visitatore: l'alloggio con il punteggio più alto e
+// le attività turistiche migliori vicino a lui, scelti da IndiceItinerari senza leggere il
+// catalogo dal database. Le prenotazioni hanno la stessa forma di quelle di
+// ItinerariStubAdapter: una notte in camera e NUMERO_ATTIVITA attività. Visitatori con le
+// stesse preferenze ricevono gli stessi candidati: quelli senza posti liberi vengono saltati,
+// e le prenotazioni passano da AmmissionePrenotazioni come tutte le altre.
+@Service
+@Primary
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class ItinerariPianificatoreAdapter implements ItinerariAdapter {
+
+  static final int NUMERO_ATTIVITA = 3;
+
+  /*@ spec_public non_null @*/
+  private final IndiceItinerari indiceItinerari;
+  /*@ spec_public non_null @*/
+  private final AttivitaRepository attivitaRepository;
+  /*@ spec_public non_null @*/
+  private final CameraRepository cameraRepository;
+  /*@ spec_public non_null @*/
+  private final ItinerariRepository itinerariRepository;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAlloggioService prenotazioneAlloggioService;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAttivitaTuristicaService prenotazioneAttivitaTuristicaService;
+  /*@ spec_public non_null @*/
+  private final AmmissionePrenotazioni ammissione;
+  /*@ spec_public non_null @*/
+  private final TransactionOperations transazione;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  /*@
+    @ also
+    @ requires preferenze != null;
+    @ ensures \result != null;
+    @*/
+  @Override
+  public Itinerario pianificazioneAutomatica(Preferenze preferenze) throws Exception {
+    // Prima del caricamento l'indice è vuoto e l'itinerario resterebbe senza prenotazioni
+    if (!indiceItinerari.isPronto()) {
+      throw new PianificazioneNonDisponibileException(
+          "La pianificazione automatica non è ancora disponibile.");
+    }
+    Date inizio = Date.from(Instant.now().plus(1, ChronoUnit.HOURS));
+    Date fine = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+
+    // Le entità lette per il controllo dei posti servono anche per le prenotazioni
+    Map<Long, Camera> camere = new HashMap<>();
+    Map<Long, Attivita> attivita = new HashMap<>();
+    Candidato alloggio = indiceItinerari.migliorAlloggio(preferenze,
+        candidato -> cameraLibera(camera(camere, candidato.idCamera()), inizio, fine));
+    Camera camera = alloggio == null ? null : camere.get(alloggio.idCamera());
+    // Senza alloggio, o senza le sue coordinate, la distanza non conta
+    List<Candidato> scelte = indiceItinerari.miglioriAttivita(preferenze,
+        camera == null ? Double.NaN : alloggio.latitudine(),
+        camera == null ? Double.NaN : alloggio.longitudine(), NUMERO_ATTIVITA,
+        candidato -> attivitaLibera(attivita(attivita, candidato.idAttivita()), inizio));
+
+    List<Long> idCamere = camera == null ? List.of() : List.of(camera.getId());
+    List<Long> idAttivita = scelte.stream().map(Candidato::idAttivita).toList();
+    // I posti vengono ricontrollati sotto gli stessi lock delle altre prenotazioni: nel
+    // frattempo un'altra richiesta può aver preso gli ultimi
+    return ammissione.perRisorse(idCamere, idAttivita, () -> {
+      PrenotazioneAlloggio prenotazioneAlloggio = camera != null
+          && cameraLibera(camera, inizio, fine)
+          ? prenotazioneAlloggio(camera, inizio, fine) : null;
+      List<PrenotazioneAttivitaTuristica> prenotazioniAttivita = new ArrayList<>();
+      for (Candidato scelta : scelte) {
+        Attivita a = attivita.get(scelta.idAttivita());
+        if (attivitaLibera(a, inizio)) {
+          prenotazioniAttivita.add(prenotazioneAttivita(a, scelta.prezzo(), inizio));
+        }
+      }
+      Itinerario salvato = transazione.execute(stato -> {
+        Itinerario itinerario = new Itinerario();
+        itinerario.setVisitatore(preferenze.getVisitatore());
+        Itinerario nuovo = itinerariRepository.save(itinerario);
+        if (prenotazioneAlloggio != null) {
+          prenotazioneAlloggio.setItinerario(nuovo);
+          prenotazioneAlloggioRepository.save(prenotazioneAlloggio);
+        }
+        for (PrenotazioneAttivitaTuristica p : prenotazioniAttivita) {
+          p.setItinerario(nuovo);
+          prenotazioneAttivitaTuristicaRepository.save(p);
+        }
+        return nuovo;
+      });
+      if (prenotazioneAlloggio != null) {
+        eventPublisher.publishEvent(
+            new PrenotazioneAlloggioModificataEvent(prenotazioneAlloggio, false));
+      }
+      for (PrenotazioneAttivitaTuristica p : prenotazioniAttivita) {
+        eventPublisher.publishEvent(new PrenotazioneAttivitaTuristicaModificataEvent(p, false));
+      }
+      return salvato;
+    });
+  }
+
+  private Camera camera(Map<Long, Camera> camere, Long idCamera) {
+    return camere.computeIfAbsent(idCamera, id -> cameraRepository.findById(id).orElse(null));
+  }
+
+  private Attivita attivita(Map<Long, Attivita> attivita, long idAttivita) {
+    return attivita.computeIfAbsent(idAttivita,
+        id -> attivitaRepository.findById(id).orElse(null));
+  }
+
+  private boolean cameraLibera(Camera camera, Date inizio, Date fine) {
+    try {
+      return camera != null
+          && prenotazioneAlloggioService.controllaDisponibilitaCamera(camera, inizio, fine) > 0;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private boolean attivitaLibera(Attivita attivita, Date inizio) {
+    try {
+      return attivita != null && prenotazioneAttivitaTuristicaService
+          .controllaDisponibilitaAttivitaTuristica(attivita, inizio) > 0;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private static PrenotazioneAlloggio prenotazioneAlloggio(Camera camera, Date inizio,
+      Date fine) {
+    PrenotazioneAlloggio p = new PrenotazioneAlloggio();
+    p.setCamera(camera);
+    p.setDataInizio(inizio);
+    p.setDataFine(fine);
+    p.setNumAdulti(1);
+    p.setNumBambini(0);
+    p.setNumCamere(1);
+    p.setPrezzo(camera.getPrezzo());
+    return p;
+  }
+
+  private static PrenotazioneAttivitaTuristica prenotazioneAttivita(Attivita attivita,
+      double prezzo, Date inizio) {
+    PrenotazioneAttivitaTuristica p = new PrenotazioneAttivitaTuristica();
+    p.setAttivitaTuristica(attivita);
+    p.setDataInizio(inizio);
+    p.setNumAdulti(1);
+    p.setNumBambini(0);
+    p.setPrezzo(prezzo);
+    return p;
+  }
+
+}
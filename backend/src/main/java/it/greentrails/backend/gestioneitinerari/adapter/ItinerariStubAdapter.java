@@ -6,6 +6,8 @@ import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.Preferenze;
 import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
 import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
 import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
@@ -17,7 +19,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -34,6 +38,8 @@ public class ItinerariStubAdapter implements ItinerariAdapter {
   private final PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
   /*@ spec_public non_null @*/
   private final PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
   // Spring guarantees injection — removed JML invariants to fix InvariantExit errors
 
@@ -43,7 +49,9 @@ public class ItinerariStubAdapter implements ItinerariAdapter {
     @ requires preferenze != null;
     @ ensures \result != null;
     @*/
+  // In un'unica transazione le prenotazioni vengono scritte insieme, in batch, al commit
   @Override
+  @Transactional
   public Itinerario pianificazioneAutomatica(Preferenze preferenze) {
     Itinerario itinerario = new Itinerario();
     itinerario.setVisitatore(preferenze.getVisitatore());
@@ -62,6 +70,7 @@ public class ItinerariStubAdapter implements ItinerariAdapter {
       p.setNumBambini(0);
       p.setPrezzo(a.getPrezzo());
       PrenotazioneAttivitaTuristica saved = prenotazioneAttivitaTuristicaRepository.save(p);
+      eventPublisher.publishEvent(new PrenotazioneAttivitaTuristicaModificataEvent(saved, false));
     });
     List<Camera> camere = cameraRepository.findAll();
     if (camere == null) {
@@ -79,6 +88,7 @@ public class ItinerariStubAdapter implements ItinerariAdapter {
       p.setNumCamere(1);
       p.setPrezzo(c.getPrezzo());
       PrenotazioneAlloggio saved = prenotazioneAlloggioRepository.save(p);
+      eventPublisher.publishEvent(new PrenotazioneAlloggioModificataEvent(saved, false));
     });
     return itinerarioFinal;
   }
@@ -3,9 +3,14 @@ package it.greentrails.backend.gestioneitinerari.controller;
 import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.Preferenze;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneitinerari.exceptions.PianificazioneNonDisponibileException;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PrenotazioneNonValidaException;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioniItinerarioService;
+import it.greentrails.backend.gestioneprenotazioni.service.RichiestaPrenotazioni;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import java.util.HashMap;
@@ -17,6 +22,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -29,6 +35,7 @@ public class ItinerariController {
   private final PrenotazioneAttivitaTuristicaService prenotazioneAttivitaTuristicaService;
   private final PrenotazioneAlloggioService prenotazioneAlloggioService;
   private final GestioneUtenzeService gestioneUtenzeService;
+  private final PrenotazioniItinerarioService prenotazioniItinerarioService;
 
   @PostMapping
   private ResponseEntity<Object> creaItinerario(
@@ -52,6 +59,8 @@ public class ItinerariController {
       Preferenze preferenze = gestioneUtenzeService.getPreferenzeById(utente.getId());
       Itinerario itinerario = itinerariService.createByPreferenze(preferenze);
       return ResponseGenerator.generateResponse(HttpStatus.OK, itinerario);
+    } catch (PianificazioneNonDisponibileException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -79,6 +88,27 @@ public class ItinerariController {
     }
   }
 
+  // Tutte le prenotazioni vengono registrate insieme, oppure nessuna
+  @PostMapping("{id}/prenotazioni:batch")
+  private ResponseEntity<Object> prenotaItinerario(
+      @AuthenticationPrincipal Utente utente,
+      @PathVariable("id") final Long id,
+      @RequestBody final RichiestaPrenotazioni richiesta
+  ) {
+    try {
+      Itinerario itinerario = itinerariService.findById(id);
+      if (!itinerario.getVisitatore().getId().equals(utente.getId())) {
+        return ResponseGenerator.generateResponse(HttpStatus.NOT_FOUND, "Itinerario non trovato");
+      }
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          prenotazioniItinerarioService.prenota(itinerario, richiesta));
+    } catch (PostiNonDisponibiliException | PrenotazioneNonValidaException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
   @DeleteMapping("{id}")
   private ResponseEntity<Object> cancellaItinerario(
       @AuthenticationPrincipal Utente utente,
@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneitinerari.exceptions;
+
+public class PianificazioneNonDisponibileException extends Exception {
+
+  public PianificazioneNonDisponibileException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,451 @@
+package it.greentrails.backend.gestioneitinerari.indice;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.CategorieAttivitaTuristica;
+import it.greentrails.backend.enums.PreferenzeBudget;
+import it.greentrails.backend.enums.PreferenzeStagione;
+import it.greentrails.backend.events.CameraModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.PrezzoCamera;
+import it.greentrails.backend.gestionericerca.indice.IndiceAttivita;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Point;
+import org.springframework.stereotype.Component;
+
+// I candidati per la pianificazione automatica degli itinerari, alimentato da CaricatoreIndici
+// per le attività e dagli eventi delle camere per i prezzi degli alloggi. Le attività sono
+// divise per categoria e, per ogni fascia di budget, ordinate per il punteggio che non dipende
+// dalla posizione (ecosostenibilità e prezzo). La ricerca scorre gli ordinamenti e si ferma
+// quando nessun candidato rimasto può superare quelli già scelti, perché la distanza può solo
+// togliere punti.
+@Component
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class IndiceItinerari implements IndiceAttivita {
+
+  static final double PESO_ECO = 2.0;
+  static final double PESO_TIPO = 3.0;
+  static final double PESO_STAGIONE = 1.0;
+  static final double PESO_BUDGET = 1.5;
+  static final double PENALITA_BUDGET_MASSIMA = 5.0;
+  // Un punto in meno ogni 20 km dal punto di partenza, fino a 5
+  static final double METRI_PER_PUNTO = 20_000;
+  static final double PENALITA_DISTANZA_MASSIMA = 5.0;
+  private static final double RAGGIO_TERRESTRE = 6_370_986;
+  // Prezzo massimo per attività e per notte in camera, per BASSO, MEDIO, ALTO e FLESSIBILE
+  private static final double[] MASSIMO_ATTIVITA = {25, 60, 150, Double.POSITIVE_INFINITY};
+  private static final double[] MASSIMO_CAMERA = {70, 140, 300, Double.POSITIVE_INFINITY};
+
+  /*@ spec_public non_null @*/
+  private final CameraRepository cameraRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Voce> voci = new HashMap<>();
+  private final Map<Long, PrezzoCamera> camere = new HashMap<>();
+  // Ricostruita alla prima ricerca dopo una modifica
+  private Istantanea istantanea;
+  private volatile boolean pronto = false;
+
+  public record Candidato(long idAttivita, Long idCamera, double prezzo, double latitudine,
+                          double longitudine, double punteggio) {
+
+  }
+
+  private record Voce(long id, boolean alloggio, int categoria, double latitudine,
+                      double longitudine, double prezzo, int eco) {
+
+  }
+
+  // Le attività di una categoria, in array paralleli; ordine[b] sono le posizioni in ordine
+  // di punteggio decrescente per la fascia di budget b, e statico[b] i punteggi corrispondenti
+  private record Gruppo(long[] id, Long[] camera, double[] latitudine, double[] longitudine,
+                        double[] prezzo, int[][] ordine, double[][] statico) {
+
+    int size() {
+      return id.length;
+    }
+  }
+
+  private record Istantanea(Gruppo[] attivita, Gruppo[] alloggi) {
+
+  }
+
+  @Override
+  public void aggiorna(Attivita attivita) {
+    Point coordinate = attivita.getCoordinate();
+    int categoria = attivita.isAlloggio()
+        ? ordinale(attivita.getCategoriaAlloggio())
+        : ordinale(attivita.getCategoriaAttivitaTuristica());
+    Voce voce = new Voce(attivita.getId(), attivita.isAlloggio(), categoria,
+        coordinate == null ? Double.NaN : coordinate.getX(),
+        coordinate == null ? Double.NaN : coordinate.getY(),
+        attivita.getPrezzo() == null ? 0 : attivita.getPrezzo(),
+        eco(attivita.getValoriEcosostenibilita()));
+    lock.writeLock().lock();
+    try {
+      voci.put(voce.id(), voce);
+      istantanea = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void rimuovi(Long idAttivita) {
+    lock.writeLock().lock();
+    try {
+      voci.remove(idAttivita);
+      istantanea = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Le camere non vengono svuotate: sono caricate a parte da caricaCamere
+  @Override
+  public void svuota() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      voci.clear();
+      istantanea = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void segnaPronto() {
+    pronto = true;
+  }
+
+  @Override
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void caricaCamere() {
+    List<PrezzoCamera> prezzi = cameraRepository.findPrezzi();
+    lock.writeLock().lock();
+    try {
+      camere.clear();
+      for (PrezzoCamera prezzo : prezzi) {
+        camere.put(prezzo.idCamera(), prezzo);
+      }
+      istantanea = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @EventListener
+  public void onCameraModificata(CameraModificataEvent event) {
+    Camera camera = event.camera();
+    if (camera == null || camera.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      camere.remove(camera.getId());
+      if (!event.eliminata() && camera.getAlloggio() != null) {
+        camere.put(camera.getId(), new PrezzoCamera(camera.getId(),
+            camera.getAlloggio().getId(), camera.getPrezzo()));
+      }
+      istantanea = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // L'alloggio con il punteggio più alto, con la sua camera più economica; null se nessun
+  // alloggio ha camere
+  public Candidato migliorAlloggio(Preferenze preferenze) {
+    return migliorAlloggio(preferenze, candidato -> true);
+  }
+
+  // Come sopra, saltando i candidati che "ammesso" rifiuta. Il predicato viene chiamato solo
+  // sui candidati che potrebbero vincere, in ordine di punteggio, fuori dal lock dell'indice.
+  public Candidato migliorAlloggio(Preferenze preferenze, Predicate<Candidato> ammesso) {
+    Istantanea corrente = istantanea();
+    int budget = budget(preferenze.getBudgetPreferito());
+    int preferita = ordinale(preferenze.getAlloggioPreferito() == null ? null
+        : categoriaAlloggio(preferenze.getAlloggioPreferito().name()));
+    Candidato migliore = null;
+    for (int g = 0; g < corrente.alloggi().length; g++) {
+      Gruppo gruppo = corrente.alloggi()[g];
+      double bonus = g == preferita && g != 0 ? PESO_TIPO : 0;
+      for (int k = 0; k < gruppo.size(); k++) {
+        int i = gruppo.ordine()[budget][k];
+        double punteggio = bonus + gruppo.statico()[budget][k];
+        if (migliore != null && (punteggio < migliore.punteggio()
+            || (punteggio == migliore.punteggio() && gruppo.id()[i] > migliore.idAttivita()))) {
+          break;
+        }
+        Candidato candidato = new Candidato(gruppo.id()[i], gruppo.camera()[i],
+            gruppo.prezzo()[i], gruppo.latitudine()[i], gruppo.longitudine()[i], punteggio);
+        if (ammesso.test(candidato)) {
+          migliore = candidato;
+          break;
+        }
+      }
+    }
+    return migliore;
+  }
+
+  // Le attività turistiche con il punteggio più alto, in ordine decrescente; con latitudine
+  // NaN la distanza non conta
+  public List<Candidato> miglioriAttivita(Preferenze preferenze, double latitudine,
+      double longitudine, int numero) {
+    return miglioriAttivita(preferenze, latitudine, longitudine, numero, candidato -> true);
+  }
+
+  // Come sopra, saltando i candidati che "ammesso" rifiuta; il predicato viene chiamato solo
+  // su quelli che entrerebbero tra i migliori
+  public List<Candidato> miglioriAttivita(Preferenze preferenze, double latitudine,
+      double longitudine, int numero, Predicate<Candidato> ammesso) {
+    if (numero <= 0) {
+      return List.of();
+    }
+    Istantanea corrente = istantanea();
+    int budget = budget(preferenze.getBudgetPreferito());
+    int preferita = ordinale(preferenze.getAttivitaPreferita() == null ? null
+        : categoriaAttivita(preferenze.getAttivitaPreferita().name()));
+    boolean conDistanza = !Double.isNaN(latitudine);
+    Comparator<Candidato> ordine = Comparator.comparingDouble(Candidato::punteggio)
+        .thenComparing(Comparator.comparingLong(Candidato::idAttivita).reversed());
+    PriorityQueue<Candidato> migliori = new PriorityQueue<>(ordine);
+
+    // Prima i gruppi con il bonus più alto, così il limite scende subito
+    Integer[] gruppi = new Integer[corrente.attivita().length];
+    double[] bonus = new double[gruppi.length];
+    for (int g = 0; g < gruppi.length; g++) {
+      gruppi[g] = g;
+      bonus[g] = (g == preferita && g != 0 ? PESO_TIPO : 0)
+          + (inStagione(preferenze.getStagioniPreferite(), g) ? PESO_STAGIONE : 0);
+    }
+    Arrays.sort(gruppi, Comparator.comparingDouble(g -> -bonus[g]));
+
+    for (int g : gruppi) {
+      Gruppo gruppo = corrente.attivita()[g];
+      int[] posizioni = gruppo.ordine()[budget];
+      double[] statici = gruppo.statico()[budget];
+      for (int k = 0; k < posizioni.length; k++) {
+        double limite = bonus[g] + statici[k];
+        if (migliori.size() == numero && limite <= migliori.peek().punteggio()) {
+          break;
+        }
+        int i = posizioni[k];
+        double punteggio = limite;
+        if (conDistanza) {
+          punteggio -= penalitaDistanza(latitudine, longitudine, gruppo.latitudine()[i],
+              gruppo.longitudine()[i]);
+        }
+        Candidato candidato = new Candidato(gruppo.id()[i], null, gruppo.prezzo()[i],
+            gruppo.latitudine()[i], gruppo.longitudine()[i], punteggio);
+        if (migliori.size() < numero) {
+          if (ammesso.test(candidato)) {
+            migliori.add(candidato);
+          }
+        } else if (ordine.compare(candidato, migliori.peek()) > 0 && ammesso.test(candidato)) {
+          migliori.poll();
+          migliori.add(candidato);
+        }
+      }
+    }
+    List<Candidato> risultato = new ArrayList<>(migliori);
+    risultato.sort(ordine.reversed());
+    return risultato;
+  }
+
+  private Istantanea istantanea() {
+    lock.readLock().lock();
+    try {
+      if (istantanea != null) {
+        return istantanea;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    lock.writeLock().lock();
+    try {
+      if (istantanea == null) {
+        istantanea = costruisci();
+      }
+      return istantanea;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private Istantanea costruisci() {
+    // La camera più economica di ogni alloggio
+    Map<Long, PrezzoCamera> economiche = new HashMap<>();
+    for (PrezzoCamera camera : camere.values()) {
+      economiche.merge(camera.idAlloggio(), camera,
+          (a, b) -> b.prezzo() < a.prezzo() ? b : a);
+    }
+    List<List<Voce>> attivita = new ArrayList<>();
+    List<List<Voce>> alloggi = new ArrayList<>();
+    for (int g = 0; g <= CategorieAttivitaTuristica.values().length; g++) {
+      attivita.add(new ArrayList<>());
+    }
+    for (int g = 0; g <= CategorieAlloggio.values().length; g++) {
+      alloggi.add(new ArrayList<>());
+    }
+    for (Voce voce : voci.values()) {
+      if (voce.alloggio()) {
+        if (economiche.containsKey(voce.id())) {
+          alloggi.get(voce.categoria()).add(voce);
+        }
+      } else {
+        attivita.get(voce.categoria()).add(voce);
+      }
+    }
+    return new Istantanea(
+        attivita.stream().map(elenco -> gruppo(elenco, null, MASSIMO_ATTIVITA))
+            .toArray(Gruppo[]::new),
+        alloggi.stream().map(elenco -> gruppo(elenco, economiche, MASSIMO_CAMERA))
+            .toArray(Gruppo[]::new));
+  }
+
+  private static Gruppo gruppo(List<Voce> elenco, Map<Long, PrezzoCamera> economiche,
+      double[] massimi) {
+    int n = elenco.size();
+    long[] id = new long[n];
+    Long[] camera = new Long[n];
+    double[] latitudine = new double[n];
+    double[] longitudine = new double[n];
+    double[] prezzo = new double[n];
+    int[] eco = new int[n];
+    for (int i = 0; i < n; i++) {
+      Voce voce = elenco.get(i);
+      id[i] = voce.id();
+      latitudine[i] = voce.latitudine();
+      longitudine[i] = voce.longitudine();
+      eco[i] = voce.eco();
+      if (economiche != null) {
+        PrezzoCamera economica = economiche.get(voce.id());
+        camera[i] = economica.idCamera();
+        prezzo[i] = economica.prezzo();
+      } else {
+        prezzo[i] = voce.prezzo();
+      }
+    }
+    int[][] ordine = new int[massimi.length][];
+    double[][] statico = new double[massimi.length][];
+    for (int b = 0; b < massimi.length; b++) {
+      double[] punteggi = new double[n];
+      for (int i = 0; i < n; i++) {
+        punteggi[i] = PESO_ECO * eco[i] / 6 + punteggioBudget(prezzo[i], massimi[b]);
+      }
+      // A parità di punteggio vince l'id più basso, così il risultato non dipende
+      // dall'ordine di inserimento
+      ordine[b] = IntStream.range(0, n).boxed()
+          .sorted(Comparator.comparingDouble((Integer i) -> -punteggi[i])
+              .thenComparingLong(i -> id[i]))
+          .mapToInt(Integer::intValue).toArray();
+      statico[b] = new double[n];
+      for (int k = 0; k < n; k++) {
+        statico[b][k] = punteggi[ordine[b][k]];
+      }
+    }
+    return new Gruppo(id, camera, latitudine, longitudine, prezzo, ordine, statico);
+  }
+
+  static double punteggioBudget(double prezzo, double massimo) {
+    if (Double.isInfinite(massimo)) {
+      return 0;
+    }
+    if (prezzo <= massimo) {
+      return PESO_BUDGET;
+    }
+    return Math.max(-PENALITA_BUDGET_MASSIMA, PESO_BUDGET - 3 * (prezzo / massimo - 1));
+  }
+
+  static double penalitaDistanza(double latitudine, double longitudine, double altraLatitudine,
+      double altraLongitudine) {
+    if (Double.isNaN(altraLatitudine)) {
+      return PENALITA_DISTANZA_MASSIMA;
+    }
+    double dLat = Math.toRadians(altraLatitudine - latitudine);
+    double dLon = Math.toRadians(altraLongitudine - longitudine);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(latitudine)) * Math.cos(Math.toRadians(altraLatitudine))
+        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    double distanza = 2 * RAGGIO_TERRESTRE * Math.asin(Math.min(1, Math.sqrt(a)));
+    return Math.min(PENALITA_DISTANZA_MASSIMA, distanza / METRI_PER_PUNTO);
+  }
+
+  // In primavera e in estate si preferiscono le attività all'aperto, in autunno e in inverno
+  // quelle al chiuso
+  private static boolean inStagione(PreferenzeStagione stagione, int gruppo) {
+    if (stagione == null || stagione == PreferenzeStagione.NESSUNA_PREFERENZA || gruppo == 0) {
+      return false;
+    }
+    boolean allAperto = gruppo == ordinale(CategorieAttivitaTuristica.ALL_APERTO);
+    return stagione == PreferenzeStagione.PRIMAVERA_ESTATE == allAperto;
+  }
+
+  private static int budget(PreferenzeBudget budget) {
+    return budget == null ? PreferenzeBudget.FLESSIBILE.ordinal() : budget.ordinal();
+  }
+
+  // Il gruppo 0 raccoglie le attività senza categoria
+  private static int ordinale(Enum<?> categoria) {
+    return categoria == null ? 0 : categoria.ordinal() + 1;
+  }
+
+  // Le preferenze hanno gli stessi nomi delle categorie, più NESSUNA_PREFERENZA
+  private static CategorieAlloggio categoriaAlloggio(String nome) {
+    for (CategorieAlloggio categoria : CategorieAlloggio.values()) {
+      if (categoria.name().equals(nome)) {
+        return categoria;
+      }
+    }
+    return null;
+  }
+
+  private static CategorieAttivitaTuristica categoriaAttivita(String nome) {
+    for (CategorieAttivitaTuristica categoria : CategorieAttivitaTuristica.values()) {
+      if (categoria.name().equals(nome)) {
+        return categoria;
+      }
+    }
+    return null;
+  }
+
+  // Numero di valori di ecosostenibilità rispettati, da 0 a 6
+  private static int eco(ValoriEcosostenibilita valori) {
+    if (valori == null) {
+      return 0;
+    }
+    int punti = 0;
+    for (Boolean valore : new Boolean[]{valori.getPoliticheAntispreco(),
+        valori.getProdottiLocali(), valori.getEnergiaVerde(), valori.getRaccoltaDifferenziata(),
+        valori.getLimiteEmissioneCO2(), valori.getContattoConNatura()}) {
+      if (Boolean.TRUE.equals(valore)) {
+        punti++;
+      }
+    }
+    return punti;
+  }
+
+}
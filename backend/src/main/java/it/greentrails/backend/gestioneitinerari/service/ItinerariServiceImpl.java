@@ -2,8 +2,12 @@ package it.greentrails.backend.gestioneitinerari.service;
 
 import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
 import it.greentrails.backend.gestioneitinerari.adapter.ItinerariAdapter;
 import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
@@ -13,6 +17,7 @@ import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaT
 import java.util.List;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -32,7 +37,9 @@ public class ItinerariServiceImpl implements ItinerariService {
   /*@ spec_public non_null @*/
   private final PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
   /*@ spec_public non_null @*/
-  private final ItinerariAdapter itinerariStubAdapter;
+  private final ItinerariAdapter itinerariAdapter;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
   // Spring guarantees injection — removed JML invariants to fix InvariantExit errors
 
@@ -49,7 +56,7 @@ public class ItinerariServiceImpl implements ItinerariService {
     if (preferenze == null) {
       throw new Exception("Le preferenze sono vuote.");
     }
-    return itinerariStubAdapter.pianificazioneAutomatica(preferenze);
+    return itinerariAdapter.pianificazioneAutomatica(preferenze);
   }
 
   /*@ requires utente != null; @*/
@@ -70,14 +77,23 @@ public class ItinerariServiceImpl implements ItinerariService {
     if (itinerario == null) {
       throw new Exception("L'itinerario è vuoto.");
     }
-    prenotazioneAlloggioRepository.deleteAllInBatch(
-        prenotazioneAlloggioService.getPrenotazioniByItinerario(itinerario));
-    prenotazioneAttivitaTuristicaRepository.deleteAllInBatch(
-        prenotazioneAttivitaTuristicaService.getPrenotazioniByItinerario(itinerario));
+    List<PrenotazioneAlloggio> prenotazioniAlloggio =
+        prenotazioneAlloggioService.getPrenotazioniByItinerario(itinerario);
+    prenotazioneAlloggioRepository.deleteAllInBatch(prenotazioniAlloggio);
+    List<PrenotazioneAttivitaTuristica> prenotazioniAttivita =
+        prenotazioneAttivitaTuristicaService.getPrenotazioniByItinerario(itinerario);
+    prenotazioneAttivitaTuristicaRepository.deleteAllInBatch(prenotazioniAttivita);
     repository.delete(itinerario);
     prenotazioneAlloggioRepository.flush();
     prenotazioneAttivitaTuristicaRepository.flush();
     repository.flush();
+    for (PrenotazioneAlloggio prenotazione : prenotazioniAlloggio) {
+      eventPublisher.publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazione, true));
+    }
+    for (PrenotazioneAttivitaTuristica prenotazione : prenotazioniAttivita) {
+      eventPublisher.publishEvent(
+          new PrenotazioneAttivitaTuristicaModificataEvent(prenotazione, true));
+    }
     return repository.findById(itinerario.getId()).isEmpty();
   }
 
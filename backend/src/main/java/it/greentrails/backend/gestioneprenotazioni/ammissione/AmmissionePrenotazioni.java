@@ -0,0 +1,90 @@
+package it.greentrails.backend.gestioneprenotazioni.ammissione;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.stereotype.Component;
+
+// Rende atomici il controllo della disponibilità e il salvataggio di una prenotazione: due
+// richieste concorrenti sulla stessa camera o sulla stessa attività turistica vengono servite
+// una alla volta, così la seconda vede i posti occupati dalla prima. I lock sono divisi in
+// strisce indicizzate dall'id della risorsa, quindi risorse diverse procedono in parallelo.
+// I lock valgono all'interno di una singola istanza dell'applicazione.
+@Component
+public class AmmissionePrenotazioni {
+
+  static final int NUMERO_STRISCE = 64;
+
+  private final ReentrantLock[] strisce = new ReentrantLock[NUMERO_STRISCE];
+
+  public AmmissionePrenotazioni() {
+    for (int i = 0; i < NUMERO_STRISCE; i++) {
+      strisce[i] = new ReentrantLock();
+    }
+  }
+
+  public <T> T perCamera(/*@ nullable @*/ Long idCamera, Operazione<T> operazione)
+      throws Exception {
+    return inEsclusiva(striscia(Risorsa.CAMERA, idCamera), operazione);
+  }
+
+  public <T> T perAttivitaTuristica(/*@ nullable @*/ Long idAttivita, Operazione<T> operazione)
+      throws Exception {
+    return inEsclusiva(striscia(Risorsa.ATTIVITA_TURISTICA, idAttivita), operazione);
+  }
+
+  // Più risorse insieme, per esempio le prenotazioni di un intero itinerario. Le strisce vengono
+  // prese sempre in ordine crescente, così due richieste sovrapposte non possono bloccarsi a
+  // vicenda.
+  public <T> T perRisorse(Collection<Long> idCamere, Collection<Long> idAttivita,
+      Operazione<T> operazione) throws Exception {
+    TreeSet<Integer> indici = new TreeSet<>();
+    for (Long idCamera : idCamere) {
+      indici.add(indice(Risorsa.CAMERA, idCamera));
+    }
+    for (Long id : idAttivita) {
+      indici.add(indice(Risorsa.ATTIVITA_TURISTICA, id));
+    }
+    for (int indice : indici) {
+      strisce[indice].lock();
+    }
+    try {
+      return operazione.esegui();
+    } finally {
+      for (int indice : indici.descendingSet()) {
+        strisce[indice].unlock();
+      }
+    }
+  }
+
+  private <T> T inEsclusiva(ReentrantLock lock, Operazione<T> operazione) throws Exception {
+    lock.lock();
+    try {
+      return operazione.esegui();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  ReentrantLock striscia(Risorsa risorsa, /*@ nullable @*/ Long id) {
+    return strisce[indice(risorsa, id)];
+  }
+
+  private static int indice(Risorsa risorsa, /*@ nullable @*/ Long id) {
+    long chiave = (id == null ? 0 : id) * 31 + risorsa.ordinal();
+    int hash = Long.hashCode(chiave * 0x9E3779B97F4A7C15L);
+    return (hash ^ (hash >>> 16)) & (NUMERO_STRISCE - 1);
+  }
+
+  enum Risorsa {
+    CAMERA,
+    ATTIVITA_TURISTICA
+  }
+
+  @FunctionalInterface
+  public interface Operazione<T> {
+
+    T esegui() throws Exception;
+  }
+
+}
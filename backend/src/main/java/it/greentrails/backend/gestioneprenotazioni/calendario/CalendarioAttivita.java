@@ -0,0 +1,176 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+// Posti occupati di ogni attività turistica per orario di inizio, tenuti in memoria come
+// CalendarioCamere per le camere. Una prenotazione occupa numAdulti + numBambini posti
+// esattamente alla sua data di inizio, come nel controllo sul database.
+@Component
+@RequiredArgsConstructor
+public class CalendarioAttivita {
+
+  static final int DIMENSIONE_BLOCCO = 1000;
+
+  private final PrenotazioneAttivitaTuristicaRepository repository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, OccupazioneSlot> perAttivita = new HashMap<>();
+  private final Map<Long, Occupazione> occupazioni = new HashMap<>();
+  private volatile boolean pronto = false;
+
+  public record Slot(Date inizio, int occupati) {
+
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void ricostruisci() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      perAttivita.clear();
+      occupazioni.clear();
+      long ultimoId = 0;
+      List<OccupazioneAttivita> blocco;
+      do {
+        blocco = repository.findOccupazioniDopo(ultimoId, Limit.of(DIMENSIONE_BLOCCO));
+        for (OccupazioneAttivita occupazione : blocco) {
+          occupa(occupazione.id(), new Occupazione(occupazione.idAttivita(),
+              secondo(occupazione.dataInizio()), occupazione.posti()));
+          ultimoId = occupazione.id();
+        }
+      } while (blocco.size() == DIMENSIONE_BLOCCO);
+      pronto = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @EventListener
+  public void onPrenotazioneAttivitaTuristicaModificata(
+      PrenotazioneAttivitaTuristicaModificataEvent event) {
+    PrenotazioneAttivitaTuristica prenotazione = event.prenotazione();
+    if (prenotazione == null || prenotazione.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      libera(prenotazione.getId());
+      Attivita attivita = prenotazione.getAttivitaTuristica();
+      if (event.eliminata() || attivita == null || prenotazione.getDataInizio() == null) {
+        return;
+      }
+      occupa(prenotazione.getId(), new Occupazione(attivita.getId(),
+          secondo(prenotazione.getDataInizio()),
+          prenotazione.getNumAdulti() + prenotazione.getNumBambini()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  public int getPostiOccupati(long idAttivita, Date dataInizio) {
+    long secondo = secondo(dataInizio);
+    lock.readLock().lock();
+    try {
+      OccupazioneSlot slot = perAttivita.get(idAttivita);
+      return slot == null ? 0 : slot.occupati(secondo);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Massimo dei posti occupati in uno slot tra da (incluso) e a (escluso)
+  public int getMassimoOccupati(long idAttivita, Date da, Date a) {
+    long inizio = secondo(da);
+    long fine = secondo(a) - 1;
+    lock.readLock().lock();
+    try {
+      OccupazioneSlot slot = perAttivita.get(idAttivita);
+      return slot == null ? 0 : slot.massimo(inizio, fine);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Gli slot tra da (incluso) e a (escluso), in ordine di orario
+  public List<Slot> getSlot(long idAttivita, Date da, Date a) {
+    long inizio = secondo(da);
+    long fine = secondo(a) - 1;
+    List<Slot> risultato = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      OccupazioneSlot slot = perAttivita.get(idAttivita);
+      if (slot != null) {
+        slot.visita(inizio, fine,
+            (secondo, occupati) -> risultato.add(new Slot(data(secondo), occupati)));
+      }
+      return risultato;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Il primo slot da da in poi con al più sogliaOccupati posti occupati, o null
+  public Slot getPrimoSlot(long idAttivita, Date da, int sogliaOccupati) {
+    long inizio = secondo(da);
+    lock.readLock().lock();
+    try {
+      OccupazioneSlot slot = perAttivita.get(idAttivita);
+      if (slot == null) {
+        return null;
+      }
+      long secondo = slot.primo(inizio, OccupazioneSlot.ULTIMO_SECONDO, sogliaOccupati);
+      return secondo == OccupazioneSlot.NESSUNO ? null
+          : new Slot(data(secondo), slot.occupati(secondo));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void occupa(Long idPrenotazione, Occupazione occupazione) {
+    occupazioni.put(idPrenotazione, occupazione);
+    perAttivita.computeIfAbsent(occupazione.idAttivita(), k -> new OccupazioneSlot())
+        .aggiungi(occupazione.secondo(), occupazione.posti());
+  }
+
+  private void libera(Long idPrenotazione) {
+    Occupazione occupazione = occupazioni.remove(idPrenotazione);
+    if (occupazione != null) {
+      perAttivita.get(occupazione.idAttivita())
+          .aggiungi(occupazione.secondo(), -occupazione.posti());
+    }
+  }
+
+  // getTime invece di toInstant: le date lette dal database sono java.sql.Timestamp
+  static long secondo(Date data) {
+    return Math.floorDiv(data.getTime(), 1000);
+  }
+
+  private static Date data(long secondo) {
+    return new Date(secondo * 1000);
+  }
+
+  private record Occupazione(Long idAttivita, long secondo, int posti) {
+
+  }
+
+}
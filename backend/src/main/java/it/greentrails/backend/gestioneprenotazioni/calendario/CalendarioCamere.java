@@ -0,0 +1,191 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.events.CameraModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.DisponibilitaCamera;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneCamera;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+// Occupazione giornaliera di ogni camera e di ogni alloggio, tenuta in memoria per rispondere
+// ai controlli di disponibilità senza interrogare il database. Una prenotazione occupa le sue
+// camere in tutti i giorni tra la data di inizio e quella di fine, estremi inclusi.
+@Component
+@RequiredArgsConstructor
+public class CalendarioCamere {
+
+  static final int DIMENSIONE_BLOCCO = 1000;
+
+  private final PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
+  private final CameraRepository cameraRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, CalendarioOccupazione> perCamera = new HashMap<>();
+  private final Map<Long, CalendarioOccupazione> perAlloggio = new HashMap<>();
+  private final Map<Long, Occupazione> occupazioni = new HashMap<>();
+  private final Map<Long, DisponibilitaCamera> camere = new HashMap<>();
+  private final Map<Long, Integer> capienzaAlloggi = new HashMap<>();
+  private volatile boolean pronto = false;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void ricostruisci() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      perCamera.clear();
+      perAlloggio.clear();
+      occupazioni.clear();
+      camere.clear();
+      capienzaAlloggi.clear();
+      for (DisponibilitaCamera camera : cameraRepository.findDisponibilita()) {
+        registraCamera(camera);
+      }
+      long ultimoId = 0;
+      List<OccupazioneCamera> blocco;
+      do {
+        blocco = prenotazioneAlloggioRepository.findOccupazioniDopo(ultimoId,
+            Limit.of(DIMENSIONE_BLOCCO));
+        for (OccupazioneCamera occupazione : blocco) {
+          occupa(occupazione.id(), new Occupazione(occupazione.idCamera(),
+              occupazione.idAlloggio(), giorno(occupazione.dataInizio()),
+              giorno(occupazione.dataFine()), occupazione.numCamere()));
+          ultimoId = occupazione.id();
+        }
+      } while (blocco.size() == DIMENSIONE_BLOCCO);
+      pronto = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @EventListener
+  public void onPrenotazioneAlloggioModificata(PrenotazioneAlloggioModificataEvent event) {
+    PrenotazioneAlloggio prenotazione = event.prenotazione();
+    if (prenotazione == null || prenotazione.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      libera(prenotazione.getId());
+      Camera camera = prenotazione.getCamera();
+      if (event.eliminata() || camera == null || camera.getAlloggio() == null
+          || prenotazione.getDataInizio() == null || prenotazione.getDataFine() == null) {
+        return;
+      }
+      occupa(prenotazione.getId(), new Occupazione(camera.getId(),
+          camera.getAlloggio().getId(), giorno(prenotazione.getDataInizio()),
+          giorno(prenotazione.getDataFine()), prenotazione.getNumCamere()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @EventListener
+  public void onCameraModificata(CameraModificataEvent event) {
+    Camera camera = event.camera();
+    if (camera == null || camera.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      DisponibilitaCamera precedente = camere.remove(camera.getId());
+      if (precedente != null) {
+        capienzaAlloggi.merge(precedente.idAlloggio(), -precedente.disponibilita(), Integer::sum);
+      }
+      if (!event.eliminata() && camera.getAlloggio() != null
+          && camera.getDisponibilita() != null) {
+        registraCamera(new DisponibilitaCamera(camera.getId(), camera.getAlloggio().getId(),
+            camera.getDisponibilita()));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  // Massimo numero di camere prenotate in un giorno tra le due date
+  public int getPostiOccupatiCamera(long idCamera, Date dataInizio, Date dataFine) {
+    return massimo(perCamera, idCamera, dataInizio, dataFine);
+  }
+
+  public int getPostiOccupatiAlloggio(long idAlloggio, Date dataInizio, Date dataFine) {
+    return massimo(perAlloggio, idAlloggio, dataInizio, dataFine);
+  }
+
+  // Somma delle disponibilità delle camere dell'alloggio
+  public int getCapienzaAlloggio(long idAlloggio) {
+    lock.readLock().lock();
+    try {
+      return capienzaAlloggi.getOrDefault(idAlloggio, 0);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int massimo(Map<Long, CalendarioOccupazione> calendari, long id, Date dataInizio,
+      Date dataFine) {
+    long inizio = giorno(dataInizio);
+    long fine = giorno(dataFine);
+    lock.readLock().lock();
+    try {
+      CalendarioOccupazione calendario = calendari.get(id);
+      return calendario == null ? 0 : calendario.massimo(inizio, fine);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void registraCamera(DisponibilitaCamera camera) {
+    camere.put(camera.idCamera(), camera);
+    capienzaAlloggi.merge(camera.idAlloggio(), camera.disponibilita(), Integer::sum);
+  }
+
+  private void occupa(Long idPrenotazione, Occupazione occupazione) {
+    occupazioni.put(idPrenotazione, occupazione);
+    aggiungi(occupazione, occupazione.numCamere());
+  }
+
+  private void libera(Long idPrenotazione) {
+    Occupazione occupazione = occupazioni.remove(idPrenotazione);
+    if (occupazione != null) {
+      aggiungi(occupazione, -occupazione.numCamere());
+    }
+  }
+
+  private void aggiungi(Occupazione occupazione, int quantita) {
+    perCamera.computeIfAbsent(occupazione.idCamera(), k -> new CalendarioOccupazione())
+        .aggiungi(occupazione.inizio(), occupazione.fine(), quantita);
+    perAlloggio.computeIfAbsent(occupazione.idAlloggio(), k -> new CalendarioOccupazione())
+        .aggiungi(occupazione.inizio(), occupazione.fine(), quantita);
+  }
+
+  // getTime invece di toInstant: le date lette dal database sono java.sql.Timestamp
+  static long giorno(Date data) {
+    return Instant.ofEpochMilli(data.getTime()).atZone(ZoneId.systemDefault()).toLocalDate()
+        .toEpochDay();
+  }
+
+  private record Occupazione(Long idCamera, Long idAlloggio, long inizio, long fine,
+                             int numCamere) {
+
+  }
+
+}
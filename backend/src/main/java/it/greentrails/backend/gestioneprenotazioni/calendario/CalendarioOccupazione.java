@@ -0,0 +1,92 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import java.util.Arrays;
+
+// Posti occupati giorno per giorno, come segment tree dinamico sui giorni dall'epoch:
+// aggiunta su un intervallo e massimo su un intervallo in O(log n). I nodi vengono creati
+// solo lungo i cammini toccati dalle prenotazioni, quindi le date lontane non costano memoria.
+final class CalendarioOccupazione {
+
+  static final long PRIMO_GIORNO = -(1L << 21);
+  static final long ULTIMO_GIORNO = (1L << 21) - 1;
+  private static final int RADICE = 1;
+
+  // Il nodo 0 è la foglia vuota condivisa: non va mai modificato
+  private int[] sinistro = new int[16];
+  private int[] destro = new int[16];
+  private int[] massimo = new int[16];
+  private int[] aggiunta = new int[16];
+  private int nodi = 2;
+
+  // Aggiunge quantita (anche negativa) a ogni giorno tra inizio e fine, estremi inclusi
+  void aggiungi(long inizio, long fine, int quantita) {
+    if (inizio > fine) {
+      return;
+    }
+    aggiungi(RADICE, PRIMO_GIORNO, ULTIMO_GIORNO, limita(inizio), limita(fine), quantita);
+  }
+
+  // Massimo dei posti occupati in un giorno tra inizio e fine, estremi inclusi
+  int massimo(long inizio, long fine) {
+    if (inizio > fine) {
+      return 0;
+    }
+    return massimo(RADICE, PRIMO_GIORNO, ULTIMO_GIORNO, limita(inizio), limita(fine));
+  }
+
+  private void aggiungi(int nodo, long da, long a, long inizio, long fine, int quantita) {
+    if (inizio <= da && a <= fine) {
+      aggiunta[nodo] += quantita;
+      massimo[nodo] += quantita;
+      return;
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    if (inizio <= meta) {
+      if (sinistro[nodo] == 0) {
+        // nuovoNodo può riallocare gli array: l'assegnamento va fatto dopo
+        int figlio = nuovoNodo();
+        sinistro[nodo] = figlio;
+      }
+      aggiungi(sinistro[nodo], da, meta, inizio, fine, quantita);
+    }
+    if (fine > meta) {
+      if (destro[nodo] == 0) {
+        int figlio = nuovoNodo();
+        destro[nodo] = figlio;
+      }
+      aggiungi(destro[nodo], meta + 1, a, inizio, fine, quantita);
+    }
+    massimo[nodo] = aggiunta[nodo] + Math.max(massimo[sinistro[nodo]], massimo[destro[nodo]]);
+  }
+
+  private int massimo(int nodo, long da, long a, long inizio, long fine) {
+    if (nodo == 0 || inizio <= da && a <= fine) {
+      return massimo[nodo];
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    int risultato = 0;
+    if (inizio <= meta) {
+      risultato = massimo(sinistro[nodo], da, meta, inizio, fine);
+    }
+    if (fine > meta) {
+      risultato = Math.max(risultato, massimo(destro[nodo], meta + 1, a, inizio, fine));
+    }
+    return aggiunta[nodo] + risultato;
+  }
+
+  private int nuovoNodo() {
+    if (nodi == sinistro.length) {
+      int capacita = nodi * 2;
+      sinistro = Arrays.copyOf(sinistro, capacita);
+      destro = Arrays.copyOf(destro, capacita);
+      massimo = Arrays.copyOf(massimo, capacita);
+      aggiunta = Arrays.copyOf(aggiunta, capacita);
+    }
+    return nodi++;
+  }
+
+  private static long limita(long giorno) {
+    return Math.max(PRIMO_GIORNO, Math.min(ULTIMO_GIORNO, giorno));
+  }
+
+}
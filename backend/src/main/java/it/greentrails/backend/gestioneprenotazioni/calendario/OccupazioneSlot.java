@@ -0,0 +1,169 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import java.util.Arrays;
+
+// Posti occupati per orario di inizio, come segment tree dinamico sui secondi dall'epoch: le
+// foglie sono gli orari e un orario con almeno un posto occupato è uno slot. Posti di un
+// orario, massimo su un intervallo e primo slot con abbastanza posti liberi in O(log n). Come
+// in CalendarioOccupazione i nodi esistono solo lungo i cammini toccati dalle prenotazioni.
+final class OccupazioneSlot {
+
+  static final long PRIMO_SECONDO = -(1L << 40);
+  static final long ULTIMO_SECONDO = (1L << 40) - 1;
+  static final long NESSUNO = Long.MIN_VALUE;
+  private static final int RADICE = 1;
+  private static final int VUOTO = Integer.MAX_VALUE;
+
+  // Il nodo 0 è la foglia vuota condivisa: non va mai modificato. In una foglia massimo sono i
+  // posti occupati, minimo gli stessi posti o VUOTO se l'orario non è uno slot.
+  private int[] sinistro = new int[16];
+  private int[] destro = new int[16];
+  private int[] minimo = new int[16];
+  private int[] massimo = new int[16];
+  private int nodi = 2;
+
+  OccupazioneSlot() {
+    minimo[0] = VUOTO;
+    minimo[RADICE] = VUOTO;
+  }
+
+  @FunctionalInterface
+  interface Visitatore {
+
+    void slot(long secondo, int occupati);
+  }
+
+  // Aggiunge quantita (anche negativa) ai posti occupati all'orario
+  void aggiungi(long secondo, int quantita) {
+    aggiungi(RADICE, PRIMO_SECONDO, ULTIMO_SECONDO, limita(secondo), quantita);
+  }
+
+  int occupati(long secondo) {
+    long s = limita(secondo);
+    int nodo = RADICE;
+    long da = PRIMO_SECONDO;
+    long a = ULTIMO_SECONDO;
+    while (nodo != 0 && da < a) {
+      long meta = Math.floorDiv(da + a, 2);
+      if (s <= meta) {
+        nodo = sinistro[nodo];
+        a = meta;
+      } else {
+        nodo = destro[nodo];
+        da = meta + 1;
+      }
+    }
+    return massimo[nodo];
+  }
+
+  // Massimo dei posti occupati in un orario tra inizio e fine, estremi inclusi
+  int massimo(long inizio, long fine) {
+    if (inizio > fine) {
+      return 0;
+    }
+    return massimo(RADICE, PRIMO_SECONDO, ULTIMO_SECONDO, limita(inizio), limita(fine));
+  }
+
+  // Il primo slot tra inizio e fine con al più sogliaOccupati posti occupati, o NESSUNO
+  long primo(long inizio, long fine, int sogliaOccupati) {
+    if (inizio > fine) {
+      return NESSUNO;
+    }
+    return primo(RADICE, PRIMO_SECONDO, ULTIMO_SECONDO, limita(inizio), limita(fine),
+        sogliaOccupati);
+  }
+
+  // Gli slot tra inizio e fine in ordine di orario: O(k log n) per k slot
+  void visita(long inizio, long fine, Visitatore visitatore) {
+    if (inizio > fine) {
+      return;
+    }
+    visita(RADICE, PRIMO_SECONDO, ULTIMO_SECONDO, limita(inizio), limita(fine), visitatore);
+  }
+
+  private void aggiungi(int nodo, long da, long a, long secondo, int quantita) {
+    if (da == a) {
+      massimo[nodo] += quantita;
+      minimo[nodo] = massimo[nodo] > 0 ? massimo[nodo] : VUOTO;
+      return;
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    if (secondo <= meta) {
+      if (sinistro[nodo] == 0) {
+        // nuovoNodo può riallocare gli array: l'assegnamento va fatto dopo
+        int figlio = nuovoNodo();
+        sinistro[nodo] = figlio;
+      }
+      aggiungi(sinistro[nodo], da, meta, secondo, quantita);
+    } else {
+      if (destro[nodo] == 0) {
+        int figlio = nuovoNodo();
+        destro[nodo] = figlio;
+      }
+      aggiungi(destro[nodo], meta + 1, a, secondo, quantita);
+    }
+    minimo[nodo] = Math.min(minimo[sinistro[nodo]], minimo[destro[nodo]]);
+    massimo[nodo] = Math.max(massimo[sinistro[nodo]], massimo[destro[nodo]]);
+  }
+
+  private int massimo(int nodo, long da, long a, long inizio, long fine) {
+    if (nodo == 0 || inizio <= da && a <= fine) {
+      return massimo[nodo];
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    int risultato = 0;
+    if (inizio <= meta) {
+      risultato = massimo(sinistro[nodo], da, meta, inizio, fine);
+    }
+    if (fine > meta) {
+      risultato = Math.max(risultato, massimo(destro[nodo], meta + 1, a, inizio, fine));
+    }
+    return risultato;
+  }
+
+  private long primo(int nodo, long da, long a, long inizio, long fine, int soglia) {
+    if (nodo == 0 || minimo[nodo] > soglia || fine < da || a < inizio) {
+      return NESSUNO;
+    }
+    if (da == a) {
+      return da;
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    long risultato = primo(sinistro[nodo], da, meta, inizio, fine, soglia);
+    if (risultato != NESSUNO) {
+      return risultato;
+    }
+    return primo(destro[nodo], meta + 1, a, inizio, fine, soglia);
+  }
+
+  private void visita(int nodo, long da, long a, long inizio, long fine,
+      Visitatore visitatore) {
+    if (nodo == 0 || minimo[nodo] == VUOTO || fine < da || a < inizio) {
+      return;
+    }
+    if (da == a) {
+      visitatore.slot(da, massimo[nodo]);
+      return;
+    }
+    long meta = Math.floorDiv(da + a, 2);
+    visita(sinistro[nodo], da, meta, inizio, fine, visitatore);
+    visita(destro[nodo], meta + 1, a, inizio, fine, visitatore);
+  }
+
+  private int nuovoNodo() {
+    if (nodi == sinistro.length) {
+      int capacita = nodi * 2;
+      sinistro = Arrays.copyOf(sinistro, capacita);
+      destro = Arrays.copyOf(destro, capacita);
+      minimo = Arrays.copyOf(minimo, capacita);
+      massimo = Arrays.copyOf(massimo, capacita);
+    }
+    minimo[nodi] = VUOTO;
+    return nodi++;
+  }
+
+  private static long limita(long secondo) {
+    return Math.max(PRIMO_SECONDO, Math.min(ULTIMO_SECONDO, secondo));
+  }
+
+}
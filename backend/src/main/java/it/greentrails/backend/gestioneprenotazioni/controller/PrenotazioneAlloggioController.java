@@ -9,6 +9,7 @@ import it.greentrails.backend.enums.StatoPrenotazione;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import java.time.Duration;
@@ -84,6 +85,9 @@ public class PrenotazioneAlloggioController {
       itinerario.setTotale(prezzo + itinerario.getTotale());
       itinerariService.saveItinerario(itinerario);
       return ResponseGenerator.generateResponse(HttpStatus.OK, prenotazioneAlloggio);
+    } catch (PostiNonDisponibiliException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+          "Camera non disponibile");
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -137,6 +141,9 @@ public class PrenotazioneAlloggioController {
       itinerario.setTotale(prezzo + itinerario.getTotale());
       itinerariService.saveItinerario(itinerario);
       return ResponseGenerator.generateResponse(HttpStatus.OK, prenotazione);
+    } catch (PostiNonDisponibiliException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+          "Camera non disponibile");
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -7,9 +7,11 @@ import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.StatoPrenotazione;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Date;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -85,6 +87,9 @@ public class PrenotazioneAttivitaTuristicaController {
       itinerario.setTotale(prezzo + itinerario.getTotale());
       itinerariService.saveItinerario(itinerario);
       return ResponseGenerator.generateResponse(HttpStatus.OK, prenotazione);
+    } catch (PostiNonDisponibiliException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+          "Attività turistica non disponibile");
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -140,6 +145,9 @@ public class PrenotazioneAttivitaTuristicaController {
       itinerario.setTotale(prezzo + itinerario.getTotale());
       itinerariService.saveItinerario(itinerario);
       return ResponseGenerator.generateResponse(HttpStatus.OK, prenotazione);
+    } catch (PostiNonDisponibiliException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+          "Attività turistica non disponibile");
     } catch (Exception e) {
       return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -196,6 +204,31 @@ public class PrenotazioneAttivitaTuristicaController {
     }
   }
 
+  @GetMapping("perAttivita/{idAttivita}/settimana")
+  private ResponseEntity<Object> visualizzaDisponibilitaSettimanaPerAttivitaTuristica(
+      @PathVariable("idAttivita") final long idAttivita,
+      @RequestParam("dataInizio") @DateTimeFormat(pattern = "yyyy-MM-dd")
+      final LocalDate dataInizio,
+      @RequestParam(value = "posti", defaultValue = "1", required = false) final int posti
+  ) {
+    try {
+      Attivita attivita = attivitaService.findById(idAttivita);
+      if (attivita.isAlloggio()) {
+        return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+            "L'attività non è un'attività turistica.");
+      }
+      if (posti < 1) {
+        return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST,
+            "Il numero dei posti non è valido.");
+      }
+      return ResponseGenerator.generateResponse(HttpStatus.OK,
+          prenotazioneAttivitaTuristicaService.getDisponibilitaSettimana(attivita, dataInizio,
+              posti));
+    } catch (Exception e) {
+      return ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+  }
+
   @GetMapping
   private ResponseEntity<Object> visualizzaPrenotazioniAttivitaTuristicaPerVisitatore(
       @AuthenticationPrincipal Utente utente
@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneprenotazioni.exceptions;
+
+public class PostiNonDisponibiliException extends Exception {
+
+  public PostiNonDisponibiliException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneprenotazioni.exceptions;
+
+public class PrenotazioneNonValidaException extends Exception {
+
+  public PrenotazioneNonValidaException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneprenotazioni.repository;
+
+import java.util.Date;
+
+// Solo i campi di una prenotazione che servono al calendario delle attività turistiche
+public record OccupazioneAttivita(Long id, Long idAttivita, Date dataInizio, int posti) {
+
+}
@@ -0,0 +1,9 @@
+package it.greentrails.backend.gestioneprenotazioni.repository;
+
+import java.util.Date;
+
+// Solo i campi di una prenotazione che servono al calendario delle camere
+public record OccupazioneCamera(Long id, Long idCamera, Long idAlloggio, Date dataInizio,
+                                Date dataFine, int numCamere) {
+
+}
@@ -0,0 +1,8 @@
+package it.greentrails.backend.gestioneprenotazioni.repository;
+
+import java.util.Date;
+
+// Posti già prenotati per un'attività turistica in una data di inizio
+public record PostiOccupatiAttivita(Long idAttivita, Date dataInizio, Long posti) {
+
+}
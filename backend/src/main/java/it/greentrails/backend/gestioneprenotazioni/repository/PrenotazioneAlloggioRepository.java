@@ -4,6 +4,7 @@ import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.enums.StatoPrenotazione;
 import java.util.Date;
 import java.util.List;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,6 +24,11 @@ public interface PrenotazioneAlloggioRepository extends JpaRepository<Prenotazio
   @Query("SELECT p FROM PrenotazioneAlloggio p WHERE p.stato = ?1")
   List<PrenotazioneAlloggio> findByStato(StatoPrenotazione stato);
 
+  @Query("SELECT new it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneCamera("
+      + "p.id, c.id, c.alloggio.id, p.dataInizio, p.dataFine, p.numCamere) "
+      + "FROM PrenotazioneAlloggio p JOIN p.camera c WHERE p.id > ?1 ORDER BY p.id")
+  List<OccupazioneCamera> findOccupazioniDopo(long ultimoId, Limit limite);
+
   @Query("""
       SELECT COALESCE(SUM(p.numCamere), 0) FROM Camera c
       LEFT JOIN PrenotazioneAlloggio p ON p.camera = c
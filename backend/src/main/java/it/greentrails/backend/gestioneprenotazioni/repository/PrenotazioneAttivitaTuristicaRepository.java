@@ -2,8 +2,10 @@ package it.greentrails.backend.gestioneprenotazioni.repository;
 
 import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -34,4 +36,26 @@ public interface PrenotazioneAttivitaTuristicaRepository extends
       """)
   int getPostiOccupatiIn(long idAttivita, Date dataInizio);
 
-}
\ No newline at end of file
+  @Query("""
+      SELECT new it.greentrails.backend.gestioneprenotazioni.repository.PostiOccupatiAttivita(
+      a.id, p.dataInizio, SUM(p.numAdulti + p.numBambini))
+      FROM PrenotazioneAttivitaTuristica p JOIN p.attivitaTuristica a
+      WHERE a.id IN ?1
+      AND p.dataInizio IN ?2
+      GROUP BY a.id, p.dataInizio
+      """)
+  List<PostiOccupatiAttivita> getPostiOccupatiIn(Collection<Long> idAttivita,
+      Collection<Date> date);
+
+  @Query("SELECT new it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita("
+      + "p.id, a.id, p.dataInizio, p.numAdulti + p.numBambini) "
+      + "FROM PrenotazioneAttivitaTuristica p JOIN p.attivitaTuristica a WHERE p.id > ?1 "
+      + "ORDER BY p.id")
+  List<OccupazioneAttivita> findOccupazioniDopo(long ultimoId, Limit limite);
+
+  @Query("SELECT new it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita("
+      + "p.id, a.id, p.dataInizio, p.numAdulti + p.numBambini) "
+      + "FROM PrenotazioneAttivitaTuristica p JOIN p.attivitaTuristica a WHERE a.id = ?1")
+  List<OccupazioneAttivita> findOccupazioniByAttivita(long idAttivita);
+
+}
@@ -0,0 +1,20 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+// Disponibilità di un'attività turistica dal giorno inizio al giorno fine, estremi inclusi.
+// Gli slot sono gli orari che hanno già delle prenotazioni: in ogni altro orario sono liberi
+// tutti i posti dell'attività. postiGarantiti sono i posti liberi in qualsiasi orario della
+// settimana, prossimo è il primo slot da inizio in poi, anche dopo la settimana, con almeno i
+// posti richiesti.
+public record DisponibilitaSettimana(Long idAttivita, LocalDate inizio, LocalDate fine,
+                                     int disponibilita, int postiGarantiti, List<Slot> slot,
+                                     /*@ nullable @*/ Slot prossimo) {
+
+  public record Slot(Date inizio, int occupati, int liberi) {
+
+  }
+
+}
@@ -0,0 +1,12 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import java.util.List;
+
+public record EsitoPrenotazioni(Itinerario itinerario,
+                                List<PrenotazioneAlloggio> prenotazioniAlloggio,
+                                List<PrenotazioneAttivitaTuristica> prenotazioniAttivitaTuristica) {
+
+}
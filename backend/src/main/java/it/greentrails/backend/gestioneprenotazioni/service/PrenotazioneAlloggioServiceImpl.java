@@ -7,12 +7,17 @@ import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioCamere;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +30,12 @@ public class PrenotazioneAlloggioServiceImpl implements PrenotazioneAlloggioServ
   private final PrenotazioneAlloggioRepository repository;
   /*@ spec_public non_null @*/
   private final CameraService cameraService;
+  /*@ spec_public non_null @*/
+  private final CalendarioCamere calendarioCamere;
+  /*@ spec_public non_null @*/
+  private final AmmissionePrenotazioni ammissione;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
   /*@
     @ also
@@ -42,8 +53,18 @@ public class PrenotazioneAlloggioServiceImpl implements PrenotazioneAlloggioServ
     if (camera.getAlloggio() == null) {
       throw new Exception("La camera non ha un alloggio collegato.");
     }
-    prenotazioneAlloggio.setCamera(camera);
-    return repository.save(prenotazioneAlloggio);
+    // Controllo e salvataggio sotto lo stesso lock: il calendario viene aggiornato
+    // dall'evento prima che il lock venga rilasciato
+    return ammissione.perCamera(camera.getId(), () -> {
+      if (controllaDisponibilitaCamera(camera, prenotazioneAlloggio.getDataInizio(),
+          prenotazioneAlloggio.getDataFine()) < prenotazioneAlloggio.getNumCamere()) {
+        throw new PostiNonDisponibiliException("La camera non è disponibile.");
+      }
+      prenotazioneAlloggio.setCamera(camera);
+      PrenotazioneAlloggio salvata = repository.save(prenotazioneAlloggio);
+      eventPublisher.publishEvent(new PrenotazioneAlloggioModificataEvent(salvata, false));
+      return salvata;
+    });
   }
 
   /*@ requires prenotazioneAlloggio != null; @*/
@@ -55,6 +76,8 @@ public class PrenotazioneAlloggioServiceImpl implements PrenotazioneAlloggioServ
     }
     repository.delete(prenotazioneAlloggio);
     repository.flush();
+    eventPublisher.publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazioneAlloggio,
+        true));
     return repository.findById(prenotazioneAlloggio.getId()).isEmpty();
   }
 
@@ -161,6 +184,10 @@ public class PrenotazioneAlloggioServiceImpl implements PrenotazioneAlloggioServ
     if (dataFine.before(dataInizio)) {
       throw new Exception("La data di fine non può essere precedente alla data di inizio.");
     }
+    if (calendarioCamere.isPronto()) {
+      return Math.max(0, calendarioCamere.getCapienzaAlloggio(alloggio.getId())
+          - calendarioCamere.getPostiOccupatiAlloggio(alloggio.getId(), dataInizio, dataFine));
+    }
     return Math.max(0, cameraService
         .getCamereByAlloggio(alloggio)
         .stream()
@@ -188,6 +215,10 @@ public class PrenotazioneAlloggioServiceImpl implements PrenotazioneAlloggioServ
     if (dataFine.before(dataInizio)) {
       throw new Exception("La data di fine non può essere precedente alla data di inizio.");
     }
+    if (calendarioCamere.isPronto()) {
+      return Math.max(0, camera.getDisponibilita()
+          - calendarioCamere.getPostiOccupatiCamera(camera.getId(), dataInizio, dataFine));
+    }
     return Math.max(0, camera.getDisponibilita() - repository.getPostiOccupatiCameraTra(camera.getId(),
         dataInizio, dataFine));
   }
@@ -5,6 +5,7 @@ import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 
@@ -54,4 +55,10 @@ public interface PrenotazioneAttivitaTuristicaService {
 
   int controllaDisponibilitaAttivitaTuristica(Attivita attivita, /*@ nullable @*/ Date dataInizio)
       throws Exception;
+
+  /*@
+    @ ensures \result != null;
+    @*/
+  DisponibilitaSettimana getDisponibilitaSettimana(Attivita attivita,
+      /*@ nullable @*/ LocalDate inizio, int posti) throws Exception;
 }
@@ -6,11 +6,22 @@ import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -21,8 +32,16 @@ import org.springframework.stereotype.Service;
 public class PrenotazioneAttivitaTuristicaServiceImpl implements
     PrenotazioneAttivitaTuristicaService {
 
+  static final int GIORNI_SETTIMANA = 7;
+
   /*@ spec_public non_null @*/
   private final PrenotazioneAttivitaTuristicaRepository repository;
+  /*@ spec_public non_null @*/
+  private final AmmissionePrenotazioni ammissione;
+  /*@ spec_public non_null @*/
+  private final CalendarioAttivita calendarioAttivita;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
   /*@
     @ also
@@ -40,8 +59,21 @@ public class PrenotazioneAttivitaTuristicaServiceImpl implements
     if (attivita.isAlloggio()) {
       throw new Exception("L'attività non può essere un alloggio.");
     }
-    prenotazioneAttivitaTuristica.setAttivitaTuristica(attivita);
-    return repository.save(prenotazioneAttivitaTuristica);
+    // Controllo e salvataggio sotto lo stesso lock: il calendario viene aggiornato
+    // dall'evento prima che il lock venga rilasciato
+    return ammissione.perAttivitaTuristica(attivita.getId(), () -> {
+      if (controllaDisponibilitaAttivitaTuristica(attivita,
+          prenotazioneAttivitaTuristica.getDataInizio())
+          < prenotazioneAttivitaTuristica.getNumAdulti()
+          + prenotazioneAttivitaTuristica.getNumBambini()) {
+        throw new PostiNonDisponibiliException("L'attività turistica non è disponibile.");
+      }
+      prenotazioneAttivitaTuristica.setAttivitaTuristica(attivita);
+      PrenotazioneAttivitaTuristica salvata = repository.save(prenotazioneAttivitaTuristica);
+      eventPublisher.publishEvent(new PrenotazioneAttivitaTuristicaModificataEvent(salvata,
+          false));
+      return salvata;
+    });
   }
 
   /*@ requires prenotazioneAttivitaTuristica != null; @*/
@@ -53,6 +85,8 @@ public class PrenotazioneAttivitaTuristicaServiceImpl implements
     }
     repository.delete(prenotazioneAttivitaTuristica);
     repository.flush();
+    eventPublisher.publishEvent(new PrenotazioneAttivitaTuristicaModificataEvent(
+        prenotazioneAttivitaTuristica, true));
     return repository.findById(prenotazioneAttivitaTuristica.getId()).isEmpty();
   }
 
@@ -153,8 +187,81 @@ public class PrenotazioneAttivitaTuristicaServiceImpl implements
     if (dataInizio == null) {
       throw new Exception("Data non valida.");
     }
+    if (calendarioAttivita.isPronto()) {
+      return Math.max(0, attivita.getDisponibilita()
+          - calendarioAttivita.getPostiOccupati(attivita.getId(), dataInizio));
+    }
     return Math.max(0, attivita.getDisponibilita() - repository.getPostiOccupatiIn(
         attivita.getId(), dataInizio));
   }
 
+  /*@
+    @ also
+    @ requires attivita != null;
+    @ requires attivita.getDisponibilita() != null;
+    @ ensures \result != null;
+    @*/
+  @Override
+  public DisponibilitaSettimana getDisponibilitaSettimana(Attivita attivita,
+      /*@ nullable @*/ LocalDate inizio, int posti) throws Exception {
+    if (attivita == null) {
+      throw new Exception("L'attività è vuota.");
+    }
+    if (attivita.isAlloggio()) {
+      throw new Exception("L'attività non può essere un alloggio.");
+    }
+    if (inizio == null) {
+      throw new Exception("Data non valida.");
+    }
+    if (posti < 1) {
+      throw new Exception("Il numero dei posti non è valido.");
+    }
+    long id = attivita.getId();
+    int disponibilita = attivita.getDisponibilita();
+    Date da = data(inizio);
+    Date a = data(inizio.plusDays(GIORNI_SETTIMANA));
+    List<CalendarioAttivita.Slot> slot;
+    int massimoOccupati;
+    CalendarioAttivita.Slot prossimo;
+    if (calendarioAttivita.isPronto()) {
+      slot = calendarioAttivita.getSlot(id, da, a);
+      massimoOccupati = calendarioAttivita.getMassimoOccupati(id, da, a);
+      prossimo = calendarioAttivita.getPrimoSlot(id, da, disponibilita - posti);
+    } else {
+      // Prima che il calendario sia pronto: una scansione delle prenotazioni dell'attività
+      TreeMap<Long, Integer> perOrario = new TreeMap<>();
+      for (OccupazioneAttivita occupazione : repository.findOccupazioniByAttivita(id)) {
+        perOrario.merge(occupazione.dataInizio().getTime(), occupazione.posti(), Integer::sum);
+      }
+      slot = new ArrayList<>();
+      massimoOccupati = 0;
+      prossimo = null;
+      for (Map.Entry<Long, Integer> e : perOrario.tailMap(da.getTime()).entrySet()) {
+        CalendarioAttivita.Slot s = new CalendarioAttivita.Slot(new Date(e.getKey()),
+            e.getValue());
+        if (e.getKey() < a.getTime()) {
+          slot.add(s);
+          massimoOccupati = Math.max(massimoOccupati, s.occupati());
+        }
+        if (prossimo == null && s.occupati() <= disponibilita - posti) {
+          prossimo = s;
+        }
+      }
+    }
+    return new DisponibilitaSettimana(id, inizio, inizio.plusDays(GIORNI_SETTIMANA - 1),
+        disponibilita, Math.max(0, disponibilita - massimoOccupati),
+        slot.stream().map(s -> slot(s, disponibilita)).toList(),
+        prossimo == null ? null : slot(prossimo, disponibilita));
+  }
+
+  private static DisponibilitaSettimana.Slot slot(CalendarioAttivita.Slot slot,
+      int disponibilita) {
+    return new DisponibilitaSettimana.Slot(slot.inizio(), slot.occupati(),
+        Math.max(0, disponibilita - slot.occupati()));
+  }
+
+  private static Date data(LocalDate giorno) {
+    return Date.from(giorno.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
 }
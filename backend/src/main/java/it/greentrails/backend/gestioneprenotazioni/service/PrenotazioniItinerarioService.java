@@ -0,0 +1,14 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import it.greentrails.backend.entities.Itinerario;
+
+/*@ nullable_by_default @*/
+public interface PrenotazioniItinerarioService {
+
+  /*@
+    @ ensures \result != null;
+    @*/
+  EsitoPrenotazioni prenota(/*@ nullable @*/ Itinerario itinerario,
+      /*@ nullable @*/ RichiestaPrenotazioni richiesta) throws Exception;
+
+}
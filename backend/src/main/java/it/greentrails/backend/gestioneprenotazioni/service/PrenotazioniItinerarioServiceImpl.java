@@ -0,0 +1,307 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PrenotazioneNonValidaException;
+import it.greentrails.backend.gestioneprenotazioni.repository.PostiOccupatiAttivita;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+@Service
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class PrenotazioniItinerarioServiceImpl implements PrenotazioniItinerarioService {
+
+  static final int MASSIMO_PRENOTAZIONI = 100;
+
+  /*@ spec_public non_null @*/
+  private final ItinerariRepository itinerariRepository;
+  /*@ spec_public non_null @*/
+  private final CameraRepository cameraRepository;
+  /*@ spec_public non_null @*/
+  private final AttivitaRepository attivitaRepository;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+  /*@ spec_public non_null @*/
+  private final PrenotazioneAlloggioService prenotazioneAlloggioService;
+  /*@ spec_public non_null @*/
+  private final AmmissionePrenotazioni ammissione;
+  /*@ spec_public non_null @*/
+  private final CalendarioAttivita calendarioAttivita;
+  /*@ spec_public non_null @*/
+  private final BulkWriter bulkWriter;
+  /*@ spec_public non_null @*/
+  private final TransactionOperations transazione;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+
+  /*@
+    @ also
+    @ ensures \result != null;
+    @*/
+  @Override
+  public EsitoPrenotazioni prenota(/*@ nullable @*/ Itinerario itinerario,
+      /*@ nullable @*/ RichiestaPrenotazioni richiesta) throws Exception {
+    if (itinerario == null) {
+      throw new Exception("L'itinerario è vuoto.");
+    }
+    if (richiesta == null || richiesta.size() == 0) {
+      throw new PrenotazioneNonValidaException("Nessuna prenotazione richiesta.");
+    }
+    if (richiesta.size() > MASSIMO_PRENOTAZIONI) {
+      throw new PrenotazioneNonValidaException(
+          "Non si possono registrare più di " + MASSIMO_PRENOTAZIONI + " prenotazioni insieme.");
+    }
+    valida(richiesta);
+    Set<Long> idCamere = new LinkedHashSet<>();
+    richiesta.alloggi().forEach(r -> idCamere.add(r.idCamera()));
+    Set<Long> idAttivita = new LinkedHashSet<>();
+    richiesta.attivitaTuristiche().forEach(r -> idAttivita.add(r.idAttivita()));
+    Map<Long, Camera> camere = new HashMap<>();
+    if (!idCamere.isEmpty()) {
+      cameraRepository.findAllConAlloggio(idCamere).forEach(c -> camere.put(c.getId(), c));
+    }
+    Map<Long, Attivita> attivita = new HashMap<>();
+    if (!idAttivita.isEmpty()) {
+      attivitaRepository.findAllConDettagli(idAttivita).forEach(a -> attivita.put(a.getId(), a));
+    }
+
+    List<PrenotazioneAlloggio> prenotazioniAlloggio = new ArrayList<>();
+    for (RichiestaPrenotazioni.Alloggio r : richiesta.alloggi()) {
+      prenotazioniAlloggio.add(creaPrenotazioneAlloggio(itinerario, camere.get(r.idCamera()), r));
+    }
+    List<PrenotazioneAttivitaTuristica> prenotazioniAttivita = new ArrayList<>();
+    for (RichiestaPrenotazioni.AttivitaTuristica r : richiesta.attivitaTuristiche()) {
+      prenotazioniAttivita.add(
+          creaPrenotazioneAttivitaTuristica(itinerario, attivita.get(r.idAttivita()), r));
+    }
+
+    // Tutte le risorse restano bloccate dal controllo fino all'aggiornamento del calendario
+    return ammissione.perRisorse(idCamere, idAttivita, () -> {
+      controllaCamere(prenotazioniAlloggio);
+      controllaAttivitaTuristiche(prenotazioniAttivita);
+      EsitoPrenotazioni esito = transazione.execute(
+          stato -> salva(itinerario, prenotazioniAlloggio, prenotazioniAttivita));
+      for (PrenotazioneAlloggio prenotazione : esito.prenotazioniAlloggio()) {
+        eventPublisher.publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazione, false));
+      }
+      for (PrenotazioneAttivitaTuristica prenotazione : esito.prenotazioniAttivitaTuristica()) {
+        eventPublisher.publishEvent(
+            new PrenotazioneAttivitaTuristicaModificataEvent(prenotazione, false));
+      }
+      return esito;
+    });
+  }
+
+  // Prima del controllo dei posti: un numero negativo abbasserebbe l'occupazione calcolata
+  private static void valida(RichiestaPrenotazioni richiesta) throws Exception {
+    for (RichiestaPrenotazioni.Alloggio r : richiesta.alloggi()) {
+      if (r == null) {
+        throw new PrenotazioneNonValidaException("La prenotazione dell'alloggio è vuota.");
+      }
+      validaPersone(r.numAdulti(), r.numBambini());
+    }
+    for (RichiestaPrenotazioni.AttivitaTuristica r : richiesta.attivitaTuristiche()) {
+      if (r == null) {
+        throw new PrenotazioneNonValidaException(
+            "La prenotazione dell'attività turistica è vuota.");
+      }
+      validaPersone(r.numAdulti(), r.numBambini());
+    }
+  }
+
+  private static void validaPersone(int numAdulti, int numBambini) throws Exception {
+    if (numAdulti < 1) {
+      throw new PrenotazioneNonValidaException(
+          "Il numero degli adulti non può essere inferiore ad 1.");
+    }
+    if (numBambini < 0) {
+      throw new PrenotazioneNonValidaException("Il numero dei bambini non può essere negativo.");
+    }
+  }
+
+  private EsitoPrenotazioni salva(Itinerario itinerario,
+      List<PrenotazioneAlloggio> prenotazioniAlloggio,
+      List<PrenotazioneAttivitaTuristica> prenotazioniAttivita) {
+    List<PrenotazioneAlloggio> alloggi = bulkWriter.inserisci(prenotazioniAlloggio);
+    List<PrenotazioneAttivitaTuristica> attivita = bulkWriter.inserisci(prenotazioniAttivita);
+    double totale = itinerario.getTotale();
+    for (PrenotazioneAlloggio prenotazione : alloggi) {
+      totale += prenotazione.getPrezzo();
+    }
+    for (PrenotazioneAttivitaTuristica prenotazione : attivita) {
+      totale += prenotazione.getPrezzo();
+    }
+    itinerario.setTotale(totale);
+    return new EsitoPrenotazioni(itinerariRepository.save(itinerario), alloggi, attivita);
+  }
+
+  // Le prenotazioni della stessa richiesta sulla stessa camera si sommano tra loro: due periodi
+  // che si sovrappongono contano per intero, anche se i giorni in comune sono pochi
+  private void controllaCamere(List<PrenotazioneAlloggio> prenotazioni) throws Exception {
+    for (int i = 0; i < prenotazioni.size(); i++) {
+      PrenotazioneAlloggio prenotazione = prenotazioni.get(i);
+      Camera camera = prenotazione.getCamera();
+      int disponibili = prenotazioneAlloggioService.controllaDisponibilitaCamera(camera,
+          prenotazione.getDataInizio(), prenotazione.getDataFine());
+      for (int j = 0; j < i; j++) {
+        PrenotazioneAlloggio precedente = prenotazioni.get(j);
+        if (precedente.getCamera().getId().equals(camera.getId())
+            && !precedente.getDataInizio().after(prenotazione.getDataFine())
+            && !prenotazione.getDataInizio().after(precedente.getDataFine())) {
+          disponibili -= precedente.getNumCamere();
+        }
+      }
+      if (disponibili < prenotazione.getNumCamere()) {
+        throw new PostiNonDisponibiliException(
+            "La camera " + camera.getId() + " non è disponibile.");
+      }
+    }
+  }
+
+  private void controllaAttivitaTuristiche(List<PrenotazioneAttivitaTuristica> prenotazioni)
+      throws Exception {
+    if (prenotazioni.isEmpty()) {
+      return;
+    }
+    boolean pronto = calendarioAttivita.isPronto();
+    List<PostiOccupatiAttivita> occupati = List.of();
+    if (!pronto) {
+      Set<Long> idAttivita = new LinkedHashSet<>();
+      Set<Date> date = new LinkedHashSet<>();
+      for (PrenotazioneAttivitaTuristica prenotazione : prenotazioni) {
+        idAttivita.add(prenotazione.getAttivitaTuristica().getId());
+        date.add(prenotazione.getDataInizio());
+      }
+      occupati = prenotazioneAttivitaTuristicaRepository.getPostiOccupatiIn(idAttivita, date);
+    }
+    for (int i = 0; i < prenotazioni.size(); i++) {
+      PrenotazioneAttivitaTuristica prenotazione = prenotazioni.get(i);
+      Attivita attivita = prenotazione.getAttivitaTuristica();
+      long posti = 0;
+      if (pronto) {
+        posti = calendarioAttivita.getPostiOccupati(attivita.getId(),
+            prenotazione.getDataInizio());
+      }
+      for (PostiOccupatiAttivita riga : occupati) {
+        if (riga.idAttivita().equals(attivita.getId())
+            && riga.dataInizio().getTime() == prenotazione.getDataInizio().getTime()) {
+          posti += riga.posti();
+        }
+      }
+      for (int j = 0; j < i; j++) {
+        PrenotazioneAttivitaTuristica precedente = prenotazioni.get(j);
+        if (precedente.getAttivitaTuristica().getId().equals(attivita.getId())
+            && precedente.getDataInizio().equals(prenotazione.getDataInizio())) {
+          posti += precedente.getNumAdulti() + precedente.getNumBambini();
+        }
+      }
+      if (attivita.getDisponibilita() - posti
+          < prenotazione.getNumAdulti() + prenotazione.getNumBambini()) {
+        throw new PostiNonDisponibiliException(
+            "L'attività turistica " + attivita.getId() + " non è disponibile.");
+      }
+    }
+  }
+
+  private PrenotazioneAlloggio creaPrenotazioneAlloggio(Itinerario itinerario, Camera camera,
+      RichiestaPrenotazioni.Alloggio richiesta) throws Exception {
+    if (camera == null || camera.getAlloggio() == null) {
+      throw new PrenotazioneNonValidaException(
+          "La camera " + richiesta.idCamera() + " non è stata trovata.");
+    }
+    if (richiesta.dataInizio() == null || richiesta.dataFine() == null) {
+      throw new PrenotazioneNonValidaException("Data non valida.");
+    }
+    if (richiesta.dataFine().isBefore(richiesta.dataInizio())) {
+      throw new PrenotazioneNonValidaException(
+          "La data di fine non può essere precedente alla data di inizio.");
+    }
+    if (richiesta.numCamere() < 1
+        || richiesta.numAdulti() + richiesta.numBambini()
+        > camera.getCapienza() * richiesta.numCamere()) {
+      throw new PrenotazioneNonValidaException("Numero camere non sufficienti");
+    }
+    PrenotazioneAlloggio prenotazione = new PrenotazioneAlloggio();
+    prenotazione.setCamera(camera);
+    prenotazione.setItinerario(itinerario);
+    prenotazione.setNumAdulti(richiesta.numAdulti());
+    prenotazione.setNumBambini(richiesta.numBambini());
+    prenotazione.setNumCamere(richiesta.numCamere());
+    prenotazione.setDataInizio(data(richiesta.dataInizio()));
+    prenotazione.setDataFine(data(richiesta.dataFine()));
+    prenotazione.setStato(StatoPrenotazione.CREATA);
+    prenotazione.setPrezzo(perDurata(richiesta.numCamere() * camera.getPrezzo(),
+        prenotazione.getDataInizio(), prenotazione.getDataFine()));
+    return prenotazione;
+  }
+
+  private PrenotazioneAttivitaTuristica creaPrenotazioneAttivitaTuristica(Itinerario itinerario,
+      Attivita attivita, RichiestaPrenotazioni.AttivitaTuristica richiesta) throws Exception {
+    if (attivita == null || attivita.isAlloggio()) {
+      throw new PrenotazioneNonValidaException(
+          "L'attività turistica " + richiesta.idAttivita() + " non è stata trovata.");
+    }
+    if (richiesta.dataInizio() == null) {
+      throw new PrenotazioneNonValidaException("Data non valida.");
+    }
+    if (richiesta.dataFine() != null && richiesta.dataFine().isBefore(richiesta.dataInizio())) {
+      throw new PrenotazioneNonValidaException(
+          "La data di fine non può essere precedente alla data di inizio.");
+    }
+    PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+    prenotazione.setAttivitaTuristica(attivita);
+    prenotazione.setItinerario(itinerario);
+    prenotazione.setNumAdulti(richiesta.numAdulti());
+    prenotazione.setNumBambini(richiesta.numBambini());
+    prenotazione.setDataInizio(data(richiesta.dataInizio()));
+    prenotazione.setStato(StatoPrenotazione.CREATA);
+    double prezzo = (richiesta.numAdulti() + richiesta.numBambini()) * attivita.getPrezzo();
+    if (richiesta.dataFine() != null) {
+      prenotazione.setDataFine(data(richiesta.dataFine()));
+      prezzo = perDurata(prezzo, prenotazione.getDataInizio(), prenotazione.getDataFine());
+    }
+    prenotazione.setPrezzo(prezzo);
+    return prenotazione;
+  }
+
+  // Stessa regola dei controller delle singole prenotazioni: si paga per ogni giorno iniziato
+  private static double perDurata(double prezzo, Date dataInizio, Date dataFine) {
+    long durataOre = Duration.between(dataInizio.toInstant(), dataFine.toInstant()).toHours();
+    if (durataOre > 24) {
+      return prezzo * Math.ceil((double) durataOre / 24);
+    }
+    return prezzo;
+  }
+
+  private static Date data(LocalDate giorno) {
+    return Date.from(giorno.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+}
@@ -0,0 +1,33 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Prenotazioni di camere e attività turistiche da registrare insieme su un itinerario
+public record RichiestaPrenotazioni(List<Alloggio> alloggi,
+                                    List<AttivitaTuristica> attivitaTuristiche) {
+
+  // Gli elementi null restano nella lista: li rifiuta il servizio con un errore di validazione
+  public RichiestaPrenotazioni {
+    alloggi = alloggi == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(alloggi));
+    attivitaTuristiche = attivitaTuristiche == null ? List.of()
+        : Collections.unmodifiableList(new ArrayList<>(attivitaTuristiche));
+  }
+
+  public int size() {
+    return alloggi.size() + attivitaTuristiche.size();
+  }
+
+  public record Alloggio(Long idCamera, int numAdulti, int numBambini, int numCamere,
+                         LocalDate dataInizio, LocalDate dataFine) {
+
+  }
+
+  public record AttivitaTuristica(Long idAttivita, int numAdulti, int numBambini,
+                                  LocalDate dataInizio, LocalDate dataFine) {
+
+  }
+
+}
@@ -1,12 +1,13 @@
 package it.greentrails.backend.gestionericerca.controller;
 
-import it.greentrails.backend.entities.Attivita;
-import it.greentrails.backend.gestioneattivita.service.CategoriaService;
+import it.greentrails.backend.gestioneattivita.service.SchedaAttivita;
+import it.greentrails.backend.gestionericerca.service.CriteriRicerca;
 import it.greentrails.backend.gestionericerca.service.RicercaService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
+import java.security.InvalidParameterException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.geo.Point;
 import org.springframework.http.HttpStatus;
@@ -21,39 +22,29 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequiredArgsConstructor
 public class RicercaController {
 
+  static final int DIMENSIONE_PAGINA = 20;
+
   private final RicercaService ricercaService;
-  private final CategoriaService categoriaService;
 
   @PostMapping
   private ResponseEntity<Object> cerca(
       @RequestParam(value = "query") final String query,
       @RequestParam(value = "idCategorie", required = false) final Long[] idCategorie,
-      @RequestParam(value = "latitudine", required = false) final Long latitudine,
-      @RequestParam(value = "longitudine", required = false) final Long longitudine,
-      @RequestParam(value = "raggio", required = false) final Double raggio
+      @RequestParam(value = "idCategorieAlternative", required = false)
+      final Long[] idCategorieAlternative,
+      @RequestParam(value = "idCategorieEscluse", required = false) final Long[] idCategorieEscluse,
+      @RequestParam(value = "latitudine", required = false) final Double latitudine,
+      @RequestParam(value = "longitudine", required = false) final Double longitudine,
+      @RequestParam(value = "raggio", required = false) final Double raggio,
+      @RequestParam(value = "pagina", required = false) Integer pagina,
+      @RequestParam(value = "dimensione", required = false) Integer dimensione
   ) {
-    List<Attivita> risultati = ricercaService.findAttivita(query);
-    if (idCategorie != null && idCategorie.length > 0) {
-      risultati = ricercaService.findAttivitaByCategorie(
-              Arrays.stream(idCategorie).map(idCategoria -> {
-                try {
-                  return categoriaService.findById(idCategoria);
-                } catch (Exception e) {
-                  throw new RuntimeException(e);
-                }
-              }).collect(Collectors.toList()))
-          .stream()
-          .filter(risultati::contains)
-          .collect(Collectors.toList());
-    }
-    if (latitudine != null && longitudine != null && raggio != null) {
-      Point coordinate = new Point(latitudine, longitudine);
-      risultati = ricercaService.findAttivitaByPosizione(coordinate, raggio)
-          .stream()
-          .filter(risultati::contains)
-          .collect(Collectors.toList());
+    if (dimensione == null) {
+      dimensione = DIMENSIONE_PAGINA;
     }
-    return ResponseGenerator.generateResponse(HttpStatus.OK, risultati);
+    return cercaPerCriteri(new CriteriRicerca(query, lista(idCategorie),
+        lista(idCategorieAlternative), lista(idCategorieEscluse), punto(latitudine, longitudine),
+        raggio), pagina, dimensione);
   }
 
   @PostMapping("perPosizione")
@@ -61,24 +52,54 @@ public class RicercaController {
       @RequestParam(value = "latitudine") final Double latitudine,
       @RequestParam(value = "longitudine") final Double longitudine,
       @RequestParam(value = "raggio") final Double raggio,
-      @RequestParam(value = "idCategorie", required = false) final Long[] idCategorie
+      @RequestParam(value = "idCategorie", required = false) final Long[] idCategorie,
+      @RequestParam(value = "idCategorieAlternative", required = false)
+      final Long[] idCategorieAlternative,
+      @RequestParam(value = "idCategorieEscluse", required = false) final Long[] idCategorieEscluse,
+      @RequestParam(value = "pagina", required = false) Integer pagina,
+      @RequestParam(value = "dimensione", required = false) Integer dimensione
   ) {
-    Point coordinate = new Point(latitudine, longitudine);
-    List<Attivita> risultati = ricercaService.findAttivitaByPosizione(coordinate, raggio);
-    if (idCategorie != null && idCategorie.length > 0) {
-      risultati = ricercaService.findAttivitaByCategorie(
-              Arrays.stream(idCategorie).map(idCategoria -> {
-                try {
-                  return categoriaService.findById(idCategoria);
-                } catch (Exception e) {
-                  throw new RuntimeException(e);
-                }
-              }).collect(Collectors.toList()))
-          .stream()
-          .filter(risultati::contains)
-          .collect(Collectors.toList());
+    // Senza paginazione esplicita restituisce tutte le attività nel raggio, come in passato
+    if (dimensione == null) {
+      dimensione = Integer.MAX_VALUE;
+    }
+    return cercaPerCriteri(new CriteriRicerca(null, lista(idCategorie),
+        lista(idCategorieAlternative), lista(idCategorieEscluse),
+        new Point(latitudine, longitudine), raggio), pagina, dimensione);
+  }
+
+  private ResponseEntity<Object> cercaPerCriteri(CriteriRicerca criteri, Integer pagina,
+      int dimensione) {
+    try {
+      return ResponseGenerator.generateResponse(HttpStatus.OK, SchedaAttivita.di(
+          ricercaService.cerca(criteri, pagina == null ? 0 : pagina, dimensione)));
+    } catch (InvalidParameterException e) {
+      return ResponseGenerator.generateResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  private static List<Long> lista(Long[] idCategorie) {
+    return idCategorie == null ? List.of() : Arrays.stream(idCategorie)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  private static Point punto(Double latitudine, Double longitudine) {
+    return latitudine == null || longitudine == null ? null : new Point(latitudine, longitudine);
+  }
+
+  @PostMapping("vicine")
+  private ResponseEntity<Object> cercaPiuVicine(
+      @RequestParam(value = "latitudine") final Double latitudine,
+      @RequestParam(value = "longitudine") final Double longitudine,
+      @RequestParam(value = "numero", required = false) Integer numero
+  ) {
+    if (numero == null) {
+      numero = 10;
     }
-    return ResponseGenerator.generateResponse(HttpStatus.OK, risultati);
+    Point coordinate = new Point(latitudine, longitudine);
+    return ResponseGenerator.generateResponse(HttpStatus.OK,
+        SchedaAttivita.di(ricercaService.findAttivitaPiuVicine(coordinate, numero)));
   }
 
 }
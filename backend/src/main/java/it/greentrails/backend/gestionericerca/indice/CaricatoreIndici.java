@@ -0,0 +1,67 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.events.AttivitaModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AssegnazioneCategoria;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class CaricatoreIndici {
+
+  static final int DIMENSIONE_BLOCCO = 1000;
+
+  private final AttivitaRepository repository;
+  private final List<IndiceAttivita> indici;
+  private final IndiceCategorie indiceCategorie;
+
+  // Una sola scansione per chiave (id > ultimo letto) alimenta tutti gli indici: niente
+  // OFFSET né count(*) per blocco
+  @EventListener(ApplicationReadyEvent.class)
+  public void ricostruisci() {
+    indici.forEach(IndiceAttivita::svuota);
+    long ultimoId = 0;
+    List<Attivita> blocco;
+    do {
+      blocco = repository.findDopo(ultimoId, Limit.of(DIMENSIONE_BLOCCO));
+      List<Long> ids = new ArrayList<>();
+      for (Attivita attivita : blocco) {
+        if (!attivita.isEliminata()) {
+          indici.forEach(indice -> indice.aggiorna(attivita));
+          ids.add(attivita.getId());
+        }
+        ultimoId = attivita.getId();
+      }
+      // Le categorie sono una collezione lazy: si leggono le coppie dalla tabella di join
+      if (!ids.isEmpty()) {
+        for (AssegnazioneCategoria assegnazione : repository.findAssegnazioniCategorie(ids)) {
+          indiceCategorie.assegna(assegnazione.idAttivita(), assegnazione.idCategoria());
+        }
+      }
+    } while (blocco.size() == DIMENSIONE_BLOCCO);
+    indici.forEach(IndiceAttivita::segnaPronto);
+  }
+
+  @EventListener
+  public void onAttivitaModificata(AttivitaModificataEvent event) {
+    Attivita attivita = event.attivita();
+    if (attivita == null || attivita.getId() == null) {
+      return;
+    }
+    for (IndiceAttivita indice : indici) {
+      if (attivita.isEliminata()) {
+        indice.rimuovi(attivita.getId());
+      } else {
+        indice.aggiorna(attivita);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,19 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import it.greentrails.backend.entities.Attivita;
+
+// Indice in memoria sulle attività non eliminate, alimentato da CaricatoreIndici
+public interface IndiceAttivita {
+
+  void aggiorna(Attivita attivita);
+
+  void rimuovi(Long idAttivita);
+
+  // Svuota l'indice e lo segna come non pronto, in vista di una ricostruzione
+  void svuota();
+
+  void segnaPronto();
+
+  boolean isPronto();
+
+}
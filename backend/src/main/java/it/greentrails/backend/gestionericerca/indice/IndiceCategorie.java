@@ -0,0 +1,166 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Categoria;
+import it.greentrails.backend.events.CategoriaModificataEvent;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.hibernate.Hibernate;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Una bitmap di id di attività per ogni categoria. Gli id sono generati in sequenza dal
+// database, quindi le bitmap restano dense e occupano circa un bit per attività.
+@Component
+public class IndiceCategorie implements IndiceAttivita {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, BitSet> attivitaPerCategoria = new HashMap<>();
+  private final BitSet attive = new BitSet();
+  private volatile boolean pronto = false;
+
+  @Override
+  public void aggiorna(Attivita attivita) {
+    int id = indice(attivita.getId());
+    lock.writeLock().lock();
+    try {
+      attive.set(id);
+      // Una riassegnazione richiede di leggere la collezione: se non è stata caricata,
+      // le categorie dell'attività non sono cambiate.
+      if (!Hibernate.isInitialized(attivita.getCategorie())) {
+        return;
+      }
+      togliDaTutte(id);
+      for (Categoria categoria : attivita.getCategorie()) {
+        if (categoria.getId() != null) {
+          attivitaPerCategoria.computeIfAbsent(categoria.getId(), k -> new BitSet()).set(id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Usato da CaricatoreIndici durante la ricostruzione, a partire dalla tabella di join
+  public void assegna(long idAttivita, long idCategoria) {
+    int id = indice(idAttivita);
+    lock.writeLock().lock();
+    try {
+      attive.set(id);
+      attivitaPerCategoria.computeIfAbsent(idCategoria, k -> new BitSet()).set(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void rimuovi(Long idAttivita) {
+    int id = indice(idAttivita);
+    lock.writeLock().lock();
+    try {
+      attive.clear(id);
+      togliDaTutte(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Le assegnazioni di una categoria eliminata spariscono con lei dalla tabella di join
+  @EventListener
+  public void onCategoriaModificata(CategoriaModificataEvent event) {
+    Categoria categoria = event.categoria();
+    if (!event.eliminata() || categoria == null || categoria.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      attivitaPerCategoria.remove(categoria.getId());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void svuota() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      attivitaPerCategoria.clear();
+      attive.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void segnaPronto() {
+    pronto = true;
+  }
+
+  @Override
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  // Attività che hanno tutte le categorie in "tutte", almeno una di quelle in "almenoUna"
+  // e nessuna di quelle in "escluse". Le liste vuote non pongono vincoli.
+  public BitSet filtra(Collection<Long> tutte, Collection<Long> almenoUna,
+      Collection<Long> escluse) {
+    lock.readLock().lock();
+    try {
+      BitSet risultato = (BitSet) attive.clone();
+      for (Long idCategoria : tutte) {
+        BitSet membri = attivitaPerCategoria.get(idCategoria);
+        if (membri == null) {
+          return new BitSet();
+        }
+        risultato.and(membri);
+      }
+      if (!almenoUna.isEmpty()) {
+        risultato.and(unione(almenoUna));
+      }
+      if (!escluse.isEmpty()) {
+        risultato.andNot(unione(escluse));
+      }
+      return risultato;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return attive.cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private BitSet unione(Collection<Long> idCategorie) {
+    BitSet unione = new BitSet();
+    for (Long idCategoria : idCategorie) {
+      BitSet membri = attivitaPerCategoria.get(idCategoria);
+      if (membri != null) {
+        unione.or(membri);
+      }
+    }
+    return unione;
+  }
+
+  private void togliDaTutte(int id) {
+    attivitaPerCategoria.values().removeIf(membri -> {
+      membri.clear(id);
+      return membri.isEmpty();
+    });
+  }
+
+  private static int indice(Long idAttivita) {
+    return Math.toIntExact(idAttivita);
+  }
+
+}
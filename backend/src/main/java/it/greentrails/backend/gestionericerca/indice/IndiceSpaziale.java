@@ -0,0 +1,366 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import it.greentrails.backend.entities.Attivita;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.data.geo.Point;
+import org.springframework.stereotype.Component;
+
+// Griglia regolare in gradi sulle coordinate delle attività (x = latitudine, y = longitudine,
+// come in AttivitaController). Le distanze sono in metri.
+@Component
+public class IndiceSpaziale implements IndiceAttivita {
+
+  // Stesso raggio usato da ST_Distance_Sphere di MySQL
+  static final double RAGGIO_TERRESTRE = 6_370_986;
+  static final double DIMENSIONE_CELLA = 0.05;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Cella> celle = new HashMap<>();
+  private final Map<Long, Posizione> posizioni = new HashMap<>();
+  private volatile boolean pronto = false;
+
+  public record Risultato(long idAttivita, double distanza) {
+
+  }
+
+  @Override
+  public void aggiorna(Attivita attivita) {
+    Point coordinate = attivita.getCoordinate();
+    lock.writeLock().lock();
+    try {
+      rimuoviPunto(attivita.getId());
+      if (coordinate == null) {
+        return;
+      }
+      long chiave = chiave(riga(coordinate.getX()), colonna(coordinate.getY()));
+      celle.computeIfAbsent(chiave, k -> new Cella())
+          .add(attivita.getId(), coordinate.getX(), coordinate.getY());
+      posizioni.put(attivita.getId(),
+          new Posizione(coordinate.getX(), coordinate.getY(), chiave));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void rimuovi(Long idAttivita) {
+    lock.writeLock().lock();
+    try {
+      rimuoviPunto(idAttivita);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void svuota() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      celle.clear();
+      posizioni.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void segnaPronto() {
+    pronto = true;
+  }
+
+  @Override
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return posizioni.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Prefiltro sul rettangolo che contiene il cerchio, poi verifica esatta con haversine.
+  // I risultati sono ordinati per distanza crescente.
+  public List<Risultato> cercaNelRaggio(double latitudine, double longitudine, double raggio) {
+    Rettangolo rettangolo = Rettangolo.attorno(latitudine, longitudine, raggio);
+    List<Risultato> risultati = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (Cella cella : celleNelRettangolo(rettangolo)) {
+        cella.filtra(latitudine, longitudine, raggio, rettangolo, risultati);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    ordina(risultati);
+    return risultati;
+  }
+
+  // Come cercaNelRaggio, ma limitata agli id candidati (ordinati)
+  public List<Risultato> filtraNelRaggio(double latitudine, double longitudine, double raggio,
+      long[] candidati) {
+    List<Risultato> risultati = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (long id : candidati) {
+        Posizione posizione = posizioni.get(id);
+        if (posizione == null) {
+          continue;
+        }
+        double distanza = haversine(latitudine, longitudine, posizione.latitudine(),
+            posizione.longitudine());
+        if (distanza <= raggio) {
+          risultati.add(new Risultato(id, distanza));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    ordina(risultati);
+    return risultati;
+  }
+
+  // Limite superiore al numero di risultati: i punti delle celle toccate dal rettangolo
+  public long stimaNelRaggio(double latitudine, double longitudine, double raggio) {
+    Rettangolo rettangolo = Rettangolo.attorno(latitudine, longitudine, raggio);
+    lock.readLock().lock();
+    try {
+      long totale = 0;
+      for (Cella cella : celleNelRettangolo(rettangolo)) {
+        totale += cella.size;
+      }
+      return totale;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private List<Cella> celleNelRettangolo(Rettangolo rettangolo) {
+    int rigaMin = riga(rettangolo.latMin());
+    int rigaMax = riga(rettangolo.latMax());
+    int colonnaMin = colonna(rettangolo.lonMin());
+    int colonnaMax = colonna(rettangolo.lonMax());
+    List<Cella> trovate = new ArrayList<>();
+    long numeroCelle = (long) (rigaMax - rigaMin + 1) * (colonnaMax - colonnaMin + 1);
+    if (numeroCelle > celle.size()) {
+      // Raggio molto ampio: conviene scorrere solo le celle occupate
+      for (Map.Entry<Long, Cella> voce : celle.entrySet()) {
+        int riga = (int) (voce.getKey() >> 32);
+        int colonna = (int) voce.getKey().longValue();
+        if (riga >= rigaMin && riga <= rigaMax && colonna >= colonnaMin
+            && colonna <= colonnaMax) {
+          trovate.add(voce.getValue());
+        }
+      }
+    } else {
+      for (int riga = rigaMin; riga <= rigaMax; riga++) {
+        for (int colonna = colonnaMin; colonna <= colonnaMax; colonna++) {
+          Cella cella = celle.get(chiave(riga, colonna));
+          if (cella != null) {
+            trovate.add(cella);
+          }
+        }
+      }
+    }
+    return trovate;
+  }
+
+  // Visita la griglia ad anelli concentrici attorno alla cella del punto, fermandosi quando
+  // nessuna cella più esterna può contenere un punto più vicino del k-esimo trovato.
+  public List<Risultato> cercaPiuVicine(double latitudine, double longitudine, int numero) {
+    if (numero <= 0) {
+      return List.of();
+    }
+    PriorityQueue<Risultato> migliori = new PriorityQueue<>(
+        Comparator.comparingDouble(Risultato::distanza).reversed());
+    int rigaCentro = riga(latitudine);
+    int colonnaCentro = colonna(longitudine);
+    lock.readLock().lock();
+    try {
+      int totale = posizioni.size();
+      int visitati = 0;
+      for (int anello = 0; visitati < totale; anello++) {
+        if (migliori.size() == numero
+            && distanzaMinimaAnello(latitudine, anello) > migliori.peek().distanza()) {
+          break;
+        }
+        if (8L * anello > celle.size()) {
+          // Punti radi e lontani: un anello costa più di una scansione delle celle occupate
+          migliori.clear();
+          for (Cella cella : celle.values()) {
+            cella.considera(latitudine, longitudine, numero, migliori);
+          }
+          break;
+        }
+        for (int riga = rigaCentro - anello; riga <= rigaCentro + anello; riga++) {
+          boolean bordo = riga == rigaCentro - anello || riga == rigaCentro + anello;
+          int passo = bordo ? 1 : Math.max(1, 2 * anello);
+          for (int colonna = colonnaCentro - anello; colonna <= colonnaCentro + anello;
+              colonna += passo) {
+            Cella cella = celle.get(chiave(riga, colonna));
+            if (cella != null) {
+              visitati += cella.size;
+              cella.considera(latitudine, longitudine, numero, migliori);
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    List<Risultato> risultati = new ArrayList<>(migliori);
+    ordina(risultati);
+    return risultati;
+  }
+
+  // Limite inferiore (prudente) alla distanza di un punto che si trovi all'anello indicato
+  // o oltre: il punto di partenza può stare ovunque nella propria cella, quindi si perde
+  // una cella, e sulla longitudine si usa il coseno della latitudine più lontana dall'equatore.
+  private static double distanzaMinimaAnello(double latitudine, int anello) {
+    if (anello <= 1) {
+      return 0;
+    }
+    double gradi = (anello - 1) * DIMENSIONE_CELLA;
+    double latEstrema = Math.min(90, Math.abs(latitudine) + (anello + 1) * DIMENSIONE_CELLA);
+    return Math.toRadians(gradi) * RAGGIO_TERRESTRE * Math.cos(Math.toRadians(latEstrema));
+  }
+
+  static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * RAGGIO_TERRESTRE * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  private static void ordina(List<Risultato> risultati) {
+    risultati.sort(Comparator.comparingDouble(Risultato::distanza)
+        .thenComparingLong(Risultato::idAttivita));
+  }
+
+  private void rimuoviPunto(Long idAttivita) {
+    Posizione posizione = posizioni.remove(idAttivita);
+    if (posizione == null) {
+      return;
+    }
+    Cella cella = celle.get(posizione.cella());
+    if (cella != null && cella.remove(idAttivita) && cella.size == 0) {
+      celle.remove(posizione.cella());
+    }
+  }
+
+  private static int riga(double latitudine) {
+    return (int) Math.floor(latitudine / DIMENSIONE_CELLA);
+  }
+
+  private static int colonna(double longitudine) {
+    return (int) Math.floor(longitudine / DIMENSIONE_CELLA);
+  }
+
+  private static long chiave(int riga, int colonna) {
+    return ((long) riga << 32) | (colonna & 0xFFFFFFFFL);
+  }
+
+  private record Posizione(double latitudine, double longitudine, long cella) {
+
+  }
+
+  // Rettangolo in gradi che contiene il cerchio di raggio dato (in metri)
+  private record Rettangolo(double latMin, double latMax, double lonMin, double lonMax) {
+
+    static Rettangolo attorno(double latitudine, double longitudine, double raggio) {
+      double delta = Math.toDegrees(raggio / RAGGIO_TERRESTRE);
+      double latMin = Math.max(-90, latitudine - delta);
+      double latMax = Math.min(90, latitudine + delta);
+      double lonMin = -180;
+      double lonMax = 180;
+      if (latMin > -90 && latMax < 90) {
+        double seno = Math.sin(raggio / RAGGIO_TERRESTRE) / Math.cos(Math.toRadians(latitudine));
+        if (seno < 1) {
+          double deltaLon = Math.toDegrees(Math.asin(seno));
+          lonMin = Math.max(-180, longitudine - deltaLon);
+          lonMax = Math.min(180, longitudine + deltaLon);
+        }
+      }
+      return new Rettangolo(latMin, latMax, lonMin, lonMax);
+    }
+
+    boolean contiene(double latitudine, double longitudine) {
+      return latitudine >= latMin && latitudine <= latMax && longitudine >= lonMin
+          && longitudine <= lonMax;
+    }
+  }
+
+  private static final class Cella {
+
+    private long[] ids = new long[4];
+    private double[] lat = new double[4];
+    private double[] lon = new double[4];
+    private int size = 0;
+
+    void add(long id, double latitudine, double longitudine) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        lat = Arrays.copyOf(lat, size * 2);
+        lon = Arrays.copyOf(lon, size * 2);
+      }
+      ids[size] = id;
+      lat[size] = latitudine;
+      lon[size] = longitudine;
+      size++;
+    }
+
+    boolean remove(long id) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i] == id) {
+          size--;
+          ids[i] = ids[size];
+          lat[i] = lat[size];
+          lon[i] = lon[size];
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void considera(double latitudine, double longitudine, int numero,
+        PriorityQueue<Risultato> migliori) {
+      for (int i = 0; i < size; i++) {
+        double distanza = haversine(latitudine, longitudine, lat[i], lon[i]);
+        if (migliori.size() < numero) {
+          migliori.add(new Risultato(ids[i], distanza));
+        } else if (distanza < migliori.peek().distanza()) {
+          migliori.poll();
+          migliori.add(new Risultato(ids[i], distanza));
+        }
+      }
+    }
+
+    void filtra(double latitudine, double longitudine, double raggio, Rettangolo rettangolo,
+        List<Risultato> risultati) {
+      for (int i = 0; i < size; i++) {
+        if (!rettangolo.contiene(lat[i], lon[i])) {
+          continue;
+        }
+        double distanza = haversine(latitudine, longitudine, lat[i], lon[i]);
+        if (distanza <= raggio) {
+          risultati.add(new Risultato(ids[i], distanza));
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,331 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import it.greentrails.backend.entities.Attivita;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IndiceTestuale implements IndiceAttivita {
+
+  static final int LUNGHEZZA_MINIMA_PREFISSO = 3;
+
+  private static final Pattern DIACRITICI = Pattern.compile("\\p{M}+");
+  private static final Pattern SEPARATORI = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Set<String> STOPWORDS = Set.of(
+      "il", "lo", "la", "i", "gli", "le", "l", "un", "uno", "una", "di", "a", "da", "in", "con",
+      "su", "per", "tra", "fra", "del", "dello", "della", "dei", "degli", "delle", "dell", "al",
+      "allo", "alla", "ai", "agli", "alle", "all", "dal", "dallo", "dalla", "dai", "dagli",
+      "dalle", "dall", "nel", "nello", "nella", "nei", "negli", "nelle", "nell", "sul", "sullo",
+      "sulla", "sui", "sugli", "sulle", "sull", "e", "ed", "o", "od", "ma", "che", "non", "si",
+      "c", "d");
+
+  private static final float PESO_NOME = 4f;
+  private static final float PESO_CITTA = 3f;
+  private static final float PESO_DESCRIZIONE_BREVE = 2f;
+  private static final float PESO_DESCRIZIONE_LUNGA = 1f;
+  private static final float SATURAZIONE = 1.2f;
+  private static final double FATTORE_PREFISSO = 0.5;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final TreeMap<String, Occorrenze> dizionario = new TreeMap<>();
+  private final Map<Long, String[]> terminiPerAttivita = new HashMap<>();
+  private volatile boolean pronto = false;
+
+  @Override
+  public void aggiorna(Attivita attivita) {
+    lock.writeLock().lock();
+    try {
+      rimuoviTermini(attivita.getId());
+      inserisci(attivita);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void rimuovi(Long idAttivita) {
+    lock.writeLock().lock();
+    try {
+      rimuoviTermini(idAttivita);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void svuota() {
+    lock.writeLock().lock();
+    try {
+      pronto = false;
+      dizionario.clear();
+      terminiPerAttivita.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void segnaPronto() {
+    pronto = true;
+  }
+
+  @Override
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return terminiPerAttivita.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Restituisce gli id delle attività che contengono tutti i termini della query,
+  // ordinati per rilevanza decrescente.
+  public List<Long> cerca(String query) {
+    return punteggi(query, null).entrySet().stream()
+        .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+            .thenComparing(Map.Entry.comparingByKey()))
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+
+  // Punteggio di rilevanza delle attività che contengono tutti i termini della query.
+  // Se candidati non è null si considerano solo quegli id.
+  public Map<Long, Double> punteggi(String query, long[] candidati) {
+    Set<String> terminiQuery = new LinkedHashSet<>(tokenizza(query));
+    if (terminiQuery.isEmpty()) {
+      return Map.of();
+    }
+    lock.readLock().lock();
+    try {
+      List<Espansione> espansioni = new ArrayList<>();
+      for (String termine : terminiQuery) {
+        Espansione espansione = espandi(termine);
+        if (espansione.voci().isEmpty()) {
+          return Map.of();
+        }
+        espansioni.add(espansione);
+      }
+      // Si parte dal termine più selettivo, così le mappe intermedie restano piccole
+      espansioni.sort(Comparator.comparingLong(Espansione::frequenza));
+      double totaleAttivita = terminiPerAttivita.size();
+      Map<Long, Double> punteggi = null;
+      if (candidati != null) {
+        punteggi = new HashMap<>();
+        for (long id : candidati) {
+          punteggi.put(id, 0.0);
+        }
+      }
+      for (Espansione espansione : espansioni) {
+        Map<Long, Double> parziali = new HashMap<>();
+        for (Map.Entry<String, Occorrenze> voce : espansione.voci().entrySet()) {
+          Occorrenze occorrenze = voce.getValue();
+          double idf = Math.log(1 + (totaleAttivita - occorrenze.size + 0.5)
+              / (occorrenze.size + 0.5));
+          double fattore = voce.getKey().equals(espansione.termine()) ? 1 : FATTORE_PREFISSO;
+          if (punteggi != null && punteggi.size() < occorrenze.size) {
+            // Pochi id ammessi: conviene cercarli nella lista delle occorrenze
+            for (Long id : punteggi.keySet()) {
+              int posizione = occorrenze.indexOf(id);
+              if (posizione >= 0) {
+                parziali.merge(id, idf * occorrenze.pesi[posizione] * fattore, Double::sum);
+              }
+            }
+          } else {
+            for (int i = 0; i < occorrenze.size; i++) {
+              long id = occorrenze.ids[i];
+              if (punteggi == null || punteggi.containsKey(id)) {
+                parziali.merge(id, idf * occorrenze.pesi[i] * fattore, Double::sum);
+              }
+            }
+          }
+        }
+        if (punteggi != null) {
+          Map<Long, Double> precedenti = punteggi;
+          parziali.replaceAll((id, punteggio) -> punteggio + precedenti.get(id));
+        }
+        if (parziali.isEmpty()) {
+          return Map.of();
+        }
+        punteggi = parziali;
+      }
+      return punteggi;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Limite superiore al numero di risultati: la frequenza del termine più raro
+  public long stima(String query) {
+    Set<String> terminiQuery = new LinkedHashSet<>(tokenizza(query));
+    if (terminiQuery.isEmpty()) {
+      return 0;
+    }
+    lock.readLock().lock();
+    try {
+      long minimo = Long.MAX_VALUE;
+      for (String termine : terminiQuery) {
+        minimo = Math.min(minimo, espandi(termine).frequenza());
+      }
+      return minimo;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Un termine della query corrisponde a sé stesso e, se abbastanza lungo, ai termini
+  // di cui è prefisso (come faceva l'ILIKE %query%)
+  private Espansione espandi(String termine) {
+    if (termine.length() < LUNGHEZZA_MINIMA_PREFISSO) {
+      return new Espansione(termine, dizionario.subMap(termine, true, termine, true));
+    }
+    return new Espansione(termine,
+        dizionario.subMap(termine, true, termine + Character.MAX_VALUE, false));
+  }
+
+  private void inserisci(Attivita attivita) {
+    Map<String, float[]> frequenze = new HashMap<>();
+    conta(frequenze, attivita.getNome(), 0);
+    conta(frequenze, attivita.getCitta(), 1);
+    conta(frequenze, attivita.getDescrizioneBreve(), 2);
+    conta(frequenze, attivita.getDescrizioneLunga(), 3);
+    Long id = attivita.getId();
+    for (Map.Entry<String, float[]> voce : frequenze.entrySet()) {
+      float[] tf = voce.getValue();
+      float peso = saturazione(tf[0]) * PESO_NOME
+          + saturazione(tf[1]) * PESO_CITTA
+          + saturazione(tf[2]) * PESO_DESCRIZIONE_BREVE
+          + saturazione(tf[3]) * PESO_DESCRIZIONE_LUNGA;
+      dizionario.computeIfAbsent(voce.getKey(), k -> new Occorrenze()).put(id, peso);
+    }
+    terminiPerAttivita.put(id, frequenze.keySet().toArray(new String[0]));
+  }
+
+  private void rimuoviTermini(Long id) {
+    String[] termini = terminiPerAttivita.remove(id);
+    if (termini == null) {
+      return;
+    }
+    for (String termine : termini) {
+      Occorrenze occorrenze = dizionario.get(termine);
+      if (occorrenze != null && occorrenze.remove(id) && occorrenze.size == 0) {
+        dizionario.remove(termine);
+      }
+    }
+  }
+
+  private static void conta(Map<String, float[]> frequenze, String testo, int campo) {
+    for (String termine : tokenizza(testo)) {
+      frequenze.computeIfAbsent(termine, k -> new float[4])[campo]++;
+    }
+  }
+
+  private static float saturazione(float tf) {
+    return tf / (tf + SATURAZIONE);
+  }
+
+  // Minuscole, accenti rimossi ("Città" -> "citta"), elisioni separate ("dell'Etna" -> "etna"),
+  // stopword scartate e vocale finale tolta per unificare singolare e plurale.
+  static List<String> tokenizza(String testo) {
+    if (testo == null || testo.isBlank()) {
+      return List.of();
+    }
+    String normalizzato = DIACRITICI.matcher(Normalizer.normalize(testo, Normalizer.Form.NFD))
+        .replaceAll("")
+        .toLowerCase(Locale.ITALIAN);
+    List<String> termini = new ArrayList<>();
+    for (String token : SEPARATORI.split(normalizzato)) {
+      if (token.isEmpty() || STOPWORDS.contains(token)) {
+        continue;
+      }
+      termini.add(radice(token));
+    }
+    return termini;
+  }
+
+  private static String radice(String token) {
+    if (token.length() < 5) {
+      return token;
+    }
+    char ultimo = token.charAt(token.length() - 1);
+    if (ultimo == 'a' || ultimo == 'e' || ultimo == 'i' || ultimo == 'o') {
+      return token.substring(0, token.length() - 1);
+    }
+    return token;
+  }
+
+  private record Espansione(String termine, NavigableMap<String, Occorrenze> voci) {
+
+    long frequenza() {
+      long totale = 0;
+      for (Occorrenze occorrenze : voci.values()) {
+        totale += occorrenze.size;
+      }
+      return totale;
+    }
+  }
+
+  // Lista di occorrenze di un termine, ordinata per id: durante la ricostruzione le attività
+  // arrivano in ordine di id e finiscono in coda.
+  private static final class Occorrenze {
+
+    private long[] ids = new long[4];
+    private float[] pesi = new float[4];
+    private int size = 0;
+
+    void put(long id, float peso) {
+      int posizione = size;
+      if (size > 0 && ids[size - 1] >= id) {
+        int trovato = Arrays.binarySearch(ids, 0, size, id);
+        if (trovato >= 0) {
+          pesi[trovato] = peso;
+          return;
+        }
+        posizione = -(trovato + 1);
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        pesi = Arrays.copyOf(pesi, size * 2);
+      }
+      System.arraycopy(ids, posizione, ids, posizione + 1, size - posizione);
+      System.arraycopy(pesi, posizione, pesi, posizione + 1, size - posizione);
+      ids[posizione] = id;
+      pesi[posizione] = peso;
+      size++;
+    }
+
+    int indexOf(long id) {
+      return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    boolean remove(long id) {
+      int posizione = indexOf(id);
+      if (posizione < 0) {
+        return false;
+      }
+      System.arraycopy(ids, posizione + 1, ids, posizione, size - posizione - 1);
+      System.arraycopy(pesi, posizione + 1, pesi, posizione, size - posizione - 1);
+      size--;
+      return true;
+    }
+  }
+
+}
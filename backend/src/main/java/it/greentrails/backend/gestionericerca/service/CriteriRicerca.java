@@ -0,0 +1,39 @@
+package it.greentrails.backend.gestionericerca.service;
+
+import java.util.List;
+import org.springframework.data.geo.Point;
+
+// Criteri combinati di una ricerca: ognuno è facoltativo, ma almeno uno va indicato.
+// Le attività devono avere tutte le categorie in idCategorie, almeno una di quelle in
+// idCategorieAlternative e nessuna di quelle in idCategorieEscluse.
+// La posizione richiede sia le coordinate sia il raggio (in metri).
+public record CriteriRicerca(String query, List<Long> idCategorie,
+                             List<Long> idCategorieAlternative, List<Long> idCategorieEscluse,
+                             Point coordinate, Double raggio) {
+
+  public CriteriRicerca {
+    idCategorie = idCategorie == null ? List.of() : idCategorie.stream().distinct().toList();
+    idCategorieAlternative = idCategorieAlternative == null ? List.of()
+        : idCategorieAlternative.stream().distinct().toList();
+    idCategorieEscluse = idCategorieEscluse == null ? List.of()
+        : idCategorieEscluse.stream().distinct().toList();
+  }
+
+  public CriteriRicerca(String query, List<Long> idCategorie, Point coordinate, Double raggio) {
+    this(query, idCategorie, null, null, coordinate, raggio);
+  }
+
+  public boolean haQuery() {
+    return query != null && !query.isBlank();
+  }
+
+  public boolean haCategorie() {
+    return !idCategorie.isEmpty() || !idCategorieAlternative.isEmpty()
+        || !idCategorieEscluse.isEmpty();
+  }
+
+  public boolean haPosizione() {
+    return coordinate != null && raggio != null;
+  }
+
+}
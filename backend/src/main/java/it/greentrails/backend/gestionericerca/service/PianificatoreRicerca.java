@@ -0,0 +1,164 @@
+package it.greentrails.backend.gestionericerca.service;
+
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Valuta insieme i criteri di una ricerca lavorando solo su insiemi di id (array ordinati):
+// il criterio più selettivo produce i candidati, gli altri li filtrano.
+@Component
+@RequiredArgsConstructor
+public class PianificatoreRicerca {
+
+  private final IndiceTestuale indiceTestuale;
+  private final IndiceSpaziale indiceSpaziale;
+  private final IndiceCategorie indiceCategorie;
+
+  public boolean isPronto() {
+    return indiceTestuale.isPronto() && indiceSpaziale.isPronto() && indiceCategorie.isPronto();
+  }
+
+  // Id di tutti i risultati: per rilevanza se c'è una query, altrimenti per distanza
+  // se c'è una posizione, altrimenti per id.
+  public List<Long> pianifica(CriteriRicerca criteri) {
+    List<Filtro> filtri = new ArrayList<>();
+    FiltroTestuale testuale = null;
+    FiltroSpaziale spaziale = null;
+    if (criteri.haQuery()) {
+      testuale = new FiltroTestuale(criteri.query());
+      filtri.add(testuale);
+    }
+    if (criteri.haPosizione()) {
+      spaziale = new FiltroSpaziale(criteri.coordinate().getX(), criteri.coordinate().getY(),
+          criteri.raggio());
+      filtri.add(spaziale);
+    }
+    if (criteri.haCategorie()) {
+      filtri.add(new FiltroCategorie(criteri));
+    }
+    if (filtri.isEmpty()) {
+      return List.of();
+    }
+    filtri.sort(Comparator.comparingLong(Filtro::stima));
+    long[] candidati = null;
+    for (Filtro filtro : filtri) {
+      candidati = filtro.applica(candidati);
+      if (candidati.length == 0) {
+        return List.of();
+      }
+    }
+    Map<Long, Double> chiavi = testuale != null ? testuale.punteggi
+        : spaziale != null ? spaziale.distanze : null;
+    if (chiavi == null) {
+      return Arrays.stream(candidati).boxed().toList();
+    }
+    Comparator<Long> ordine = Comparator.comparingDouble(chiavi::get);
+    if (testuale != null) {
+      ordine = ordine.reversed();
+    }
+    return Arrays.stream(candidati).boxed()
+        .sorted(ordine.thenComparing(Comparator.naturalOrder()))
+        .toList();
+  }
+
+  private interface Filtro {
+
+    // Numero (massimo) di id che il filtro lascerebbe passare da solo
+    long stima();
+
+    // candidati è null per il primo filtro applicato; il risultato è ordinato
+    long[] applica(long[] candidati);
+  }
+
+  private final class FiltroTestuale implements Filtro {
+
+    private final String query;
+    private Map<Long, Double> punteggi;
+
+    FiltroTestuale(String query) {
+      this.query = query;
+    }
+
+    @Override
+    public long stima() {
+      return indiceTestuale.stima(query);
+    }
+
+    @Override
+    public long[] applica(long[] candidati) {
+      punteggi = indiceTestuale.punteggi(query, candidati);
+      long[] ids = punteggi.keySet().stream().mapToLong(Long::longValue).toArray();
+      Arrays.sort(ids);
+      return ids;
+    }
+  }
+
+  private final class FiltroSpaziale implements Filtro {
+
+    private final double latitudine;
+    private final double longitudine;
+    private final double raggio;
+    private final Map<Long, Double> distanze = new HashMap<>();
+
+    FiltroSpaziale(double latitudine, double longitudine, double raggio) {
+      this.latitudine = latitudine;
+      this.longitudine = longitudine;
+      this.raggio = raggio;
+    }
+
+    @Override
+    public long stima() {
+      return indiceSpaziale.stimaNelRaggio(latitudine, longitudine, raggio);
+    }
+
+    @Override
+    public long[] applica(long[] candidati) {
+      List<IndiceSpaziale.Risultato> risultati = candidati == null
+          ? indiceSpaziale.cercaNelRaggio(latitudine, longitudine, raggio)
+          : indiceSpaziale.filtraNelRaggio(latitudine, longitudine, raggio, candidati);
+      long[] ids = new long[risultati.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = risultati.get(i).idAttivita();
+        distanze.put(ids[i], risultati.get(i).distanza());
+      }
+      Arrays.sort(ids);
+      return ids;
+    }
+  }
+
+  // La bitmap viene calcolata una volta sola: la sua cardinalità è la stima esatta.
+  private final class FiltroCategorie implements Filtro {
+
+    private final BitSet ammesse;
+
+    FiltroCategorie(CriteriRicerca criteri) {
+      ammesse = indiceCategorie.filtra(criteri.idCategorie(), criteri.idCategorieAlternative(),
+          criteri.idCategorieEscluse());
+    }
+
+    @Override
+    public long stima() {
+      return ammesse.cardinality();
+    }
+
+    @Override
+    public long[] applica(long[] candidati) {
+      if (candidati == null) {
+        return ammesse.stream().asLongStream().toArray();
+      }
+      return Arrays.stream(candidati)
+          .filter(id -> id <= Integer.MAX_VALUE && ammesse.get((int) id))
+          .toArray();
+    }
+  }
+
+}
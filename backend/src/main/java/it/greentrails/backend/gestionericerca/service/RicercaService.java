@@ -17,4 +17,11 @@ public interface RicercaService {
   List<Attivita> findAttivitaByPosizione(Point coordinate, double raggio)
       throws InvalidParameterException;
 
+  List<Attivita> findAttivitaPiuVicine(Point coordinate, int numero)
+      throws InvalidParameterException;
+
+  //@ requires criteri != null;
+  List<Attivita> cerca(CriteriRicerca criteri, int pagina, int dimensione)
+      throws InvalidParameterException;
+
 }
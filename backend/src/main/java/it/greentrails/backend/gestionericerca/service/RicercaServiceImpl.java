@@ -3,9 +3,18 @@ package it.greentrails.backend.gestionericerca.service;
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Categoria;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
 import java.security.InvalidParameterException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.geo.Point;
 import org.springframework.stereotype.Service;
 
@@ -14,13 +23,20 @@ import org.springframework.stereotype.Service;
 public class RicercaServiceImpl implements RicercaService {
 
   private final AttivitaRepository repository;
+  private final IndiceTestuale indiceTestuale;
+  private final IndiceSpaziale indiceSpaziale;
+  private final IndiceCategorie indiceCategorie;
+  private final PianificatoreRicerca pianificatore;
 
   @Override
   public List<Attivita> findAttivita(String query) throws InvalidParameterException {
     if (query == null || query.isBlank()) {
       throw new InvalidParameterException("La query è vuota.");
     }
-    return repository.findByQuery(query);
+    if (!indiceTestuale.isPronto()) {
+      return repository.findByQuery(query);
+    }
+    return caricaInOrdine(indiceTestuale.cerca(query));
   }
 
   @Override
@@ -29,7 +45,13 @@ public class RicercaServiceImpl implements RicercaService {
     if (categorie == null || categorie.isEmpty()) {
       throw new InvalidParameterException("La lista delle categorie è vuota");
     }
-    return repository.findByCategorie(categorie, categorie.size());
+    if (!indiceCategorie.isPronto()) {
+      return repository.findByCategorie(categorie, categorie.size());
+    }
+    List<Long> idCategorie = categorie.stream().map(Categoria::getId).distinct().toList();
+    return caricaInOrdine(indiceCategorie.filtra(idCategorie, List.of(), List.of()).stream()
+        .mapToObj(Long::valueOf)
+        .toList());
   }
 
   @Override
@@ -41,6 +63,109 @@ public class RicercaServiceImpl implements RicercaService {
     if (raggio < 0) {
       throw new InvalidParameterException("Il raggio non è valido.");
     }
-    return repository.findByPosizione(coordinate.getY(), coordinate.getX(), raggio);
+    if (!indiceSpaziale.isPronto()) {
+      return repository.findByPosizione(coordinate.getY(), coordinate.getX(), raggio);
+    }
+    return caricaInOrdine(indiceSpaziale.cercaNelRaggio(coordinate.getX(), coordinate.getY(),
+        raggio).stream().map(IndiceSpaziale.Risultato::idAttivita).toList());
+  }
+
+  @Override
+  public List<Attivita> findAttivitaPiuVicine(Point coordinate, int numero)
+      throws InvalidParameterException {
+    if (coordinate == null) {
+      throw new InvalidParameterException("Le coordinate sono vuote.");
+    }
+    if (numero <= 0) {
+      throw new InvalidParameterException("Il numero di risultati non è valido.");
+    }
+    if (!indiceSpaziale.isPronto()) {
+      return repository.findPiuVicine(coordinate.getY(), coordinate.getX(), numero);
+    }
+    return caricaInOrdine(indiceSpaziale.cercaPiuVicine(coordinate.getX(), coordinate.getY(),
+        numero).stream().map(IndiceSpaziale.Risultato::idAttivita).toList());
+  }
+
+  @Override
+  public List<Attivita> cerca(CriteriRicerca criteri, int pagina, int dimensione)
+      throws InvalidParameterException {
+    if (criteri == null || !criteri.haQuery() && !criteri.haCategorie()
+        && !criteri.haPosizione()) {
+      throw new InvalidParameterException("I criteri di ricerca sono vuoti.");
+    }
+    if (criteri.haPosizione() && criteri.raggio() < 0) {
+      throw new InvalidParameterException("Il raggio non è valido.");
+    }
+    if (pagina < 0 || dimensione <= 0) {
+      throw new InvalidParameterException("La pagina non è valida.");
+    }
+    if (!pianificatore.isPronto()) {
+      if (soloCategorieEscluse(criteri)) {
+        // Senza altri filtri l'esclusione va fatta dal database, non sull'intero catalogo
+        return caricaInOrdine(repository.findIdSenzaCategorie(criteri.idCategorieEscluse(),
+            PageRequest.of(pagina, dimensione)));
+      }
+      return pagina(cercaSenzaIndici(criteri), pagina, dimensione);
+    }
+    // Solo le entità della pagina richiesta vengono caricate
+    return caricaInOrdine(pagina(pianificatore.pianifica(criteri), pagina, dimensione));
+  }
+
+  // Percorso usato finché gli indici non sono stati caricati
+  private List<Attivita> cercaSenzaIndici(CriteriRicerca criteri) {
+    List<Attivita> risultati = null;
+    if (criteri.haQuery()) {
+      risultati = repository.findByQuery(criteri.query());
+    }
+    if (criteri.haPosizione()) {
+      List<Attivita> vicine = repository.findByPosizione(criteri.coordinate().getY(),
+          criteri.coordinate().getX(), criteri.raggio());
+      risultati = risultati == null ? vicine
+          : filtra(risultati, vicine.stream().map(Attivita::getId).toList());
+    }
+    if (!criteri.idCategorie().isEmpty()) {
+      List<Long> ids = repository.findIdByCategorie(criteri.idCategorie(),
+          criteri.idCategorie().size());
+      risultati = risultati == null ? repository.findAllById(ids) : filtra(risultati, ids);
+    }
+    if (!criteri.idCategorieAlternative().isEmpty()) {
+      List<Long> ids = repository.findIdByAlmenoUnaCategoria(criteri.idCategorieAlternative());
+      risultati = risultati == null ? repository.findAllById(ids) : filtra(risultati, ids);
+    }
+    if (!criteri.idCategorieEscluse().isEmpty()) {
+      Set<Long> escluse = new HashSet<>(
+          repository.findIdByAlmenoUnaCategoria(criteri.idCategorieEscluse()));
+      risultati = risultati.stream()
+          .filter(attivita -> !escluse.contains(attivita.getId()))
+          .toList();
+    }
+    return risultati;
+  }
+
+  private static boolean soloCategorieEscluse(CriteriRicerca criteri) {
+    return !criteri.haQuery() && !criteri.haPosizione() && criteri.idCategorie().isEmpty()
+        && criteri.idCategorieAlternative().isEmpty();
+  }
+
+  private static List<Attivita> filtra(List<Attivita> risultati, List<Long> ids) {
+    Set<Long> ammessi = new HashSet<>(ids);
+    return risultati.stream().filter(attivita -> ammessi.contains(attivita.getId())).toList();
+  }
+
+  private static <T> List<T> pagina(List<T> elementi, int pagina, int dimensione) {
+    int inizio = (int) Math.min((long) pagina * dimensione, elementi.size());
+    int fine = (int) Math.min((long) inizio + dimensione, elementi.size());
+    return elementi.subList(inizio, fine);
+  }
+
+  private List<Attivita> caricaInOrdine(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, Attivita> trovate = new HashMap<>();
+    for (Attivita attivita : repository.findAllById(ids)) {
+      trovate.put(attivita.getId(), attivita);
+    }
+    return ids.stream().map(trovate::get).filter(Objects::nonNull).toList();
   }
 }
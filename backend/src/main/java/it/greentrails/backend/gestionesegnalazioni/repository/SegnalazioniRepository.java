@@ -2,8 +2,10 @@ package it.greentrails.backend.gestionesegnalazioni.repository;
 
 import it.greentrails.backend.entities.Segnalazione;
 import it.greentrails.backend.enums.StatoSegnalazione;
+import it.greentrails.backend.gestioneattivita.repository.MediaProprietario;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -18,4 +20,9 @@ public interface SegnalazioniRepository extends JpaRepository<Segnalazione, Long
   @Query("SELECT s FROM Segnalazione s WHERE s.media = ?1")
   Optional<Segnalazione> findOneByMedia(String media);
 
+  @Query("SELECT new it.greentrails.backend.gestioneattivita.repository.MediaProprietario("
+      + "s.id, s.media, s.utente.id) FROM Segnalazione s "
+      + "WHERE s.id > ?1 AND s.media IS NOT NULL ORDER BY s.id")
+  List<MediaProprietario> findMediaDopo(long ultimoId, Limit limite);
+
 }
\ No newline at end of file
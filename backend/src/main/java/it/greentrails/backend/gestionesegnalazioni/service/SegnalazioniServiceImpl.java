@@ -2,10 +2,12 @@ package it.greentrails.backend.gestionesegnalazioni.service;
 
 import it.greentrails.backend.entities.Segnalazione;
 import it.greentrails.backend.enums.StatoSegnalazione;
+import it.greentrails.backend.events.SegnalazioneModificataEvent;
 import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
 import java.util.List;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -15,6 +17,8 @@ public class SegnalazioniServiceImpl implements SegnalazioniService {
 
   /*@ spec_public non_null @*/
   private final SegnalazioniRepository repository;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
 
   /*@
     @ also
@@ -25,7 +29,9 @@ public class SegnalazioniServiceImpl implements SegnalazioniService {
     if (segnalazione == null) {
       throw new Exception("La segnalazione è vuota.");
     }
-    return repository.save(segnalazione);
+    Segnalazione salvata = repository.save(segnalazione);
+    eventPublisher.publishEvent(new SegnalazioneModificataEvent(salvata, false));
+    return salvata;
   }
 
   @Override
@@ -2,18 +2,19 @@ package it.greentrails.backend.gestioneupload.controller;
 
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
-import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
-import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
-import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
+import it.greentrails.backend.gestioneupload.derivati.GeneratoreDerivati;
 import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
+import it.greentrails.backend.gestioneupload.registro.RegistroMedia;
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
+import it.greentrails.backend.gestioneupload.service.InvioFile;
 import it.greentrails.backend.utils.service.ResponseGenerator;
-import java.util.concurrent.atomic.AtomicBoolean;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -23,7 +24,6 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -34,30 +34,58 @@ import org.springframework.web.multipart.MultipartFile;
 public class GestioneUploadController {
 
   private final ArchiviazioneService archiviazioneService;
-  private final AttivitaRepository attivitaRepository;
-  private final RecensioneRepository recensioneRepository;
-  private final SegnalazioniRepository segnalazioniRepository;
+  private final RegistroMedia registroMedia;
+  private final InvioFile invioFile;
 
   @GetMapping("{media:.+}")
   public ResponseEntity<Object> elencaFileCaricati(@PathVariable final String media) {
-    return ResponseGenerator.generateResponse(HttpStatus.OK, archiviazioneService.loadAll(media));
+    List<String> elenco = archiviazioneService.loadAll(media);
+    ResponseEntity<Object> risposta = ResponseGenerator.generateResponse(HttpStatus.OK, elenco);
+    // Con un If-None-Match uguale Spring risponde 304 senza corpo
+    return ResponseEntity.status(risposta.getStatusCode()).eTag(etag(elenco))
+        .body(risposta.getBody());
+  }
+
+  // FNV-1a a 64 bit dei nomi: l'elenco è già in memoria e cambia solo con store e delete
+  private static String etag(List<?> elenco) {
+    long hash = 0xCBF29CE484222325L;
+    for (Object file : elenco) {
+      String nome = file.toString();
+      for (int i = 0; i < nome.length(); i++) {
+        hash = (hash ^ nome.charAt(i)) * 0x100000001B3L;
+      }
+      hash = (hash ^ '/') * 0x100000001B3L;
+    }
+    return "\"" + Long.toHexString(hash) + "-" + elenco.size() + "\"";
   }
 
   @GetMapping("{media:.+}/{filename:.+}")
-  @ResponseBody
-  public ResponseEntity<Resource> serviFile(
+  public void serviFile(
       @PathVariable final String media,
-      @PathVariable final String filename) {
+      @PathVariable final String filename,
+      @RequestParam(name = "w", required = false) final Integer larghezza,
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+
+    // Con ?w= il derivato più piccolo che basta, se è già stato generato
+    if (larghezza != null && larghezza > 0) {
+      int scelta = GeneratoreDerivati.larghezzaPerRichiesta(larghezza);
+      Resource derivato = scelta == 0 ? null
+          : archiviazioneService.loadDerivato(media, filename, scelta);
+      if (derivato != null) {
+        invioFile.invia(derivato, request, response);
+        return;
+      }
+    }
 
     Resource file = archiviazioneService.loadAsResource(media, filename);
 
     if (file == null) {
-      return ResponseEntity.notFound().build();
+      response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+      return;
     }
 
-    return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
-            "attachment; filename=\"" + file.getFilename() + "\"")
-        .contentType(MediaType.APPLICATION_OCTET_STREAM).body(file);
+    invioFile.invia(file, request, response);
   }
 
   @PostMapping
@@ -65,19 +93,7 @@ public class GestioneUploadController {
       @AuthenticationPrincipal Utente utente,
       @RequestParam("media") String media,
       @RequestParam("file") MultipartFile file) {
-    AtomicBoolean auth = new AtomicBoolean(utente.getRuolo() == RuoloUtente.AMMINISTRATORE);
-    if (!auth.get()) {
-      attivitaRepository.findOneByMedia(media).ifPresentOrElse(
-          a -> auth.set(a.getGestore().getId().equals(utente.getId())),
-          () -> recensioneRepository.findOneByMedia(media).ifPresentOrElse(
-              r -> auth.set(r.getVisitatore().getId().equals(utente.getId())),
-              () -> segnalazioniRepository.findOneByMedia(media).ifPresent(
-                  s -> auth.set(s.getUtente().getId().equals(utente.getId()))
-              )
-          )
-      );
-    }
-    if (!auth.get()) {
+    if (!isAutorizzato(utente, media)) {
       return ResponseGenerator.generateResponse(HttpStatus.FORBIDDEN,
           "Impossibile caricare un file qui.");
     }
@@ -97,19 +113,7 @@ public class GestioneUploadController {
       @PathVariable final String media,
       @PathVariable final String filename
   ) {
-    AtomicBoolean auth = new AtomicBoolean(utente.getRuolo() == RuoloUtente.AMMINISTRATORE);
-    if (!auth.get()) {
-      attivitaRepository.findOneByMedia(media).ifPresentOrElse(
-          a -> auth.set(a.getGestore().getId().equals(utente.getId())),
-          () -> recensioneRepository.findOneByMedia(media).ifPresentOrElse(
-              r -> auth.set(r.getVisitatore().getId().equals(utente.getId())),
-              () -> segnalazioniRepository.findOneByMedia(media).ifPresent(
-                  s -> auth.set(s.getUtente().getId().equals(utente.getId()))
-              )
-          )
-      );
-    }
-    if (!auth.get()) {
+    if (!isAutorizzato(utente, media)) {
       return ResponseGenerator.generateResponse(HttpStatus.FORBIDDEN,
           "Impossibile eliminare il file.");
     }
@@ -117,4 +121,14 @@ public class GestioneUploadController {
     return ResponseGenerator.generateResponse(HttpStatus.OK, "File eliminato");
   }
 
-}
\ No newline at end of file
+  // Solo l'amministratore o il proprietario dell'entità a cui appartiene il media
+  private boolean isAutorizzato(Utente utente, String media) {
+    if (utente.getRuolo() == RuoloUtente.AMMINISTRATORE) {
+      return true;
+    }
+    return registroMedia.proprietario(media)
+        .map(proprietario -> proprietario.idUtente().equals(utente.getId()))
+        .orElse(false);
+  }
+
+}
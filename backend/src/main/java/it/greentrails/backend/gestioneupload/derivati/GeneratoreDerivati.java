@@ -0,0 +1,219 @@
+package it.greentrails.backend.gestioneupload.derivati;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.greentrails.backend.events.FileArchiviatoEvent;
+import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+// Genera in background le versioni ridimensionate delle immagini appena caricate, una per
+// ciascuna delle LARGHEZZE più piccole dell'originale, nello stesso formato. Il thread della
+// richiesta si limita ad accodare il lavoro; con la coda piena l'immagine resta senza derivati
+// e viene servita l'originale.
+@Component
+/*@ nullable_by_default @*/
+public class GeneratoreDerivati {
+
+  static final int[] LARGHEZZE = {320, 640, 1280};
+  static final int CAPIENZA_CODA = 256;
+  // Oltre questa dimensione l'immagine non viene decodificata: occuperebbe troppa memoria
+  static final long PIXEL_MASSIMI = 50_000_000L;
+
+  /*@ spec_public non_null @*/
+  private final ArchiviazioneService archiviazioneService;
+  /*@ spec_public non_null @*/
+  private final ThreadPoolExecutor executor;
+  /*@ spec_public non_null @*/
+  private final Counter generati;
+  /*@ spec_public non_null @*/
+  private final Counter scartati;
+  /*@ spec_public non_null @*/
+  private final Counter errori;
+
+  @Autowired
+  public GeneratoreDerivati(ArchiviazioneService archiviazioneService, MeterRegistry registry) {
+    this(archiviazioneService, registry, Math.max(1,
+        Runtime.getRuntime().availableProcessors() / 2), CAPIENZA_CODA);
+  }
+
+  GeneratoreDerivati(ArchiviazioneService archiviazioneService, MeterRegistry registry,
+      int thread, int capienzaCoda) {
+    this.archiviazioneService = archiviazioneService;
+    AtomicInteger numero = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(thread, thread, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(capienzaCoda), runnable -> {
+          Thread t = new Thread(runnable, "derivati-" + numero.incrementAndGet());
+          t.setDaemon(true);
+          t.setPriority(Thread.MIN_PRIORITY);
+          return t;
+        });
+    this.generati = Counter.builder("greentrails.upload.derivati").tag("esito", "generato")
+        .register(registry);
+    this.scartati = Counter.builder("greentrails.upload.derivati").tag("esito", "scartato")
+        .register(registry);
+    this.errori = Counter.builder("greentrails.upload.derivati").tag("esito", "errore")
+        .register(registry);
+    Gauge.builder("greentrails.upload.derivati.coda", executor, e -> e.getQueue().size())
+        .register(registry);
+  }
+
+  @EventListener
+  public void onFileArchiviato(FileArchiviatoEvent event) {
+    if (!isImmagine(event.filename())) {
+      return;
+    }
+    try {
+      executor.execute(() -> genera(event.media(), event.filename()));
+    } catch (RejectedExecutionException e) {
+      scartati.increment();
+    }
+  }
+
+  // La larghezza del derivato da servire per una richiesta con ?w=: la più piccola che non
+  // sia più stretta di quella chiesta, oppure 0 per l'originale
+  public static int larghezzaPerRichiesta(int richiesta) {
+    for (int larghezza : LARGHEZZE) {
+      if (larghezza >= richiesta) {
+        return larghezza;
+      }
+    }
+    return 0;
+  }
+
+  int inCoda() {
+    return executor.getQueue().size();
+  }
+
+  boolean attendi(long millisecondi) throws InterruptedException {
+    executor.shutdown();
+    return executor.awaitTermination(millisecondi, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void chiudi() {
+    executor.shutdownNow();
+  }
+
+  void genera(String media, String filename) {
+    try {
+      String formato = formato(filename);
+      Resource originale = archiviazioneService.loadAsResource(media, filename);
+      BufferedImage immagine;
+      try (InputStream ingresso = originale.getInputStream()) {
+        immagine = leggi(ingresso);
+      }
+      if (immagine == null) {
+        return;
+      }
+      for (int larghezza : LARGHEZZE) {
+        if (larghezza >= immagine.getWidth()) {
+          break;
+        }
+        if (archiviazioneService.loadDerivato(media, filename, larghezza) != null) {
+          // Lo stesso contenuto caricato di nuovo nella stessa cartella
+          continue;
+        }
+        BufferedImage ridotta = riduci(immagine, larghezza, formato);
+        ByteArrayOutputStream uscita = new ByteArrayOutputStream();
+        ImageIO.write(ridotta, formato, uscita);
+        archiviazioneService.storeDerivato(media, filename, larghezza, uscita.toByteArray());
+        generati.increment();
+      }
+    } catch (IOException | RuntimeException e) {
+      // Senza derivati viene servita l'originale; l'errore resta visibile nelle metriche
+      errori.increment();
+    }
+  }
+
+  // Decodifica saltando righe e colonne quando l'originale è molto più largo del derivato
+  // più grande: la memoria occupata e il tempo di decodifica scendono con il quadrato del passo
+  private static BufferedImage leggi(InputStream ingresso) throws IOException {
+    try (ImageInputStream immagine = ImageIO.createImageInputStream(ingresso)) {
+      Iterator<ImageReader> lettori = ImageIO.getImageReaders(immagine);
+      if (!lettori.hasNext()) {
+        return null;
+      }
+      ImageReader lettore = lettori.next();
+      try {
+        lettore.setInput(immagine, true, true);
+        int larghezza = lettore.getWidth(0);
+        int altezza = lettore.getHeight(0);
+        if ((long) larghezza * altezza > PIXEL_MASSIMI) {
+          return null;
+        }
+        ImageReadParam parametri = lettore.getDefaultReadParam();
+        int passo = Math.max(1, larghezza / (2 * LARGHEZZE[LARGHEZZE.length - 1]));
+        parametri.setSourceSubsampling(passo, passo, 0, 0);
+        return lettore.read(0, parametri);
+      } finally {
+        lettore.dispose();
+      }
+    }
+  }
+
+  // Dimezza finché è possibile e poi scala con interpolazione bilineare, che da sola su
+  // riduzioni forti salterebbe troppi pixel
+  private static BufferedImage riduci(BufferedImage immagine, int larghezza, String formato) {
+    int tipo = "png".equals(formato) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    BufferedImage corrente = immagine;
+    while (corrente.getWidth() / 2 >= larghezza) {
+      corrente = scala(corrente, corrente.getWidth() / 2,
+          Math.max(1, corrente.getHeight() / 2), tipo);
+    }
+    int altezza = Math.max(1,
+        (int) Math.round((double) corrente.getHeight() * larghezza / corrente.getWidth()));
+    return scala(corrente, larghezza, altezza, tipo);
+  }
+
+  private static BufferedImage scala(BufferedImage immagine, int larghezza, int altezza,
+      int tipo) {
+    BufferedImage ridotta = new BufferedImage(larghezza, altezza, tipo);
+    Graphics2D grafica = ridotta.createGraphics();
+    try {
+      grafica.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      grafica.drawImage(immagine, 0, 0, larghezza, altezza, null);
+    } finally {
+      grafica.dispose();
+    }
+    return ridotta;
+  }
+
+  private static boolean isImmagine(String filename) {
+    String formato = formato(filename);
+    return "jpg".equals(formato) || "png".equals(formato);
+  }
+
+  private static String formato(String filename) {
+    String estensione = StringUtils.getFilenameExtension(filename);
+    if (estensione == null) {
+      return null;
+    }
+    estensione = estensione.toLowerCase(Locale.ROOT);
+    return "jpeg".equals(estensione) ? "jpg" : estensione;
+  }
+
+}
@@ -0,0 +1,152 @@
+package it.greentrails.backend.gestioneupload.registro;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Recensione;
+import it.greentrails.backend.entities.Segnalazione;
+import it.greentrails.backend.enums.TipoProprietarioMedia;
+import it.greentrails.backend.events.AttivitaModificataEvent;
+import it.greentrails.backend.events.RecensioneModificataEvent;
+import it.greentrails.backend.events.SegnalazioneModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.MediaProprietario;
+import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+// Per ogni cartella media, il tipo di entità che la possiede e l'id dell'utente proprietario.
+// Viene riempito all'avvio dalle tre tabelle e aggiornato dagli eventi di salvataggio, così
+// l'autorizzazione di un upload è una sola ricerca in memoria. Un media assente viene cercato
+// nel database, perché può essere stato creato da un'altra istanza.
+@Component
+@RequiredArgsConstructor
+public class RegistroMedia {
+
+  static final int DIMENSIONE_BLOCCO = 1000;
+
+  public record Proprietario(TipoProprietarioMedia tipo, Long idUtente) {
+
+  }
+
+  private final AttivitaRepository attivitaRepository;
+  private final RecensioneRepository recensioneRepository;
+  private final SegnalazioniRepository segnalazioniRepository;
+
+  private final Map<String, Proprietario> proprietari = new ConcurrentHashMap<>();
+  private volatile boolean pronto = false;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void ricostruisci() {
+    pronto = false;
+    proprietari.clear();
+    carica(TipoProprietarioMedia.ATTIVITA, attivitaRepository::findMediaDopo);
+    carica(TipoProprietarioMedia.RECENSIONE, recensioneRepository::findMediaDopo);
+    carica(TipoProprietarioMedia.SEGNALAZIONE, segnalazioniRepository::findMediaDopo);
+    pronto = true;
+  }
+
+  private void carica(TipoProprietarioMedia tipo,
+      BiFunction<Long, Limit, List<MediaProprietario>> blocchi) {
+    long ultimoId = 0;
+    List<MediaProprietario> blocco;
+    do {
+      blocco = blocchi.apply(ultimoId, Limit.of(DIMENSIONE_BLOCCO));
+      for (MediaProprietario media : blocco) {
+        registra(media.media(), tipo, media.idUtente());
+        ultimoId = media.id();
+      }
+    } while (blocco.size() == DIMENSIONE_BLOCCO);
+  }
+
+  @EventListener
+  public void onAttivitaModificata(AttivitaModificataEvent event) {
+    Attivita attivita = event.attivita();
+    // Anche un'attività eliminata logicamente resta proprietaria dei suoi file
+    if (attivita != null && attivita.getGestore() != null) {
+      registra(attivita.getMedia(), TipoProprietarioMedia.ATTIVITA,
+          attivita.getGestore().getId());
+    }
+  }
+
+  @EventListener
+  public void onRecensioneModificata(RecensioneModificataEvent event) {
+    Recensione recensione = event.recensione();
+    if (recensione == null) {
+      return;
+    }
+    if (event.eliminata()) {
+      rimuovi(recensione.getMedia());
+    } else if (recensione.getVisitatore() != null) {
+      registra(recensione.getMedia(), TipoProprietarioMedia.RECENSIONE,
+          recensione.getVisitatore().getId());
+    }
+  }
+
+  @EventListener
+  public void onSegnalazioneModificata(SegnalazioneModificataEvent event) {
+    Segnalazione segnalazione = event.segnalazione();
+    if (segnalazione == null) {
+      return;
+    }
+    if (event.eliminata()) {
+      rimuovi(segnalazione.getMedia());
+    } else if (segnalazione.getUtente() != null) {
+      registra(segnalazione.getMedia(), TipoProprietarioMedia.SEGNALAZIONE,
+          segnalazione.getUtente().getId());
+    }
+  }
+
+  public void registra(String media, TipoProprietarioMedia tipo, Long idUtente) {
+    if (media != null && idUtente != null) {
+      proprietari.put(media, new Proprietario(tipo, idUtente));
+    }
+  }
+
+  public void rimuovi(String media) {
+    if (media != null) {
+      proprietari.remove(media);
+    }
+  }
+
+  // Il proprietario del media, cercato nel database solo se non è già noto
+  public Optional<Proprietario> proprietario(String media) {
+    if (media == null) {
+      return Optional.empty();
+    }
+    Proprietario trovato = trova(media);
+    if (trovato != null) {
+      return Optional.of(trovato);
+    }
+    Optional<Proprietario> letto = attivitaRepository.findOneByMedia(media)
+        .map(a -> new Proprietario(TipoProprietarioMedia.ATTIVITA, a.getGestore().getId()))
+        .or(() -> recensioneRepository.findOneByMedia(media)
+            .map(r -> new Proprietario(TipoProprietarioMedia.RECENSIONE,
+                r.getVisitatore().getId())))
+        .or(() -> segnalazioniRepository.findOneByMedia(media)
+            .map(s -> new Proprietario(TipoProprietarioMedia.SEGNALAZIONE,
+                s.getUtente().getId())));
+    letto.ifPresent(p -> registra(media, p.tipo(), p.idUtente()));
+    return letto;
+  }
+
+  public boolean isPronto() {
+    return pronto;
+  }
+
+  int size() {
+    return proprietari.size();
+  }
+
+  Proprietario trova(String media) {
+    return proprietari.get(media);
+  }
+
+}
@@ -1,77 +1,217 @@
 package it.greentrails.backend.gestioneupload.service;
 
+import it.greentrails.backend.events.FileArchiviatoEvent;
 import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
 import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
 import it.greentrails.backend.utils.ArchiviazioneProperties;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
-import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem",
+    matchIfMissing = true)
 /*@ nullable_by_default @*/
 public class ArchiviazioneFileSystemService implements ArchiviazioneService {
 
   /*@ spec_public non_null @*/
   private final Path rootLocation;
   /*@ spec_public non_null @*/
-  private static final String[] ALLOWED_CONTENT_TYPES = {"image/jpeg", "image/png", "video/mp4"};
+  private final ApplicationEventPublisher eventPublisher;
+  // Formati accettati e l'estensione con cui vengono salvati
+  /*@ spec_public non_null @*/
+  static final Map<String, String> ESTENSIONI = Map.of(
+      "image/jpeg", "jpg",
+      "image/png", "png",
+      "video/mp4", "mp4");
+  // I contenuti sono salvati una sola volta per hash SHA-256 in CONTENUTI; i file delle
+  // cartelle media sono collegamenti fisici chiamati <hash>.<estensione>
+  static final String CONTENUTI = ".contenuti";
+  static final String TEMPORANEI = ".temporanei";
+  // Le versioni ridimensionate delle immagini, in <larghezza>/<filename> sotto il media
+  static final String DERIVATI = ".derivati";
+  private static final Pattern NOME_CONTENUTO = Pattern.compile("([0-9a-f]{64})\\.[a-z0-9]+");
+  private static final ThreadLocal<ByteBuffer> BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+  // Serializzano per hash l'aggiunta e l'eliminazione dello stesso contenuto
+  /*@ spec_public non_null @*/
+  private final Object[] locks = new Object[64];
+  // L'elenco ordinato dei file di ogni cartella media già letta, aggiornato da store e delete:
+  // GET /api/file/{media} non tocca il file system
+  /*@ spec_public non_null @*/
+  private final ConcurrentHashMap<String, List<String>> manifesti = new ConcurrentHashMap<>();
+  private final WatchService osservatore;
 
   // rootLocation is guaranteed non-null by Spring constructor injection
 
   @Autowired
-  public ArchiviazioneFileSystemService(ArchiviazioneProperties properties) {
+  public ArchiviazioneFileSystemService(ArchiviazioneProperties properties,
+      ApplicationEventPublisher eventPublisher) {
 
     if (properties.getLocation().trim().isEmpty()) {
       throw new ArchiviazioneException("Il percorso di upload è vuoto.");
     }
 
     this.rootLocation = Paths.get(properties.getLocation());
+    this.eventPublisher = eventPublisher;
+    if (properties.isOsservaCartelle()) {
+      try {
+        this.osservatore = rootLocation.getFileSystem().newWatchService();
+      } catch (IOException e) {
+        throw new ArchiviazioneException("Impossibile osservare la cartella di upload", e);
+      }
+      Thread thread = new Thread(this::osserva, "osservatore-upload");
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      this.osservatore = null;
+    }
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
   }
 
   /*@ requires media != null; requires file != null; @*/
   @Override
   public void store(String media, MultipartFile file) {
+    if (file.isEmpty()) {
+      throw new ArchiviazioneException("Il file è vuoto.");
+    }
+    String estensione = ESTENSIONI.get(file.getContentType());
+    if (estensione == null) {
+      throw new ArchiviazioneException("Il formato del file non è valido.");
+    }
+    Path destinationDir = cartella(media,
+        "Impossibile salvare al di fuori della cartella di upload.");
+    Path temporaneo = null;
     try {
-      if (file.isEmpty()) {
-        throw new ArchiviazioneException("Il file è vuoto.");
+      Files.createDirectories(destinationDir);
+      Files.createDirectories(rootLocation.resolve(TEMPORANEI));
+      temporaneo = Files.createTempFile(rootLocation.resolve(TEMPORANEI), "upload", null);
+      String hash;
+      try (ReadableByteChannel sorgente = Channels.newChannel(file.getInputStream());
+          FileChannel destinazione = FileChannel.open(temporaneo, StandardOpenOption.WRITE)) {
+        hash = copia(sorgente, destinazione);
       }
-      if (!Arrays.asList(ALLOWED_CONTENT_TYPES).contains(file.getContentType())) {
-        throw new ArchiviazioneException("Il formato del file non è valido.");
-      }
-      Path destinationDir = this.rootLocation.resolve(media);
-      if (!destinationDir.toFile().exists()) {
-        destinationDir.toFile().mkdir();
-      }
-      String filename =
-          (System.currentTimeMillis() / 1000L) + "." + StringUtils.getFilenameExtension(
-              file.getOriginalFilename());
-      Path destinationFile = destinationDir.resolve(
-              Paths.get(filename))
-          .normalize().toAbsolutePath();
-      if (!destinationFile.getParent().equals(destinationDir.toAbsolutePath())) {
-        throw new ArchiviazioneException(
-            "Impossibile salvare al di fuori della cartella di upload.");
-      }
-      try (InputStream inputStream = file.getInputStream()) {
-        Files.copy(inputStream, destinationFile,
-            StandardCopyOption.REPLACE_EXISTING);
+      Path contenuto = contenuto(hash);
+      Path destinationFile = destinationDir.resolve(hash + "." + estensione);
+      synchronized (lock(hash)) {
+        if (Files.exists(contenuto)) {
+          // Contenuto già presente: il nuovo file non occupa altro spazio
+          Files.delete(temporaneo);
+        } else {
+          Files.createDirectories(contenuto.getParent());
+          Files.move(temporaneo, contenuto, StandardCopyOption.ATOMIC_MOVE);
+        }
+        temporaneo = null;
+        if (!Files.exists(destinationFile)) {
+          collega(contenuto, destinationFile);
+        }
       }
+      aggiornaElenco(destinationDir.getFileName().toString(),
+          destinationFile.getFileName().toString(), true);
+      eventPublisher.publishEvent(
+          new FileArchiviatoEvent(media, destinationFile.getFileName().toString()));
     } catch (IOException e) {
       throw new ArchiviazioneException("Impossibile salvare il file.", e);
+    } finally {
+      if (temporaneo != null) {
+        try {
+          Files.deleteIfExists(temporaneo);
+        } catch (IOException ignored) {
+          // Resta un file temporaneo orfano, che non è raggiungibile da nessun media
+        }
+      }
+    }
+  }
+
+  // Copia il contenuto calcolandone l'hash nello stesso passaggio, senza leggerlo due volte
+  static String copia(ReadableByteChannel sorgente, FileChannel destinazione)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
     }
+    ByteBuffer buffer = BUFFER.get();
+    buffer.clear();
+    while (sorgente.read(buffer) >= 0) {
+      buffer.flip();
+      digest.update(buffer);
+      buffer.rewind();
+      while (buffer.hasRemaining()) {
+        destinazione.write(buffer);
+      }
+      buffer.clear();
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  // Un collegamento fisico al contenuto; se il file system non li supporta, una copia
+  private static void collega(Path contenuto, Path destinazione) throws IOException {
+    try {
+      Files.createLink(destinazione, contenuto);
+    } catch (FileAlreadyExistsException e) {
+      // Lo stesso contenuto caricato nello stesso momento nella stessa cartella
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      Files.copy(contenuto, destinazione, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private Path contenuto(String hash) {
+    return rootLocation.resolve(CONTENUTI).resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private Object lock(String hash) {
+    return locks[Integer.parseInt(hash.substring(0, 2), 16) % locks.length];
+  }
+
+  // La cartella di un media, che deve stare direttamente nella cartella di upload e non può
+  // essere una delle cartelle nascoste usate per i contenuti
+  private Path cartella(String media, String errore) {
+    Path radice = rootLocation.toAbsolutePath().normalize();
+    Path cartella = radice.resolve(media).normalize();
+    if (!radice.equals(cartella.getParent()) || cartella.getFileName().toString()
+        .startsWith(".")) {
+      throw new ArchiviazioneException(errore);
+    }
+    return cartella;
   }
 
   /*@
@@ -81,17 +221,62 @@ public class ArchiviazioneFileSystemService implements ArchiviazioneService {
     @*/
   @Override
   public List<String> loadAll(String media) {
+    List<String> elenco = manifesti.get(media);
+    if (elenco != null) {
+      return elenco;
+    }
+    Path mediaDir = cartella(media, "Impossibile leggere i file salvati");
+    return manifesti.computeIfAbsent(mediaDir.getFileName().toString(), chiave -> {
+      try (Stream<Path> file = Files.list(mediaDir)) {
+        List<String> letto = file.map(Path::getFileName).map(Path::toString).sorted().toList();
+        if (osservatore != null) {
+          mediaDir.register(osservatore, StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        return letto;
+      } catch (IOException e) {
+        throw new ArchiviazioneException("Impossibile leggere i file salvati", e);
+      }
+    });
+  }
+
+  // Aggiorna l'elenco già in memoria; se la cartella non è mai stata letta non c'è niente da
+  // aggiornare. compute serializza con la lettura della stessa cartella in computeIfAbsent.
+  private void aggiornaElenco(String media, String filename, boolean aggiunto) {
+    manifesti.computeIfPresent(media, (chiave, elenco) -> {
+      TreeSet<String> nuovo = new TreeSet<>(elenco);
+      if (aggiunto) {
+        nuovo.add(filename);
+      } else {
+        nuovo.remove(filename);
+      }
+      return List.copyOf(nuovo);
+    });
+  }
+
+  // Con storage.osserva-cartelle un altro processo può scrivere sullo stesso volume: ogni
+  // modifica a una cartella già letta ne scarta l'elenco, che viene riletto alla richiesta
+  // successiva
+  private void osserva() {
     try {
-      Path mediaDir = this.rootLocation.resolve(media);
-      return Files.walk(mediaDir, 1)
-          .filter(path -> !path.equals(mediaDir))
-          .map(mediaDir::relativize)
-          .map(Path::toString)
-          .toList();
-    } catch (IOException e) {
-      throw new ArchiviazioneException("Impossibile leggere i file salvati", e);
+      while (true) {
+        WatchKey chiave = osservatore.take();
+        chiave.pollEvents();
+        manifesti.remove(((Path) chiave.watchable()).getFileName().toString());
+        if (!chiave.reset()) {
+          chiave.cancel();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Servizio chiuso
     }
+  }
 
+  @PreDestroy
+  public void chiudi() throws IOException {
+    if (osservatore != null) {
+      osservatore.close();
+    }
   }
 
   /*@ requires media != null; requires filename != null; @*/
@@ -108,6 +293,9 @@ public class ArchiviazioneFileSystemService implements ArchiviazioneService {
     @*/
   @Override
   public Resource loadAsResource(String media, String filename) {
+    if (media.startsWith(".")) {
+      throw new FileNonTrovatoException("Impossibile trovare il file: " + filename);
+    }
     try {
       Path file = load(media, filename);
       Resource resource = new UrlResource(file.toUri());
@@ -126,23 +314,102 @@ public class ArchiviazioneFileSystemService implements ArchiviazioneService {
   /*@ requires media != null; requires filename != null; @*/
   @Override
   public void delete(String media, String filename) {
-    Path destinationDir = this.rootLocation.resolve(media);
-    Path file = destinationDir.resolve(filename);
-    if (!file.getParent().equals(destinationDir.toAbsolutePath())) {
+    Path destinationDir = cartella(media,
+        "Impossibile eliminare al di fuori della cartella di upload.");
+    Path file = destinationDir.resolve(filename).normalize();
+    if (!destinationDir.equals(file.getParent())) {
       throw new ArchiviazioneException(
           "Impossibile eliminare al di fuori della cartella di upload.");
     }
-    if (Files.exists(file)) {
+    try {
+      Files.deleteIfExists(file);
+      aggiornaElenco(destinationDir.getFileName().toString(), filename, false);
+      try (Stream<Path> larghezze = Files.list(derivati(media))) {
+        for (Path larghezza : larghezze.toList()) {
+          Files.deleteIfExists(larghezza.resolve(filename));
+        }
+      } catch (NoSuchFileException e) {
+        // Nessun derivato per questo media
+      }
+      Matcher nome = NOME_CONTENUTO.matcher(filename);
+      if (nome.matches()) {
+        rilascia(nome.group(1));
+      }
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile eliminare il file: " + filename, e);
+    }
+  }
+
+  // Elimina il contenuto quando l'ultimo file che lo usava è stato eliminato. Con le copie al
+  // posto dei collegamenti il numero di riferimenti non è noto e il contenuto resta.
+  private void rilascia(String hash) throws IOException {
+    Path contenuto = contenuto(hash);
+    synchronized (lock(hash)) {
+      if (!Files.exists(contenuto)) {
+        return;
+      }
+      Object collegamenti;
       try {
-        Files.delete(file);
-      } catch (IOException e) {
-        throw new ArchiviazioneException("Impossibile eliminare il file: " + filename, e);
+        collegamenti = Files.getAttribute(contenuto, "unix:nlink");
+      } catch (UnsupportedOperationException | IllegalArgumentException e) {
+        return;
+      }
+      if (collegamenti instanceof Integer n && n <= 1) {
+        Files.delete(contenuto);
+      }
+    }
+  }
+
+  /*@ requires media != null; requires filename != null; requires contenuto != null; @*/
+  @Override
+  public void storeDerivato(String media, String filename, int larghezza, byte[] contenuto) {
+    Path destinazione = derivato(media, filename, larghezza);
+    try {
+      Files.createDirectories(destinazione.getParent());
+      Files.createDirectories(rootLocation.resolve(TEMPORANEI));
+      // Scritto a parte e spostato, così una richiesta non legge mai un derivato a metà
+      Path temporaneo = Files.createTempFile(rootLocation.resolve(TEMPORANEI), "derivato", null);
+      try {
+        Files.write(temporaneo, contenuto);
+        Files.move(temporaneo, destinazione, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temporaneo);
       }
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile salvare il file: " + filename, e);
+    }
+  }
+
+  /*@ requires media != null; requires filename != null; @*/
+  @Override
+  public Resource loadDerivato(String media, String filename, int larghezza) {
+    if (media.startsWith(".")) {
+      return null;
+    }
+    Path file = derivato(media, filename, larghezza);
+    return Files.isRegularFile(file) ? new FileSystemResource(file) : null;
+  }
+
+  private Path derivati(String media) {
+    return rootLocation.resolve(DERIVATI).resolve(
+        cartella(media, "Impossibile leggere al di fuori della cartella di upload.")
+            .getFileName());
+  }
+
+  private Path derivato(String media, String filename, int larghezza) {
+    Path cartella = derivati(media).resolve(Integer.toString(larghezza));
+    Path file = cartella.resolve(filename).normalize();
+    if (!cartella.equals(file.getParent())) {
+      throw new ArchiviazioneException(
+          "Impossibile accedere al di fuori della cartella di upload.");
     }
+    return file;
   }
 
   @Override
   public void deleteAll() {
+    manifesti.clear();
     FileSystemUtils.deleteRecursively(rootLocation.toFile());
   }
 
@@ -0,0 +1,447 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import it.greentrails.backend.events.FileArchiviatoEvent;
+import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
+import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
+import it.greentrails.backend.utils.ArchiviazioneProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+// Archiviazione su un object store compatibile con S3, scelta con storage.backend=s3. Le chiavi
+// ricalcano le cartelle del file system: <media>/<hash>.<estensione> per i file e
+// .derivati/<media>/<larghezza>/<filename> per le versioni ridimensionate. Gli oggetti letti
+// restano in una cache su disco con eliminazione dei meno usati; quelli troppo grandi per la
+// cache vengono inviati in streaming direttamente dal bucket. Gli elenchi dei media scadono
+// dopo storage.s3.durata-elenchi, perché le altre istanze scrivono nello stesso bucket.
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+/*@ nullable_by_default @*/
+public class ArchiviazioneS3Service implements ArchiviazioneService {
+
+  /*@ spec_public non_null @*/
+  private final ClientS3 client;
+  /*@ spec_public non_null @*/
+  private final CacheDisco cache;
+  /*@ spec_public non_null @*/
+  private final ApplicationEventPublisher eventPublisher;
+  // Caricamento delle parti, condiviso da tutti gli upload per limitare le connessioni
+  /*@ spec_public non_null @*/
+  private final ThreadPoolExecutor executor;
+  private final long dimensioneParte;
+  /*@ spec_public non_null @*/
+  private final ConcurrentHashMap<String, Elenco> manifesti = new ConcurrentHashMap<>();
+  /*@ spec_public non_null @*/
+  private final Clock orologio;
+  private final long durataElenchi;
+
+  private record Elenco(List<String> nomi, long scadenza) {
+
+  }
+
+  @Autowired
+  public ArchiviazioneS3Service(ArchiviazioneProperties properties,
+      ApplicationEventPublisher eventPublisher) {
+    this(properties, eventPublisher, Clock.systemUTC());
+  }
+
+  ArchiviazioneS3Service(ArchiviazioneProperties properties,
+      ApplicationEventPublisher eventPublisher, Clock orologio) {
+    ArchiviazioneProperties.S3 s3 = properties.getS3();
+    if (!StringUtils.hasText(s3.getEndpoint()) || !StringUtils.hasText(s3.getBucket())) {
+      throw new ArchiviazioneException("Endpoint e bucket S3 sono obbligatori.");
+    }
+    if (s3.getDimensioneParte().toBytes() <= 0 || s3.getParallelismo() <= 0) {
+      throw new ArchiviazioneException("Configurazione del caricamento S3 non valida.");
+    }
+    this.client = new ClientS3(URI.create(s3.getEndpoint()), s3.getBucket(), s3.getRegione(),
+        s3.getAccessKey(), s3.getSecretKey(), Clock.systemUTC());
+    this.cache = new CacheDisco(Paths.get(s3.getCache()), s3.getCapienzaCache().toBytes());
+    this.eventPublisher = eventPublisher;
+    this.dimensioneParte = s3.getDimensioneParte().toBytes();
+    this.orologio = orologio;
+    this.durataElenchi = s3.getDurataElenchi().toMillis();
+    AtomicInteger numero = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(s3.getParallelismo(), s3.getParallelismo(), 0,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+          Thread t = new Thread(runnable, "upload-s3-" + numero.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  /*@ requires media != null; requires file != null; @*/
+  @Override
+  public void store(String media, MultipartFile file) {
+    if (file.isEmpty()) {
+      throw new ArchiviazioneException("Il file è vuoto.");
+    }
+    String estensione = ArchiviazioneFileSystemService.ESTENSIONI.get(file.getContentType());
+    if (estensione == null) {
+      throw new ArchiviazioneException("Il formato del file non è valido.");
+    }
+    verifica(media, "Impossibile salvare al di fuori della cartella di upload.");
+    Path temporaneo = null;
+    try {
+      temporaneo = cache.temporaneo();
+      String hash;
+      try (ReadableByteChannel sorgente = Channels.newChannel(file.getInputStream());
+          FileChannel destinazione = FileChannel.open(temporaneo, StandardOpenOption.WRITE)) {
+        hash = ArchiviazioneFileSystemService.copia(sorgente, destinazione);
+      }
+      String filename = hash + "." + estensione;
+      String chiave = media + "/" + filename;
+      // Lo stesso contenuto già caricato nello stesso media non viene inviato di nuovo
+      if (client.head(chiave) == null) {
+        carica(chiave, temporaneo);
+      }
+      // Come in lettura: un file troppo grande svuoterebbe la cache da solo
+      if (daMettereInCache(Files.size(temporaneo))) {
+        cache.aggiungi(chiave, temporaneo);
+        temporaneo = null;
+      }
+      aggiornaElenco(media, filename, true);
+      eventPublisher.publishEvent(new FileArchiviatoEvent(media, filename));
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile salvare il file.", e);
+    } finally {
+      if (temporaneo != null) {
+        try {
+          Files.deleteIfExists(temporaneo);
+        } catch (IOException ignored) {
+          // Rimosso con gli altri temporanei al prossimo avvio
+        }
+      }
+    }
+  }
+
+  // Un solo PUT fino a dimensioneParte, oltre un caricamento multipart con le parti inviate in
+  // parallelo direttamente dal file, senza leggerle in memoria
+  private void carica(String chiave, Path file) throws IOException {
+    long dimensione = Files.size(file);
+    if (dimensione <= dimensioneParte) {
+      client.put(chiave, file, 0, dimensione);
+      return;
+    }
+    String uploadId = client.avviaMultipart(chiave);
+    List<Future<String>> parti = new ArrayList<>();
+    try {
+      for (long inizio = 0; inizio < dimensione; inizio += dimensioneParte) {
+        int numero = parti.size() + 1;
+        long da = inizio;
+        long lunghezza = Math.min(dimensioneParte, dimensione - inizio);
+        parti.add(executor.submit(
+            () -> client.caricaParte(chiave, uploadId, numero, file, da, lunghezza)));
+      }
+      List<String> etag = new ArrayList<>();
+      for (Future<String> parte : parti) {
+        etag.add(parte.get());
+      }
+      client.completaMultipart(chiave, uploadId, etag);
+    } catch (ExecutionException e) {
+      annulla(chiave, uploadId, parti);
+      throw e.getCause() instanceof ArchiviazioneException errore ? errore
+          : new ArchiviazioneException("Impossibile salvare il file.", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      annulla(chiave, uploadId, parti);
+      throw new ArchiviazioneException("Caricamento interrotto.", e);
+    } catch (RuntimeException e) {
+      annulla(chiave, uploadId, parti);
+      throw e;
+    }
+  }
+
+  // Senza l'annullamento il bucket conserverebbe le parti già caricate
+  private void annulla(String chiave, String uploadId, List<Future<String>> parti) {
+    for (Future<String> parte : parti) {
+      parte.cancel(true);
+    }
+    try {
+      client.annullaMultipart(chiave, uploadId);
+    } catch (ArchiviazioneException ignored) {
+      // Le parti restano fino alla regola di pulizia del bucket
+    }
+  }
+
+  /*@
+    @ also
+    @ requires media != null;
+    @ ensures \result != null;
+    @*/
+  @Override
+  public List<String> loadAll(String media) {
+    Elenco elenco = manifesti.get(media);
+    if (elenco != null && elenco.scadenza() > orologio.millis()) {
+      return elenco.nomi();
+    }
+    verifica(media, "Impossibile leggere i file salvati");
+    List<String> letto = client.list(media + "/").stream()
+        .map(nome -> nome.substring(media.length() + 1))
+        .filter(nome -> !nome.isEmpty() && nome.indexOf('/') < 0)
+        .sorted()
+        .toList();
+    // Un media senza oggetti è una cartella che non esiste, come nel file system: non entra
+    // nei manifesti, altrimenti nomi inventati li farebbero crescere senza limite
+    if (letto.isEmpty()) {
+      manifesti.remove(media);
+      throw new ArchiviazioneException("Impossibile leggere i file salvati");
+    }
+    manifesti.put(media, new Elenco(letto, orologio.millis() + durataElenchi));
+    return letto;
+  }
+
+  private void aggiornaElenco(String media, String filename, boolean aggiunto) {
+    manifesti.computeIfPresent(media, (chiave, elenco) -> {
+      TreeSet<String> nuovo = new TreeSet<>(elenco.nomi());
+      if (aggiunto) {
+        nuovo.add(filename);
+      } else {
+        nuovo.remove(filename);
+      }
+      return new Elenco(List.copyOf(nuovo), elenco.scadenza());
+    });
+  }
+
+  // Il file nella cache locale, oppure null se non è stato ancora letto
+  /*@ requires media != null; requires filename != null; @*/
+  @Override
+  public Path load(String media, String filename) {
+    return cache.trova(media + "/" + filename);
+  }
+
+  /*@
+    @ also
+    @ requires media != null;
+    @ requires filename != null;
+    @ ensures \result != null;
+    @*/
+  @Override
+  public Resource loadAsResource(String media, String filename) {
+    if (!valido(media) || !valido(filename)) {
+      throw new FileNonTrovatoException("Impossibile trovare il file: " + filename);
+    }
+    Resource risorsa = leggi(media + "/" + filename);
+    if (risorsa == null) {
+      throw new FileNonTrovatoException("Impossibile trovare il file: " + filename);
+    }
+    return risorsa;
+  }
+
+  // Dalla cache, altrimenti dal bucket: gli oggetti che stanno comodamente nella cache vengono
+  // scaricati e serviti come file, gli altri in streaming per non svuotarla
+  private Resource leggi(String chiave) {
+    Path file = cache.trova(chiave);
+    if (file != null) {
+      return new FileSystemResource(file);
+    }
+    ClientS3.Oggetto oggetto = client.head(chiave);
+    if (oggetto == null) {
+      return null;
+    }
+    if (!daMettereInCache(oggetto.dimensione())) {
+      return new RisorsaS3(client, chiave, oggetto);
+    }
+    Path temporaneo = null;
+    try {
+      temporaneo = cache.temporaneo();
+      try (InputStream ingresso = client.get(chiave, 0, -1)) {
+        if (ingresso == null) {
+          return null;
+        }
+        Files.copy(ingresso, temporaneo, StandardCopyOption.REPLACE_EXISTING);
+      }
+      Path salvato = cache.aggiungi(chiave, temporaneo);
+      temporaneo = null;
+      return new FileSystemResource(salvato);
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile leggere il file: " + chiave, e);
+    } finally {
+      if (temporaneo != null) {
+        try {
+          Files.deleteIfExists(temporaneo);
+        } catch (IOException ignored) {
+          // Rimosso con gli altri temporanei al prossimo avvio
+        }
+      }
+    }
+  }
+
+  private boolean daMettereInCache(long dimensione) {
+    return dimensione <= cache.capienza() / 4;
+  }
+
+  /*@ requires media != null; requires filename != null; @*/
+  @Override
+  public void delete(String media, String filename) {
+    String errore = "Impossibile eliminare al di fuori della cartella di upload.";
+    verifica(media, errore);
+    verifica(filename, errore);
+    String chiave = media + "/" + filename;
+    client.delete(chiave);
+    cache.rimuovi(chiave);
+    aggiornaElenco(media, filename, false);
+    for (String derivato : client.list(ArchiviazioneFileSystemService.DERIVATI + "/" + media
+        + "/")) {
+      if (derivato.endsWith("/" + filename)) {
+        client.delete(derivato);
+        cache.rimuovi(derivato);
+      }
+    }
+  }
+
+  /*@ requires media != null; requires filename != null; requires contenuto != null; @*/
+  @Override
+  public void storeDerivato(String media, String filename, int larghezza, byte[] contenuto) {
+    String errore = "Impossibile accedere al di fuori della cartella di upload.";
+    verifica(media, errore);
+    verifica(filename, errore);
+    String chiave = derivato(media, filename, larghezza);
+    client.put(chiave, contenuto);
+    if (!daMettereInCache(contenuto.length)) {
+      return;
+    }
+    try {
+      Path temporaneo = cache.temporaneo();
+      Files.write(temporaneo, contenuto);
+      cache.aggiungi(chiave, temporaneo);
+    } catch (IOException e) {
+      // Il derivato è già nel bucket e verrà scaricato alla prima richiesta
+    }
+  }
+
+  /*@ requires media != null; requires filename != null; @*/
+  @Override
+  public Resource loadDerivato(String media, String filename, int larghezza) {
+    if (!valido(media) || !valido(filename)) {
+      return null;
+    }
+    return leggi(derivato(media, filename, larghezza));
+  }
+
+  private static String derivato(String media, String filename, int larghezza) {
+    return ArchiviazioneFileSystemService.DERIVATI + "/" + media + "/" + larghezza + "/"
+        + filename;
+  }
+
+  @Override
+  public void deleteAll() {
+    manifesti.clear();
+    for (String chiave : client.list("")) {
+      client.delete(chiave);
+    }
+    cache.svuota();
+  }
+
+  @Override
+  public void init() {
+    // Il bucket viene creato insieme all'object store, non dall'applicazione
+  }
+
+  @PreDestroy
+  public void chiudi() {
+    executor.shutdownNow();
+  }
+
+  // Un nome è un solo segmento della chiave e non può essere una delle cartelle nascoste
+  private static boolean valido(String nome) {
+    return !nome.isEmpty() && !nome.startsWith(".") && nome.indexOf('/') < 0
+        && nome.indexOf('\\') < 0;
+  }
+
+  private static void verifica(String nome, String errore) {
+    if (!valido(nome)) {
+      throw new ArchiviazioneException(errore);
+    }
+  }
+
+  // Un oggetto letto dal bucket solo quando viene inviato, anche a intervalli
+  static final class RisorsaS3 extends AbstractResource implements RisorsaConIntervalli {
+
+    /*@ spec_public non_null @*/
+    private final ClientS3 client;
+    /*@ spec_public non_null @*/
+    private final String chiave;
+    /*@ spec_public non_null @*/
+    private final ClientS3.Oggetto oggetto;
+
+    RisorsaS3(ClientS3 client, String chiave, ClientS3.Oggetto oggetto) {
+      this.client = client;
+      this.chiave = chiave;
+      this.oggetto = oggetto;
+    }
+
+    @Override
+    public boolean exists() {
+      return true;
+    }
+
+    @Override
+    public long contentLength() {
+      return oggetto.dimensione();
+    }
+
+    @Override
+    public long lastModified() {
+      return oggetto.modifica();
+    }
+
+    @Override
+    public String getFilename() {
+      return chiave.substring(chiave.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+      return "Oggetto S3 [" + chiave + "]";
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return apri(client.get(chiave, 0, -1));
+    }
+
+    @Override
+    public InputStream apriIntervallo(long inizio, long fine) throws IOException {
+      return apri(client.get(chiave, inizio, fine));
+    }
+
+    private InputStream apri(InputStream ingresso) throws FileNotFoundException {
+      if (ingresso == null) {
+        throw new FileNotFoundException(getDescription() + " non esiste più");
+      }
+      return ingresso;
+    }
+  }
+
+}
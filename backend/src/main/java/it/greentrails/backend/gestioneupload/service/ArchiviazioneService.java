@@ -30,6 +30,14 @@ public interface ArchiviazioneService {
   /*@ requires media != null; requires filename != null; @*/
   void delete(String media, String filename);
 
+  // Una versione ridimensionata di un file già salvato, larga al più larghezza pixel
+  /*@ requires media != null; requires filename != null; requires contenuto != null; @*/
+  void storeDerivato(String media, String filename, int larghezza, byte[] contenuto);
+
+  // null se il derivato non è ancora stato generato
+  /*@ requires media != null; requires filename != null; @*/
+  Resource loadDerivato(String media, String filename, int larghezza);
+
   void deleteAll();
 
 }
@@ -0,0 +1,156 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Cache su disco degli oggetti letti da S3, con un limite in byte ed eliminazione di quelli
+// usati meno di recente. Ogni oggetto è un file il cui nome è la chiave codificata, così dopo
+// un riavvio la cache viene ricostruita dalla cartella, in ordine di ultima modifica.
+/*@ nullable_by_default @*/
+final class CacheDisco {
+
+  static final String TEMPORANEI = ".temporanei";
+
+  /*@ spec_public non_null @*/
+  private final Path cartella;
+  private final long capienza;
+  // Chiave e dimensione, in ordine di accesso
+  /*@ spec_public non_null @*/
+  private final LinkedHashMap<String, Long> voci = new LinkedHashMap<>(16, 0.75f, true);
+  private long occupati;
+
+  CacheDisco(Path cartella, long capienza) {
+    this.cartella = cartella;
+    this.capienza = capienza;
+    try {
+      Files.createDirectories(cartella.resolve(TEMPORANEI));
+      try (Stream<Path> file = Files.list(cartella)) {
+        List<Path> esistenti = file.filter(Files::isRegularFile)
+            .sorted(Comparator.comparing(CacheDisco::modifica))
+            .toList();
+        for (Path esistente : esistenti) {
+          long dimensione = Files.size(esistente);
+          voci.put(URLDecoder.decode(esistente.getFileName().toString(),
+              StandardCharsets.UTF_8), dimensione);
+          occupati += dimensione;
+        }
+      }
+      // I file temporanei rimasti da un arresto improvviso non servono più
+      try (Stream<Path> temporanei = Files.list(cartella.resolve(TEMPORANEI))) {
+        for (Path temporaneo : temporanei.toList()) {
+          Files.deleteIfExists(temporaneo);
+        }
+      }
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile inizializzare la cache", e);
+    }
+    synchronized (this) {
+      elimina(null);
+    }
+  }
+
+  long capienza() {
+    return capienza;
+  }
+
+  // Il file in cache per la chiave, oppure null
+  synchronized Path trova(String chiave) {
+    if (voci.get(chiave) == null) {
+      return null;
+    }
+    Path file = percorso(chiave);
+    if (!Files.exists(file)) {
+      occupati -= voci.remove(chiave);
+      return null;
+    }
+    return file;
+  }
+
+  // Un file temporaneo nella cartella della cache, da riempire e poi passare ad aggiungi
+  Path temporaneo() throws IOException {
+    return Files.createTempFile(cartella.resolve(TEMPORANEI), "oggetto", null);
+  }
+
+  // Sposta il file nella cache come contenuto della chiave e restituisce il nuovo percorso
+  Path aggiungi(String chiave, Path file) throws IOException {
+    long dimensione = Files.size(file);
+    Path destinazione = percorso(chiave);
+    Files.move(file, destinazione, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    synchronized (this) {
+      Long precedente = voci.put(chiave, dimensione);
+      occupati += dimensione - (precedente == null ? 0 : precedente);
+      elimina(chiave);
+    }
+    return destinazione;
+  }
+
+  synchronized void rimuovi(String chiave) {
+    Long dimensione = voci.remove(chiave);
+    if (dimensione != null) {
+      occupati -= dimensione;
+      cancella(chiave);
+    }
+  }
+
+  synchronized void svuota() {
+    for (String chiave : voci.keySet()) {
+      cancella(chiave);
+    }
+    voci.clear();
+    occupati = 0;
+  }
+
+  synchronized long occupati() {
+    return occupati;
+  }
+
+  // Elimina i meno usati finché si rientra nella capienza, tenendo la chiave appena aggiunta
+  // anche se da sola la supera
+  private void elimina(String tenuta) {
+    Iterator<Map.Entry<String, Long>> voce = voci.entrySet().iterator();
+    while (occupati > capienza && voce.hasNext()) {
+      Map.Entry<String, Long> meno = voce.next();
+      if (meno.getKey().equals(tenuta)) {
+        continue;
+      }
+      occupati -= meno.getValue();
+      voce.remove();
+      cancella(meno.getKey());
+    }
+  }
+
+  // Chi sta già leggendo il file lo può finire: su Linux il contenuto resta fino alla chiusura
+  private void cancella(String chiave) {
+    try {
+      Files.deleteIfExists(percorso(chiave));
+    } catch (IOException e) {
+      // Resta un file orfano, riconosciuto e rimosso al prossimo avvio se serve spazio
+    }
+  }
+
+  private Path percorso(String chiave) {
+    return cartella.resolve(URLEncoder.encode(chiave, StandardCharsets.UTF_8));
+  }
+
+  private static long modifica(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+}
@@ -0,0 +1,352 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.springframework.http.HttpHeaders;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+// Client minimo per le operazioni S3 usate dall'archiviazione, firmate con AWS Signature V4.
+// Gli indirizzi sono in stile path (endpoint/bucket/chiave), che funziona con S3 e con i
+// servizi compatibili come MinIO e Ceph. Il corpo non viene firmato (UNSIGNED-PAYLOAD), così
+// i file possono essere inviati in streaming senza leggerli due volte.
+/*@ nullable_by_default @*/
+class ClientS3 {
+
+  static final String NON_FIRMATO = "UNSIGNED-PAYLOAD";
+  private static final DateTimeFormatter FORMATO_DATA =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+  private static final HexFormat HEX = HexFormat.of();
+
+  record Oggetto(long dimensione, long modifica) {
+
+  }
+
+  /*@ spec_public non_null @*/
+  private final HttpClient http;
+  /*@ spec_public non_null @*/
+  private final URI endpoint;
+  /*@ spec_public non_null @*/
+  private final String bucket;
+  /*@ spec_public non_null @*/
+  private final String regione;
+  /*@ spec_public non_null @*/
+  private final String accessKey;
+  /*@ spec_public non_null @*/
+  private final String secretKey;
+  /*@ spec_public non_null @*/
+  private final Clock orologio;
+
+  ClientS3(URI endpoint, String bucket, String regione, String accessKey, String secretKey,
+      Clock orologio) {
+    this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    this.endpoint = endpoint;
+    this.bucket = bucket;
+    this.regione = regione;
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+    this.orologio = orologio;
+  }
+
+  void put(String chiave, byte[] contenuto) {
+    invia("PUT", chiave, Map.of(), BodyPublishers.ofByteArray(contenuto), null,
+        BodyHandlers.discarding());
+  }
+
+  void put(String chiave, Path file, long inizio, long lunghezza) {
+    invia("PUT", chiave, Map.of(), porzione(file, inizio, lunghezza), null,
+        BodyHandlers.discarding());
+  }
+
+  // null se l'oggetto non esiste
+  Oggetto head(String chiave) {
+    HttpResponse<Void> risposta = invia("HEAD", chiave, Map.of(), BodyPublishers.noBody(),
+        null, BodyHandlers.discarding());
+    if (risposta == null) {
+      return null;
+    }
+    long modifica = risposta.headers().firstValue(HttpHeaders.LAST_MODIFIED)
+        .map(data -> ZonedDateTime.parse(data, DateTimeFormatter.RFC_1123_DATE_TIME)
+            .toInstant().toEpochMilli())
+        .orElse(0L);
+    return new Oggetto(risposta.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH)
+        .orElse(0), modifica);
+  }
+
+  // Il contenuto in streaming, dall'inizio alla fine inclusa oppure tutto se fine è negativa;
+  // null se l'oggetto non esiste
+  InputStream get(String chiave, long inizio, long fine) {
+    String range = fine < 0 && inizio == 0 ? null
+        : "bytes=" + inizio + "-" + (fine < 0 ? "" : Long.toString(fine));
+    HttpResponse<InputStream> risposta = invia("GET", chiave, Map.of(),
+        BodyPublishers.noBody(), range, BodyHandlers.ofInputStream());
+    return risposta == null ? null : risposta.body();
+  }
+
+  void delete(String chiave) {
+    invia("DELETE", chiave, Map.of(), BodyPublishers.noBody(), null, BodyHandlers.discarding());
+  }
+
+  // Le chiavi che iniziano con il prefisso, seguendo le pagine di ListObjectsV2
+  List<String> list(String prefisso) {
+    List<String> chiavi = new ArrayList<>();
+    String continuazione = null;
+    do {
+      Map<String, String> parametri = new TreeMap<>();
+      parametri.put("list-type", "2");
+      parametri.put("prefix", prefisso);
+      if (continuazione != null) {
+        parametri.put("continuation-token", continuazione);
+      }
+      Element radice = xml(invia("GET", "", parametri, BodyPublishers.noBody(), null,
+          BodyHandlers.ofByteArray()));
+      NodeList contenuti = radice.getElementsByTagName("Key");
+      for (int i = 0; i < contenuti.getLength(); i++) {
+        chiavi.add(contenuti.item(i).getTextContent());
+      }
+      continuazione = "true".equals(testo(radice, "IsTruncated"))
+          ? testo(radice, "NextContinuationToken") : null;
+    } while (continuazione != null);
+    return chiavi;
+  }
+
+  String avviaMultipart(String chiave) {
+    return testo(xml(invia("POST", chiave, Map.of("uploads", ""), BodyPublishers.noBody(), null,
+        BodyHandlers.ofByteArray())), "UploadId");
+  }
+
+  // Restituisce l'ETag della parte, necessario per completare il caricamento
+  String caricaParte(String chiave, String uploadId, int numero, Path file, long inizio,
+      long lunghezza) {
+    HttpResponse<Void> risposta = invia("PUT", chiave,
+        Map.of("partNumber", Integer.toString(numero), "uploadId", uploadId),
+        porzione(file, inizio, lunghezza), null, BodyHandlers.discarding());
+    return risposta.headers().firstValue(HttpHeaders.ETAG)
+        .orElseThrow(() -> new ArchiviazioneException("Parte " + numero + " senza ETag"));
+  }
+
+  void completaMultipart(String chiave, String uploadId, List<String> etag) {
+    StringBuilder corpo = new StringBuilder("<CompleteMultipartUpload>");
+    for (int i = 0; i < etag.size(); i++) {
+      corpo.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+          .append(etag.get(i).replace("&", "&amp;").replace("\"", "&quot;"))
+          .append("</ETag></Part>");
+    }
+    corpo.append("</CompleteMultipartUpload>");
+    HttpResponse<byte[]> risposta = invia("POST", chiave, Map.of("uploadId", uploadId),
+        BodyPublishers.ofString(corpo.toString()), null, BodyHandlers.ofByteArray());
+    // S3 può rispondere 200 con un errore nel corpo
+    if ("Error".equals(xml(risposta).getTagName())) {
+      throw new ArchiviazioneException("Impossibile completare il caricamento di " + chiave);
+    }
+  }
+
+  void annullaMultipart(String chiave, String uploadId) {
+    invia("DELETE", chiave, Map.of("uploadId", uploadId), BodyPublishers.noBody(), null,
+        BodyHandlers.discarding());
+  }
+
+  // Le risposte 404 diventano null, gli altri errori ArchiviazioneException
+  private <T> HttpResponse<T> invia(String metodo, String chiave, Map<String, String> parametri,
+      BodyPublisher corpo, String range, HttpResponse.BodyHandler<T> gestore) {
+    String percorso = "/" + bucket + (chiave.isEmpty() ? "" : "/" + codifica(chiave, false));
+    String query = new TreeMap<>(parametri).entrySet().stream()
+        .map(p -> codifica(p.getKey(), true) + "=" + codifica(p.getValue(), true))
+        .collect(Collectors.joining("&"));
+    URI uri = endpoint.resolve(percorso + (query.isEmpty() ? "" : "?" + query));
+    String data = FORMATO_DATA.format(orologio.instant().atZone(ZoneOffset.UTC));
+
+    TreeMap<String, String> firmati = new TreeMap<>();
+    firmati.put("host", uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort()));
+    firmati.put("x-amz-content-sha256", NON_FIRMATO);
+    firmati.put("x-amz-date", data);
+    if (range != null) {
+      firmati.put("range", range);
+    }
+    HttpRequest.Builder richiesta = HttpRequest.newBuilder(uri)
+        .method(metodo, corpo)
+        .header(HttpHeaders.AUTHORIZATION, autorizzazione(metodo, percorso, query, firmati))
+        .header("x-amz-content-sha256", NON_FIRMATO)
+        .header("x-amz-date", data);
+    if (range != null) {
+      richiesta.header(HttpHeaders.RANGE, range);
+    }
+    try {
+      HttpResponse<T> risposta = http.send(richiesta.build(), gestore);
+      if (risposta.statusCode() == 404) {
+        chiudi(risposta);
+        return null;
+      }
+      if (risposta.statusCode() >= 300) {
+        chiudi(risposta);
+        throw new ArchiviazioneException(
+            "Errore " + risposta.statusCode() + " da S3 per " + metodo + " " + percorso);
+      }
+      return risposta;
+    } catch (IOException e) {
+      throw new ArchiviazioneException("Impossibile contattare S3 per " + percorso, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ArchiviazioneException("Richiesta a S3 interrotta per " + percorso, e);
+    }
+  }
+
+  private static void chiudi(HttpResponse<?> risposta) throws IOException {
+    if (risposta.body() instanceof InputStream corpo) {
+      corpo.close();
+    }
+  }
+
+  // Header Authorization di Signature V4; i nomi degli header firmati sono già minuscoli e
+  // ordinati
+  String autorizzazione(String metodo, String percorso, String query,
+      TreeMap<String, String> firmati) {
+    String data = firmati.get("x-amz-date");
+    String giorno = data.substring(0, 8);
+    String nomi = String.join(";", firmati.keySet());
+    StringBuilder canonica = new StringBuilder()
+        .append(metodo).append('\n')
+        .append(percorso).append('\n')
+        .append(query).append('\n');
+    firmati.forEach((nome, valore) -> canonica.append(nome).append(':').append(valore.trim())
+        .append('\n'));
+    canonica.append('\n').append(nomi).append('\n').append(firmati.get("x-amz-content-sha256"));
+    String ambito = giorno + "/" + regione + "/s3/aws4_request";
+    String daFirmare = "AWS4-HMAC-SHA256\n" + data + "\n" + ambito + "\n"
+        + HEX.formatHex(sha256(canonica.toString()));
+    byte[] chiave = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), giorno);
+    chiave = hmac(chiave, regione);
+    chiave = hmac(chiave, "s3");
+    chiave = hmac(chiave, "aws4_request");
+    return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + ambito + ",SignedHeaders=" + nomi
+        + ",Signature=" + HEX.formatHex(hmac(chiave, daFirmare));
+  }
+
+  // Codifica URI di S3: tutto tranne i caratteri non riservati, e "/" nei percorsi
+  static String codifica(String valore, boolean parametro) {
+    StringBuilder codificato = new StringBuilder();
+    for (byte b : valore.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xFF);
+      if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+          || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !parametro)) {
+        codificato.append(c);
+      } else {
+        codificato.append('%').append(HEX.withUpperCase().toHexDigits((byte) c));
+      }
+    }
+    return codificato.toString();
+  }
+
+  // Una parte di un file letta in streaming al momento dell'invio
+  private static BodyPublisher porzione(Path file, long inizio, long lunghezza) {
+    return BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> {
+      try {
+        FileChannel canale = FileChannel.open(file, StandardOpenOption.READ);
+        return new InputStream() {
+          private long posizione = inizio;
+          private final long fine = inizio + lunghezza;
+
+          @Override
+          public int read() throws IOException {
+            byte[] uno = new byte[1];
+            return read(uno, 0, 1) < 0 ? -1 : uno[0] & 0xFF;
+          }
+
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            if (posizione >= fine) {
+              return -1;
+            }
+            int letti = canale.read(ByteBuffer.wrap(b, off,
+                (int) Math.min(len, fine - posizione)), posizione);
+            if (letti > 0) {
+              posizione += letti;
+            }
+            return letti;
+          }
+
+          @Override
+          public void close() throws IOException {
+            canale.close();
+          }
+        };
+      } catch (IOException e) {
+        throw new ArchiviazioneException("Impossibile leggere " + file, e);
+      }
+    }), lunghezza);
+  }
+
+  private static Element xml(HttpResponse<byte[]> risposta) {
+    if (risposta == null) {
+      throw new ArchiviazioneException("Bucket S3 non trovato");
+    }
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      Document documento = factory.newDocumentBuilder()
+          .parse(new ByteArrayInputStream(risposta.body()));
+      return documento.getDocumentElement();
+    } catch (ParserConfigurationException | SAXException | IOException e) {
+      throw new ArchiviazioneException("Risposta S3 non valida", e);
+    }
+  }
+
+  private static String testo(Element radice, String tag) {
+    NodeList nodi = radice.getElementsByTagName(tag);
+    return nodi.getLength() == 0 ? null : nodi.item(0).getTextContent();
+  }
+
+  private static byte[] sha256(String testo) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(testo.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] hmac(byte[] chiave, String testo) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(chiave, "HmacSHA256"));
+      return mac.doFinal(testo.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
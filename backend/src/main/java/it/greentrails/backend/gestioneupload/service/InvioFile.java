@@ -0,0 +1,234 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+// Invio di un file caricato con ETag, Last-Modified, richieste condizionali e Range a un solo
+// intervallo, che è quello che usano i lettori video per spostarsi nel file. Quando il
+// connettore di Tomcat lo supporta, il corpo viene spedito dal connettore con sendfile; negli
+// altri casi un file viene copiato con FileChannel.transferTo, senza passare da un buffer
+// dell'applicazione.
+@Component
+/*@ nullable_by_default @*/
+public class InvioFile {
+
+  static final String SENDFILE_SUPPORTATO = "org.apache.tomcat.sendfile.support";
+  static final String SENDFILE_FILE = "org.apache.tomcat.sendfile.filename";
+  static final String SENDFILE_INIZIO = "org.apache.tomcat.sendfile.start";
+  static final String SENDFILE_FINE = "org.apache.tomcat.sendfile.end";
+  // Sotto questa dimensione sendfile non conviene, come per la DefaultServlet di Tomcat
+  static final long SOGLIA_SENDFILE = 48 * 1024;
+  private static final long BLOCCO = 8L * 1024 * 1024;
+  // I formati accettati da ArchiviazioneFileSystemService vengono mostrati dal browser
+  private static final Set<String> IN_LINEA = Set.of("image/jpeg", "image/png", "video/mp4");
+
+  record Intervallo(long inizio, long fine) {
+
+    long lunghezza() {
+      return fine - inizio + 1;
+    }
+  }
+
+  /*@ requires risorsa != null && richiesta != null && risposta != null; @*/
+  public void invia(Resource risorsa, HttpServletRequest richiesta,
+      HttpServletResponse risposta) throws IOException {
+    long dimensione;
+    long modifica;
+    try {
+      dimensione = risorsa.contentLength();
+      modifica = risorsa.lastModified();
+    } catch (IOException e) {
+      throw new FileNonTrovatoException("Impossibile trovare il file: " + risorsa.getFilename(),
+          e);
+    }
+    // Secondi interi, perché Last-Modified e If-Modified-Since non hanno i millisecondi
+    modifica = modifica / 1000 * 1000;
+    String etag = "\"" + Long.toHexString(modifica) + "-" + Long.toHexString(dimensione) + "\"";
+    MediaType tipo = MediaTypeFactory.getMediaType(risorsa)
+        .orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+    risposta.setHeader(HttpHeaders.ETAG, etag);
+    risposta.setDateHeader(HttpHeaders.LAST_MODIFIED, modifica);
+    risposta.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    // I file sono pubblici: il browser li conserva ma li riconvalida con l'ETag a ogni uso
+    risposta.setHeader(HttpHeaders.CACHE_CONTROL, "public, no-cache");
+
+    if (!isModificato(richiesta, etag, modifica)) {
+      risposta.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    risposta.setContentType(tipo.toString());
+    risposta.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        (IN_LINEA.contains(tipo.toString()) ? "inline" : "attachment")
+            + "; filename=\"" + risorsa.getFilename() + "\"");
+
+    Intervallo intervallo = new Intervallo(0, dimensione - 1);
+    String range = richiesta.getHeader(HttpHeaders.RANGE);
+    if (range != null && isRangeApplicabile(richiesta, etag, modifica)) {
+      Intervallo richiesto = leggiRange(range, dimensione);
+      if (richiesto == null) {
+        risposta.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + dimensione);
+        risposta.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        return;
+      }
+      if (richiesto.lunghezza() < dimensione) {
+        intervallo = richiesto;
+        risposta.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        risposta.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + intervallo.inizio() + "-"
+            + intervallo.fine() + "/" + dimensione);
+      }
+    }
+    risposta.setContentLengthLong(intervallo.lunghezza());
+    if (HttpMethod.HEAD.matches(richiesta.getMethod()) || intervallo.lunghezza() == 0) {
+      return;
+    }
+
+    if (risorsa.isFile()) {
+      Path file = risorsa.getFile().toPath();
+      if (intervallo.lunghezza() >= SOGLIA_SENDFILE
+          && Boolean.TRUE.equals(richiesta.getAttribute(SENDFILE_SUPPORTATO))) {
+        richiesta.setAttribute(SENDFILE_FILE, file.toAbsolutePath().toString());
+        richiesta.setAttribute(SENDFILE_INIZIO, intervallo.inizio());
+        richiesta.setAttribute(SENDFILE_FINE, intervallo.fine() + 1);
+        return;
+      }
+      trasferisci(file, intervallo, risposta.getOutputStream());
+    } else {
+      copia(risorsa, intervallo, risposta.getOutputStream());
+    }
+  }
+
+  private static void trasferisci(Path file, Intervallo intervallo, OutputStream uscita)
+      throws IOException {
+    try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+      WritableByteChannel destinazione = Channels.newChannel(uscita);
+      long posizione = intervallo.inizio();
+      long fine = intervallo.fine() + 1;
+      while (posizione < fine) {
+        long trasferiti = canale.transferTo(posizione, Math.min(BLOCCO, fine - posizione),
+            destinazione);
+        if (trasferiti <= 0) {
+          // Il file è stato accorciato dopo la lettura della dimensione
+          break;
+        }
+        posizione += trasferiti;
+      }
+    }
+  }
+
+  private static void copia(Resource risorsa, Intervallo intervallo, OutputStream uscita)
+      throws IOException {
+    if (risorsa instanceof RisorsaConIntervalli remota) {
+      try (InputStream ingresso = remota.apriIntervallo(intervallo.inizio(), intervallo.fine())) {
+        StreamUtils.copy(ingresso, uscita);
+      }
+      return;
+    }
+    try (InputStream ingresso = risorsa.getInputStream()) {
+      StreamUtils.copyRange(ingresso, uscita, intervallo.inizio(), intervallo.fine());
+    }
+  }
+
+  // If-None-Match ha la precedenza su If-Modified-Since; per un GET il confronto è debole
+  private static boolean isModificato(HttpServletRequest richiesta, String etag,
+      long modifica) {
+    String ifNoneMatch = richiesta.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String candidato : ifNoneMatch.split(",")) {
+        candidato = candidato.trim();
+        if (candidato.startsWith("W/")) {
+          candidato = candidato.substring(2);
+        }
+        if (candidato.equals("*") || candidato.equals(etag)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    long ifModifiedSince = leggiData(richiesta, HttpHeaders.IF_MODIFIED_SINCE);
+    return ifModifiedSince < 0 || modifica > ifModifiedSince;
+  }
+
+  // Con If-Range il Range vale solo se il client ha ancora la stessa versione del file,
+  // altrimenti riceve il file intero. Qui il confronto degli ETag è forte.
+  private static boolean isRangeApplicabile(HttpServletRequest richiesta, String etag,
+      long modifica) {
+    String ifRange = richiesta.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return ifRange.equals(etag);
+    }
+    return leggiData(richiesta, HttpHeaders.IF_RANGE) == modifica;
+  }
+
+  private static long leggiData(HttpServletRequest richiesta, String header) {
+    try {
+      return richiesta.getDateHeader(header);
+    } catch (IllegalArgumentException e) {
+      return -1;
+    }
+  }
+
+  // Un solo intervallo, nelle forme "a-b", "a-" e "-n". Un Range non valido o con più
+  // intervalli viene ignorato e si risponde con il file intero, come permette la RFC 9110;
+  // restituisce null solo se l'intervallo è valido ma fuori dal file.
+  static Intervallo leggiRange(String range, long dimensione) {
+    Intervallo intero = new Intervallo(0, dimensione - 1);
+    if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+      return intero;
+    }
+    String specifica = range.substring("bytes=".length()).trim();
+    int trattino = specifica.indexOf('-');
+    if (trattino < 0) {
+      return intero;
+    }
+    try {
+      String primo = specifica.substring(0, trattino).trim();
+      String secondo = specifica.substring(trattino + 1).trim();
+      if (primo.isEmpty()) {
+        long coda = Long.parseLong(secondo);
+        // "bytes=--5": parseLong accetta il segno, ma la lunghezza non può essere negativa
+        if (coda < 0) {
+          return intero;
+        }
+        if (coda == 0 || dimensione == 0) {
+          return null;
+        }
+        return new Intervallo(Math.max(0, dimensione - coda), dimensione - 1);
+      }
+      long inizio = Long.parseLong(primo);
+      long fine = secondo.isEmpty() ? Long.MAX_VALUE : Long.parseLong(secondo);
+      if (inizio < 0 || fine < inizio) {
+        return intero;
+      }
+      if (inizio >= dimensione) {
+        return null;
+      }
+      return new Intervallo(inizio, Math.min(fine, dimensione - 1));
+    } catch (NumberFormatException e) {
+      return intero;
+    }
+  }
+
+}
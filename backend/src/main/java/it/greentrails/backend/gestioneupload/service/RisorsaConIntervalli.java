@@ -0,0 +1,15 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Una risorsa remota che sa leggere solo una parte del contenuto, senza scaricare e scartare
+// i byte che precedono l'inizio
+/*@ nullable_by_default @*/
+interface RisorsaConIntervalli {
+
+  // Dall'inizio alla fine inclusa
+  /*@ requires 0 <= inizio && inizio <= fine; @*/
+  InputStream apriIntervallo(long inizio, long fine) throws IOException;
+
+}
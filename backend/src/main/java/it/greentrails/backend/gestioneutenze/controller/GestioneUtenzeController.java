@@ -10,6 +10,7 @@ import it.greentrails.backend.enums.PreferenzeBudget;
 import it.greentrails.backend.enums.PreferenzeStagione;
 import it.greentrails.backend.enums.PreferenzeViaggio;
 import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.gestioneutenze.security.TokenSessione;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import it.greentrails.backend.utils.service.ResponseGenerator;
 import java.util.Optional;
@@ -33,6 +34,7 @@ public class GestioneUtenzeController {
 
   private final GestioneUtenzeService service;
   private final PasswordEncoder passwordEncoder;
+  private final TokenSessione tokenSessione;
 
   @PutMapping
   private ResponseEntity<Object> registrazione(
@@ -113,4 +115,12 @@ public class GestioneUtenzeController {
     return ResponseGenerator.generateResponse(HttpStatus.OK, u);
   }
 
+  // Scambia le credenziali HTTP Basic con un token firmato da usare come "Bearer"
+  @PostMapping("token")
+  private ResponseEntity<Object> emettiToken(
+      @AuthenticationPrincipal final Utente utente
+  ) {
+    return ResponseGenerator.generateResponse(HttpStatus.OK, tokenSessione.emetti(utente));
+  }
+
 }
@@ -0,0 +1,44 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import it.greentrails.backend.entities.Utente;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Come DaoAuthenticationProvider, ma la verifica BCrypt viene saltata se le stesse credenziali
+// sono state verificate da poco
+/*@ nullable_by_default @*/
+public class AutenticazioneConCache extends DaoAuthenticationProvider {
+
+  /*@ spec_public non_null @*/
+  private final CacheCredenziali cache;
+
+  public AutenticazioneConCache(UserDetailsService userDetailsService,
+      PasswordEncoder passwordEncoder, CacheCredenziali cache) {
+    super(userDetailsService);
+    setPasswordEncoder(passwordEncoder);
+    this.cache = cache;
+  }
+
+  @Override
+  protected void additionalAuthenticationChecks(UserDetails userDetails,
+      UsernamePasswordAuthenticationToken authentication) throws AuthenticationException {
+    Object credenziali = authentication.getCredentials();
+    String hash = userDetails.getPassword();
+    if (credenziali == null || hash == null) {
+      super.additionalAuthenticationChecks(userDetails, authentication);
+      return;
+    }
+    String password = credenziali.toString();
+    if (cache.isVerificata(userDetails.getUsername(), hash, password)) {
+      return;
+    }
+    super.additionalAuthenticationChecks(userDetails, authentication);
+    Long idUtente = userDetails instanceof Utente utente ? utente.getId() : null;
+    cache.registra(idUtente, userDetails.getUsername(), hash, password);
+  }
+
+}
@@ -0,0 +1,114 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.stereotype.Component;
+
+// Ricorda per poco tempo le credenziali già verificate con BCrypt, così le richieste HTTP Basic
+// successive dello stesso utente non ripetono la verifica. La chiave è un HMAC di email, hash
+// memorizzato e password ricevuta con un segreto generato all'avvio: in memoria non resta
+// nulla da cui ricavare la password, e un cambio di password cambia l'hash e quindi la chiave.
+@Component
+/*@ nullable_by_default @*/
+public class CacheCredenziali {
+
+  static final Duration DURATA = Duration.ofMinutes(5);
+  static final int CAPIENZA = 10_000;
+  private static final String ALGORITMO = "HmacSHA256";
+
+  private record Voce(Long idUtente, long scadenza) {
+
+  }
+
+  /*@ spec_public non_null @*/
+  private final Map<String, Voce> verificate;
+  /*@ spec_public non_null @*/
+  private final SecretKeySpec segreto;
+  /*@ spec_public non_null @*/
+  private final Clock orologio;
+  private final long durata;
+
+  public CacheCredenziali() {
+    this(DURATA, CAPIENZA, Clock.systemUTC());
+  }
+
+  CacheCredenziali(Duration durata, int capienza, Clock orologio) {
+    byte[] chiave = new byte[32];
+    new SecureRandom().nextBytes(chiave);
+    this.segreto = new SecretKeySpec(chiave, ALGORITMO);
+    this.orologio = orologio;
+    this.durata = durata.toMillis();
+    // Ordine di accesso: superata la capienza esce la voce usata meno di recente
+    this.verificate = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Voce> eldest) {
+        return size() > capienza;
+      }
+    };
+  }
+
+  /*@ requires email != null && hash != null && password != null; @*/
+  public boolean isVerificata(String email, String hash, String password) {
+    String chiave = chiave(email, hash, password);
+    long adesso = orologio.millis();
+    synchronized (verificate) {
+      Voce voce = verificate.get(chiave);
+      if (voce == null) {
+        return false;
+      }
+      if (voce.scadenza() <= adesso) {
+        verificate.remove(chiave);
+        return false;
+      }
+      return true;
+    }
+  }
+
+  /*@ requires email != null && hash != null && password != null; @*/
+  public void registra(Long idUtente, String email, String hash, String password) {
+    String chiave = chiave(email, hash, password);
+    Voce voce = new Voce(idUtente, orologio.millis() + durata);
+    synchronized (verificate) {
+      verificate.put(chiave, voce);
+    }
+  }
+
+  public void invalida(Long idUtente) {
+    if (idUtente == null) {
+      return;
+    }
+    synchronized (verificate) {
+      verificate.values().removeIf(voce -> idUtente.equals(voce.idUtente()));
+    }
+  }
+
+  int size() {
+    synchronized (verificate) {
+      return verificate.size();
+    }
+  }
+
+  private String chiave(String email, String hash, String password) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITMO);
+      mac.init(segreto);
+      mac.update(email.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      mac.update(hash.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      return Base64.getEncoder().encodeToString(
+          mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Autentica le richieste con "Authorization: Bearer <token>": la firma evita la verifica
+// BCrypt, l'utente viene letto da CacheUtenti come per HTTP Basic. Le richieste senza token
+// proseguono verso HTTP Basic
+/*@ nullable_by_default @*/
+public class FiltroTokenSessione extends OncePerRequestFilter {
+
+  private static final String PREFISSO = "Bearer ";
+
+  /*@ spec_public non_null @*/
+  private final TokenSessione tokenSessione;
+  /*@ spec_public non_null @*/
+  private final GestioneUtenzeService gestioneUtenzeService;
+
+  public FiltroTokenSessione(TokenSessione tokenSessione,
+      GestioneUtenzeService gestioneUtenzeService) {
+    this.tokenSessione = tokenSessione;
+    this.gestioneUtenzeService = gestioneUtenzeService;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String intestazione = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (intestazione == null || !intestazione.regionMatches(true, 0, PREFISSO, 0,
+        PREFISSO.length())) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    Utente utente = carica(
+        tokenSessione.verifica(intestazione.substring(PREFISSO.length()).trim()));
+    if (utente == null) {
+      SecurityContextHolder.clearContext();
+      response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+      response.setStatus(HttpStatus.UNAUTHORIZED.value());
+      return;
+    }
+    // Tipo diverso da HTTP Basic: SecurityConfig non emette token a chi ne ha già uno
+    SecurityContext contesto = SecurityContextHolder.createEmptyContext();
+    contesto.setAuthentication(
+        new PreAuthenticatedAuthenticationToken(utente, null, utente.getAuthorities()));
+    SecurityContextHolder.setContext(contesto);
+    filterChain.doFilter(request, response);
+  }
+
+  // Il token contiene solo id, ruolo ed email: i controller ricevono l'utente completo, e il
+  // token di un utente eliminato non vale più
+  private Utente carica(Utente daToken) {
+    if (daToken == null) {
+      return null;
+    }
+    try {
+      return gestioneUtenzeService.findById(daToken.getId());
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+}
@@ -1,23 +1,33 @@
 package it.greentrails.backend.gestioneutenze.security;
 
 import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 
 @Configuration
@@ -34,6 +44,12 @@ public class SecurityConfig {
     return new BCryptPasswordEncoder();
   }
 
+  @Bean
+  public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+      PasswordEncoder passwordEncoder, CacheCredenziali cacheCredenziali) {
+    return new AutenticazioneConCache(userDetailsService, passwordEncoder, cacheCredenziali);
+  }
+
   @Bean
   public CorsConfigurationSource corsConfigurationSource() {
     CorsConfiguration configuration = new CorsConfiguration();
@@ -74,11 +90,14 @@ public class SecurityConfig {
   }
 
   @Bean
-  public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenSessione tokenSessione,
+      GestioneUtenzeService gestioneUtenzeService) throws Exception {
     http
         .authorizeHttpRequests((authorize) -> authorize
             .requestMatchers(HttpMethod.PUT, "/api/utenti").permitAll()
             .requestMatchers(HttpMethod.GET, "/api/utenti").authenticated()
+            .requestMatchers(HttpMethod.POST, "/api/utenti/token")
+            .access(SecurityConfig::conCredenziali)
             .requestMatchers(HttpMethod.GET, "/api/utenti/preferenze").hasRole(ROLE_VISITATORE)
 
             .requestMatchers(HttpMethod.POST, "/api/utenti/questionario").hasRole(ROLE_VISITATORE)
@@ -104,8 +123,10 @@ public class SecurityConfig {
 
             .requestMatchers("/api/categorie/**").hasRole(ROLE_GESTORE)
 
+            .requestMatchers(HttpMethod.GET, "/api/recensioni/perVisitatore").authenticated()
             .requestMatchers(HttpMethod.GET, "/api/recensioni/**").permitAll()
             .requestMatchers(HttpMethod.POST, "/api/recensioni").hasRole(ROLE_VISITATORE)
+            .requestMatchers(HttpMethod.POST, "/api/recensioni/riepiloghi").hasRole(ROLE_ADMIN)
             .requestMatchers(HttpMethod.DELETE, "/api/recensioni/*").authenticated()
 
             .requestMatchers(HttpMethod.GET, "/api/valori/*").permitAll()
@@ -142,15 +163,28 @@ public class SecurityConfig {
             .requestMatchers(HttpMethod.DELETE, "/api/segnalazioni/*").hasRole(ROLE_ADMIN)
 
             .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+            .requestMatchers("/actuator/metrics", "/actuator/metrics/**").hasRole(ROLE_ADMIN)
             .requestMatchers("/actuator/**").authenticated()
 
             .anyRequest().authenticated()
         )
         .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+        .addFilterBefore(new FiltroTokenSessione(tokenSessione, gestioneUtenzeService),
+            BasicAuthenticationFilter.class)
         .httpBasic(Customizer.withDefaults())
         .csrf(AbstractHttpConfigurer::disable);
 
     return http.build();
   }
 
+  // Un token si ottiene solo con email e password: altrimenti un token rubato, o di un utente
+  // eliminato, potrebbe rinnovarsi all'infinito senza credenziali
+  private static AuthorizationDecision conCredenziali(Supplier<Authentication> autenticazione,
+      RequestAuthorizationContext contesto) {
+    Authentication corrente = autenticazione.get();
+    return new AuthorizationDecision(corrente != null && corrente.isAuthenticated()
+        && !(corrente instanceof AnonymousAuthenticationToken)
+        && !(corrente instanceof PreAuthenticatedAuthenticationToken));
+  }
+
 }
\ No newline at end of file
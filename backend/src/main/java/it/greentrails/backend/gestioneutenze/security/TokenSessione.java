@@ -0,0 +1,111 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.utils.TokenProperties;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Token di sessione senza stato: "<dati>.<firma>", entrambi in Base64 URL. I dati sono
+// id|ruolo|scadenza|email e la firma è un HMAC-SHA256 dei dati, quindi per validarlo
+// basta il segreto e non serve leggere l'utente dal database.
+@Component
+/*@ nullable_by_default @*/
+public class TokenSessione {
+
+  private static final String ALGORITMO = "HmacSHA256";
+  private static final Base64.Encoder CODIFICA = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODIFICA = Base64.getUrlDecoder();
+
+  public record Emesso(String token, Instant scadenza) {
+
+  }
+
+  /*@ spec_public non_null @*/
+  private final SecretKeySpec segreto;
+  /*@ spec_public non_null @*/
+  private final Duration durata;
+  /*@ spec_public non_null @*/
+  private final Clock orologio;
+
+  @Autowired
+  public TokenSessione(TokenProperties properties) {
+    this(segreto(properties.getSegreto()), properties.getDurata(), Clock.systemUTC());
+  }
+
+  TokenSessione(byte[] segreto, Duration durata, Clock orologio) {
+    this.segreto = new SecretKeySpec(segreto, ALGORITMO);
+    this.durata = durata;
+    this.orologio = orologio;
+  }
+
+  private static byte[] segreto(String configurato) {
+    if (configurato != null && !configurato.isBlank()) {
+      return Base64.getDecoder().decode(configurato);
+    }
+    byte[] casuale = new byte[32];
+    new SecureRandom().nextBytes(casuale);
+    return casuale;
+  }
+
+  /*@ requires utente != null; ensures \result != null; @*/
+  public Emesso emetti(Utente utente) {
+    Instant scadenza = orologio.instant().plus(durata);
+    String dati = utente.getId() + "|" + utente.getRuolo().name() + "|"
+        + scadenza.getEpochSecond() + "|" + utente.getEmail();
+    String parte = CODIFICA.encodeToString(dati.getBytes(StandardCharsets.UTF_8));
+    return new Emesso(parte + "." + CODIFICA.encodeToString(firma(parte)), scadenza);
+  }
+
+  // Restituisce un utente con i soli id, ruolo ed email, oppure null se il token non è valido
+  // o è scaduto
+  public Utente verifica(String token) {
+    if (token == null) {
+      return null;
+    }
+    int punto = token.indexOf('.');
+    if (punto <= 0 || punto != token.lastIndexOf('.')) {
+      return null;
+    }
+    String parte = token.substring(0, punto);
+    try {
+      if (!MessageDigest.isEqual(firma(parte), DECODIFICA.decode(token.substring(punto + 1)))) {
+        return null;
+      }
+      String[] dati = new String(DECODIFICA.decode(parte), StandardCharsets.UTF_8)
+          .split("\\|", 4);
+      if (dati.length != 4
+          || Long.parseLong(dati[2]) <= orologio.instant().getEpochSecond()) {
+        return null;
+      }
+      Utente utente = new Utente();
+      utente.setId(Long.valueOf(dati[0]));
+      utente.setRuolo(RuoloUtente.valueOf(dati[1]));
+      utente.setEmail(dati[3]);
+      return utente;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private byte[] firma(String parte) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITMO);
+      mac.init(segreto);
+      return mac.doFinal(parte.getBytes(StandardCharsets.US_ASCII));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
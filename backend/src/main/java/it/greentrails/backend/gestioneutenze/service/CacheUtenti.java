@@ -0,0 +1,185 @@
+package it.greentrails.backend.gestioneutenze.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.greentrails.backend.entities.Utente;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+// Utenti letti di recente, per id e per email. Dentro una richiesta HTTP lo stesso utente viene
+// restituito senza passare dal lock; tra una richiesta e l'altra resta valido per pochi secondi,
+// così il principal caricato da HTTP Basic e le findById successive dei controller costano una
+// sola query. saveUtente e deleteUtente invalidano l'utente su questo nodo.
+@Component
+/*@ nullable_by_default @*/
+public class CacheUtenti {
+
+  static final Duration DURATA = Duration.ofSeconds(30);
+  static final int CAPIENZA = 10_000;
+  private static final String ATTRIBUTO = CacheUtenti.class.getName();
+
+  private record Voce(Utente utente, long scadenza) {
+
+  }
+
+  /*@ spec_public non_null @*/
+  private final Map<Long, Voce> perId;
+  /*@ spec_public non_null @*/
+  private final Map<String, Long> perEmail = new HashMap<>();
+  /*@ spec_public non_null @*/
+  private final Clock orologio;
+  private final long durata;
+  /*@ spec_public non_null @*/
+  private final Counter hit;
+  /*@ spec_public non_null @*/
+  private final Counter miss;
+  // Incrementata a ogni invalidazione: un caricamento iniziato prima non viene memorizzato
+  private long versione;
+
+  @Autowired
+  public CacheUtenti(MeterRegistry registry) {
+    this(registry, DURATA, CAPIENZA, Clock.systemUTC());
+  }
+
+  CacheUtenti(MeterRegistry registry, Duration durata, int capienza, Clock orologio) {
+    this.orologio = orologio;
+    this.durata = durata.toMillis();
+    this.perId = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Voce> eldest) {
+        if (size() <= capienza) {
+          return false;
+        }
+        perEmail.remove(eldest.getValue().utente().getEmail());
+        return true;
+      }
+    };
+    this.hit = Counter.builder("greentrails.utenti.cache").tag("risultato", "hit")
+        .register(registry);
+    this.miss = Counter.builder("greentrails.utenti.cache").tag("risultato", "miss")
+        .register(registry);
+    Gauge.builder("greentrails.utenti.cache.dimensione", this, CacheUtenti::size)
+        .register(registry);
+  }
+
+  /*@ requires id != null && caricamento != null; ensures \result != null; @*/
+  public Optional<Utente> perId(Long id, Function<Long, Optional<Utente>> caricamento) {
+    Map<Object, Utente> richiesta = richiesta();
+    Utente utente = richiesta == null ? null : richiesta.get(id);
+    if (utente == null) {
+      synchronized (perId) {
+        utente = valida(id);
+      }
+    }
+    return risolvi(utente, id, richiesta, () -> caricamento.apply(id));
+  }
+
+  /*@ requires email != null && caricamento != null; ensures \result != null; @*/
+  public Optional<Utente> perEmail(String email, Function<String, Optional<Utente>> caricamento) {
+    Map<Object, Utente> richiesta = richiesta();
+    Utente utente = richiesta == null ? null : richiesta.get(email);
+    if (utente == null) {
+      synchronized (perId) {
+        Long id = perEmail.get(email);
+        utente = id == null ? null : valida(id);
+      }
+    }
+    return risolvi(utente, email, richiesta, () -> caricamento.apply(email));
+  }
+
+  public void invalida(Long id) {
+    if (id == null) {
+      return;
+    }
+    synchronized (perId) {
+      versione++;
+      Voce voce = perId.remove(id);
+      if (voce != null) {
+        perEmail.remove(voce.utente().getEmail());
+      }
+    }
+    Map<Object, Utente> richiesta = richiesta();
+    if (richiesta != null) {
+      richiesta.values().removeIf(utente -> id.equals(utente.getId()));
+    }
+  }
+
+  int size() {
+    synchronized (perId) {
+      return perId.size();
+    }
+  }
+
+  private Utente valida(Long id) {
+    Voce voce = perId.get(id);
+    if (voce == null) {
+      return null;
+    }
+    if (voce.scadenza() <= orologio.millis()) {
+      perId.remove(id);
+      perEmail.remove(voce.utente().getEmail());
+      return null;
+    }
+    return voce.utente();
+  }
+
+  private Optional<Utente> risolvi(Utente trovato, Object chiave, Map<Object, Utente> richiesta,
+      Supplier<Optional<Utente>> caricamento) {
+    if (trovato != null) {
+      hit.increment();
+      if (richiesta != null) {
+        richiesta.put(chiave, trovato);
+      }
+      return Optional.of(trovato);
+    }
+    miss.increment();
+    long inizio;
+    synchronized (perId) {
+      inizio = versione;
+    }
+    Optional<Utente> caricato = caricamento.get();
+    caricato.filter(u -> u.getId() != null).ifPresent(utente -> {
+      synchronized (perId) {
+        if (versione == inizio) {
+          Voce precedente = perId.put(utente.getId(),
+              new Voce(utente, orologio.millis() + durata));
+          if (precedente != null) {
+            perEmail.remove(precedente.utente().getEmail());
+          }
+          perEmail.put(utente.getEmail(), utente.getId());
+        }
+      }
+      if (richiesta != null) {
+        richiesta.put(utente.getId(), utente);
+        richiesta.put(utente.getEmail(), utente);
+      }
+    });
+    return caricato;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<Object, Utente> richiesta() {
+    RequestAttributes attributi = RequestContextHolder.getRequestAttributes();
+    if (attributi == null) {
+      return null;
+    }
+    Object mappa = attributi.getAttribute(ATTRIBUTO, RequestAttributes.SCOPE_REQUEST);
+    if (mappa == null) {
+      mappa = new HashMap<Object, Utente>();
+      attributi.setAttribute(ATTRIBUTO, mappa, RequestAttributes.SCOPE_REQUEST);
+    }
+    return (Map<Object, Utente>) mappa;
+  }
+
+}
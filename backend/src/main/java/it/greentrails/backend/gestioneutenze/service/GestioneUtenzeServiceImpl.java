@@ -2,8 +2,11 @@ package it.greentrails.backend.gestioneutenze.service;
 
 import it.greentrails.backend.entities.Preferenze;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneutenze.repository.PreferenzeRepository;
 import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import it.greentrails.backend.gestioneutenze.security.CacheCredenziali;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,6 +22,12 @@ public class GestioneUtenzeServiceImpl implements GestioneUtenzeService {
   private final UtenteRepository repository;
   /*@ spec_public non_null @*/
   private final PreferenzeRepository preferenzeRepository;
+  /*@ spec_public non_null @*/
+  private final CacheCredenziali cacheCredenziali;
+  /*@ spec_public non_null @*/
+  private final CacheUtenti cacheUtenti;
+  /*@ spec_public non_null @*/
+  private final CacheRisposte cacheRisposte;
 
   // repository and preferenzeRepository are injected by Spring — non-null by @RequiredArgsConstructor
 
@@ -31,7 +40,7 @@ public class GestioneUtenzeServiceImpl implements GestioneUtenzeService {
     if (id == null || id < 0) {
       throw new Exception("L'id non è valido.");
     }
-    Optional<Utente> utente = repository.findById(id);
+    Optional<Utente> utente = cacheUtenti.perId(id, repository::findById);
     if (utente.isEmpty()) {
       throw new Exception("L'utente non è stato trovato.");
     }
@@ -47,7 +56,12 @@ public class GestioneUtenzeServiceImpl implements GestioneUtenzeService {
     if (utente == null) {
       throw new Exception("L'utente è vuoto.");
     }
-    return repository.save(utente);
+    // Password o ruolo possono essere cambiati: le verifiche già fatte non valgono più
+    Utente salvato = repository.save(utente);
+    cacheCredenziali.invalida(utente.getId());
+    cacheUtenti.invalida(utente.getId());
+    invalidaCatalogo(utente);
+    return salvato;
   }
 
   /*@
@@ -69,7 +83,7 @@ public class GestioneUtenzeServiceImpl implements GestioneUtenzeService {
     @*/
   @Override
   public Optional<Utente> findByEmail(String email) {
-    return repository.findOneByEmail(email);
+    return cacheUtenti.perEmail(email, repository::findOneByEmail);
   }
 
   @Override
@@ -79,9 +93,19 @@ public class GestioneUtenzeServiceImpl implements GestioneUtenzeService {
     }
     repository.delete(utente);
     repository.flush();
+    cacheCredenziali.invalida(utente.getId());
+    cacheUtenti.invalida(utente.getId());
+    invalidaCatalogo(utente);
     return repository.findById(utente.getId()).isEmpty();
   }
 
+  // Le risposte del catalogo includono il gestore di ogni attività
+  private void invalidaCatalogo(Utente utente) {
+    if (utente.getRuolo() == RuoloUtente.GESTORE_ATTIVITA) {
+      cacheRisposte.invalida();
+    }
+  }
+
   /*@
     @ also
     @ ensures \result != null;
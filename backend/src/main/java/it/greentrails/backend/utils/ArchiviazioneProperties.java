@@ -1,14 +1,42 @@
 package it.greentrails.backend.utils;
 
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties("storage")
 @Getter
 @Setter
 public class ArchiviazioneProperties {
 
+  // "filesystem" oppure "s3"
+  private String backend = "filesystem";
   private String location = "/var/uploads";
+  // Da attivare se altri processi scrivono nella stessa cartella di upload
+  private boolean osservaCartelle = false;
+  private S3 s3 = new S3();
+
+  @Getter
+  @Setter
+  public static class S3 {
+
+    private String endpoint;
+    private String bucket;
+    private String regione = "us-east-1";
+    private String accessKey;
+    private String secretKey;
+    // I file più grandi vengono caricati in parti di questa dimensione, in parallelo
+    private DataSize dimensioneParte = DataSize.ofMegabytes(8);
+    private int parallelismo = 4;
+    // Cache su disco degli oggetti letti
+    private String cache = "/var/cache/greentrails";
+    private DataSize capienzaCache = DataSize.ofGigabytes(2);
+    // Per quanto l'elenco dei file di un media letto dal bucket vale su questa istanza: i
+    // caricamenti e le eliminazioni delle altre istanze compaiono al più dopo questo tempo
+    private Duration durataElenchi = Duration.ofSeconds(5);
+
+  }
 
 }
@@ -32,9 +32,9 @@ import it.greentrails.backend.gestioneutenze.repository.PreferenzeRepository;
 import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
 import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
 import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
-import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
-import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
@@ -58,8 +58,7 @@ public class DataSeeder implements CommandLineRunner {
   private final PreferenzeRepository preferenzeRepository;
   private final ItinerariRepository itinerarioRepository;
   private final SegnalazioniRepository segnalazioneRepository;
-  private final PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
-  private final PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+  private final BulkWriter bulkWriter;
 
   private final PasswordEncoder encoder = new BCryptPasswordEncoder();
 
@@ -190,15 +189,17 @@ public class DataSeeder implements CommandLineRunner {
         "Attività sospesa per maltempo", false, null, 6L));
 
     Date now = new Date(System.currentTimeMillis() + 86_400_000L);
-    prenotazioneAlloggioRepository.save(createPrenotazioneAlloggio(it1, c1,
-        2, 0, now, now, 1, StatoPrenotazione.COMPLETATA, 240.0));
-    prenotazioneAlloggioRepository.save(createPrenotazioneAlloggio(it1, cAgriDoppia,
-        2, 1, now, now, 1, StatoPrenotazione.CREATA, 190.0));
-
-    prenotazioneAttivitaTuristicaRepository.save(createPrenotazioneAttivita(it1, tourGastro,
-        2, 0, now, now, StatoPrenotazione.COMPLETATA, 110.0));
-    prenotazioneAttivitaTuristicaRepository.save(createPrenotazioneAttivita(it2, vesuvio,
-        1, 0, now, null, StatoPrenotazione.CREATA, 25.0));
+    bulkWriter.inserisci(List.of(
+        createPrenotazioneAlloggio(it1, c1,
+            2, 0, now, now, 1, StatoPrenotazione.COMPLETATA, 240.0),
+        createPrenotazioneAlloggio(it1, cAgriDoppia,
+            2, 1, now, now, 1, StatoPrenotazione.CREATA, 190.0)));
+
+    bulkWriter.inserisci(List.of(
+        createPrenotazioneAttivita(it1, tourGastro,
+            2, 0, now, now, StatoPrenotazione.COMPLETATA, 110.0),
+        createPrenotazioneAttivita(it2, vesuvio,
+            1, 0, now, null, StatoPrenotazione.CREATA, 25.0)));
   }
 
   private Utente createUtente(String nome, String cognome, String dataNascita,
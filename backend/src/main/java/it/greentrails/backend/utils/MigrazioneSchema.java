@@ -0,0 +1,124 @@
+package it.greentrails.backend.utils;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+// Porta uno schema MySQL già esistente alla forma che le entità si aspettano, prima che
+// Hibernate lo validi (prod) o lo estenda (dev): ddl-auto=update non cambia il tipo delle
+// colonne. Su uno schema nuovo le tabelle non esistono ancora e non c'è niente da fare.
+@Component
+@RequiredArgsConstructor
+public class MigrazioneSchema implements InitializingBean {
+
+  // Le date delle prenotazioni erano colonne TIME, che perdono il giorno
+  static final List<Colonna> DATE = List.of(
+      new Colonna("prenotazione_alloggio", "data_inizio", false),
+      new Colonna("prenotazione_alloggio", "data_fine", false),
+      new Colonna("prenotazione_attivita_turistica", "data_inizio", false),
+      new Colonna("prenotazione_attivita_turistica", "data_fine", true));
+
+  // Su MySQL Hibernate emula le sequenze con una tabella: se manca, o riparte da 1 su una
+  // tabella che ha già righe con id IDENTITY, i nuovi INSERT riusano chiavi esistenti
+  static final List<Sequenza> SEQUENZE = List.of(
+      new Sequenza("prenotazione_alloggio_seq", "prenotazione_alloggio"),
+      new Sequenza("prenotazione_attivita_turistica_seq", "prenotazione_attivita_turistica"));
+
+  // Come allocationSize nelle entità: il valore letto è l'ultimo id del blocco riservato
+  static final int ALLOCAZIONE_ID = 50;
+
+  private final DataSource dataSource;
+
+  record Colonna(String tabella, String nome, boolean nullable) {
+
+  }
+
+  record Sequenza(String nome, String tabella) {
+
+  }
+
+  @Override
+  public void afterPropertiesSet() throws SQLException {
+    try (Connection connessione = dataSource.getConnection()) {
+      if ("MySQL".equals(connessione.getMetaData().getDatabaseProductName())) {
+        migra(connessione);
+      }
+    }
+  }
+
+  void migra(Connection connessione) throws SQLException {
+    for (Colonna colonna : DATE) {
+      if (tipo(connessione, colonna) == Types.TIME) {
+        // MySQL completa i valori TIME con la data corrente
+        esegui(connessione, "ALTER TABLE " + colonna.tabella() + " MODIFY " + colonna.nome()
+            + " DATETIME(6) " + (colonna.nullable() ? "NULL" : "NOT NULL"));
+      }
+    }
+    for (Sequenza sequenza : SEQUENZE) {
+      if (!esiste(connessione, sequenza.tabella())) {
+        continue;
+      }
+      long minimo = massimoId(connessione, sequenza.tabella()) + ALLOCAZIONE_ID;
+      if (!esiste(connessione, sequenza.nome())) {
+        esegui(connessione, "CREATE TABLE " + sequenza.nome() + " (next_val BIGINT)");
+        esegui(connessione, "INSERT INTO " + sequenza.nome() + " VALUES (" + minimo + ")");
+      } else {
+        // Un valore già più alto appartiene a blocchi riservati: non va abbassato
+        esegui(connessione, "UPDATE " + sequenza.nome() + " SET next_val = " + minimo
+            + " WHERE next_val < " + minimo);
+      }
+    }
+  }
+
+  private static boolean esiste(Connection connessione, String tabella) throws SQLException {
+    try (ResultSet tabelle = connessione.getMetaData().getTables(connessione.getCatalog(),
+        null, tabella, null)) {
+      return tabelle.next();
+    }
+  }
+
+  private static long massimoId(Connection connessione, String tabella) throws SQLException {
+    try (Statement statement = connessione.createStatement();
+        ResultSet risultato = statement.executeQuery(
+            "SELECT COALESCE(MAX(id), 0) FROM " + tabella)) {
+      risultato.next();
+      return risultato.getLong(1);
+    }
+  }
+
+  // Il tipo JDBC della colonna, o Types.NULL se la colonna non esiste
+  private static int tipo(Connection connessione, Colonna colonna) throws SQLException {
+    DatabaseMetaData metaData = connessione.getMetaData();
+    try (ResultSet colonne = metaData.getColumns(connessione.getCatalog(), null,
+        colonna.tabella(), colonna.nome())) {
+      return colonne.next() ? colonne.getInt("DATA_TYPE") : Types.NULL;
+    }
+  }
+
+  private static void esegui(Connection connessione, String sql) throws SQLException {
+    try (Statement statement = connessione.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  // Senza questa dipendenza l'EntityManagerFactory potrebbe validare lo schema prima della
+  // migrazione
+  @Component
+  static class DipendenzaEntityManager extends EntityManagerFactoryDependsOnPostProcessor {
+
+    DipendenzaEntityManager() {
+      super(MigrazioneSchema.class);
+    }
+
+  }
+
+}
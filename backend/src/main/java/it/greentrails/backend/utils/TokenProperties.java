@@ -0,0 +1,19 @@
+package it.greentrails.backend.utils;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("token")
+@Getter
+@Setter
+public class TokenProperties {
+
+  // Segreto condiviso tra le repliche, in Base64; se manca ne viene generato uno all'avvio e i
+  // token valgono solo sull'istanza che li ha emessi
+  private String segreto = "";
+
+  private Duration durata = Duration.ofHours(1);
+
+}
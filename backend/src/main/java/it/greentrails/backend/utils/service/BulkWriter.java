@@ -0,0 +1,57 @@
+package it.greentrails.backend.utils.service;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+@Service
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class BulkWriter {
+
+  // Uguale a hibernate.jdbc.batch_size: ogni blocco diventa un solo batch JDBC
+  public static final int DIMENSIONE_BLOCCO = 50;
+
+  /*@ spec_public non_null @*/
+  private final EntityManager entityManager;
+  /*@ spec_public non_null @*/
+  private final TransactionOperations transazione;
+
+  /*@
+    @ ensures \result != null;
+    @*/
+  public <T> List<T> inserisci(/*@ nullable @*/ Collection<T> entita) {
+    if (entita == null || entita.isEmpty()) {
+      return List.of();
+    }
+    return transazione.execute(stato -> {
+      List<T> inserite = new ArrayList<>(entita);
+      List<T> blocco = new ArrayList<>(DIMENSIONE_BLOCCO);
+      for (T e : inserite) {
+        entityManager.persist(e);
+        blocco.add(e);
+        if (blocco.size() == DIMENSIONE_BLOCCO) {
+          scarica(blocco);
+        }
+      }
+      scarica(blocco);
+      return inserite;
+    });
+  }
+
+  // Escono dal contesto solo le entità appena scritte, così il flush successivo non le
+  // ricontrolla e quelle del chiamante restano gestite
+  private void scarica(List<?> blocco) {
+    if (blocco.isEmpty()) {
+      return;
+    }
+    entityManager.flush();
+    blocco.forEach(entityManager::detach);
+    blocco.clear();
+  }
+
+}
@@ -0,0 +1,110 @@
+package it.greentrails.backend.utils.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.greentrails.backend.events.AttivitaModificataEvent;
+import it.greentrails.backend.events.CameraModificataEvent;
+import it.greentrails.backend.events.CategoriaModificataEvent;
+import it.greentrails.backend.events.ValoriModificatiEvent;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Risposte JSON già serializzate degli endpoint pubblici del catalogo, per chiave
+// (endpoint e parametri). Ogni modifica di attività, camere, valori o categorie le invalida
+// tutte: il catalogo cambia di rado e una risposta può contenere entità di ogni tipo. Anche
+// il salvataggio di un gestore, i cui dati compaiono nelle schede (GestioneUtenzeServiceImpl).
+@Service
+@RequiredArgsConstructor
+/*@ nullable_by_default @*/
+public class CacheRisposte {
+
+  static final int MASSIMO_VOCI = 10_000;
+  static final long MASSIMO_BYTE = 64L * 1024 * 1024;
+
+  /*@ spec_public non_null @*/
+  private final ObjectMapper objectMapper;
+
+  /*@ spec_public non_null @*/
+  private final Map<String, Voce> voci = new ConcurrentHashMap<>();
+  /*@ spec_public non_null @*/
+  private final AtomicLong generazione = new AtomicLong();
+  /*@ spec_public non_null @*/
+  private final AtomicLong occupati = new AtomicLong();
+
+  // La generazione è quella letta prima di calcolare la risposta: una voce calcolata mentre
+  // arriva un'invalidazione non viene mai servita
+  private record Voce(byte[] corpo, String etag, long generazione) {
+
+  }
+
+  // Con un If-None-Match uguale all'ETag Spring risponde 304 senza corpo. Le risposte non
+  // riuscite non vengono conservate.
+  /*@ requires chiave != null && calcola != null; ensures \result != null; @*/
+  public ResponseEntity<Object> risposta(String chiave,
+      Supplier<ResponseEntity<Object>> calcola) {
+    long corrente = generazione.get();
+    Voce voce = voci.get(chiave);
+    if (voce == null || voce.generazione() != corrente) {
+      ResponseEntity<Object> risposta = calcola.get();
+      if (!risposta.getStatusCode().is2xxSuccessful()) {
+        return risposta;
+      }
+      byte[] corpo;
+      try {
+        corpo = objectMapper.writeValueAsBytes(risposta.getBody());
+      } catch (JsonProcessingException e) {
+        return risposta;
+      }
+      voce = new Voce(corpo, etag(corpo), corrente);
+      conserva(chiave, voce);
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .eTag(voce.etag())
+        .cacheControl(CacheControl.noCache())
+        .body(voce.corpo());
+  }
+
+  // Dopo il commit, così una richiesta concorrente non rimette in cache i dati precedenti
+  @TransactionalEventListener(fallbackExecution = true, classes = {
+      AttivitaModificataEvent.class, CameraModificataEvent.class,
+      ValoriModificatiEvent.class, CategoriaModificataEvent.class})
+  public void invalida() {
+    generazione.incrementAndGet();
+    voci.clear();
+    occupati.set(0);
+  }
+
+  /*@ ensures \result >= 0; @*/
+  public int dimensione() {
+    return voci.size();
+  }
+
+  private void conserva(String chiave, Voce voce) {
+    int lunghezza = voce.corpo().length;
+    if ((voci.size() >= MASSIMO_VOCI && !voci.containsKey(chiave))
+        || occupati.get() + lunghezza > MASSIMO_BYTE) {
+      return;
+    }
+    Voce precedente = voci.put(chiave, voce);
+    occupati.addAndGet(lunghezza - (precedente == null ? 0 : precedente.corpo().length));
+  }
+
+  // FNV-1a a 64 bit del corpo, calcolato una sola volta quando la voce viene creata
+  static String etag(byte[] corpo) {
+    long hash = 0xCBF29CE484222325L;
+    for (byte b : corpo) {
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+    return "\"" + Long.toHexString(hash) + "-" + Integer.toHexString(corpo.length) + "\"";
+  }
+
+}
@@ -1,7 +1,5 @@
 package it.greentrails.backend.utils.service;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -12,21 +10,15 @@ public class ResponseGenerator {
 
   public static ResponseEntity<Object> generateResponse(final HttpStatus statusCode,
       final Object response) {
-    Map<String, Object> responseMap = new HashMap<>();
-    String message;
-    if (statusCode.isError()) {
-      if (statusCode.is4xxClientError()) {
-        responseMap.put("data", response);
-        message = "failure";
-      } else {
-        responseMap.put("error", response.toString());
-        message = "error";
-      }
+    Risposta risposta;
+    if (statusCode.is5xxServerError()) {
+      // Per un'eccezione è solo la classe e il messaggio, senza lo stack trace
+      risposta = new Risposta.Errore(Risposta.ERRORE, String.valueOf(response));
+    } else if (statusCode.is4xxClientError()) {
+      risposta = new Risposta.Dati(Risposta.FALLIMENTO, response);
     } else {
-      responseMap.put("data", response);
-      message = "success";
+      risposta = new Risposta.Dati(Risposta.SUCCESSO, response);
     }
-    responseMap.put("status", message);
-    return new ResponseEntity<>(responseMap, statusCode);
+    return new ResponseEntity<>(risposta, statusCode);
   }
 }
@@ -0,0 +1,22 @@
+package it.greentrails.backend.utils.service;
+
+// Corpo delle risposte di ResponseGenerator, serializzato da Jackson direttamente sullo stream
+// della risposta. Il JSON è quello della mappa usata in precedenza: "status" con "data", o con
+// "error" per gli errori del server.
+public sealed interface Risposta {
+
+  String SUCCESSO = "success";
+  String FALLIMENTO = "failure";
+  String ERRORE = "error";
+
+  String status();
+
+  record Dati(String status, Object data) implements Risposta {
+
+  }
+
+  record Errore(String status, String error) implements Risposta {
+
+  }
+
+}
@@ -8,9 +8,12 @@ import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.utils.ArchiviazioneProperties;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -23,6 +26,7 @@ import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 import org.springframework.web.multipart.MultipartFile;
@@ -46,7 +50,7 @@ public class ArchiviazioneFileSystemServiceBenchmark {
     tempDir = Files.createTempDirectory("greentrails-benchmark-");
     ArchiviazioneProperties properties = new ArchiviazioneProperties();
     properties.setLocation(tempDir.toString());
-    service = new ArchiviazioneFileSystemService(properties);
+    service = new ArchiviazioneFileSystemService(properties, event -> { });
     service.init();
 
     fileContent = ("immagine di test per il benchmark di upload, circa 100 byte.".repeat(5)
@@ -92,4 +96,78 @@ public class ArchiviazioneFileSystemServiceBenchmark {
     service.delete(media, "file1.jpg");
     bh.consume(true);
   }
+
+    // Upload concorrenti sulla stessa istanza del servizio e nella stessa cartella media, come
+    // più utenti che allegano foto alla stessa attività. I contenuti diversi finiscono in file
+    // distinti anche nello stesso secondo; quelli uguali vengono salvati una volta sola.
+    @State(Scope.Benchmark)
+    public static class Condiviso {
+
+        private ArchiviazioneService service;
+        private Path tempDir;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            tempDir = Files.createTempDirectory("greentrails-benchmark-concorrente-");
+            ArchiviazioneProperties properties = new ArchiviazioneProperties();
+            properties.setLocation(tempDir.toString());
+            service = new ArchiviazioneFileSystemService(properties, event -> { });
+            service.init();
+        }
+
+        // I contenuti diversi riempirebbero il disco: si riparte vuoti a ogni iterazione
+        @TearDown(Level.Iteration)
+        public void svuota() {
+            service.deleteAll();
+            service.init();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.deleteAll();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Upload {
+
+        // Una foto da 256 KB; i primi otto byte cambiano a ogni upload se i contenuti sono
+        // diversi
+        private final byte[] contenuto = new byte[256 * 1024];
+        private final ByteBuffer contatore = ByteBuffer.wrap(contenuto, 0, Long.BYTES);
+        private long numero = ThreadLocalRandom.current().nextLong();
+        private MultipartFile file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            new Random(42).nextBytes(contenuto);
+            file = mock(MultipartFile.class);
+            when(file.isEmpty()).thenReturn(false);
+            when(file.getContentType()).thenReturn("image/jpeg");
+            when(file.getOriginalFilename()).thenReturn("foto.jpg");
+            when(file.getInputStream()).thenAnswer(
+                inv -> new ByteArrayInputStream(contenuto));
+        }
+
+        MultipartFile diverso() {
+            contatore.putLong(0, numero++);
+            return file;
+        }
+
+        MultipartFile uguale() {
+            return file;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void benchmarkStoreConcorrenteContenutiDiversi(Condiviso condiviso, Upload upload) {
+        condiviso.service.store(media, upload.diverso());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void benchmarkStoreConcorrenteContenutiUguali(Condiviso condiviso, Upload upload) {
+        condiviso.service.store(media, upload.uguale());
+    }
 }
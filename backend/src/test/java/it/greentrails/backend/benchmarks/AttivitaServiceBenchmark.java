@@ -9,6 +9,7 @@ import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.AttivitaServiceImpl;
+import jakarta.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -54,7 +55,8 @@ public class AttivitaServiceBenchmark {
         when(repository.getAllByPrezzo(any(Pageable.class))).thenReturn(mockPage);
         when(repository.getAttivitaTuristiche(any(Pageable.class))).thenReturn(mockPage);
 
-        service = new AttivitaServiceImpl(repository);
+        service = new AttivitaServiceImpl(repository, event -> { },
+            mock(EntityManager.class));
     }
 
     @Benchmark
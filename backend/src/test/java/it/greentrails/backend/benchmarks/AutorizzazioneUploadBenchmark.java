@@ -0,0 +1,85 @@
+package it.greentrails.backend.benchmarks;
+
+import static org.mockito.Mockito.mock;
+
+import it.greentrails.backend.enums.TipoProprietarioMedia;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
+import it.greentrails.backend.gestioneupload.registro.RegistroMedia;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Autorizzazione di un upload con un milione di cartelle media registrate: la ricerca nel
+// registro, che aggiunge solo la ConcurrentHashMap e il controllo del null, contro una
+// HashMap<String, Proprietario> con le stesse chiavi. Le chiavi cercate sono tutte presenti,
+// quindi i repository non vengono mai interrogati. Ogni ricerca usa una stringa appena
+// costruita, come il parametro di una richiesta, e non l'istanza usata come chiave.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Threads(4)
+public class AutorizzazioneUploadBenchmark {
+
+    @Param({"1000000"})
+    private int numeroMedia;
+
+    private RegistroMedia registro;
+    private Map<String, RegistroMedia.Proprietario> mappa;
+    private long[] alti;
+    private long[] bassi;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        registro = new RegistroMedia(mock(AttivitaRepository.class),
+            mock(RecensioneRepository.class), mock(SegnalazioniRepository.class));
+        mappa = new HashMap<>();
+        alti = new long[numeroMedia];
+        bassi = new long[numeroMedia];
+        TipoProprietarioMedia[] tipi = TipoProprietarioMedia.values();
+        for (int i = 0; i < numeroMedia; i++) {
+            UUID uuid = UUID.randomUUID();
+            alti[i] = uuid.getMostSignificantBits();
+            bassi[i] = uuid.getLeastSignificantBits();
+            TipoProprietarioMedia tipo = tipi[i % tipi.length];
+            long idUtente = 1 + i % 50_000;
+            registro.registra(uuid.toString(), tipo, idUtente);
+            mappa.put(uuid.toString(), new RegistroMedia.Proprietario(tipo, idUtente));
+        }
+    }
+
+    private String mediaCasuale() {
+        int i = ThreadLocalRandom.current().nextInt(alti.length);
+        return new UUID(alti[i], bassi[i]).toString();
+    }
+
+    @Benchmark
+    public void benchmarkRegistroMedia(Blackhole bh) {
+        bh.consume(registro.proprietario(mediaCasuale()));
+    }
+
+    @Benchmark
+    public void benchmarkHashMap(Blackhole bh) {
+        bh.consume(mappa.get(mediaCasuale()));
+    }
+}
@@ -46,7 +46,7 @@ public class CameraServiceBenchmark {
         List<Camera> mockData = generateMockData(listSize);
         when(repository.findAll()).thenReturn(mockData);
 
-        service = new CameraServiceImpl(repository);
+        service = new CameraServiceImpl(repository, event -> { });
     }
 
     @Benchmark
@@ -46,7 +46,7 @@ public class CategoriaServiceImplBenchmark {
     when(repository.save(testCategoria)).thenReturn(testCategoria);
     when(repository.findById(existingId)).thenReturn(Optional.of(testCategoria));
 
-    service = new CategoriaServiceImpl(repository);
+    service = new CategoriaServiceImpl(repository, event -> { });
   }
 
   @Benchmark
@@ -3,11 +3,15 @@ package it.greentrails.backend.benchmarks;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.gestioneutenze.repository.PreferenzeRepository;
 import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import it.greentrails.backend.gestioneutenze.security.CacheCredenziali;
+import it.greentrails.backend.gestioneutenze.service.CacheUtenti;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeServiceImpl;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -49,7 +53,9 @@ public class GestioneUtenzeBenchmark {
         when(utenteRepository.findOneByEmail(targetEmail)).thenReturn(Optional.of(targetUtente));
         when(utenteRepository.findById(1L)).thenReturn(Optional.of(targetUtente));
 
-        service = new GestioneUtenzeServiceImpl(utenteRepository, preferenzeRepository);
+        service = new GestioneUtenzeServiceImpl(utenteRepository, preferenzeRepository,
+            new CacheCredenziali(), new CacheUtenti(new SimpleMeterRegistry()),
+            mock(CacheRisposte.class));
     }
 
     @Benchmark
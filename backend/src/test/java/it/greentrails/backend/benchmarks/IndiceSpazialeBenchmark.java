@@ -0,0 +1,107 @@
+package it.greentrails.backend.benchmarks;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.geo.Point;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class IndiceSpazialeBenchmark {
+
+  private static final double RAGGIO_TERRESTRE = 6_370_986;
+  private static final double LATITUDINE = 41.9028; // Roma
+  private static final double LONGITUDINE = 12.4964;
+
+  @Param({"10000", "100000", "1000000"})
+  private int listSize;
+
+  @Param({"5000", "50000"})
+  private double raggio;
+
+  private double[] latitudini;
+  private double[] longitudini;
+  private IndiceSpaziale indice;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    // Punti sparsi sul territorio italiano
+    Random random = new Random(42);
+    latitudini = new double[listSize];
+    longitudini = new double[listSize];
+    indice = new IndiceSpaziale();
+    for (int i = 0; i < listSize; i++) {
+      latitudini[i] = 36.6 + random.nextDouble() * 10.5;
+      longitudini[i] = 6.6 + random.nextDouble() * 12;
+      Attivita a = new Attivita();
+      a.setId((long) i);
+      a.setCoordinate(new Point(latitudini[i], longitudini[i]));
+      indice.aggiorna(a);
+    }
+    indice.segnaPronto();
+  }
+
+  // Equivalente in memoria di ST_Distance_Sphere su tutta la tabella
+  @Benchmark
+  public void benchmarkScansioneLineare(Blackhole bh) {
+    List<double[]> result = new ArrayList<>();
+    for (int i = 0; i < listSize; i++) {
+      double distanza = distanza(latitudini[i], longitudini[i]);
+      if (distanza <= raggio) {
+        result.add(new double[] {i, distanza});
+      }
+    }
+    result.sort(Comparator.comparingDouble(r -> r[1]));
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void benchmarkIndiceNelRaggio(Blackhole bh) {
+    bh.consume(indice.cercaNelRaggio(LATITUDINE, LONGITUDINE, raggio));
+  }
+
+  @Benchmark
+  public void benchmarkScansionePiuVicine(Blackhole bh) {
+    List<double[]> result = new ArrayList<>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      result.add(new double[] {i, distanza(latitudini[i], longitudini[i])});
+    }
+    result.sort(Comparator.comparingDouble(r -> r[1]));
+    bh.consume(result.subList(0, 10));
+  }
+
+  @Benchmark
+  public void benchmarkIndicePiuVicine(Blackhole bh) {
+    bh.consume(indice.cercaPiuVicine(LATITUDINE, LONGITUDINE, 10));
+  }
+
+  private static double distanza(double latitudine, double longitudine) {
+    double dLat = Math.toRadians(latitudine - LATITUDINE);
+    double dLon = Math.toRadians(longitudine - LONGITUDINE);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(LATITUDINE)) * Math.cos(Math.toRadians(latitudine))
+        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * RAGGIO_TERRESTRE * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+}
@@ -0,0 +1,111 @@
+package it.greentrails.backend.benchmarks;
+
+import it.greentrails.backend.BackendApplication;
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionOperations;
+
+// Inserimento di 100k prenotazioni su H2 con il contesto Spring del profilo di test.
+// Il risultato è il tempo medio per riga: "save" è una transazione per riga, come facevano i
+// vecchi percorsi, "saveAll" tiene tutte le righe nel contesto di persistenza fino al commit,
+// "bulkWriter" scrive a blocchi di hibernate.jdbc.batch_size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class InserimentoPrenotazioniBenchmark {
+
+    private static final int RIGHE = 100_000;
+
+    @Param({"save", "saveAll", "bulkWriter"})
+    private String modalita;
+
+    private ConfigurableApplicationContext context;
+    private PrenotazioneAttivitaTuristicaRepository repository;
+    private BulkWriter bulkWriter;
+    private TransactionOperations transazione;
+    private Attivita attivita;
+    private Itinerario itinerario;
+    private List<PrenotazioneAttivitaTuristica> prenotazioni;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(BackendApplication.class)
+            .run("--spring.profiles.active=test", "--server.port=0", "--logging.level.root=WARN");
+        repository = context.getBean(PrenotazioneAttivitaTuristicaRepository.class);
+        bulkWriter = context.getBean(BulkWriter.class);
+        transazione = context.getBean(TransactionOperations.class);
+        attivita = context.getBean(AttivitaRepository.class).findAll().stream()
+            .filter(a -> !a.isAlloggio())
+            .findFirst()
+            .orElseThrow();
+        itinerario = context.getBean(ItinerariRepository.class).findAll().get(0);
+    }
+
+    @Setup(Level.Iteration)
+    public void preparaPrenotazioni() {
+        Date domani = new Date(System.currentTimeMillis() + 86_400_000L);
+        prenotazioni = new ArrayList<>(RIGHE);
+        for (int i = 0; i < RIGHE; i++) {
+            PrenotazioneAttivitaTuristica p = new PrenotazioneAttivitaTuristica();
+            p.setAttivitaTuristica(attivita);
+            p.setItinerario(itinerario);
+            p.setNumAdulti(1 + i % 4);
+            p.setNumBambini(i % 3);
+            p.setDataInizio(domani);
+            p.setStato(StatoPrenotazione.CREATA);
+            p.setPrezzo(25.0);
+            prenotazioni.add(p);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void svuota() {
+        transazione.executeWithoutResult(stato -> repository.deleteAllInBatch());
+    }
+
+    @TearDown(Level.Trial)
+    public void chiudi() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIGHE)
+    public void benchmarkInserimento(Blackhole bh) {
+        switch (modalita) {
+            case "save" -> prenotazioni.forEach(p -> bh.consume(repository.save(p)));
+            case "saveAll" -> bh.consume(transazione.execute(
+                stato -> repository.saveAll(prenotazioni)));
+            default -> bh.consume(bulkWriter.inserisci(prenotazioni));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package it.greentrails.backend.benchmarks;
+
+import it.greentrails.backend.gestioneupload.service.InvioFile;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+
+// Download di un file da un Tomcat embedded vero, perché sendfile esiste solo nel connettore:
+// InvioFile contro il percorso precedente di serviFile, cioè una UrlResource scritta dal
+// ResourceHttpMessageConverter di Spring. Oltre alle richieste al secondo riporta i megabyte
+// al secondo e i millisecondi di CPU del processo al secondo; la CPU per richiesta è il loro
+// rapporto con ops/s. Il client è nello stesso processo e legge gli stessi byte in entrambi
+// i casi, quindi la differenza è quella del server.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class InvioFileBenchmark {
+
+    // Un'immagine e un video
+    @Param({"1", "64"})
+    private int megabyte;
+
+    private Path tempDir;
+    private Path file;
+    private Tomcat tomcat;
+    private String base;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Consumo {
+
+        public double megabyteInviati;
+        public double cpuMillisecondi;
+
+        private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory
+                .getOperatingSystemMXBean();
+        private long cpuIniziale;
+
+        @Setup(Level.Iteration)
+        public void inizio() {
+            megabyteInviati = 0;
+            cpuMillisecondi = 0;
+            cpuIniziale = os.getProcessCpuTime();
+        }
+
+        @TearDown(Level.Iteration)
+        public void fine() {
+            cpuMillisecondi = (os.getProcessCpuTime() - cpuIniziale) / 1_000_000.0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LifecycleException {
+        tempDir = Files.createTempDirectory("greentrails-invio-");
+        file = tempDir.resolve("video.mp4");
+        byte[] blocco = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(blocco);
+        try (OutputStream uscita = Files.newOutputStream(file)) {
+            for (int i = 0; i < megabyte; i++) {
+                uscita.write(blocco);
+            }
+        }
+
+        InvioFile invioFile = new InvioFile();
+        ResourceHttpMessageConverter converter = new ResourceHttpMessageConverter();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(tempDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", tempDir.toString());
+        Tomcat.addServlet(context, "nuovo", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+                invioFile.invia(new FileSystemResource(file), request, response);
+            }
+        });
+        // Lo stesso invio senza sendfile, come con un connettore che non lo supporta
+        Tomcat.addServlet(context, "trasferimento", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+                request.removeAttribute("org.apache.tomcat.sendfile.support");
+                invioFile.invia(new FileSystemResource(file), request, response);
+            }
+        });
+        Tomcat.addServlet(context, "precedente", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+                Resource risorsa = new UrlResource(file.toUri());
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + risorsa.getFilename() + "\"");
+                converter.write(risorsa, MediaType.APPLICATION_OCTET_STREAM,
+                    new ServletServerHttpResponse(response));
+            }
+        });
+        context.addServletMappingDecoded("/nuovo", "nuovo");
+        context.addServletMappingDecoded("/trasferimento", "trasferimento");
+        context.addServletMappingDecoded("/precedente", "precedente");
+        tomcat.getConnector();
+        tomcat.start();
+        base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        try (var walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(java.io.File::delete);
+        }
+    }
+
+    private long scarica(String percorso, String range) throws IOException {
+        HttpURLConnection connessione =
+            (HttpURLConnection) URI.create(base + percorso).toURL().openConnection();
+        if (range != null) {
+            connessione.setRequestProperty(HttpHeaders.RANGE, range);
+        }
+        long letti = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream ingresso = connessione.getInputStream()) {
+            int n;
+            while ((n = ingresso.read(buffer)) > 0) {
+                letti += n;
+            }
+        }
+        return letti;
+    }
+
+    @Benchmark
+    public long benchmarkPrecedente(Consumo consumo) throws IOException {
+        long letti = scarica("/precedente", null);
+        consumo.megabyteInviati += letti / (1024.0 * 1024.0);
+        return letti;
+    }
+
+    @Benchmark
+    public long benchmarkInvioFile(Consumo consumo) throws IOException {
+        long letti = scarica("/nuovo", null);
+        consumo.megabyteInviati += letti / (1024.0 * 1024.0);
+        return letti;
+    }
+
+    @Benchmark
+    public long benchmarkInvioFileSenzaSendfile(Consumo consumo) throws IOException {
+        long letti = scarica("/trasferimento", null);
+        consumo.megabyteInviati += letti / (1024.0 * 1024.0);
+        return letti;
+    }
+
+    // Un lettore video che salta a metà file chiede solo il pezzo che gli serve; il percorso
+    // precedente ignorava il Range e spediva tutto il file
+    @Benchmark
+    public long benchmarkInvioFileRange(Consumo consumo) throws IOException {
+        long meta = megabyte * 512L * 1024;
+        long letti = scarica("/nuovo", "bytes=" + meta + "-" + (meta + 256 * 1024 - 1));
+        consumo.megabyteInviati += letti / (1024.0 * 1024.0);
+        return letti;
+    }
+}
@@ -9,15 +9,29 @@ import it.greentrails.backend.entities.Camera;
 import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.Preferenze;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.CategorieAttivitaTuristica;
+import it.greentrails.backend.enums.PreferenzeAlloggio;
+import it.greentrails.backend.enums.PreferenzeAttivita;
+import it.greentrails.backend.enums.PreferenzeBudget;
+import it.greentrails.backend.enums.PreferenzeStagione;
+import it.greentrails.backend.events.CameraModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
 import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
 import it.greentrails.backend.gestioneitinerari.adapter.ItinerariAdapter;
+import it.greentrails.backend.gestioneitinerari.adapter.ItinerariPianificatoreAdapter;
 import it.greentrails.backend.gestioneitinerari.adapter.ItinerariStubAdapter;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari;
 import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -33,6 +47,8 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.geo.Point;
+import org.springframework.transaction.support.TransactionOperations;
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
@@ -42,14 +58,16 @@ import org.openjdk.jmh.infra.Blackhole;
 @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
 public class ItinerariAdapterBenchmark {
 
-    @Param({"100", "1000", "5000", "10000"})
+    @Param({"100", "1000", "5000", "10000", "100000"})
     private int listSize;
 
     private ItinerariAdapter adapter;
+    // Il motore con gli indici precalcolati, sugli stessi dati
+    private ItinerariAdapter pianificatore;
     private Preferenze dummyPreferenze;
 
     @Setup(Level.Trial)
-    public void setup() {
+    public void setup() throws Exception {
         AttivitaRepository attivitaRepo = mock(AttivitaRepository.class);
         CameraRepository cameraRepo = mock(CameraRepository.class);
         ItinerariRepository itinerariRepo = mock(ItinerariRepository.class);
@@ -58,7 +76,7 @@ public class ItinerariAdapterBenchmark {
 
         // Prepare Mock Data
         List<Attivita> mockAttivita = generateAttivita(listSize);
-        List<Camera> mockCamere = generateCamere(listSize);
+        List<Camera> mockCamere = generateCamere(listSize, mockAttivita);
 
         when(attivitaRepo.findAll()).thenReturn(mockAttivita);
         when(cameraRepo.findAll()).thenReturn(mockCamere);
@@ -76,7 +94,42 @@ public class ItinerariAdapterBenchmark {
             cameraRepo, 
             itinerariRepo, 
             prenAlloggioRepo, 
-            prenAttivitaRepo
+            prenAttivitaRepo,
+            event -> { }
+        );
+
+        // L'indice viene riempito come da CaricatoreIndici e dagli eventi delle camere; la
+        // prima pianificazione lo prepara, fuori dalla misura
+        IndiceItinerari indice = new IndiceItinerari(cameraRepo);
+        mockAttivita.forEach(indice::aggiorna);
+        for (Camera camera : mockCamere) {
+            indice.onCameraModificata(new CameraModificataEvent(camera, false));
+        }
+        indice.segnaPronto();
+        when(attivitaRepo.findById(any())).thenAnswer(i ->
+            Optional.of(mockAttivita.get(((Long) i.getArgument(0)).intValue())));
+        when(cameraRepo.findById(any())).thenAnswer(i ->
+            Optional.of(mockCamere.get(((Long) i.getArgument(0)).intValue())));
+        // Posti sempre liberi: si misura la scelta, non il calendario
+        PrenotazioneAlloggioService alloggioService = mock(PrenotazioneAlloggioService.class);
+        PrenotazioneAttivitaTuristicaService attivitaService =
+            mock(PrenotazioneAttivitaTuristicaService.class);
+        when(alloggioService.controllaDisponibilitaCamera(any(), any(), any()))
+            .thenReturn(Integer.MAX_VALUE);
+        when(attivitaService.controllaDisponibilitaAttivitaTuristica(any(), any()))
+            .thenReturn(Integer.MAX_VALUE);
+        pianificatore = new ItinerariPianificatoreAdapter(
+            indice,
+            attivitaRepo,
+            cameraRepo,
+            itinerariRepo,
+            prenAlloggioRepo,
+            prenAttivitaRepo,
+            alloggioService,
+            attivitaService,
+            new AmmissionePrenotazioni(),
+            TransactionOperations.withoutTransaction(),
+            event -> { }
         );
 
         // Dummy Preferenze
@@ -84,14 +137,25 @@ public class ItinerariAdapterBenchmark {
         Utente u = new Utente();
         u.setId(1L);
         dummyPreferenze.setVisitatore(u);
+        dummyPreferenze.setAlloggioPreferito(PreferenzeAlloggio.BED_AND_BREAKFAST);
+        dummyPreferenze.setAttivitaPreferita(PreferenzeAttivita.ALL_APERTO);
+        dummyPreferenze.setBudgetPreferito(PreferenzeBudget.MEDIO);
+        dummyPreferenze.setStagioniPreferite(PreferenzeStagione.PRIMAVERA_ESTATE);
+        pianificatore.pianificazioneAutomatica(dummyPreferenze);
     }
 
     @Benchmark
-    public void benchmarkPianificazione(Blackhole bh) {
+    public void benchmarkPianificazione(Blackhole bh) throws Exception {
         Itinerario result = adapter.pianificazioneAutomatica(dummyPreferenze);
         bh.consume(result);
     }
 
+    @Benchmark
+    public void benchmarkPianificazioneIndicizzata(Blackhole bh) throws Exception {
+        Itinerario result = pianificatore.pianificazioneAutomatica(dummyPreferenze);
+        bh.consume(result);
+    }
+
     private List<Attivita> generateAttivita(int size) {
         List<Attivita> list = new ArrayList<>(size);
         Random r = new Random(42);
@@ -102,18 +166,33 @@ public class ItinerariAdapterBenchmark {
             // Mix of Alloggio (true) and Attivita Turistica (false)
             // Adapter filters for !isAlloggio
             a.setAlloggio(r.nextBoolean()); 
+            if (a.isAlloggio()) {
+                a.setCategoriaAlloggio(CategorieAlloggio.values()[r.nextInt(4)]);
+            } else {
+                a.setCategoriaAttivitaTuristica(CategorieAttivitaTuristica.values()[r.nextInt(4)]);
+            }
+            // Punti sparsi sull'Italia (x = latitudine, y = longitudine)
+            a.setCoordinate(new Point(37 + r.nextDouble() * 9, 7 + r.nextDouble() * 11));
+            ValoriEcosostenibilita v = new ValoriEcosostenibilita();
+            v.setEnergiaVerde(r.nextBoolean());
+            v.setProdottiLocali(r.nextBoolean());
+            v.setRaccoltaDifferenziata(r.nextBoolean());
+            a.setValoriEcosostenibilita(v);
             list.add(a);
         }
         return list;
     }
 
-    private List<Camera> generateCamere(int size) {
+    // Ogni camera appartiene a un alloggio estratto a caso
+    private List<Camera> generateCamere(int size, List<Attivita> attivita) {
+        List<Attivita> alloggi = attivita.stream().filter(Attivita::isAlloggio).toList();
         List<Camera> list = new ArrayList<>(size);
         Random r = new Random(42);
         for (int i = 0; i < size; i++) {
             Camera c = new Camera();
             c.setId((long) i);
             c.setPrezzo(50.0 + r.nextDouble() * 200);
+            c.setAlloggio(alloggi.get(r.nextInt(alloggi.size())));
             list.add(c);
         }
         return list;
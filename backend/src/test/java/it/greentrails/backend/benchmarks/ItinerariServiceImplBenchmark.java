@@ -58,7 +58,7 @@ public class ItinerariServiceImplBenchmark {
   private long existingId = 1L;
 
   @Setup(Level.Trial)
-  public void setup() {
+  public void setup() throws Exception {
     repository = mock(ItinerariRepository.class);
     PrenotazioneAlloggioService prenAlloggioService = mock(PrenotazioneAlloggioService.class);
     PrenotazioneAttivitaTuristicaService prenAttivitaService = mock(
@@ -98,7 +98,7 @@ public class ItinerariServiceImplBenchmark {
 
     service = new ItinerariServiceImpl(
         repository, prenAlloggioService, prenAttivitaService,
-        prenAlloggioRepo, prenAttivitaRepo, adapter);
+        prenAlloggioRepo, prenAttivitaRepo, adapter, event -> { });
   }
 
   @Benchmark
@@ -1,5 +1,8 @@
 package it.greentrails.backend.benchmarks;
 
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneutenze.security.AutenticazioneConCache;
+import it.greentrails.backend.gestioneutenze.security.CacheCredenziali;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -12,6 +15,10 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -25,12 +32,33 @@ public class PasswordEncodingBenchmark {
 
     private PasswordEncoder passwordEncoder;
     private String rawPassword;
+    private AuthenticationProvider senzaCache;
+    private AuthenticationProvider conCache;
 
     @Setup
     public void setup() {
         // Default strength is 10
         passwordEncoder = new BCryptPasswordEncoder();
         rawPassword = "passwordSuperSicura123!";
+
+        // Stesso utente restituito a ogni richiesta, come farebbe il repository
+        Utente utente = new Utente();
+        utente.setId(1L);
+        utente.setEmail("marco@test.it");
+        utente.setPassword(passwordEncoder.encode(rawPassword));
+        UserDetailsService userDetailsService = username -> utente;
+
+        DaoAuthenticationProvider dao = new DaoAuthenticationProvider(userDetailsService);
+        dao.setPasswordEncoder(passwordEncoder);
+        senzaCache = dao;
+        conCache = new AutenticazioneConCache(userDetailsService, passwordEncoder,
+            new CacheCredenziali());
+        // La prima richiesta paga BCrypt e riempie la cache
+        conCache.authenticate(richiesta());
+    }
+
+    private UsernamePasswordAuthenticationToken richiesta() {
+        return UsernamePasswordAuthenticationToken.unauthenticated("marco@test.it", rawPassword);
     }
 
     @Benchmark
@@ -46,5 +74,16 @@ public class PasswordEncodingBenchmark {
         boolean match = passwordEncoder.matches(rawPassword, encoded);
         bh.consume(match);
     }
-}
 
+    // Una richiesta HTTP Basic senza cache: BCrypt a ogni chiamata
+    @Benchmark
+    public void benchmarkAutenticazioneSenzaCache(Blackhole bh) {
+        bh.consume(senzaCache.authenticate(richiesta()));
+    }
+
+    // Stessa richiesta con le credenziali già verificate: resta solo l'HMAC della chiave
+    @Benchmark
+    public void benchmarkAutenticazioneConCache(Blackhole bh) {
+        bh.consume(conCache.authenticate(richiesta()));
+    }
+}
\ No newline at end of file
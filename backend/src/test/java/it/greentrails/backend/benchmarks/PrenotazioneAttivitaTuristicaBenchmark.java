@@ -5,6 +5,8 @@ import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaServiceImpl;
@@ -46,7 +48,8 @@ public class PrenotazioneAttivitaTuristicaBenchmark {
         List<PrenotazioneAttivitaTuristica> mockData = generateMockData(listSize);
         when(repository.findAll()).thenReturn(mockData);
 
-        service = new PrenotazioneAttivitaTuristicaServiceImpl(repository);
+        service = new PrenotazioneAttivitaTuristicaServiceImpl(repository,
+            new AmmissionePrenotazioni(), new CalendarioAttivita(repository), event -> { });
     }
 
     @Benchmark
@@ -1,15 +1,27 @@
 package it.greentrails.backend.benchmarks;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
 import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.DisponibilitaCamera;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioCamere;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneCamera;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioServiceImpl;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +38,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Limit;
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
@@ -39,16 +52,44 @@ public class PrenotazioneBenchmark {
     private int listSize;
 
     private PrenotazioneAlloggioService service;
+    private Camera camera;
+    private Attivita alloggio;
+    private Date dataInizio;
+    private Date dataFine;
 
     @Setup(Level.Trial)
     public void setup() {
         PrenotazioneAlloggioRepository repository = mock(PrenotazioneAlloggioRepository.class);
         CameraService cameraService = mock(CameraService.class);
+        CameraRepository cameraRepository = mock(CameraRepository.class);
         
         List<PrenotazioneAlloggio> mockData = generateMockData(listSize);
         when(repository.findAll()).thenReturn(mockData);
 
-        service = new PrenotazioneAlloggioServiceImpl(repository, cameraService);
+        // Tutte le prenotazioni sulla stessa camera, sparse nell'arco di tre anni
+        alloggio = new Attivita();
+        alloggio.setId(1L);
+        alloggio.setAlloggio(true);
+        camera = new Camera();
+        camera.setId(1L);
+        camera.setAlloggio(alloggio);
+        camera.setDisponibilita(listSize);
+        List<OccupazioneCamera> occupazioni = generateOccupazioni(listSize);
+        when(cameraRepository.findDisponibilita())
+            .thenReturn(List.of(new DisponibilitaCamera(1L, 1L, listSize)));
+        when(repository.findOccupazioniDopo(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long ultimoId = invocation.getArgument(0);
+            int limite = ((Limit) invocation.getArgument(1)).max();
+            int inizio = (int) Math.min(ultimoId, occupazioni.size());
+            return occupazioni.subList(inizio, Math.min(inizio + limite, occupazioni.size()));
+        });
+        CalendarioCamere calendario = new CalendarioCamere(repository, cameraRepository);
+        calendario.ricostruisci();
+        dataInizio = data(LocalDate.of(2025, 7, 1));
+        dataFine = data(LocalDate.of(2025, 7, 14));
+
+        service = new PrenotazioneAlloggioServiceImpl(repository, cameraService, calendario,
+            new AmmissionePrenotazioni(), event -> { });
     }
 
     @Benchmark
@@ -58,6 +99,32 @@ public class PrenotazioneBenchmark {
         bh.consume(result);
     }
 
+    @Benchmark
+    public void benchmarkDisponibilitaCamera(Blackhole bh) throws Exception {
+        bh.consume(service.controllaDisponibilitaCamera(camera, dataInizio, dataFine));
+    }
+
+    @Benchmark
+    public void benchmarkDisponibilitaAlloggio(Blackhole bh) throws Exception {
+        bh.consume(service.controllaDisponibilitaAlloggio(alloggio, dataInizio, dataFine));
+    }
+
+    private List<OccupazioneCamera> generateOccupazioni(int size) {
+        List<OccupazioneCamera> data = new ArrayList<>(size);
+        Random random = new Random(42);
+        LocalDate primo = LocalDate.of(2024, 1, 1);
+        for (int i = 1; i <= size; i++) {
+            LocalDate inizio = primo.plusDays(random.nextInt(3 * 365));
+            data.add(new OccupazioneCamera((long) i, 1L, 1L, data(inizio),
+                data(inizio.plusDays(1 + random.nextInt(14))), 1 + random.nextInt(3)));
+        }
+        return data;
+    }
+
+    private static Date data(LocalDate giorno) {
+        return Date.from(giorno.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
     private List<PrenotazioneAlloggio> generateMockData(int size) {
         List<PrenotazioneAlloggio> data = new ArrayList<>(size);
         Random random = new Random(42);
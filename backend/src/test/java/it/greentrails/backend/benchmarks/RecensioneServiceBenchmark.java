@@ -3,11 +3,20 @@ package it.greentrails.backend.benchmarks;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import it.greentrails.backend.BackendApplication;
+import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
+import it.greentrails.backend.gestioneattivita.aggregati.AggregatiRecensioni;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
 import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.gestioneattivita.repository.ValoriEcosostenibilitaRepository;
 import it.greentrails.backend.gestioneattivita.service.RecensioneService;
 import it.greentrails.backend.gestioneattivita.service.RecensioneServiceImpl;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -23,8 +32,11 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
@@ -46,7 +58,8 @@ public class RecensioneServiceBenchmark {
         List<Recensione> mockData = generateMockData(listSize);
         when(repository.findAll()).thenReturn(mockData);
 
-        service = new RecensioneServiceImpl(repository);
+        service = new RecensioneServiceImpl(repository, event -> { },
+                mock(AggregatiRecensioni.class));
     }
 
     @Benchmark
@@ -55,6 +68,67 @@ public class RecensioneServiceBenchmark {
         bh.consume(result);
     }
 
+    // Le recensioni di una sola attività su H2 con il contesto Spring del profilo di test:
+    // la prima pagina a cursore legge solo le sue righe dall'indice, l'elenco completo le
+    // legge tutte. Da eseguire con -p listSize=1000, il parametro dei benchmark sui mock
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        @Param({"1000", "100000"})
+        private int recensioni;
+
+        private ConfigurableApplicationContext context;
+        private RecensioneService service;
+        private Attivita attivita;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            context = new SpringApplicationBuilder(BackendApplication.class)
+                .run("--spring.profiles.active=test", "--server.port=0",
+                    "--logging.level.root=WARN");
+            service = context.getBean(RecensioneService.class);
+            attivita = context.getBean(AttivitaRepository.class).findAll().getFirst();
+            Utente visitatore = context.getBean(UtenteRepository.class)
+                .findOneByEmail("marco@test.it").orElseThrow();
+            ValoriEcosostenibilita valori = context.getBean(ValoriEcosostenibilitaRepository.class)
+                .save(new ValoriEcosostenibilita());
+            List<Recensione> righe = new ArrayList<>(recensioni);
+            Random random = new Random(42);
+            for (int i = 0; i < recensioni; i++) {
+                Recensione r = new Recensione();
+                r.setAttivita(attivita);
+                r.setVisitatore(visitatore);
+                r.setValutazioneStelleEsperienza(random.nextInt(6));
+                r.setDescrizione("Recensione " + i);
+                r.setValoriEcosostenibilita(valori);
+                righe.add(r);
+            }
+            context.getBean(BulkWriter.class).inserisci(righe);
+        }
+
+        @TearDown(Level.Trial)
+        public void chiudi() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void benchmarkPrimaPaginaRecenti(Database db, Blackhole bh) throws Exception {
+        bh.consume(db.service.getPaginaByAttivita(db.attivita.getId(),
+            OrdinamentoRecensioni.RECENTI, null, 20));
+    }
+
+    @Benchmark
+    public void benchmarkPrimaPaginaPerValutazione(Database db, Blackhole bh) throws Exception {
+        bh.consume(db.service.getPaginaByAttivita(db.attivita.getId(),
+            OrdinamentoRecensioni.VALUTAZIONE, null, 20));
+    }
+
+    @Benchmark
+    public void benchmarkTutteLeRecensioni(Database db, Blackhole bh) throws Exception {
+        bh.consume(db.service.getRecensioniByAttivita(db.attivita));
+    }
+
     private List<Recensione> generateMockData(int size) {
         List<Recensione> data = new ArrayList<>(size);
         Random random = new Random(42);
@@ -0,0 +1,132 @@
+package it.greentrails.backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.utils.service.ResponseGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.geo.Point;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Costruzione e serializzazione sullo stream di una risposta con un elenco di attività, come
+// fa il convertitore JSON di Spring: "mappa" è l'involucro HashMap usato in precedenza,
+// "record" quello di ResponseGenerator. I byte allocati per risposta sono gc.alloc.rate.norm
+// eseguendo con -prof gc.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class ResponseGeneratorBenchmark {
+
+    @Param({"1", "1000"})
+    private int attivita;
+
+    private ObjectMapper objectMapper;
+    private List<Attivita> elenco;
+    private Exception eccezione;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Utente gestore = new Utente();
+        gestore.setId(1L);
+        gestore.setNome("Mario");
+        gestore.setCognome("Rossi");
+        gestore.setEmail("gestore@test.it");
+        gestore.setRuolo(RuoloUtente.GESTORE_ATTIVITA);
+        ValoriEcosostenibilita valori = new ValoriEcosostenibilita();
+        valori.setId(1L);
+        valori.setEnergiaVerde(true);
+        elenco = new ArrayList<>(attivita);
+        for (long id = 1; id <= attivita; id++) {
+            Attivita a = new Attivita();
+            a.setId(id);
+            a.setGestore(gestore);
+            a.setNome("Alloggio " + id);
+            a.setIndirizzo("Via Roma " + id);
+            a.setCap("84084");
+            a.setCitta("Fisciano");
+            a.setProvincia("SA");
+            a.setCoordinate(new Point(40.77, 14.79));
+            a.setPrezzo(50.0 + id % 100);
+            a.setDescrizioneBreve("Descrizione breve " + id);
+            a.setDescrizioneLunga("Descrizione lunga dell'alloggio " + id);
+            a.setMedia("media-" + id);
+            a.setDisponibilita(10);
+            a.setValoriEcosostenibilita(valori);
+            a.setAlloggio(true);
+            a.setCategoriaAlloggio(CategorieAlloggio.HOTEL);
+            elenco.add(a);
+        }
+        eccezione = new Exception("Attività non trovata.");
+    }
+
+    // ResponseGenerator prima dell'involucro tipizzato
+    private static ResponseEntity<Object> mappa(HttpStatus statusCode, Object response) {
+        Map<String, Object> responseMap = new HashMap<>();
+        String message;
+        if (statusCode.isError()) {
+            if (statusCode.is4xxClientError()) {
+                responseMap.put("data", response);
+                message = "failure";
+            } else {
+                responseMap.put("error", response.toString());
+                message = "error";
+            }
+        } else {
+            responseMap.put("data", response);
+            message = "success";
+        }
+        responseMap.put("status", message);
+        return new ResponseEntity<>(responseMap, statusCode);
+    }
+
+    private void scrivi(ResponseEntity<Object> risposta) throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), risposta.getBody());
+    }
+
+    @Benchmark
+    public void benchmarkMappa() throws IOException {
+        scrivi(mappa(HttpStatus.OK, elenco));
+    }
+
+    @Benchmark
+    public void benchmarkRecord() throws IOException {
+        scrivi(ResponseGenerator.generateResponse(HttpStatus.OK, elenco));
+    }
+
+    @Benchmark
+    public void benchmarkErroreMappa() throws IOException {
+        scrivi(mappa(HttpStatus.INTERNAL_SERVER_ERROR, eccezione));
+    }
+
+    @Benchmark
+    public void benchmarkErroreRecord() throws IOException {
+        scrivi(ResponseGenerator.generateResponse(HttpStatus.INTERNAL_SERVER_ERROR, eccezione));
+    }
+}
@@ -1,17 +1,22 @@
 package it.greentrails.backend.benchmarks;
 
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Categoria;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import it.greentrails.backend.gestionericerca.service.PianificatoreRicerca;
 import it.greentrails.backend.gestionericerca.service.RicercaService;
 import it.greentrails.backend.gestionericerca.service.RicercaServiceImpl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -45,16 +50,25 @@ public class RicercaCategorieBenchmark {
     private int numCategories;
 
     private RicercaService service;
+    private IndiceCategorie indiceCategorie;
     private List<Categoria> targetCategories;
+    private List<Long> targetIds;
+    private Map<Long, List<Attivita>> mockDatabase;
 
     @Setup(Level.Trial)
     public void setup() {
         AttivitaRepository repository = mock(AttivitaRepository.class);
-        service = new RicercaServiceImpl(repository);
-        
+        IndiceTestuale indiceTestuale = new IndiceTestuale();
+        IndiceSpaziale indiceSpaziale = new IndiceSpaziale();
+        indiceCategorie = new IndiceCategorie();
+        service = new RicercaServiceImpl(repository, indiceTestuale, indiceSpaziale,
+            indiceCategorie,
+            new PianificatoreRicerca(indiceTestuale, indiceSpaziale, indiceCategorie));
+
         targetCategories = new ArrayList<>();
-        Map<Long, List<Attivita>> mockDatabase = new HashMap<>();
-        
+        mockDatabase = new HashMap<>();
+        Map<Long, Attivita> catalogo = new HashMap<>();
+
         // Generiamo le categorie
         for (int i = 0; i < numCategories; i++) {
             Categoria c = new Categoria();
@@ -62,45 +76,80 @@ public class RicercaCategorieBenchmark {
             c.setNome("Categoria " + i);
             targetCategories.add(c);
         }
+        targetIds = targetCategories.stream().map(Categoria::getId).toList();
 
         // Generiamo le liste di attività per ogni categoria
         // Strategia:
         // Creiamo 'listSize' elementi per ogni categoria.
-        // Una frazione (es. 20%) sarÃ  comune a TUTTE le categorie (IDs 0..N*0.2)
-        // Il resto saranno ID casuali o specifici per quella categoria per rendere l'intersezione costosa ma non vuota.
-        
+        // Una frazione (es. 20%) sarà comune a TUTTE le categorie (IDs 0..N*0.2)
+        // Il resto saranno ID specifici per quella categoria, assegnati in sequenza come farebbe
+        // il database, per rendere l'intersezione costosa ma non vuota.
+
         int commonCount = (int) (listSize * 0.2); // 20% in comune
-        
+
         for (Categoria cat : targetCategories) {
             List<Attivita> attivitaList = new ArrayList<>(listSize);
-            
+
             // Aggiungi elementi comuni
             for (int k = 0; k < commonCount; k++) {
-                Attivita a = new Attivita();
-                a.setId((long) k);
-                attivitaList.add(a);
+                attivitaList.add(
+                    catalogo.computeIfAbsent((long) k, RicercaCategorieBenchmark::attivita));
             }
-            
-            // Aggiungi elementi specifici per questa categoria (offset elevato per evitare collisioni non volute)
-            long offset = 1000000L + (cat.getId() * listSize);
+
+            // Aggiungi elementi specifici per questa categoria
+            long offset = cat.getId() * listSize;
             for (int k = commonCount; k < listSize; k++) {
-                Attivita a = new Attivita();
-                a.setId(offset + k);
-                attivitaList.add(a);
+                attivitaList.add(
+                    catalogo.computeIfAbsent(offset + k, RicercaCategorieBenchmark::attivita));
             }
-            
-            // Shuffle per rendere things more realistic (e slower contains?)
+
+            // Shuffle per rendere più realistico l'ordine restituito dal database
             Collections.shuffle(attivitaList, new Random(42));
-            
+
             mockDatabase.put(cat.getId(), attivitaList);
+            for (Attivita a : attivitaList) {
+                indiceCategorie.assegna(a.getId(), cat.getId());
+            }
         }
+        indiceCategorie.segnaPronto();
 
-        when(repository.findByCategoria(anyLong())).thenAnswer(invocation -> {
-            Long catId = invocation.getArgument(0);
-            return mockDatabase.getOrDefault(catId, new ArrayList<>());
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Attivita> trovate = new ArrayList<>();
+            for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+                trovate.add(catalogo.get(id));
+            }
+            return trovate;
         });
     }
 
+    private static Attivita attivita(long id) {
+        Attivita a = new Attivita();
+        a.setId(id);
+        return a;
+    }
+
+    // Intersezione delle liste di entità di ogni categoria, come avveniva prima dell'indice
+    @Benchmark
+    public void benchmarkIntersezioneListe(Blackhole bh) {
+        List<Attivita> result = new ArrayList<>(mockDatabase.get(targetIds.get(0)));
+        for (int i = 1; i < targetIds.size(); i++) {
+            result.retainAll(new HashSet<>(mockDatabase.get(targetIds.get(i))));
+        }
+        bh.consume(result);
+    }
+
+    @Benchmark
+    public void benchmarkBitmapTutte(Blackhole bh) {
+        bh.consume(indiceCategorie.filtra(targetIds, List.of(), List.of()));
+    }
+
+    // Almeno una delle prime categorie, esclusa l'ultima
+    @Benchmark
+    public void benchmarkBitmapAlmenoUnaEsclusa(Blackhole bh) {
+        bh.consume(indiceCategorie.filtra(List.of(), targetIds.subList(0, numCategories - 1),
+            targetIds.subList(numCategories - 1, numCategories)));
+    }
+
     @Benchmark
     public void benchmarkIntersezioneCategorie(Blackhole bh) {
         List<Attivita> result = service.findAttivitaByCategorie(targetCategories);
@@ -108,4 +157,3 @@ public class RicercaCategorieBenchmark {
     }
 
 }
-
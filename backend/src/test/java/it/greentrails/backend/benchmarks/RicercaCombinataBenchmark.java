@@ -0,0 +1,122 @@
+package it.greentrails.backend.benchmarks;
+
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import it.greentrails.backend.gestionericerca.service.CriteriRicerca;
+import it.greentrails.backend.gestionericerca.service.PianificatoreRicerca;
+import it.greentrails.backend.gestionericerca.service.RicercaService;
+import it.greentrails.backend.gestionericerca.service.RicercaServiceImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.geo.Point;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class RicercaCombinataBenchmark {
+
+  private static final String[] TIPI = {"Hotel", "Agriturismo", "Ostello", "Escursione",
+      "Tour", "Degustazione", "Museo", "Spiaggia", "Rifugio", "Campeggio"};
+  private static final String[] CITTA = {"Roma", "Milano", "Napoli", "Firenze", "Bologna",
+      "Torino", "Palermo", "Genova", "Bari", "Venezia"};
+  private static final Point ROMA = new Point(41.9028, 12.4964);
+  private static final double RAGGIO = 20_000;
+
+  @Param({"10000", "100000"})
+  private int listSize;
+
+  private List<Attivita> catalogo;
+  private List<Long> idCategoria;
+  private IndiceTestuale indiceTestuale;
+  private IndiceSpaziale indiceSpaziale;
+  private RicercaService service;
+  private CriteriRicerca criteri;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(42);
+    catalogo = new ArrayList<>(listSize);
+    idCategoria = new ArrayList<>();
+    indiceTestuale = new IndiceTestuale();
+    indiceSpaziale = new IndiceSpaziale();
+    IndiceCategorie indiceCategorie = new IndiceCategorie();
+    for (int i = 0; i < listSize; i++) {
+      Attivita a = new Attivita();
+      a.setId((long) i);
+      a.setNome(TIPI[random.nextInt(TIPI.length)] + " " + i);
+      a.setCitta(CITTA[random.nextInt(CITTA.length)]);
+      a.setCoordinate(new Point(36.6 + random.nextDouble() * 10.5,
+          6.6 + random.nextDouble() * 12));
+      catalogo.add(a);
+      indiceTestuale.aggiorna(a);
+      indiceSpaziale.aggiorna(a);
+      if (random.nextInt(4) == 0) {
+        idCategoria.add(a.getId());
+        indiceCategorie.assegna(a.getId(), 1L);
+      }
+    }
+    indiceTestuale.segnaPronto();
+    indiceSpaziale.segnaPronto();
+    indiceCategorie.segnaPronto();
+    AttivitaRepository repository = mock(AttivitaRepository.class);
+    when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      List<Attivita> trovate = new ArrayList<>();
+      for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+        trovate.add(catalogo.get(id.intValue()));
+      }
+      return trovate;
+    });
+    service = new RicercaServiceImpl(repository, indiceTestuale, indiceSpaziale, indiceCategorie,
+        new PianificatoreRicerca(indiceTestuale, indiceSpaziale, indiceCategorie));
+    criteri = new CriteriRicerca("hotel", List.of(1L), ROMA, RAGGIO);
+  }
+
+  // Come il vecchio RicercaController.cerca: tre liste di entità intersecate con contains
+  @Benchmark
+  public void benchmarkIntersezioneListe(Blackhole bh) {
+    List<Attivita> risultati = indiceTestuale.cerca("hotel").stream()
+        .map(id -> catalogo.get(id.intValue()))
+        .collect(Collectors.toList());
+    List<Attivita> categoria = idCategoria.stream()
+        .map(id -> catalogo.get(id.intValue()))
+        .toList();
+    risultati = categoria.stream().filter(risultati::contains).collect(Collectors.toList());
+    risultati = indiceSpaziale.cercaNelRaggio(ROMA.getX(), ROMA.getY(), RAGGIO).stream()
+        .map(r -> catalogo.get((int) r.idAttivita()))
+        .filter(risultati::contains)
+        .collect(Collectors.toList());
+    bh.consume(risultati);
+  }
+
+  @Benchmark
+  public void benchmarkPianificatore(Blackhole bh) {
+    bh.consume(service.cerca(criteri, 0, 20));
+  }
+
+}
@@ -5,6 +5,10 @@ import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import it.greentrails.backend.gestionericerca.service.PianificatoreRicerca;
 import it.greentrails.backend.gestionericerca.service.RicercaService;
 import it.greentrails.backend.gestionericerca.service.RicercaServiceImpl;
 import java.util.ArrayList;
@@ -46,7 +50,12 @@ public class RicercaServiceBenchmark {
         List<Attivita> mockData = generateMockData(listSize);
         when(repository.findAll()).thenReturn(mockData);
 
-        service = new RicercaServiceImpl(repository);
+        IndiceTestuale indiceTestuale = new IndiceTestuale();
+        IndiceSpaziale indiceSpaziale = new IndiceSpaziale();
+        IndiceCategorie indiceCategorie = new IndiceCategorie();
+        service = new RicercaServiceImpl(repository, indiceTestuale, indiceSpaziale,
+            indiceCategorie,
+            new PianificatoreRicerca(indiceTestuale, indiceSpaziale, indiceCategorie));
         targetPoint = new Point(41.9028, 12.4964); // Roma
     }
 
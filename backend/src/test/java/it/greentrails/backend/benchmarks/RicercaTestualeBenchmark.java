@@ -1,14 +1,24 @@
 package it.greentrails.backend.benchmarks;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.CaricatoreIndici;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import it.greentrails.backend.gestionericerca.service.PianificatoreRicerca;
 import it.greentrails.backend.gestionericerca.service.RicercaService;
 import it.greentrails.backend.gestionericerca.service.RicercaServiceImpl;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -23,6 +33,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Limit;
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.AverageTime)
@@ -32,19 +43,66 @@ import org.openjdk.jmh.infra.Blackhole;
 @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
 public class RicercaTestualeBenchmark {
 
-  @Param({"100", "1000", "5000", "10000"})
+  private static final String[] TIPI = {"Hotel", "Agriturismo", "Ostello", "Escursione",
+      "Tour", "Degustazione", "Museo", "Spiaggia", "Bed And Breakfast", "Rifugio"};
+  private static final String[] AGGETTIVI = {"Verde", "Bio", "Solare", "Antico", "Panoramico",
+      "Sostenibile", "del Borgo", "sul Lago", "al Mare", "in Collina"};
+  private static final String[] CITTA = {"Roma", "Milano", "Napoli", "Firenze", "Bologna",
+      "Torino", "Palermo", "Genova", "Bari", "Venezia", "Trento", "Perugia", "Cagliari",
+      "Matera", "Lecce", "Siena", "Pisa", "Como", "Assisi", "Amalfi"};
+  private static final String[] DESCRIZIONI = {"energia rinnovabile e prodotti a km zero",
+      "vista sul mare e colazione biologica", "passeggiate nei boschi e nei sentieri",
+      "cucina tradizionale e vini del territorio", "visite guidate nel centro storico",
+      "piscina riscaldata con pannelli solari", "noleggio biciclette elettriche"};
+
+  @Param({"1000", "10000", "100000"})
   private int listSize;
 
+  @Param({"mare", "hotel roma", "sostenibile"})
+  private String query;
+
+  private List<Attivita> catalogo;
+  private IndiceTestuale indice;
   private RicercaService service;
-  private String query = "mare";
 
   @Setup(Level.Trial)
   public void setup() {
+    catalogo = generateMockData(listSize);
     AttivitaRepository repository = mock(AttivitaRepository.class);
-    List<Attivita> mockData = generateMockData(listSize);
-    when(repository.findByQuery(query)).thenReturn(mockData);
+    when(repository.findDopo(anyLong(), any(Limit.class)))
+        .thenAnswer(invocation -> blocco(invocation.getArgument(0), invocation.getArgument(1)));
+    when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      List<Attivita> trovate = new ArrayList<>();
+      for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+        trovate.add(catalogo.get(id.intValue() - 1));
+      }
+      return trovate;
+    });
+    indice = new IndiceTestuale();
+    IndiceCategorie indiceCategorie = new IndiceCategorie();
+    new CaricatoreIndici(repository, List.of(indice), indiceCategorie).ricostruisci();
+    IndiceSpaziale indiceSpaziale = new IndiceSpaziale();
+    service = new RicercaServiceImpl(repository, indice, indiceSpaziale, indiceCategorie,
+        new PianificatoreRicerca(indice, indiceSpaziale, indiceCategorie));
+  }
 
-    service = new RicercaServiceImpl(repository);
+  // Emula l'ILIKE %query% su nome e città: scansione completa del catalogo
+  @Benchmark
+  public void benchmarkScansioneIlike(Blackhole bh) {
+    String q = query.toLowerCase(Locale.ROOT);
+    List<Attivita> result = new ArrayList<>();
+    for (Attivita a : catalogo) {
+      if (a.getNome().toLowerCase(Locale.ROOT).contains(q)
+          || a.getCitta().toLowerCase(Locale.ROOT).contains(q)) {
+        result.add(a);
+      }
+    }
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void benchmarkIndiceInvertito(Blackhole bh) {
+    bh.consume(indice.cerca(query));
   }
 
   @Benchmark
@@ -53,12 +111,26 @@ public class RicercaTestualeBenchmark {
     bh.consume(result);
   }
 
+  // Gli id partono da 1: quelli maggiori di ultimoId iniziano alla posizione ultimoId
+  private List<Attivita> blocco(long ultimoId, Limit limite) {
+    int inizio = (int) Math.min(ultimoId, catalogo.size());
+    int fine = Math.min(inizio + limite.max(), catalogo.size());
+    return catalogo.subList(inizio, fine);
+  }
+
   private List<Attivita> generateMockData(int size) {
     List<Attivita> data = new ArrayList<>(size);
+    Random random = new Random(42);
     for (int i = 0; i < size; i++) {
       Attivita a = new Attivita();
-      a.setId((long) i);
-      a.setNome("Attività " + i + " al mare");
+      a.setId((long) i + 1);
+      a.setNome(TIPI[random.nextInt(TIPI.length)] + " "
+          + AGGETTIVI[random.nextInt(AGGETTIVI.length)] + " " + i);
+      a.setCitta(CITTA[random.nextInt(CITTA.length)]);
+      a.setDescrizioneBreve("Struttura con " + DESCRIZIONI[random.nextInt(DESCRIZIONI.length)]);
+      a.setDescrizioneLunga("Offriamo " + DESCRIZIONI[random.nextInt(DESCRIZIONI.length)]
+          + ", " + DESCRIZIONI[random.nextInt(DESCRIZIONI.length)] + " e "
+          + DESCRIZIONI[random.nextInt(DESCRIZIONI.length)] + ".");
       data.add(a);
     }
     return data;
@@ -55,7 +55,7 @@ public class SegnalazioniServiceImplBenchmark {
     when(repository.findById(existingId)).thenReturn(
         mockData.stream().filter(s -> s.getId().equals(existingId)).findFirst());
 
-    service = new SegnalazioniServiceImpl(repository);
+    service = new SegnalazioniServiceImpl(repository, event -> { });
   }
 
   @Benchmark
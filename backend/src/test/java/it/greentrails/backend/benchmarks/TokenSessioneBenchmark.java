@@ -0,0 +1,77 @@
+package it.greentrails.backend.benchmarks;
+
+import it.greentrails.backend.BackendApplication;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneutenze.security.TokenSessione;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+// Costo per richiesta dell'identificazione dell'utente con il contesto Spring del profilo di
+// test: la verifica del token firmato contro il caricamento dell'utente da H2 che HTTP Basic
+// esegue a ogni richiesta, con e senza BCrypt
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class TokenSessioneBenchmark {
+
+    private static final String EMAIL = "marco@test.it";
+
+    private ConfigurableApplicationContext context;
+    private TokenSessione tokenSessione;
+    private UserDetailsService userDetailsService;
+    private AuthenticationProvider authenticationProvider;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(BackendApplication.class)
+            .run("--spring.profiles.active=test", "--server.port=0", "--logging.level.root=WARN");
+        tokenSessione = context.getBean(TokenSessione.class);
+        userDetailsService = context.getBean(UserDetailsService.class);
+        authenticationProvider = context.getBean(AuthenticationProvider.class);
+        token = tokenSessione.emetti((Utente) userDetailsService.loadUserByUsername(EMAIL))
+            .token();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void benchmarkVerificaToken(Blackhole bh) {
+        bh.consume(tokenSessione.verifica(token));
+    }
+
+    @Benchmark
+    public void benchmarkLoadUserByUsername(Blackhole bh) {
+        bh.consume(userDetailsService.loadUserByUsername(EMAIL));
+    }
+
+    // Il percorso HTTP Basic completo, con la verifica BCrypt già in cache
+    @Benchmark
+    public void benchmarkHttpBasic(Blackhole bh) {
+        bh.consume(authenticationProvider.authenticate(
+            UsernamePasswordAuthenticationToken.unauthenticated(EMAIL, "password")));
+    }
+}
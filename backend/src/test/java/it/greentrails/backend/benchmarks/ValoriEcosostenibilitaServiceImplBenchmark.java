@@ -50,7 +50,7 @@ public class ValoriEcosostenibilitaServiceImplBenchmark {
     when(repository.save(testValori)).thenReturn(testValori);
     when(repository.findById(existingId)).thenReturn(Optional.of(testValori));
 
-    service = new ValoriEcosostenibilitaServiceImpl(repository);
+    service = new ValoriEcosostenibilitaServiceImpl(repository, event -> { });
   }
 
   @Benchmark
@@ -0,0 +1,126 @@
+package it.greentrails.backend.gestioneattivita.aggregati;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Recensione;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.ValoriEcosostenibilitaRepository;
+import it.greentrails.backend.gestioneattivita.service.RecensioneService;
+import it.greentrails.backend.gestioneattivita.service.RiepilogoRecensioni;
+import it.greentrails.backend.gestioneattivita.service.RiepilogoRecensioni.Ecosostenibilita;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AggregatiRecensioniTest {
+
+  @Autowired
+  private RecensioneService recensioneService;
+
+  @Autowired
+  private AttivitaRepository attivitaRepository;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  @Autowired
+  private ValoriEcosostenibilitaRepository valoriRepository;
+
+  private Utente visitatore;
+  private List<Attivita> attivita;
+
+  @BeforeEach
+  void setUp() {
+    visitatore = utenteRepository.findOneByEmail("marco@test.it").orElseThrow();
+    attivita = attivitaRepository.findAll();
+  }
+
+  private Recensione salva(Attivita attivita, int stelle, boolean energiaVerde)
+      throws Exception {
+    ValoriEcosostenibilita valori = new ValoriEcosostenibilita();
+    valori.setEnergiaVerde(energiaVerde);
+    valori.setProdottiLocali(true);
+    Recensione recensione = new Recensione();
+    recensione.setVisitatore(visitatore);
+    recensione.setAttivita(attivita);
+    recensione.setValutazioneStelleEsperienza(stelle);
+    recensione.setDescrizione("Prova");
+    recensione.setValoriEcosostenibilita(valoriRepository.save(valori));
+    return recensioneService.saveRecensione(recensione);
+  }
+
+  private List<RiepilogoRecensioni> riepiloghi() throws Exception {
+    List<RiepilogoRecensioni> riepiloghi = new ArrayList<>();
+    for (Attivita a : attivita) {
+      riepiloghi.add(recensioneService.getRiepilogoByAttivita(a.getId()));
+    }
+    return riepiloghi;
+  }
+
+  @Test
+  void iTotaliSeguonoSalvataggiModificheEdEliminazioni() throws Exception {
+    Attivita scelta = attivita.getFirst();
+    RiepilogoRecensioni prima = recensioneService.getRiepilogoByAttivita(scelta.getId());
+    Ecosostenibilita eco = prima.ecosostenibilita();
+
+    Recensione recensione = salva(scelta, 2, true);
+    RiepilogoRecensioni dopo = recensioneService.getRiepilogoByAttivita(scelta.getId());
+    assertEquals(prima.numero() + 1, dopo.numero());
+    assertEquals(prima.stelle().get(2) + 1, dopo.stelle().get(2));
+    assertEquals(eco.energiaVerde() + 1, dopo.ecosostenibilita().energiaVerde());
+    assertEquals(eco.prodottiLocali() + 1, dopo.ecosostenibilita().prodottiLocali());
+    assertEquals(eco.politicheAntispreco(), dopo.ecosostenibilita().politicheAntispreco());
+
+    // La modifica sposta la recensione da due a quattro stelle
+    recensione = recensioneService.findById(recensione.getId());
+    recensione.setValutazioneStelleEsperienza(4);
+    recensioneService.saveRecensione(recensione);
+    dopo = recensioneService.getRiepilogoByAttivita(scelta.getId());
+    assertEquals(prima.numero() + 1, dopo.numero());
+    assertEquals(prima.stelle().get(2), dopo.stelle().get(2));
+    assertEquals(prima.stelle().get(4) + 1, dopo.stelle().get(4));
+    assertEquals((prima.media() * prima.numero() + 4) / (prima.numero() + 1), dopo.media(),
+        1e-9);
+
+    recensioneService.deleteRecensione(recensione);
+    assertEquals(prima, recensioneService.getRiepilogoByAttivita(scelta.getId()));
+  }
+
+  @Test
+  void laRicostruzioneCoincideConGliAggiornamenti() throws Exception {
+    List<Recensione> salvate = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      salvate.add(salva(attivita.get(i % attivita.size()), i % 6, i % 2 == 0));
+    }
+    try {
+      List<RiepilogoRecensioni> incrementali = riepiloghi();
+
+      recensioneService.ricostruisciRiepiloghi();
+
+      assertEquals(incrementali, riepiloghi());
+    } finally {
+      for (Recensione recensione : salvate) {
+        recensioneService.deleteRecensione(recensione);
+      }
+    }
+  }
+
+  @Test
+  void unAttivitaSenzaRecensioniHaTotaliVuoti() throws Exception {
+    RiepilogoRecensioni riepilogo = recensioneService.getRiepilogoByAttivita(999_999L);
+    assertEquals(0, riepilogo.numero());
+    assertEquals(0, riepilogo.media());
+    assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 0L), riepilogo.stelle());
+  }
+
+}
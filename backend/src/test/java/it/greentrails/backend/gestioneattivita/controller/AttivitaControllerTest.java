@@ -10,6 +10,7 @@ import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaService;
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,10 +22,15 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -40,6 +46,9 @@ class AttivitaControllerTest {
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private CacheRisposte cacheRisposte;
+
   @MockBean
   private AttivitaService attivitaService;
 
@@ -60,9 +69,12 @@ class AttivitaControllerTest {
 
   @BeforeEach
   void setUp() {
+    // Le risposte in cache verrebbero da mock di altri test
+    cacheRisposte.invalida();
     utente = new Utente();
     utente.setId(1L);
     utente.setEmail("gestore@test.com");
+    utente.setPassword("$2a$10$hash");
     utente.setRuolo(RuoloUtente.GESTORE_ATTIVITA);
 
     valori = new ValoriEcosostenibilita();
@@ -915,10 +927,78 @@ class AttivitaControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data[0].id").value(1))
-        .andExpect(jsonPath("$.data[1].id").value(2));
+        .andExpect(jsonPath("$.data[1].id").value(2))
+        .andExpect(jsonPath("$.data[0].gestore.id").value(1))
+        .andExpect(jsonPath("$.data[0].gestore.password").doesNotExist())
+        .andExpect(jsonPath("$.data[0].gestore.email").doesNotExist());
 
     verify(attivitaService).findAll();
   }
-}
 
+  @Test
+  void testFindAllPaginatoPerChiave() throws Exception {
+    when(attivitaService.findAllDopo(1L, 1)).thenReturn(List.of(attivitaTuristica));
+
+    mockMvc.perform(get("/api/attivita/all")
+            .param("dopo", "1")
+            .param("limite", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.data[0].id").value(2))
+        .andExpect(jsonPath("$.data[0].gestore.password").doesNotExist());
+
+    verify(attivitaService).findAllDopo(1L, 1);
+    verify(attivitaService, never()).findAll();
+  }
+
+  @Test
+  void testFindAllPaginatoLimitePredefinito() throws Exception {
+    when(attivitaService.findAllDopo(0L, 100)).thenReturn(List.of(alloggio));
+
+    mockMvc.perform(get("/api/attivita/all")
+            .param("dopo", "0"))
+        .andExpect(status().isOk());
 
+    verify(attivitaService).findAllDopo(0L, 100);
+  }
+
+  @Test
+  void testFindAllPaginatoLimiteNonValido() throws Exception {
+    when(attivitaService.findAllDopo(0L, 5000))
+        .thenThrow(new Exception("Il limite non è valido."));
+
+    mockMvc.perform(get("/api/attivita/all")
+            .param("dopo", "0")
+            .param("limite", "5000"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.data").value("Il limite non è valido."));
+  }
+
+  @Test
+  void testEsportaAllNdjson() throws Exception {
+    when(attivitaService.esportaAttivita(any())).thenAnswer(invocation -> {
+      Consumer<Attivita> consumatore = invocation.getArgument(0);
+      consumatore.accept(alloggio);
+      consumatore.accept(attivitaTuristica);
+      return 2L;
+    });
+
+    MvcResult risultato = mockMvc.perform(get("/api/attivita/all")
+            .accept("application/x-ndjson"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    String corpo = mockMvc.perform(asyncDispatch(risultato))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+
+    String[] righe = corpo.split("\n");
+    assertEquals(2, righe.length);
+    assertTrue(corpo.endsWith("\n"));
+    assertTrue(righe[0].startsWith("{") && righe[0].contains("\"nome\":\"Hotel Eco\""));
+    assertTrue(righe[1].contains("\"id\":2"));
+    assertFalse(corpo.contains("password"));
+    assertFalse(corpo.contains("gestore@test.com"));
+    verify(attivitaService, never()).findAll();
+  }
+}
@@ -8,6 +8,7 @@ import it.greentrails.backend.enums.CategorieAlloggio;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +37,9 @@ class CameraControllerTest {
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private CacheRisposte cacheRisposte;
+
   @MockBean
   private AttivitaService attivitaService;
 
@@ -50,6 +54,8 @@ class CameraControllerTest {
 
   @BeforeEach
   void setUp() {
+    // Le risposte in cache verrebbero da mock di altri test
+    cacheRisposte.invalida();
     utente = new Utente();
     utente.setId(1L);
     utente.setEmail("gestore@test.com");
@@ -220,6 +226,26 @@ class CameraControllerTest {
     verify(cameraService).getCamereByAlloggio(alloggio);
   }
 
+  @Test
+  void testVisualizzaCamerePerAlloggio_DallaCache() throws Exception {
+    when(attivitaService.findById(1L)).thenReturn(alloggio);
+    when(cameraService.getCamereByAlloggio(alloggio)).thenReturn(List.of(camera));
+
+    String etag = mockMvc.perform(get("/api/camere/perAlloggio/1"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andReturn().getResponse().getHeader("ETag");
+    mockMvc.perform(get("/api/camere/perAlloggio/1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(jsonPath("$.data[0].id").value(1));
+    mockMvc.perform(get("/api/camere/perAlloggio/1")
+            .header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    verify(attivitaService, times(1)).findById(1L);
+  }
+
   @Test
   void testVisualizzaCamerePerAlloggio_NonAlloggio() throws Exception {
     when(attivitaService.findById(2L)).thenReturn(attivitaTuristica);
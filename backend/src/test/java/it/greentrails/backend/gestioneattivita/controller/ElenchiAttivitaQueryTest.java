@@ -0,0 +1,98 @@
+package it.greentrails.backend.gestioneattivita.controller;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+// Gli elenchi di attività devono eseguire un numero fisso di query, qualunque sia il numero di
+// righe restituite: una per le attività con gestore e valori, una per tutte le categorie
+// e, se la pagina è piena, il conteggio
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ElenchiAttivitaQueryTest {
+
+  private static final long MASSIMO_QUERY = 3;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  private Statistics statistiche;
+  private Utente gestore;
+
+  @BeforeEach
+  void setUp() {
+    statistiche = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    gestore = utenteRepository.findOneByEmail("mario@test.it").orElseThrow();
+  }
+
+  private long query(RequestBuilder richiesta, int righeMinime) throws Exception {
+    statistiche.clear();
+    mockMvc.perform(richiesta)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(greaterThanOrEqualTo(righeMinime)))
+        .andExpect(jsonPath("$.data[0].categorie").isArray())
+        .andExpect(jsonPath("$.data[0].gestore.password").doesNotExist());
+    return statistiche.getPrepareStatementCount();
+  }
+
+  private void verificaCostante(String percorso) throws Exception {
+    long unaRiga = query(get(percorso).param("limite", "1"), 1);
+    long tutte = query(get(percorso).param("limite", "50"), 3);
+    assertTrue(unaRiga <= MASSIMO_QUERY, percorso + ": " + unaRiga + " query con una riga");
+    assertTrue(tutte <= MASSIMO_QUERY, percorso + ": " + tutte + " query con tutte le righe");
+  }
+
+  @Test
+  void alloggiInUnNumeroFissoDiQuery() throws Exception {
+    verificaCostante("/api/attivita/alloggi");
+  }
+
+  @Test
+  void attivitaTuristicheInUnNumeroFissoDiQuery() throws Exception {
+    verificaCostante("/api/attivita/attivitaTuristiche");
+  }
+
+  @Test
+  void perPrezzoInUnNumeroFissoDiQuery() throws Exception {
+    verificaCostante("/api/attivita/perPrezzo");
+  }
+
+  @Test
+  void perGestoreInUnNumeroFissoDiQuery() throws Exception {
+    long query = query(get("/api/attivita/perGestore").with(user(gestore)), 2);
+    assertTrue(query <= MASSIMO_QUERY, query + " query");
+  }
+
+  @Test
+  void ricercaInUnNumeroFissoDiQuery() throws Exception {
+    long query = query(post("/api/ricerca").param("query", "Roma").with(csrf()), 2);
+    assertTrue(query <= MASSIMO_QUERY, query + " query");
+  }
+
+}
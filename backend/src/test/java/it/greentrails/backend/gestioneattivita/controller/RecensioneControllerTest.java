@@ -5,9 +5,12 @@ import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
 import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
+import it.greentrails.backend.gestioneattivita.service.PaginaRecensioni;
 import it.greentrails.backend.gestioneattivita.service.RecensioneService;
+import it.greentrails.backend.gestioneattivita.service.RiepilogoRecensioni;
 import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaService;
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
@@ -22,6 +25,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.security.InvalidParameterException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -264,6 +268,80 @@ class RecensioneControllerTest {
     verify(attivitaService).findById(1L);
   }
 
+  @Test
+  void testVisualizzaPaginaPerAttivita_Success() throws Exception {
+    when(recensioneService.getPaginaByAttivita(1L, OrdinamentoRecensioni.VALUTAZIONE, "5_9", 20))
+        .thenReturn(new PaginaRecensioni(List.of(recensione), "5_1"));
+
+    mockMvc.perform(get("/api/recensioni/perAttivita/1/pagina")
+            .param("ordinamento", "VALUTAZIONE")
+            .param("cursore", "5_9"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.recensioni[0].id").value(1))
+        .andExpect(jsonPath("$.data.cursore").value("5_1"));
+
+    verify(attivitaService, never()).findById(any());
+  }
+
+  @Test
+  void testVisualizzaPaginaPerAttivita_CursoreNonValido() throws Exception {
+    when(recensioneService.getPaginaByAttivita(1L, null, "x", 10))
+        .thenThrow(new InvalidParameterException("Il cursore non è valido."));
+
+    mockMvc.perform(get("/api/recensioni/perAttivita/1/pagina")
+            .param("cursore", "x")
+            .param("dimensione", "10"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testVisualizzaPaginaPerVisitatore_Autenticato() throws Exception {
+    when(recensioneService.getPaginaByVisitatore(any(Utente.class), isNull(), eq(20)))
+        .thenReturn(new PaginaRecensioni(List.of(recensione), null));
+
+    mockMvc.perform(get("/api/recensioni/perVisitatore"))
+        .andExpect(status().isUnauthorized());
+    mockMvc.perform(get("/api/recensioni/perVisitatore")
+            .with(user(visitatore)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.recensioni[0].id").value(1));
+
+    verify(recensioneService, times(1)).getPaginaByVisitatore(visitatore, null, 20);
+  }
+
+  @Test
+  void testVisualizzaRiepilogoPerAttivita_Success() throws Exception {
+    when(recensioneService.getRiepilogoByAttivita(1L)).thenReturn(new RiepilogoRecensioni(1L,
+        2, 4.5, List.of(0L, 0L, 0L, 0L, 1L, 1L),
+        new RiepilogoRecensioni.Ecosostenibilita(2, 1, 0, 0, 0, 1)));
+
+    mockMvc.perform(get("/api/recensioni/perAttivita/1/riepilogo"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.numero").value(2))
+        .andExpect(jsonPath("$.data.media").value(4.5))
+        .andExpect(jsonPath("$.data.stelle[5]").value(1))
+        .andExpect(jsonPath("$.data.ecosostenibilita.politicheAntispreco").value(2));
+
+    verify(attivitaService, never()).findById(any());
+  }
+
+  @Test
+  void testRicostruisciRiepiloghi_SoloAmministratore() throws Exception {
+    when(recensioneService.ricostruisciRiepiloghi()).thenReturn(3);
+
+    mockMvc.perform(post("/api/recensioni/riepiloghi")
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(post("/api/recensioni/riepiloghi")
+            .with(user(amministratore))
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").value(3));
+
+    verify(recensioneService, times(1)).ricostruisciRiepiloghi();
+  }
+
   @Test
   void testCancellaRecensione_ProprioUtente_Success() throws Exception {
     when(recensioneService.findById(1L)).thenReturn(recensione);
@@ -7,6 +7,7 @@ import it.greentrails.backend.enums.CategorieAlloggio;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.ValoriEcosostenibilitaService;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +35,9 @@ class ValoriEcosostenibilitaControllerTest {
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private CacheRisposte cacheRisposte;
+
   @MockBean
   private ValoriEcosostenibilitaService valoriEcosostenibilitaService;
 
@@ -47,6 +51,8 @@ class ValoriEcosostenibilitaControllerTest {
 
   @BeforeEach
   void setUp() {
+    // Le risposte in cache verrebbero da mock di altri test
+    cacheRisposte.invalida();
     gestore = new Utente();
     gestore.setId(1L);
     gestore.setEmail("gestore@test.com");
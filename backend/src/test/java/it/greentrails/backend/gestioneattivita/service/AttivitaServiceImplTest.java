@@ -3,12 +3,16 @@ package it.greentrails.backend.gestioneattivita.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.events.AttivitaModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import jakarta.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +22,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -28,6 +34,12 @@ class AttivitaServiceImplTest {
   @Mock
   private AttivitaRepository repository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private EntityManager entityManager;
+
   @InjectMocks
   private AttivitaServiceImpl service;
 
@@ -58,6 +70,15 @@ class AttivitaServiceImplTest {
     verify(repository).save(attivita);
   }
 
+  @Test
+  void testSaveAttivitaPublishesEvent() throws Exception {
+    when(repository.save(any(Attivita.class))).thenReturn(attivita);
+
+    service.saveAttivita(attivita);
+
+    verify(eventPublisher).publishEvent(new AttivitaModificataEvent(attivita));
+  }
+
   // Test per findById
   @Test
   void testFindByIdWithNull() {
@@ -225,4 +246,61 @@ class AttivitaServiceImplTest {
     assertNotNull(result);
     assertEquals(1, result.size());
   }
-}
\ No newline at end of file
+
+  // Test per findAllDopo
+  @Test
+  void testFindAllDopo() throws Exception {
+    when(repository.findDopo(5L, Limit.of(10))).thenReturn(List.of(attivita));
+
+    List<Attivita> result = service.findAllDopo(5L, 10);
+
+    assertEquals(1, result.size());
+  }
+
+  @Test
+  void testFindAllDopoDallInizio() throws Exception {
+    when(repository.findDopo(0L, Limit.of(10))).thenReturn(List.of(attivita));
+
+    assertEquals(1, service.findAllDopo(null, 10).size());
+  }
+
+  @Test
+  void testFindAllDopoLimiteNonValido() {
+    assertThrows(Exception.class, () -> service.findAllDopo(0L, 0));
+    assertThrows(Exception.class,
+        () -> service.findAllDopo(0L, AttivitaServiceImpl.LIMITE_MASSIMO + 1));
+  }
+
+  // Test per esportaAttivita
+  @Test
+  void testEsportaAttivitaABlocchi() {
+    int dimensione = AttivitaServiceImpl.DIMENSIONE_BLOCCO;
+    List<Attivita> primo = new ArrayList<>();
+    for (long id = 1; id <= dimensione; id++) {
+      Attivita a = new Attivita();
+      a.setId(id);
+      primo.add(a);
+    }
+    Attivita ultima = new Attivita();
+    ultima.setId(dimensione + 10L);
+    when(repository.findDopo(0L, Limit.of(dimensione))).thenReturn(primo);
+    when(repository.findDopo(dimensione, Limit.of(dimensione))).thenReturn(List.of(ultima));
+    List<Long> visti = new ArrayList<>();
+
+    long totale = service.esportaAttivita(a -> visti.add(a.getId()));
+
+    assertEquals(dimensione + 1L, totale);
+    assertEquals(dimensione + 1, visti.size());
+    assertEquals(dimensione + 10L, visti.get(visti.size() - 1));
+    verify(entityManager, times(2)).clear();
+  }
+
+  @Test
+  void testEsportaAttivitaCatalogoVuoto() {
+    when(repository.findDopo(0L, Limit.of(AttivitaServiceImpl.DIMENSIONE_BLOCCO)))
+        .thenReturn(List.of());
+
+    assertEquals(0, service.esportaAttivita(a -> fail()));
+    verify(entityManager, never()).clear();
+  }
+}
@@ -11,6 +11,7 @@ import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.events.CameraModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
 import java.util.Arrays;
 import java.util.List;
@@ -20,12 +21,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 public class CameraServiceImplTest {
 
   @Mock
   private CameraRepository cameraRepository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private CameraServiceImpl cameraService;
 
@@ -124,6 +129,7 @@ public class CameraServiceImplTest {
     assertEquals(1L, savedCamera.getId());
     assertEquals("Doppia", savedCamera.getTipoCamera());
     verify(cameraRepository).save(camera);
+    verify(eventPublisher).publishEvent(new CameraModificataEvent(camera, false));
   }
 
   // Test per findById
@@ -184,6 +190,7 @@ public class CameraServiceImplTest {
 
     assertTrue(result);
     verify(cameraRepository).delete(camera);
+    verify(eventPublisher).publishEvent(new CameraModificataEvent(camera, true));
     verify(cameraRepository).flush();
   }
 
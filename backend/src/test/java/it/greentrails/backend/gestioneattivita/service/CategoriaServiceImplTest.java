@@ -9,6 +9,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Categoria;
+import it.greentrails.backend.events.CategoriaModificataEvent;
 import it.greentrails.backend.gestioneattivita.repository.CategoriaRepository;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
@@ -19,12 +20,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 public class CategoriaServiceImplTest {
 
   @Mock
   private CategoriaRepository categoriaRepository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private CategoriaServiceImpl categoriaService;
 
@@ -104,6 +109,8 @@ public class CategoriaServiceImplTest {
     // verifica che delete e flush siano stati chiamati
     org.mockito.Mockito.verify(categoriaRepository).delete(categoria);
     org.mockito.Mockito.verify(categoriaRepository).flush();
+    org.mockito.Mockito.verify(eventPublisher)
+        .publishEvent(new CategoriaModificataEvent(categoria, true));
   }
 
   @Test
@@ -0,0 +1,165 @@
+package it.greentrails.backend.gestioneattivita.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Recensione;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAttivitaTuristica;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
+import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.gestioneattivita.repository.ValoriEcosostenibilitaRepository;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Point;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FeedRecensioniIntegrazioneTest {
+
+  private static final int RECENSIONI = 47;
+
+  @Autowired
+  private RecensioneService service;
+
+  @Autowired
+  private RecensioneRepository repository;
+
+  @Autowired
+  private AttivitaRepository attivitaRepository;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  @Autowired
+  private ValoriEcosostenibilitaRepository valoriRepository;
+
+  @Autowired
+  private BulkWriter bulkWriter;
+
+  private Attivita attivita;
+  private Utente visitatore;
+  private List<Recensione> inserite;
+
+  @BeforeEach
+  void setUp() {
+    // Dati propri: altri contesti sullo stesso database H2 possono averlo ricreato
+    ValoriEcosostenibilita valori = valoriRepository.save(new ValoriEcosostenibilita());
+    visitatore = new Utente();
+    visitatore.setNome("Feed");
+    visitatore.setCognome("Recensioni");
+    visitatore.setDataNascita(java.sql.Date.valueOf("1990-01-01"));
+    visitatore.setEmail("feed-" + System.nanoTime() + "@test.it");
+    visitatore.setPassword("password");
+    visitatore.setRuolo(RuoloUtente.VISITATORE);
+    visitatore = utenteRepository.save(visitatore);
+    attivita = new Attivita();
+    attivita.setGestore(visitatore);
+    attivita.setNome("Feed");
+    attivita.setIndirizzo("Via Roma 1");
+    attivita.setCap("84100");
+    attivita.setCitta("Salerno");
+    attivita.setProvincia("SA");
+    attivita.setCoordinate(new Point(40.68, 14.76));
+    attivita.setPrezzo(10.0);
+    attivita.setDescrizioneBreve("Feed");
+    attivita.setDescrizioneLunga("Feed delle recensioni");
+    attivita.setValoriEcosostenibilita(valoriRepository.save(new ValoriEcosostenibilita()));
+    attivita.setMedia("feed");
+    attivita.setCategoriaAttivitaTuristica(CategorieAttivitaTuristica.RELAX);
+    attivita.setDisponibilita(10);
+    attivita = attivitaRepository.save(attivita);
+    List<Recensione> recensioni = new ArrayList<>();
+    for (int i = 0; i < RECENSIONI; i++) {
+      Recensione r = new Recensione();
+      r.setAttivita(attivita);
+      r.setVisitatore(visitatore);
+      r.setValutazioneStelleEsperienza(i * 7 % 6);
+      r.setDescrizione("Recensione " + i);
+      r.setValoriEcosostenibilita(valori);
+      recensioni.add(r);
+    }
+    inserite = bulkWriter.inserisci(recensioni);
+  }
+
+  @AfterEach
+  void tearDown() {
+    repository.deleteAllInBatch(inserite);
+  }
+
+  private List<Long> sfoglia(OrdinamentoRecensioni ordinamento, int dimensione)
+      throws Exception {
+    List<Long> id = new ArrayList<>();
+    String cursore = null;
+    do {
+      PaginaRecensioni pagina = service.getPaginaByAttivita(attivita.getId(), ordinamento,
+          cursore, dimensione);
+      pagina.recensioni().forEach(r -> id.add(r.getId()));
+      cursore = pagina.cursore();
+    } while (cursore != null);
+    return id;
+  }
+
+  private List<Long> attese(Comparator<Recensione> ordine) {
+    return repository.findByAttivita(attivita.getId(), Pageable.unpaged()).stream()
+        .sorted(ordine)
+        .map(Recensione::getId)
+        .toList();
+  }
+
+  @Test
+  void lePagineRecentiCopronoTutteLeRecensioniInOrdine() throws Exception {
+    assertEquals(attese(Comparator.comparing(Recensione::getId).reversed()),
+        sfoglia(OrdinamentoRecensioni.RECENTI, 10));
+  }
+
+  @Test
+  void lePaginePerValutazioneCopronoTutteLeRecensioniInOrdine() throws Exception {
+    Comparator<Recensione> ordine = Comparator
+        .comparingInt(Recensione::getValutazioneStelleEsperienza)
+        .thenComparing(Recensione::getId)
+        .reversed();
+    assertEquals(attese(ordine), sfoglia(OrdinamentoRecensioni.VALUTAZIONE, 9));
+  }
+
+  @Test
+  void ilFeedDelVisitatoreParteDallaPiuRecente() throws Exception {
+    PaginaRecensioni pagina = service.getPaginaByVisitatore(visitatore, null, 5);
+    assertEquals(inserite.getLast().getId(), pagina.recensioni().getFirst().getId());
+    assertEquals(5, pagina.recensioni().size());
+    assertEquals(String.valueOf(pagina.recensioni().getLast().getId()), pagina.cursore());
+
+    PaginaRecensioni tutte = service.getPaginaByVisitatore(visitatore, null,
+        RecensioneServiceImpl.DIMENSIONE_MASSIMA);
+    assertNull(tutte.cursore());
+  }
+
+  @Test
+  void cursoriEDimensioniNonValidiSonoRifiutati() {
+    assertThrows(InvalidParameterException.class, () -> service.getPaginaByAttivita(
+        attivita.getId(), OrdinamentoRecensioni.VALUTAZIONE, "12", 10));
+    assertThrows(InvalidParameterException.class, () -> service.getPaginaByAttivita(
+        attivita.getId(), OrdinamentoRecensioni.RECENTI, "abc", 10));
+    assertThrows(InvalidParameterException.class, () -> service.getPaginaByAttivita(
+        attivita.getId(), OrdinamentoRecensioni.RECENTI, null, 0));
+    assertThrows(InvalidParameterException.class, () -> service.getPaginaByAttivita(
+        attivita.getId(), null, null, RecensioneServiceImpl.DIMENSIONE_MASSIMA + 1));
+  }
+
+}
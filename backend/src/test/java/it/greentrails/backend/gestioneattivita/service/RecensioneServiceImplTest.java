@@ -7,7 +7,11 @@ import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Recensione;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.OrdinamentoRecensioni;
 import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.events.RecensioneModificataEvent;
+import it.greentrails.backend.gestioneattivita.aggregati.AggregatiRecensioni;
+import it.greentrails.backend.gestioneattivita.repository.ContributoRecensione;
 import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +21,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -29,6 +35,12 @@ class RecensioneServiceImplTest {
   @Mock
   private RecensioneRepository repository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private AggregatiRecensioni aggregati;
+
   @InjectMocks
   private RecensioneServiceImpl service;
 
@@ -120,6 +132,7 @@ class RecensioneServiceImplTest {
     assertEquals(2L, result.getId());
     assertEquals("Bellissimo!", result.getDescrizione());
     verify(repository, times(1)).save(nuovaRecensione);
+    verify(eventPublisher).publishEvent(new RecensioneModificataEvent(recensioneSalvata, false));
   }
 
   // Test findById
@@ -181,6 +194,7 @@ class RecensioneServiceImplTest {
     verify(repository, times(1)).delete(recensione);
     verify(repository, times(1)).flush();
     verify(repository, times(1)).findById(recensione.getId());
+    verify(eventPublisher).publishEvent(new RecensioneModificataEvent(recensione, true));
   }
 
   @Test
@@ -378,4 +392,82 @@ class RecensioneServiceImplTest {
     assertNotNull(result);
     assertEquals(5, result.size());
   }
-}
\ No newline at end of file
+
+  // Test aggregati
+  @Test
+  void testSaveRecensione_NuovaAggiungeAiTotali() throws Exception {
+    Recensione nuova = new Recensione();
+    nuova.setAttivita(attivita);
+    nuova.setValutazioneStelleEsperienza(3);
+    valoriEcosostenibilita.setEnergiaVerde(true);
+    nuova.setValoriEcosostenibilita(valoriEcosostenibilita);
+    when(repository.save(nuova)).thenReturn(nuova);
+
+    service.saveRecensione(nuova);
+
+    verify(repository, never()).findContributo(any());
+    verify(aggregati).applica(
+        new ContributoRecensione(null, 1L, 3, null, null, true, null, null, null), 1);
+  }
+
+  @Test
+  void testSaveRecensione_ModificaToglieIValoriSalvati() throws Exception {
+    ContributoRecensione salvato =
+        new ContributoRecensione(1L, 1L, 2, true, null, null, null, null, null);
+    when(repository.findContributo(1L)).thenReturn(Optional.of(salvato));
+    when(repository.save(recensione)).thenReturn(recensione);
+
+    service.saveRecensione(recensione);
+
+    verify(aggregati).applica(salvato, -1);
+    verify(aggregati).applica(
+        new ContributoRecensione(1L, 1L, 5, null, null, null, null, null, null), 1);
+  }
+
+  @Test
+  void testDeleteRecensione_ToglieDaiTotali() throws Exception {
+    ContributoRecensione salvato =
+        new ContributoRecensione(1L, 1L, 5, null, null, null, null, null, null);
+    when(repository.findContributo(1L)).thenReturn(Optional.of(salvato));
+    when(repository.findById(1L)).thenReturn(Optional.empty());
+
+    service.deleteRecensione(recensione);
+
+    verify(aggregati).applica(salvato, -1);
+    verify(aggregati, never()).applica(any(), eq(1));
+  }
+
+  @Test
+  void testGetRiepilogoByAttivita_IdNonValido() {
+    Exception exception = assertThrows(Exception.class, () ->
+        service.getRiepilogoByAttivita(-1L));
+    assertEquals("L'id non è valido.", exception.getMessage());
+    verify(aggregati, never()).trova(any());
+  }
+
+  // Test pagine a cursore
+  @Test
+  void testGetPaginaByAttivita_PrimaPaginaPerValutazione() throws Exception {
+    Recensione seconda = new Recensione();
+    seconda.setId(7L);
+    seconda.setValutazioneStelleEsperienza(4);
+    when(repository.findByAttivitaPerValutazioneDopo(1L, 6, Long.MAX_VALUE, Limit.of(2)))
+        .thenReturn(List.of(recensione, seconda));
+
+    PaginaRecensioni pagina =
+        service.getPaginaByAttivita(1L, OrdinamentoRecensioni.VALUTAZIONE, null, 1);
+
+    assertEquals(List.of(recensione), pagina.recensioni());
+    assertEquals("5_1", pagina.cursore());
+  }
+
+  @Test
+  void testGetPaginaByAttivita_UltimaPaginaSenzaCursore() throws Exception {
+    when(repository.findByAttivitaPrimaDi(1L, 9L, Limit.of(21))).thenReturn(List.of(recensione));
+
+    PaginaRecensioni pagina = service.getPaginaByAttivita(1L, null, "9", 20);
+
+    assertEquals(List.of(recensione), pagina.recensioni());
+    assertNull(pagina.cursore());
+  }
+}
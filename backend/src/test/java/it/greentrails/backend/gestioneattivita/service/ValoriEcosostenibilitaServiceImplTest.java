@@ -10,6 +10,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.events.ValoriModificatiEvent;
 import it.greentrails.backend.gestioneattivita.repository.ValoriEcosostenibilitaRepository;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,12 +18,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 class ValoriEcosostenibilitaServiceImplTest {
 
   @Mock
   private ValoriEcosostenibilitaRepository repository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private ValoriEcosostenibilitaServiceImpl valoriEcosostenibilitaService;
 
@@ -50,6 +55,7 @@ class ValoriEcosostenibilitaServiceImplTest {
     assertEquals(1L, savedValori.getId());
     assertTrue(savedValori.getPoliticheAntispreco());
     verify(repository).save(valori);
+    verify(eventPublisher).publishEvent(new ValoriModificatiEvent(valori, false));
   }
 
   @Test
@@ -77,6 +83,7 @@ class ValoriEcosostenibilitaServiceImplTest {
     verify(repository).delete(valori);
     verify(repository).flush();
     verify(repository).findById(1L);
+    verify(eventPublisher).publishEvent(new ValoriModificatiEvent(valori, true));
   }
 
   @Test
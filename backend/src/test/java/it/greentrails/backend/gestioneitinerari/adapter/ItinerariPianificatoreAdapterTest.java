@@ -0,0 +1,261 @@
+package it.greentrails.backend.gestioneitinerari.adapter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneitinerari.exceptions.PianificazioneNonDisponibileException;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari.Candidato;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class ItinerariPianificatoreAdapterTest {
+
+  @Mock
+  private IndiceItinerari indiceItinerari;
+
+  @Mock
+  private AttivitaRepository attivitaRepository;
+
+  @Mock
+  private CameraRepository cameraRepository;
+
+  @Mock
+  private ItinerariRepository itinerariRepository;
+
+  @Mock
+  private PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
+
+  @Mock
+  private PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+
+  @Mock
+  private PrenotazioneAlloggioService prenotazioneAlloggioService;
+
+  @Mock
+  private PrenotazioneAttivitaTuristicaService prenotazioneAttivitaTuristicaService;
+
+  @Spy
+  private AmmissionePrenotazioni ammissione = new AmmissionePrenotazioni();
+
+  @Mock
+  private TransactionOperations transazione;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @InjectMocks
+  private ItinerariPianificatoreAdapter adapter;
+
+  private Preferenze preferenze;
+  private Itinerario salvato;
+
+  @BeforeEach
+  void setUp() {
+    Utente visitatore = new Utente();
+    visitatore.setId(1L);
+    preferenze = new Preferenze();
+    preferenze.setVisitatore(visitatore);
+    salvato = new Itinerario();
+    salvato.setId(5L);
+    salvato.setVisitatore(visitatore);
+    lenient().when(indiceItinerari.isPronto()).thenReturn(true);
+    lenient().when(itinerariRepository.save(any(Itinerario.class))).thenReturn(salvato);
+    lenient().when(transazione.execute(any())).thenAnswer(
+        inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+  }
+
+  private static Camera camera(long id, double prezzo) {
+    Camera camera = new Camera();
+    camera.setId(id);
+    camera.setPrezzo(prezzo);
+    return camera;
+  }
+
+  private static Attivita attivita(long id) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    return attivita;
+  }
+
+  // Come l'indice vero: il primo candidato ammesso, nell'ordine dato
+  @SuppressWarnings("unchecked")
+  private void alloggi(Candidato... candidati) {
+    when(indiceItinerari.migliorAlloggio(eq(preferenze), any())).thenAnswer(inv -> {
+      Predicate<Candidato> ammesso = inv.getArgument(1);
+      for (Candidato candidato : candidati) {
+        if (ammesso.test(candidato)) {
+          return candidato;
+        }
+      }
+      return null;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private void attivitaTuristiche(Candidato... candidati) {
+    when(indiceItinerari.miglioriAttivita(eq(preferenze), anyDouble(), anyDouble(), anyInt(),
+        any())).thenAnswer(inv -> {
+          Predicate<Candidato> ammesso = inv.getArgument(4);
+          return List.of(candidati).stream().filter(ammesso)
+              .limit(inv.<Integer>getArgument(3)).toList();
+        });
+  }
+
+  @Test
+  void prenotaLAlloggioELeAttivitaVicine() throws Exception {
+    Camera camera = camera(100L, 90);
+    alloggi(new Candidato(10L, 100L, 90, 41.0, 14.0, 8));
+    when(cameraRepository.findById(100L)).thenReturn(Optional.of(camera));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(eq(camera), any(), any()))
+        .thenReturn(3);
+    attivitaTuristiche(new Candidato(1L, null, 20, 41.0, 14.0, 6),
+        new Candidato(2L, null, 35, 41.1, 14.0, 5));
+    when(attivitaRepository.findById(any())).thenAnswer(
+        inv -> Optional.of(attivita(inv.getArgument(0))));
+    when(prenotazioneAttivitaTuristicaService.controllaDisponibilitaAttivitaTuristica(any(),
+        any())).thenReturn(10);
+
+    Itinerario risultato = adapter.pianificazioneAutomatica(preferenze);
+
+    assertSame(salvato, risultato);
+    verify(indiceItinerari).miglioriAttivita(eq(preferenze), eq(41.0), eq(14.0),
+        eq(ItinerariPianificatoreAdapter.NUMERO_ATTIVITA), any());
+    ArgumentCaptor<PrenotazioneAlloggio> alloggio =
+        ArgumentCaptor.forClass(PrenotazioneAlloggio.class);
+    verify(prenotazioneAlloggioRepository).save(alloggio.capture());
+    assertSame(camera, alloggio.getValue().getCamera());
+    assertSame(salvato, alloggio.getValue().getItinerario());
+    assertEquals(90, alloggio.getValue().getPrezzo());
+    verify(eventPublisher).publishEvent(any(PrenotazioneAlloggioModificataEvent.class));
+
+    ArgumentCaptor<PrenotazioneAttivitaTuristica> attivita =
+        ArgumentCaptor.forClass(PrenotazioneAttivitaTuristica.class);
+    verify(prenotazioneAttivitaTuristicaRepository, times(2)).save(attivita.capture());
+    assertEquals(List.of(1L, 2L), attivita.getAllValues().stream()
+        .map(p -> p.getAttivitaTuristica().getId()).toList());
+    assertEquals(35, attivita.getAllValues().get(1).getPrezzo());
+    assertSame(salvato, attivita.getAllValues().getFirst().getItinerario());
+    // Le prenotazioni passano dagli stessi lock delle altre
+    verify(ammissione).perRisorse(eq(List.of(100L)), eq(List.of(1L, 2L)), any());
+    // Nessuna lettura del catalogo
+    verify(attivitaRepository, never()).findAll();
+    verify(cameraRepository, never()).findAll();
+  }
+
+  @Test
+  void saltaICandidatiSenzaPostiLiberi() throws Exception {
+    Camera piena = camera(100L, 90);
+    Camera libera = camera(101L, 110);
+    alloggi(new Candidato(10L, 100L, 90, 41.0, 14.0, 8),
+        new Candidato(11L, 101L, 110, 42.0, 13.0, 7));
+    when(cameraRepository.findById(100L)).thenReturn(Optional.of(piena));
+    when(cameraRepository.findById(101L)).thenReturn(Optional.of(libera));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(eq(piena), any(), any()))
+        .thenReturn(0);
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(eq(libera), any(), any()))
+        .thenReturn(1);
+    attivitaTuristiche(new Candidato(1L, null, 20, 42.0, 13.0, 6),
+        new Candidato(2L, null, 35, 42.0, 13.0, 5));
+    Attivita esaurita = attivita(1L);
+    Attivita disponibile = attivita(2L);
+    when(attivitaRepository.findById(1L)).thenReturn(Optional.of(esaurita));
+    when(attivitaRepository.findById(2L)).thenReturn(Optional.of(disponibile));
+    when(prenotazioneAttivitaTuristicaService.controllaDisponibilitaAttivitaTuristica(
+        eq(esaurita), any())).thenReturn(0);
+    when(prenotazioneAttivitaTuristicaService.controllaDisponibilitaAttivitaTuristica(
+        eq(disponibile), any())).thenReturn(4);
+
+    adapter.pianificazioneAutomatica(preferenze);
+
+    ArgumentCaptor<PrenotazioneAlloggio> alloggio =
+        ArgumentCaptor.forClass(PrenotazioneAlloggio.class);
+    verify(prenotazioneAlloggioRepository).save(alloggio.capture());
+    assertSame(libera, alloggio.getValue().getCamera());
+    ArgumentCaptor<PrenotazioneAttivitaTuristica> attivita =
+        ArgumentCaptor.forClass(PrenotazioneAttivitaTuristica.class);
+    verify(prenotazioneAttivitaTuristicaRepository).save(attivita.capture());
+    assertSame(disponibile, attivita.getValue().getAttivitaTuristica());
+    verify(ammissione).perRisorse(eq(List.of(101L)), eq(List.of(2L)), any());
+  }
+
+  @Test
+  void iPostiPresiNelFrattempoNonVengonoPrenotati() throws Exception {
+    Camera camera = camera(100L, 90);
+    alloggi(new Candidato(10L, 100L, 90, 41.0, 14.0, 8));
+    when(cameraRepository.findById(100L)).thenReturn(Optional.of(camera));
+    // Libera nella scelta, piena al controllo sotto il lock
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(eq(camera), any(), any()))
+        .thenReturn(1, 0);
+    attivitaTuristiche();
+
+    assertSame(salvato, adapter.pianificazioneAutomatica(preferenze));
+
+    verify(prenotazioneAlloggioRepository, never()).save(any());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void senzaAlloggioLaDistanzaNonConta() throws Exception {
+    alloggi();
+    attivitaTuristiche();
+
+    adapter.pianificazioneAutomatica(preferenze);
+
+    verify(indiceItinerari).miglioriAttivita(eq(preferenze), eq(Double.NaN),
+        eq(Double.NaN), eq(ItinerariPianificatoreAdapter.NUMERO_ATTIVITA), any());
+    verify(prenotazioneAlloggioRepository, never()).save(any());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void primaDelCaricamentoDellIndiceNonPianifica() {
+    when(indiceItinerari.isPronto()).thenReturn(false);
+
+    assertThrows(PianificazioneNonDisponibileException.class,
+        () -> adapter.pianificazioneAutomatica(preferenze));
+
+    verify(itinerariRepository, never()).save(any());
+    verify(indiceItinerari, never()).migliorAlloggio(any(), any());
+  }
+
+}
@@ -35,6 +35,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.geo.Point;
@@ -57,6 +58,9 @@ class ItinerariStubAdapterTest {
   @Mock
   private PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private ItinerariStubAdapter itinerariStubAdapter;
 
@@ -7,23 +7,35 @@ import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.enums.StatoItinerario;
+import it.greentrails.backend.gestioneitinerari.exceptions.PianificazioneNonDisponibileException;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PrenotazioneNonValidaException;
+import it.greentrails.backend.gestioneprenotazioni.service.EsitoPrenotazioni;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioniItinerarioService;
+import it.greentrails.backend.gestioneprenotazioni.service.RichiestaPrenotazioni;
 import it.greentrails.backend.gestioneutenze.service.GestioneUtenzeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
@@ -50,6 +62,9 @@ class ItinerariControllerTest {
   @MockBean
   private GestioneUtenzeService gestioneUtenzeService;
 
+  @MockBean
+  private PrenotazioniItinerarioService prenotazioniItinerarioService;
+
   private Utente visitatore;
   private Itinerario itinerario;
   private Preferenze preferenze;
@@ -134,6 +149,18 @@ class ItinerariControllerTest {
     verify(gestioneUtenzeService).getPreferenzeById(1L);
   }
 
+  @Test
+  void testGeneraItinerario_IndiceNonPronto() throws Exception {
+    when(gestioneUtenzeService.getPreferenzeById(1L)).thenReturn(preferenze);
+    when(itinerariService.createByPreferenze(preferenze))
+        .thenThrow(new PianificazioneNonDisponibileException("Non ancora disponibile"));
+
+    mockMvc.perform(post("/api/itinerari/genera")
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isServiceUnavailable());
+  }
+
   @Test
   void testVisualizzaItinerario_Success() throws Exception {
     when(itinerariService.findById(1L)).thenReturn(itinerario);
@@ -232,4 +259,93 @@ class ItinerariControllerTest {
 
     verify(itinerariService).findById(1L);
   }
-}
\ No newline at end of file
+
+  private static final String RICHIESTA_BATCH = """
+      {
+        "alloggi": [{"idCamera": 1, "numAdulti": 2, "numCamere": 1,
+                     "dataInizio": "2026-03-01", "dataFine": "2026-03-03"}],
+        "attivitaTuristiche": [{"idAttivita": 2, "numAdulti": 2, "numBambini": 1,
+                                "dataInizio": "2026-03-02"}]
+      }
+      """;
+
+  @Test
+  void testPrenotaItinerario_Success() throws Exception {
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+    when(prenotazioniItinerarioService.prenota(eq(itinerario), any(RichiestaPrenotazioni.class)))
+        .thenReturn(new EsitoPrenotazioni(itinerario, prenotazioniAlloggio,
+            prenotazioniAttivita));
+
+    mockMvc.perform(post("/api/itinerari/1/prenotazioni:batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(RICHIESTA_BATCH)
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.itinerario.id").value(1))
+        .andExpect(jsonPath("$.data.prenotazioniAlloggio").isArray());
+
+    ArgumentCaptor<RichiestaPrenotazioni> captor =
+        ArgumentCaptor.forClass(RichiestaPrenotazioni.class);
+    verify(prenotazioniItinerarioService).prenota(eq(itinerario), captor.capture());
+    RichiestaPrenotazioni richiesta = captor.getValue();
+    assertEquals(1, richiesta.alloggi().size());
+    assertEquals(LocalDate.of(2026, 3, 3), richiesta.alloggi().get(0).dataFine());
+    assertEquals(1, richiesta.attivitaTuristiche().get(0).numBambini());
+    assertNull(richiesta.attivitaTuristiche().get(0).dataFine());
+  }
+
+  @Test
+  void testPrenotaItinerario_AltroUtente_NotFound() throws Exception {
+    Utente altroVisitatore = new Utente();
+    altroVisitatore.setId(2L);
+    altroVisitatore.setEmail("altro@test.com");
+    altroVisitatore.setRuolo(RuoloUtente.VISITATORE);
+
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+
+    mockMvc.perform(post("/api/itinerari/1/prenotazioni:batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(RICHIESTA_BATCH)
+            .with(user(altroVisitatore))
+            .with(csrf()))
+        .andExpect(status().isNotFound());
+
+    verify(prenotazioniItinerarioService, never()).prenota(any(), any());
+  }
+
+  @Test
+  void testPrenotaItinerario_NonDisponibile() throws Exception {
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+    when(prenotazioniItinerarioService.prenota(eq(itinerario), any(RichiestaPrenotazioni.class)))
+        .thenThrow(new PostiNonDisponibiliException("La camera 1 non è disponibile."));
+
+    mockMvc.perform(post("/api/itinerari/1/prenotazioni:batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(RICHIESTA_BATCH)
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.data").value("La camera 1 non è disponibile."));
+  }
+
+  @Test
+  void testPrenotaItinerario_ElementoNullo() throws Exception {
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+    when(prenotazioniItinerarioService.prenota(eq(itinerario), any(RichiestaPrenotazioni.class)))
+        .thenThrow(new PrenotazioneNonValidaException(
+            "La prenotazione dell'attività turistica è vuota."));
+
+    mockMvc.perform(post("/api/itinerari/1/prenotazioni:batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"attivitaTuristiche\": [null]}")
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isBadRequest());
+
+    ArgumentCaptor<RichiestaPrenotazioni> captor =
+        ArgumentCaptor.forClass(RichiestaPrenotazioni.class);
+    verify(prenotazioniItinerarioService).prenota(eq(itinerario), captor.capture());
+    assertNull(captor.getValue().attivitaTuristiche().get(0));
+  }
+}
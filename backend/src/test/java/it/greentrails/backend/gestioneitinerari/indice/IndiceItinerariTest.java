@@ -0,0 +1,239 @@
+package it.greentrails.backend.gestioneitinerari.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.ValoriEcosostenibilita;
+import it.greentrails.backend.enums.CategorieAlloggio;
+import it.greentrails.backend.enums.CategorieAttivitaTuristica;
+import it.greentrails.backend.enums.PreferenzeAlloggio;
+import it.greentrails.backend.enums.PreferenzeAttivita;
+import it.greentrails.backend.enums.PreferenzeBudget;
+import it.greentrails.backend.enums.PreferenzeStagione;
+import it.greentrails.backend.events.CameraModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.PrezzoCamera;
+import it.greentrails.backend.gestioneitinerari.indice.IndiceItinerari.Candidato;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+
+class IndiceItinerariTest {
+
+  private CameraRepository cameraRepository;
+  private IndiceItinerari indice;
+  private Preferenze preferenze;
+
+  @BeforeEach
+  void setUp() {
+    cameraRepository = mock(CameraRepository.class);
+    indice = new IndiceItinerari(cameraRepository);
+    preferenze = new Preferenze();
+    preferenze.setAlloggioPreferito(PreferenzeAlloggio.NESSUNA_PREFERENZA);
+    preferenze.setAttivitaPreferita(PreferenzeAttivita.NESSUNA_PREFERENZA);
+    preferenze.setBudgetPreferito(PreferenzeBudget.FLESSIBILE);
+    preferenze.setStagioniPreferite(PreferenzeStagione.NESSUNA_PREFERENZA);
+  }
+
+  private static Attivita turistica(long id, CategorieAttivitaTuristica categoria,
+      double prezzo, int eco, double lat, double lon) {
+    Attivita a = new Attivita();
+    a.setId(id);
+    a.setCategoriaAttivitaTuristica(categoria);
+    a.setPrezzo(prezzo);
+    a.setValoriEcosostenibilita(valori(eco));
+    a.setCoordinate(new Point(lat, lon));
+    return a;
+  }
+
+  private static Attivita alloggio(long id, CategorieAlloggio categoria, int eco) {
+    Attivita a = new Attivita();
+    a.setId(id);
+    a.setAlloggio(true);
+    a.setCategoriaAlloggio(categoria);
+    a.setValoriEcosostenibilita(valori(eco));
+    a.setCoordinate(new Point(41.0, 14.0));
+    return a;
+  }
+
+  private static ValoriEcosostenibilita valori(int eco) {
+    ValoriEcosostenibilita v = new ValoriEcosostenibilita();
+    v.setPoliticheAntispreco(eco > 0);
+    v.setProdottiLocali(eco > 1);
+    v.setEnergiaVerde(eco > 2);
+    v.setRaccoltaDifferenziata(eco > 3);
+    v.setLimiteEmissioneCO2(eco > 4);
+    v.setContattoConNatura(eco > 5);
+    return v;
+  }
+
+  private static List<Long> id(List<Candidato> candidati) {
+    return candidati.stream().map(Candidato::idAttivita).toList();
+  }
+
+  @Test
+  void preferisceLaCategoriaScelta() {
+    indice.aggiorna(turistica(1, CategorieAttivitaTuristica.RELAX, 10, 6, 41, 14));
+    indice.aggiorna(turistica(2, CategorieAttivitaTuristica.GASTRONOMIA, 10, 2, 41, 14));
+    indice.aggiorna(turistica(3, CategorieAttivitaTuristica.ALL_APERTO, 10, 4, 41, 14));
+    preferenze.setAttivitaPreferita(PreferenzeAttivita.GASTRONOMIA);
+
+    assertEquals(List.of(2L, 1L, 3L), id(indice.miglioriAttivita(preferenze, Double.NaN,
+        Double.NaN, 3)));
+  }
+
+  @Test
+  void ilBudgetPenalizzaLeAttivitaCostose() {
+    indice.aggiorna(turistica(1, CategorieAttivitaTuristica.RELAX, 200, 6, 41, 14));
+    indice.aggiorna(turistica(2, CategorieAttivitaTuristica.RELAX, 20, 3, 41, 14));
+
+    assertEquals(List.of(1L), id(indice.miglioriAttivita(preferenze, Double.NaN, Double.NaN,
+        1)));
+    preferenze.setBudgetPreferito(PreferenzeBudget.BASSO);
+    assertEquals(List.of(2L), id(indice.miglioriAttivita(preferenze, Double.NaN, Double.NaN,
+        1)));
+  }
+
+  @Test
+  void laStagionePreferisceAllApertoOAlChiuso() {
+    indice.aggiorna(turistica(1, CategorieAttivitaTuristica.ALL_APERTO, 10, 3, 41, 14));
+    indice.aggiorna(turistica(2, CategorieAttivitaTuristica.VISITE_CULTURALI_STORICHE, 10, 3,
+        41, 14));
+
+    preferenze.setStagioniPreferite(PreferenzeStagione.PRIMAVERA_ESTATE);
+    assertEquals(1L, indice.miglioriAttivita(preferenze, Double.NaN, Double.NaN, 1).getFirst()
+        .idAttivita());
+    preferenze.setStagioniPreferite(PreferenzeStagione.AUTUNNO_INVERNO);
+    assertEquals(2L, indice.miglioriAttivita(preferenze, Double.NaN, Double.NaN, 1).getFirst()
+        .idAttivita());
+  }
+
+  @Test
+  void aParitaVinceLaPiuVicina() {
+    indice.aggiorna(turistica(1, CategorieAttivitaTuristica.RELAX, 10, 3, 45.0, 9.0));
+    indice.aggiorna(turistica(2, CategorieAttivitaTuristica.RELAX, 10, 3, 41.01, 14.0));
+    // Più ecosostenibile ma a centinaia di chilometri
+    indice.aggiorna(turistica(3, CategorieAttivitaTuristica.RELAX, 10, 6, 38.0, 15.5));
+
+    assertEquals(List.of(2L, 3L), id(indice.miglioriAttivita(preferenze, 41.0, 14.0, 2)));
+  }
+
+  // Il risultato con la potatura è quello di una scansione completa
+  @Test
+  void comeUnaScansioneCompleta() {
+    Random r = new Random(7);
+    CategorieAttivitaTuristica[] categorie = CategorieAttivitaTuristica.values();
+    for (long id = 1; id <= 2000; id++) {
+      indice.aggiorna(turistica(id, r.nextInt(5) == 0 ? null : categorie[r.nextInt(4)],
+          r.nextInt(120), r.nextInt(7), 40 + r.nextDouble() * 6, 8 + r.nextDouble() * 8));
+    }
+    preferenze.setAttivitaPreferita(PreferenzeAttivita.RELAX);
+    preferenze.setBudgetPreferito(PreferenzeBudget.MEDIO);
+    preferenze.setStagioniPreferite(PreferenzeStagione.AUTUNNO_INVERNO);
+
+    List<Candidato> tutti = indice.miglioriAttivita(preferenze, 42, 12, 2000);
+    List<Candidato> migliori = indice.miglioriAttivita(preferenze, 42, 12, 5);
+
+    assertEquals(2000, tutti.size());
+    assertEquals(id(tutti.subList(0, 5)), id(migliori));
+    assertTrue(tutti.stream().map(Candidato::punteggio).toList().equals(tutti.stream()
+        .map(Candidato::punteggio).sorted(Comparator.reverseOrder()).toList()));
+  }
+
+  @Test
+  void lAlloggioMiglioreHaCameraEUsaLaPiuEconomica() {
+    indice.aggiorna(alloggio(10, CategorieAlloggio.HOTEL, 6));
+    indice.aggiorna(alloggio(11, CategorieAlloggio.OSTELLO, 1));
+    indice.aggiorna(alloggio(12, CategorieAlloggio.HOTEL, 6));
+    when(cameraRepository.findPrezzi()).thenReturn(List.of(
+        new PrezzoCamera(100L, 11L, 30), new PrezzoCamera(101L, 12L, 120),
+        new PrezzoCamera(102L, 12L, 90)));
+    indice.caricaCamere();
+
+    // L'alloggio 10 non ha camere
+    Candidato scelto = indice.migliorAlloggio(preferenze);
+    assertEquals(12L, scelto.idAttivita());
+    assertEquals(102L, scelto.idCamera());
+    assertEquals(90, scelto.prezzo());
+
+    preferenze.setBudgetPreferito(PreferenzeBudget.BASSO);
+    preferenze.setAlloggioPreferito(PreferenzeAlloggio.OSTELLO);
+    assertEquals(11L, indice.migliorAlloggio(preferenze).idAttivita());
+  }
+
+  // I candidati senza posti liberi lasciano il posto ai successivi
+  @Test
+  void saltaICandidatiNonAmmessi() {
+    indice.aggiorna(alloggio(10, CategorieAlloggio.HOTEL, 6));
+    indice.aggiorna(alloggio(11, CategorieAlloggio.HOTEL, 2));
+    when(cameraRepository.findPrezzi()).thenReturn(List.of(
+        new PrezzoCamera(100L, 10L, 80), new PrezzoCamera(101L, 11L, 80)));
+    indice.caricaCamere();
+    for (long id = 1; id <= 5; id++) {
+      indice.aggiorna(turistica(id, CategorieAttivitaTuristica.RELAX, 10, 7 - (int) id, 41,
+          14));
+    }
+
+    assertEquals(11L, indice.migliorAlloggio(preferenze, c -> c.idCamera() != 100L)
+        .idAttivita());
+    assertNull(indice.migliorAlloggio(preferenze, c -> false));
+    assertEquals(List.of(1L, 3L, 5L), id(indice.miglioriAttivita(preferenze, Double.NaN,
+        Double.NaN, 3, c -> c.idAttivita() % 2 == 1)));
+  }
+
+  @Test
+  void segueLeModificheDelleCamereEDelleAttivita() {
+    indice.aggiorna(alloggio(10, CategorieAlloggio.HOTEL, 3));
+    assertNull(indice.migliorAlloggio(preferenze));
+
+    Camera camera = new Camera();
+    camera.setId(100L);
+    camera.setAlloggio(alloggio(10, CategorieAlloggio.HOTEL, 3));
+    camera.setPrezzo(80);
+    indice.onCameraModificata(new CameraModificataEvent(camera, false));
+    assertEquals(100L, indice.migliorAlloggio(preferenze).idCamera());
+
+    indice.onCameraModificata(new CameraModificataEvent(camera, true));
+    assertNull(indice.migliorAlloggio(preferenze));
+
+    indice.aggiorna(turistica(1, CategorieAttivitaTuristica.RELAX, 10, 3, 41, 14));
+    indice.rimuovi(1L);
+    assertTrue(indice.miglioriAttivita(preferenze, Double.NaN, Double.NaN, 3).isEmpty());
+  }
+
+  @Test
+  void penalitaDistanza() {
+    assertEquals(0, IndiceItinerari.penalitaDistanza(41, 14, 41, 14));
+    assertEquals(IndiceItinerari.PENALITA_DISTANZA_MASSIMA,
+        IndiceItinerari.penalitaDistanza(41, 14, 45, 9));
+    assertEquals(IndiceItinerari.PENALITA_DISTANZA_MASSIMA,
+        IndiceItinerari.penalitaDistanza(41, 14, Double.NaN, Double.NaN));
+    assertEquals(IndiceItinerari.PESO_BUDGET, IndiceItinerari.punteggioBudget(25, 25));
+    assertEquals(-IndiceItinerari.PENALITA_BUDGET_MASSIMA,
+        IndiceItinerari.punteggioBudget(1000, 25));
+    assertEquals(0, IndiceItinerari.punteggioBudget(1000, Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  void ilRisultatoNonDipendeDallOrdineDiInserimento() {
+    List<Attivita> attivita = new ArrayList<>();
+    for (long id = 1; id <= 20; id++) {
+      attivita.add(turistica(id, CategorieAttivitaTuristica.RELAX, 10, 3, 41, 14));
+    }
+    attivita.reversed().forEach(indice::aggiorna);
+
+    assertEquals(List.of(1L, 2L, 3L), id(indice.miglioriAttivita(preferenze, Double.NaN,
+        Double.NaN, 3)));
+  }
+
+}
@@ -6,8 +6,10 @@ import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Itinerario;
 import it.greentrails.backend.entities.Preferenze;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
 import it.greentrails.backend.gestioneitinerari.adapter.ItinerariAdapter;
 import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
@@ -23,6 +25,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
@@ -46,6 +49,9 @@ public class ItinerariServiceImplTest {
   @Mock
   private ItinerariAdapter itinerariStubAdapter;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private ItinerariServiceImpl itinerariService;
 
@@ -163,6 +169,25 @@ public class ItinerariServiceImplTest {
     verify(repository).flush();
   }
 
+  @Test
+  void testDeleteItinerarioLiberaLeCamere() throws Exception {
+    Itinerario itinerario = new Itinerario();
+    itinerario.setId(1L);
+    PrenotazioneAlloggio prenotazione = new PrenotazioneAlloggio();
+    prenotazione.setId(5L);
+
+    when(prenotazioneAlloggioService.getPrenotazioniByItinerario(itinerario))
+        .thenReturn(List.of(prenotazione));
+    when(prenotazioneAttivitaTuristicaService.getPrenotazioniByItinerario(itinerario))
+        .thenReturn(Collections.emptyList());
+    when(repository.findById(1L)).thenReturn(Optional.empty());
+
+    Assertions.assertTrue(itinerariService.deleteItinerario(itinerario));
+    verify(prenotazioneAlloggioRepository).deleteAllInBatch(List.of(prenotazione));
+    verify(eventPublisher).publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazione,
+        true));
+  }
+
   @Test
   void testDeleteItinerarioFailed() throws Exception {
     Itinerario itinerario = new Itinerario();
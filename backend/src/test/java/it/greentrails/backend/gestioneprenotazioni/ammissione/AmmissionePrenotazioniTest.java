@@ -0,0 +1,290 @@
+package it.greentrails.backend.gestioneprenotazioni.ammissione;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.DisponibilitaCamera;
+import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni.Risorsa;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioCamere;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioServiceImpl;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaServiceImpl;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+class AmmissionePrenotazioniTest {
+
+  private static final int THREAD = 16;
+  private static final int TENTATIVI_PER_THREAD = 300;
+
+  private final AmmissionePrenotazioni ammissione = new AmmissionePrenotazioni();
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(THREAD);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static Date data(int giorno) {
+    return Date.from(LocalDate.of(2025, 7, giorno).atStartOfDay(ZoneId.systemDefault())
+        .toInstant());
+  }
+
+  // Avvia tutti i thread insieme e attende che abbiano finito
+  private void inParallelo(Runnable compito) throws Exception {
+    CountDownLatch partenza = new CountDownLatch(1);
+    List<Future<?>> futuri = new ArrayList<>();
+    for (int i = 0; i < THREAD; i++) {
+      futuri.add(executor.submit(() -> {
+        partenza.await();
+        compito.run();
+        return null;
+      }));
+    }
+    partenza.countDown();
+    for (Future<?> futuro : futuri) {
+      futuro.get(30, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void stessaRisorsaStessaStriscia() {
+    assertSame(ammissione.striscia(Risorsa.CAMERA, 42L), ammissione.striscia(Risorsa.CAMERA, 42L));
+    assertNotSame(ammissione.striscia(Risorsa.CAMERA, 42L),
+        ammissione.striscia(Risorsa.ATTIVITA_TURISTICA, 42L));
+  }
+
+  @Test
+  void risorseInStrisceDiverseProcedonoInParallelo() throws Exception {
+    long altra = 2;
+    while (ammissione.striscia(Risorsa.CAMERA, altra) == ammissione.striscia(Risorsa.CAMERA, 1L)) {
+      altra++;
+    }
+    long idAltra = altra;
+    CountDownLatch dentro = new CountDownLatch(1);
+    CountDownLatch rilascia = new CountDownLatch(1);
+    Future<?> primo = executor.submit(() -> ammissione.perCamera(1L, () -> {
+      dentro.countDown();
+      // Resta dentro la sezione critica finché l'altra camera non è stata servita
+      assertTrue(rilascia.await(10, TimeUnit.SECONDS));
+      return null;
+    }));
+    assertTrue(dentro.await(10, TimeUnit.SECONDS));
+
+    executor.submit(() -> ammissione.perCamera(idAltra, () -> {
+      rilascia.countDown();
+      return null;
+    })).get(10, TimeUnit.SECONDS);
+    primo.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void perRisorseBloccaTutteLeStrisceSenzaStalli() throws Exception {
+    AtomicInteger dentro = new AtomicInteger();
+    AtomicInteger massimo = new AtomicInteger();
+    // Metà dei thread elenca le camere in ordine inverso: senza un ordine fisso si bloccherebbero
+    AtomicInteger contatore = new AtomicInteger();
+    inParallelo(() -> {
+      List<Long> camere = new ArrayList<>(List.of(1L, 2L, 3L, 4L, 5L));
+      if (contatore.incrementAndGet() % 2 == 0) {
+        Collections.reverse(camere);
+      }
+      for (int i = 0; i < TENTATIVI_PER_THREAD; i++) {
+        try {
+          ammissione.perRisorse(camere, List.of(1L), () -> {
+            massimo.accumulateAndGet(dentro.incrementAndGet(), Math::max);
+            dentro.decrementAndGet();
+            return null;
+          });
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+
+    assertEquals(1, massimo.get());
+    for (long id = 1; id <= 5; id++) {
+      assertFalse(ammissione.striscia(Risorsa.CAMERA, id).isLocked());
+    }
+  }
+
+  @Test
+  void nessunOverbookingSulleCamere() throws Exception {
+    PrenotazioneAlloggioRepository repository = mock(PrenotazioneAlloggioRepository.class);
+    CameraRepository cameraRepository = mock(CameraRepository.class);
+    when(cameraRepository.findDisponibilita()).thenReturn(List.of(
+        new DisponibilitaCamera(1L, 1L, 5), new DisponibilitaCamera(2L, 1L, 3)));
+    when(repository.findOccupazioniDopo(anyLong(), any(Limit.class))).thenReturn(List.of());
+    CalendarioCamere calendario = new CalendarioCamere(repository, cameraRepository);
+    calendario.ricostruisci();
+
+    AtomicLong ultimoId = new AtomicLong();
+    Queue<PrenotazioneAlloggio> salvate = new ConcurrentLinkedQueue<>();
+    when(repository.save(any(PrenotazioneAlloggio.class))).thenAnswer(invocation -> {
+      PrenotazioneAlloggio prenotazione = invocation.getArgument(0);
+      prenotazione.setId(ultimoId.incrementAndGet());
+      salvate.add(prenotazione);
+      return prenotazione;
+    });
+    PrenotazioneAlloggioServiceImpl service = new PrenotazioneAlloggioServiceImpl(repository,
+        mock(CameraService.class), calendario, ammissione,
+        event -> calendario.onPrenotazioneAlloggioModificata(
+            (PrenotazioneAlloggioModificataEvent) event));
+
+    Attivita alloggio = new Attivita();
+    alloggio.setId(1L);
+    alloggio.setAlloggio(true);
+    Map<Long, Camera> camere = new HashMap<>();
+    for (long id = 1; id <= 2; id++) {
+      Camera camera = new Camera();
+      camera.setId(id);
+      camera.setAlloggio(alloggio);
+      camera.setDisponibilita(id == 1 ? 5 : 3);
+      camere.put(id, camera);
+    }
+
+    AtomicInteger rifiutate = new AtomicInteger();
+    inParallelo(() -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < TENTATIVI_PER_THREAD; i++) {
+        int inizio = 1 + random.nextInt(10);
+        PrenotazioneAlloggio prenotazione = new PrenotazioneAlloggio();
+        prenotazione.setDataInizio(data(inizio));
+        prenotazione.setDataFine(data(inizio + random.nextInt(3)));
+        prenotazione.setNumCamere(1 + random.nextInt(2));
+        try {
+          service.savePrenotazioneAlloggio(camere.get(1L + random.nextInt(2)), prenotazione);
+        } catch (PostiNonDisponibiliException e) {
+          rifiutate.incrementAndGet();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+
+    int[][] occupate = new int[3][13];
+    for (PrenotazioneAlloggio prenotazione : salvate) {
+      int inizio = prenotazione.getDataInizio().toInstant().atZone(ZoneId.systemDefault())
+          .getDayOfMonth();
+      int fine = prenotazione.getDataFine().toInstant().atZone(ZoneId.systemDefault())
+          .getDayOfMonth();
+      for (int giorno = inizio; giorno <= fine; giorno++) {
+        occupate[prenotazione.getCamera().getId().intValue()][giorno] +=
+            prenotazione.getNumCamere();
+      }
+    }
+    for (int giorno = 1; giorno <= 12; giorno++) {
+      assertTrue(occupate[1][giorno] <= 5, "Camera 1 sovraprenotata il giorno " + giorno);
+      assertTrue(occupate[2][giorno] <= 3, "Camera 2 sovraprenotata il giorno " + giorno);
+    }
+    assertTrue(rifiutate.get() > 0);
+    assertEquals(THREAD * TENTATIVI_PER_THREAD, salvate.size() + rifiutate.get());
+  }
+
+  @Test
+  void nessunOverbookingSulleAttivitaTuristiche() throws Exception {
+    PrenotazioneAttivitaTuristicaRepository repository =
+        mock(PrenotazioneAttivitaTuristicaRepository.class);
+    Queue<PrenotazioneAttivitaTuristica> salvate = new ConcurrentLinkedQueue<>();
+    when(repository.save(any(PrenotazioneAttivitaTuristica.class))).thenAnswer(invocation -> {
+      salvate.add(invocation.getArgument(0));
+      return invocation.getArgument(0);
+    });
+    when(repository.getPostiOccupatiIn(anyLong(), any(Date.class))).thenAnswer(invocation -> {
+      long idAttivita = invocation.getArgument(0);
+      Date dataInizio = invocation.getArgument(1);
+      return salvate.stream()
+          .filter(p -> p.getAttivitaTuristica().getId() == idAttivita
+              && p.getDataInizio().equals(dataInizio))
+          .mapToInt(p -> p.getNumAdulti() + p.getNumBambini())
+          .sum();
+    });
+    PrenotazioneAttivitaTuristicaServiceImpl service =
+        new PrenotazioneAttivitaTuristicaServiceImpl(repository, ammissione,
+            new CalendarioAttivita(repository), event -> { });
+
+    List<Attivita> attivita = new ArrayList<>();
+    for (long id = 1; id <= 3; id++) {
+      Attivita turistica = new Attivita();
+      turistica.setId(id);
+      turistica.setAlloggio(false);
+      turistica.setDisponibilita(20);
+      attivita.add(turistica);
+    }
+
+    AtomicInteger rifiutate = new AtomicInteger();
+    inParallelo(() -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < TENTATIVI_PER_THREAD / 10; i++) {
+        PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+        prenotazione.setDataInizio(data(1 + random.nextInt(2)));
+        prenotazione.setNumAdulti(1 + random.nextInt(2));
+        prenotazione.setNumBambini(random.nextInt(2));
+        try {
+          service.savePrenotazioneAttivitaTuristica(attivita.get(random.nextInt(3)),
+              prenotazione);
+        } catch (PostiNonDisponibiliException e) {
+          rifiutate.incrementAndGet();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+
+    for (Attivita turistica : attivita) {
+      for (int giorno = 1; giorno <= 2; giorno++) {
+        Date dataInizio = data(giorno);
+        int posti = salvate.stream()
+            .filter(p -> p.getAttivitaTuristica() == turistica
+                && p.getDataInizio().equals(dataInizio))
+            .mapToInt(p -> p.getNumAdulti() + p.getNumBambini())
+            .sum();
+        assertTrue(posti <= 20, "Attività " + turistica.getId() + " sovraprenotata");
+      }
+    }
+    assertTrue(rifiutate.get() > 0);
+  }
+
+}
@@ -0,0 +1,87 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Le prenotazioni ricaricate dal database all'avvio devono occupare lo stesso slot di
+// quelle arrivate con gli eventi, giorno compreso
+@SpringBootTest
+@ActiveProfiles("test")
+class CalendarioAttivitaRicostruzioneTest {
+
+  @Autowired
+  private CalendarioAttivita calendario;
+
+  @Autowired
+  private PrenotazioneAttivitaTuristicaService service;
+
+  @Autowired
+  private PrenotazioneAttivitaTuristicaRepository repository;
+
+  @Autowired
+  private AttivitaRepository attivitaRepository;
+
+  @Autowired
+  private ItinerariRepository itinerariRepository;
+
+  private static Date data(LocalDateTime istante) {
+    return Date.from(istante.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  @Test
+  void laDisponibilitaNonCambiaDopoLaRicostruzione() throws Exception {
+    Attivita attivita = attivitaRepository.findAll().stream()
+        .filter(a -> !a.isAlloggio() && !a.isEliminata() && a.getDisponibilita() != null
+            && a.getDisponibilita() >= 2)
+        .findFirst().orElseThrow();
+    Itinerario itinerario = itinerariRepository.findAll().get(0);
+    LocalDateTime inizio = LocalDateTime.now().plusYears(3).withHour(10).withMinute(0)
+        .withSecond(0).withNano(0);
+    calendario.ricostruisci();
+    assertTrue(calendario.isPronto());
+    int libere = service.controllaDisponibilitaAttivitaTuristica(attivita, data(inizio));
+
+    PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+    prenotazione.setItinerario(itinerario);
+    prenotazione.setNumAdulti(2);
+    prenotazione.setNumBambini(0);
+    prenotazione.setDataInizio(data(inizio));
+    prenotazione.setDataFine(data(inizio.plusHours(2)));
+    prenotazione.setStato(StatoPrenotazione.CREATA);
+    prenotazione.setPrezzo(100.0);
+    PrenotazioneAttivitaTuristica salvata =
+        service.savePrenotazioneAttivitaTuristica(attivita, prenotazione);
+    try {
+      assertEquals(libere - 2,
+          service.controllaDisponibilitaAttivitaTuristica(attivita, data(inizio)));
+
+      calendario.ricostruisci();
+
+      assertEquals(libere - 2,
+          service.controllaDisponibilitaAttivitaTuristica(attivita, data(inizio)));
+      // Stesso orario, altro giorno: lo slot è libero
+      assertEquals(libere,
+          service.controllaDisponibilitaAttivitaTuristica(attivita, data(inizio.plusDays(1))));
+    } finally {
+      repository.delete(salvata);
+      calendario.ricostruisci();
+    }
+  }
+
+}
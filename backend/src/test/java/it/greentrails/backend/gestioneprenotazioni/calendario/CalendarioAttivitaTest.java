@@ -0,0 +1,129 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita.Slot;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+class CalendarioAttivitaTest {
+
+  @Mock
+  private PrenotazioneAttivitaTuristicaRepository repository;
+
+  private CalendarioAttivita calendario;
+  private Attivita attivita;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    calendario = new CalendarioAttivita(repository);
+    attivita = new Attivita();
+    attivita.setId(1L);
+    when(repository.findOccupazioniDopo(anyLong(), any(Limit.class))).thenReturn(List.of());
+  }
+
+  private static Date data(int giorno, int ora) {
+    return Date.from(LocalDateTime.of(2025, 7, giorno, ora, 0).atZone(ZoneId.systemDefault())
+        .toInstant());
+  }
+
+  private PrenotazioneAttivitaTuristica prenotazione(long id, Date inizio, int adulti,
+      int bambini) {
+    PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+    prenotazione.setId(id);
+    prenotazione.setAttivitaTuristica(attivita);
+    prenotazione.setDataInizio(inizio);
+    prenotazione.setNumAdulti(adulti);
+    prenotazione.setNumBambini(bambini);
+    return prenotazione;
+  }
+
+  private void salvata(PrenotazioneAttivitaTuristica prenotazione) {
+    calendario.onPrenotazioneAttivitaTuristicaModificata(
+        new PrenotazioneAttivitaTuristicaModificataEvent(prenotazione, false));
+  }
+
+  @Test
+  void ricostruisciCaricaLePrenotazioniABlocchi() {
+    List<OccupazioneAttivita> primo = new ArrayList<>();
+    for (long id = 1; id <= CalendarioAttivita.DIMENSIONE_BLOCCO; id++) {
+      primo.add(new OccupazioneAttivita(id, 1L, data(1, 10), 1));
+    }
+    when(repository.findOccupazioniDopo(eq(0L), any(Limit.class))).thenReturn(primo);
+    when(repository.findOccupazioniDopo(eq((long) CalendarioAttivita.DIMENSIONE_BLOCCO),
+        any(Limit.class))).thenReturn(List.of(
+        new OccupazioneAttivita(5000L, 1L, data(2, 10), 3),
+        new OccupazioneAttivita(5001L, 2L, data(1, 10), 4)));
+    assertFalse(calendario.isPronto());
+
+    calendario.ricostruisci();
+
+    assertTrue(calendario.isPronto());
+    assertEquals(CalendarioAttivita.DIMENSIONE_BLOCCO, calendario.getPostiOccupati(1L,
+        data(1, 10)));
+    assertEquals(3, calendario.getPostiOccupati(1L, data(2, 10)));
+    assertEquals(4, calendario.getPostiOccupati(2L, data(1, 10)));
+    assertEquals(0, calendario.getPostiOccupati(3L, data(1, 10)));
+  }
+
+  @Test
+  void gliEventiAggiornanoSpostanoEdEliminano() {
+    calendario.ricostruisci();
+    PrenotazioneAttivitaTuristica prenotazione = prenotazione(1L, data(1, 10), 2, 1);
+    salvata(prenotazione);
+    salvata(prenotazione(2L, data(1, 10), 4, 0));
+    assertEquals(7, calendario.getPostiOccupati(1L, data(1, 10)));
+
+    // La stessa prenotazione salvata con un'altra data libera l'orario precedente
+    prenotazione.setDataInizio(data(3, 9));
+    salvata(prenotazione);
+    assertEquals(4, calendario.getPostiOccupati(1L, data(1, 10)));
+    assertEquals(3, calendario.getPostiOccupati(1L, data(3, 9)));
+
+    calendario.onPrenotazioneAttivitaTuristicaModificata(
+        new PrenotazioneAttivitaTuristicaModificataEvent(prenotazione, true));
+    assertEquals(0, calendario.getPostiOccupati(1L, data(3, 9)));
+    assertTrue(calendario.getSlot(1L, data(3, 0), data(4, 0)).isEmpty());
+  }
+
+  @Test
+  void slotDiUnaSettimanaEPrimoSlotLibero() {
+    calendario.ricostruisci();
+    salvata(prenotazione(1L, data(1, 10), 10, 0));
+    salvata(prenotazione(2L, data(1, 15), 3, 0));
+    salvata(prenotazione(3L, data(5, 10), 8, 2));
+    salvata(prenotazione(4L, data(9, 10), 1, 0));
+
+    assertEquals(List.of(new Slot(data(1, 10), 10), new Slot(data(1, 15), 3),
+        new Slot(data(5, 10), 10)), calendario.getSlot(1L, data(1, 0), data(8, 0)));
+    assertEquals(10, calendario.getMassimoOccupati(1L, data(1, 0), data(8, 0)));
+    assertEquals(3, calendario.getMassimoOccupati(1L, data(1, 11), data(5, 10)));
+
+    assertEquals(new Slot(data(1, 15), 3), calendario.getPrimoSlot(1L, data(1, 0), 5));
+    assertEquals(new Slot(data(9, 10), 1), calendario.getPrimoSlot(1L, data(1, 16), 5));
+    assertNull(calendario.getPrimoSlot(1L, data(9, 11), 5));
+    assertNull(calendario.getPrimoSlot(2L, data(1, 0), 5));
+  }
+
+}
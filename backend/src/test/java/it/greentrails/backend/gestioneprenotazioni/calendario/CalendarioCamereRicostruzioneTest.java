@@ -0,0 +1,85 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Le prenotazioni ricaricate dal database all'avvio devono occupare gli stessi giorni di
+// quelle arrivate con gli eventi
+@SpringBootTest
+@ActiveProfiles("test")
+class CalendarioCamereRicostruzioneTest {
+
+  @Autowired
+  private CalendarioCamere calendario;
+
+  @Autowired
+  private PrenotazioneAlloggioService service;
+
+  @Autowired
+  private PrenotazioneAlloggioRepository repository;
+
+  @Autowired
+  private CameraRepository cameraRepository;
+
+  @Autowired
+  private ItinerariRepository itinerariRepository;
+
+  private static Date data(LocalDate giorno) {
+    return Date.from(giorno.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+  @Test
+  void laDisponibilitaNonCambiaDopoLaRicostruzione() throws Exception {
+    Camera camera = cameraRepository.findAll().stream()
+        .filter(c -> c.getDisponibilita() != null && c.getDisponibilita() >= 2)
+        .findFirst().orElseThrow();
+    Itinerario itinerario = itinerariRepository.findAll().get(0);
+    LocalDate inizio = LocalDate.now().plusYears(3);
+    calendario.ricostruisci();
+    assertTrue(calendario.isPronto());
+    int libere = service.controllaDisponibilitaCamera(camera, data(inizio),
+        data(inizio.plusDays(2)));
+
+    PrenotazioneAlloggio prenotazione = new PrenotazioneAlloggio();
+    prenotazione.setItinerario(itinerario);
+    prenotazione.setNumAdulti(2);
+    prenotazione.setNumBambini(0);
+    prenotazione.setNumCamere(2);
+    prenotazione.setDataInizio(data(inizio));
+    prenotazione.setDataFine(data(inizio.plusDays(2)));
+    prenotazione.setStato(StatoPrenotazione.CREATA);
+    prenotazione.setPrezzo(100.0);
+    PrenotazioneAlloggio salvata = service.savePrenotazioneAlloggio(camera, prenotazione);
+    try {
+      assertEquals(libere - 2, service.controllaDisponibilitaCamera(camera,
+          data(inizio.plusDays(1)), data(inizio.plusDays(1))));
+
+      calendario.ricostruisci();
+
+      assertEquals(libere - 2, service.controllaDisponibilitaCamera(camera,
+          data(inizio.plusDays(1)), data(inizio.plusDays(1))));
+      assertEquals(libere, service.controllaDisponibilitaCamera(camera,
+          data(inizio.plusDays(3)), data(inizio.plusDays(5))));
+    } finally {
+      repository.delete(salvata);
+      calendario.ricostruisci();
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.events.CameraModificataEvent;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneattivita.repository.DisponibilitaCamera;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneCamera;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+class CalendarioCamereTest {
+
+  @Mock
+  private PrenotazioneAlloggioRepository prenotazioneAlloggioRepository;
+
+  @Mock
+  private CameraRepository cameraRepository;
+
+  private CalendarioCamere calendario;
+  private Camera camera;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    calendario = new CalendarioCamere(prenotazioneAlloggioRepository, cameraRepository);
+    Attivita alloggio = new Attivita();
+    alloggio.setId(1L);
+    camera = new Camera();
+    camera.setId(10L);
+    camera.setAlloggio(alloggio);
+    camera.setDisponibilita(5);
+    when(cameraRepository.findDisponibilita()).thenReturn(List.of(
+        new DisponibilitaCamera(10L, 1L, 5), new DisponibilitaCamera(11L, 1L, 3)));
+    when(prenotazioneAlloggioRepository.findOccupazioniDopo(anyLong(), any(Limit.class)))
+        .thenReturn(List.of());
+  }
+
+  private static Date data(int giorno) {
+    return Date.from(LocalDate.of(2025, 7, giorno).atStartOfDay(ZoneId.systemDefault())
+        .toInstant());
+  }
+
+  private PrenotazioneAlloggio prenotazione(long id, int inizio, int fine, int numCamere) {
+    PrenotazioneAlloggio prenotazione = new PrenotazioneAlloggio();
+    prenotazione.setId(id);
+    prenotazione.setCamera(camera);
+    prenotazione.setDataInizio(data(inizio));
+    prenotazione.setDataFine(data(fine));
+    prenotazione.setNumCamere(numCamere);
+    return prenotazione;
+  }
+
+  @Test
+  void ricostruisciCaricaCamereEPrenotazioni() {
+    when(prenotazioneAlloggioRepository.findOccupazioniDopo(eq(0L), any(Limit.class)))
+        .thenReturn(List.of(
+            new OccupazioneCamera(1L, 10L, 1L, data(1), data(5), 2),
+            new OccupazioneCamera(2L, 10L, 1L, data(4), data(8), 1),
+            new OccupazioneCamera(3L, 11L, 1L, data(4), data(4), 3)));
+
+    assertFalse(calendario.isPronto());
+    calendario.ricostruisci();
+
+    assertTrue(calendario.isPronto());
+    assertEquals(8, calendario.getCapienzaAlloggio(1L));
+    assertEquals(2, calendario.getPostiOccupatiCamera(10L, data(1), data(3)));
+    assertEquals(3, calendario.getPostiOccupatiCamera(10L, data(1), data(8)));
+    assertEquals(1, calendario.getPostiOccupatiCamera(10L, data(6), data(20)));
+    assertEquals(0, calendario.getPostiOccupatiCamera(10L, data(9), data(20)));
+    assertEquals(6, calendario.getPostiOccupatiAlloggio(1L, data(1), data(31)));
+    assertEquals(0, calendario.getPostiOccupatiAlloggio(2L, data(1), data(31)));
+  }
+
+  @Test
+  void ricostruisciLeggePiuBlocchi() {
+    List<OccupazioneCamera> primo = new ArrayList<>();
+    for (long id = 1; id <= CalendarioCamere.DIMENSIONE_BLOCCO; id++) {
+      primo.add(new OccupazioneCamera(id, 10L, 1L, data(1), data(1), 1));
+    }
+    when(prenotazioneAlloggioRepository.findOccupazioniDopo(eq(0L), any(Limit.class)))
+        .thenReturn(primo);
+    when(prenotazioneAlloggioRepository.findOccupazioniDopo(
+        eq((long) CalendarioCamere.DIMENSIONE_BLOCCO), any(Limit.class)))
+        .thenReturn(List.of(new OccupazioneCamera(5000L, 10L, 1L, data(2), data(2), 7)));
+
+    calendario.ricostruisci();
+
+    assertEquals(CalendarioCamere.DIMENSIONE_BLOCCO,
+        calendario.getPostiOccupatiCamera(10L, data(1), data(1)));
+    assertEquals(7, calendario.getPostiOccupatiCamera(10L, data(2), data(2)));
+  }
+
+  @Test
+  void eventiAggiornanoEdEliminanoLePrenotazioni() {
+    calendario.ricostruisci();
+    PrenotazioneAlloggio prenotazione = prenotazione(1L, 1, 5, 2);
+
+    calendario.onPrenotazioneAlloggioModificata(
+        new PrenotazioneAlloggioModificataEvent(prenotazione, false));
+    assertEquals(2, calendario.getPostiOccupatiCamera(10L, data(5), data(6)));
+
+    // Una modifica sostituisce l'occupazione precedente
+    prenotazione.setDataInizio(data(10));
+    prenotazione.setDataFine(data(12));
+    prenotazione.setNumCamere(4);
+    calendario.onPrenotazioneAlloggioModificata(
+        new PrenotazioneAlloggioModificataEvent(prenotazione, false));
+    assertEquals(0, calendario.getPostiOccupatiCamera(10L, data(1), data(9)));
+    assertEquals(4, calendario.getPostiOccupatiAlloggio(1L, data(1), data(31)));
+
+    calendario.onPrenotazioneAlloggioModificata(
+        new PrenotazioneAlloggioModificataEvent(prenotazione, true));
+    assertEquals(0, calendario.getPostiOccupatiAlloggio(1L, data(1), data(31)));
+  }
+
+  @Test
+  void eventiCameraAggiornanoLaCapienza() {
+    calendario.ricostruisci();
+
+    camera.setDisponibilita(9);
+    calendario.onCameraModificata(new CameraModificataEvent(camera, false));
+    assertEquals(12, calendario.getCapienzaAlloggio(1L));
+
+    calendario.onCameraModificata(new CameraModificataEvent(camera, true));
+    assertEquals(3, calendario.getCapienzaAlloggio(1L));
+  }
+
+  @Test
+  void giornoIgnoraLOra() {
+    Date mattina = Date.from(LocalDate.of(2025, 7, 1).atTime(8, 0)
+        .atZone(ZoneId.systemDefault()).toInstant());
+    Date sera = Date.from(LocalDate.of(2025, 7, 1).atTime(23, 0)
+        .atZone(ZoneId.systemDefault()).toInstant());
+
+    assertEquals(CalendarioCamere.giorno(mattina), CalendarioCamere.giorno(sera));
+    assertEquals(LocalDate.of(2025, 7, 1).toEpochDay(), CalendarioCamere.giorno(mattina));
+  }
+
+}
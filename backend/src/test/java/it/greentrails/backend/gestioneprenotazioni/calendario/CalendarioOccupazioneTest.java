@@ -0,0 +1,72 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CalendarioOccupazioneTest {
+
+  @Test
+  void massimoSuIntervalliSovrapposti() {
+    CalendarioOccupazione calendario = new CalendarioOccupazione();
+    calendario.aggiungi(10, 14, 2);
+    calendario.aggiungi(12, 20, 3);
+    calendario.aggiungi(30, 30, 1);
+
+    assertEquals(2, calendario.massimo(10, 11));
+    assertEquals(5, calendario.massimo(10, 12));
+    assertEquals(5, calendario.massimo(14, 14));
+    assertEquals(3, calendario.massimo(15, 29));
+    assertEquals(5, calendario.massimo(0, 100));
+    assertEquals(0, calendario.massimo(21, 29));
+    assertEquals(1, calendario.massimo(30, 40));
+  }
+
+  @Test
+  void rimozioneConQuantitaNegativa() {
+    CalendarioOccupazione calendario = new CalendarioOccupazione();
+    calendario.aggiungi(10, 14, 2);
+    calendario.aggiungi(12, 20, 3);
+
+    calendario.aggiungi(12, 20, -3);
+
+    assertEquals(2, calendario.massimo(0, 100));
+    assertEquals(0, calendario.massimo(15, 20));
+  }
+
+  @Test
+  void dateNegativeEFuoriIntervallo() {
+    CalendarioOccupazione calendario = new CalendarioOccupazione();
+    calendario.aggiungi(-5, 5, 1);
+    calendario.aggiungi(Long.MAX_VALUE - 1, Long.MAX_VALUE, 4);
+
+    assertEquals(1, calendario.massimo(-10, -5));
+    assertEquals(4, calendario.massimo(CalendarioOccupazione.ULTIMO_GIORNO, Long.MAX_VALUE));
+    assertEquals(0, calendario.massimo(5, 1));
+  }
+
+  @Test
+  void confrontoConArrayGiornaliero() {
+    CalendarioOccupazione calendario = new CalendarioOccupazione();
+    int[] giorni = new int[400];
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      int inizio = random.nextInt(giorni.length);
+      int fine = Math.min(giorni.length - 1, inizio + random.nextInt(30));
+      int quantita = 1 + random.nextInt(3);
+      calendario.aggiungi(inizio, fine, quantita);
+      for (int g = inizio; g <= fine; g++) {
+        giorni[g] += quantita;
+      }
+      int da = random.nextInt(giorni.length);
+      int a = Math.min(giorni.length - 1, da + random.nextInt(60));
+      int atteso = 0;
+      for (int g = da; g <= a; g++) {
+        atteso = Math.max(atteso, giorni[g]);
+      }
+      assertEquals(atteso, calendario.massimo(da, a));
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package it.greentrails.backend.gestioneprenotazioni.calendario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OccupazioneSlotTest {
+
+  @Test
+  void postiMassimoEPrimoSlot() {
+    OccupazioneSlot slot = new OccupazioneSlot();
+    slot.aggiungi(100, 4);
+    slot.aggiungi(200, 10);
+    slot.aggiungi(300, 2);
+    slot.aggiungi(200, 3);
+
+    assertEquals(13, slot.occupati(200));
+    assertEquals(0, slot.occupati(150));
+    assertEquals(13, slot.massimo(0, 1000));
+    assertEquals(4, slot.massimo(100, 199));
+    assertEquals(0, slot.massimo(101, 199));
+    assertEquals(100, slot.primo(0, 1000, 5));
+    assertEquals(300, slot.primo(101, 1000, 5));
+    assertEquals(OccupazioneSlot.NESSUNO, slot.primo(301, 1000, 5));
+    assertEquals(OccupazioneSlot.NESSUNO, slot.primo(0, 1000, 1));
+  }
+
+  @Test
+  void unOrarioSenzaPostiNonEUnoSlot() {
+    OccupazioneSlot slot = new OccupazioneSlot();
+    slot.aggiungi(100, 4);
+    slot.aggiungi(200, 2);
+    slot.aggiungi(100, -4);
+
+    List<Long> orari = new ArrayList<>();
+    slot.visita(0, 1000, (secondo, occupati) -> orari.add(secondo));
+    assertEquals(List.of(200L), orari);
+    assertEquals(200, slot.primo(0, 1000, 10));
+    assertEquals(2, slot.massimo(0, 1000));
+  }
+
+  @Test
+  void orariNegativiEFuoriIntervallo() {
+    OccupazioneSlot slot = new OccupazioneSlot();
+    slot.aggiungi(-50, 1);
+    slot.aggiungi(Long.MAX_VALUE, 3);
+
+    assertEquals(1, slot.occupati(-50));
+    assertEquals(3, slot.occupati(OccupazioneSlot.ULTIMO_SECONDO));
+    assertEquals(-50, slot.primo(Long.MIN_VALUE, Long.MAX_VALUE, 5));
+    assertEquals(0, slot.massimo(5, 1));
+  }
+
+  @Test
+  void confrontoConArray() {
+    OccupazioneSlot slot = new OccupazioneSlot();
+    int[] orari = new int[500];
+    Random random = new Random(42);
+    for (int i = 0; i < 3000; i++) {
+      int orario = random.nextInt(orari.length);
+      int quantita = orari[orario] > 0 && random.nextInt(4) == 0
+          ? -orari[orario] : 1 + random.nextInt(5);
+      slot.aggiungi(orario, quantita);
+      orari[orario] += quantita;
+
+      int da = random.nextInt(orari.length);
+      int a = Math.min(orari.length - 1, da + random.nextInt(100));
+      int soglia = random.nextInt(20);
+      int massimo = 0;
+      long primo = OccupazioneSlot.NESSUNO;
+      List<Long> attesi = new ArrayList<>();
+      for (int o = da; o <= a; o++) {
+        massimo = Math.max(massimo, orari[o]);
+        if (orari[o] > 0) {
+          attesi.add((long) o);
+          if (primo == OccupazioneSlot.NESSUNO && orari[o] <= soglia) {
+            primo = o;
+          }
+        }
+      }
+      List<Long> visitati = new ArrayList<>();
+      slot.visita(da, a, (secondo, occupati) -> visitati.add(secondo));
+
+      assertEquals(orari[orario], slot.occupati(orario));
+      assertEquals(massimo, slot.massimo(da, a));
+      assertEquals(primo, slot.primo(da, a, soglia));
+      assertEquals(attesi, visitati);
+    }
+  }
+
+}
@@ -13,6 +13,7 @@ import it.greentrails.backend.enums.StatoPrenotazione;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAlloggioService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -231,6 +232,31 @@ class PrenotazioneAlloggioControllerTest {
     verify(prenotazioneAlloggioService, never()).savePrenotazioneAlloggio(any(), any());
   }
 
+  @Test
+  void testCreaPrenotazioneAlloggio_CameraOccupataDuranteIlSalvataggio() throws Exception {
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+    when(cameraService.findById(1L)).thenReturn(camera);
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(eq(camera), any(Date.class), any(Date.class)))
+        .thenReturn(1);
+    when(prenotazioneAlloggioService.savePrenotazioneAlloggio(eq(camera), any(PrenotazioneAlloggio.class)))
+        .thenThrow(new PostiNonDisponibiliException("La camera non è disponibile."));
+
+    mockMvc.perform(post("/api/prenotazioni-alloggio")
+            .param("idItinerario", "1")
+            .param("idCamera", "1")
+            .param("numAdulti", "2")
+            .param("numBambini", "0")
+            .param("dataInizio", "2026-03-01")
+            .param("dataFine", "2026-03-02")
+            .param("numCamere", "1")
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.data").value("Camera non disponibile"));
+
+    verify(itinerariService, never()).saveItinerario(any());
+  }
+
   @Test
   void testCreaPrenotazioneAlloggio_SenzaNumBambini() throws Exception {
     when(itinerariService.findById(1L)).thenReturn(itinerario);
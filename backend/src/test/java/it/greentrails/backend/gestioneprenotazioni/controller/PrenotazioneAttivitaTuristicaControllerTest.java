@@ -11,6 +11,8 @@ import it.greentrails.backend.enums.StatoPagamento;
 import it.greentrails.backend.enums.StatoPrenotazione;
 import it.greentrails.backend.gestioneattivita.service.AttivitaService;
 import it.greentrails.backend.gestioneitinerari.service.ItinerariService;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.service.DisponibilitaSettimana;
 import it.greentrails.backend.gestioneprenotazioni.service.PrenotazioneAttivitaTuristicaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,12 +25,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -218,6 +222,32 @@ class PrenotazioneAttivitaTuristicaControllerTest {
         .savePrenotazioneAttivitaTuristica(any(), any());
   }
 
+  @Test
+  void testCreaPrenotazioneAttivitaTuristica_PostiEsauritiDuranteIlSalvataggio()
+      throws Exception {
+    when(itinerariService.findById(1L)).thenReturn(itinerario);
+    when(attivitaService.findById(1L)).thenReturn(attivitaTuristica);
+    when(prenotazioneAttivitaTuristicaService.controllaDisponibilitaAttivitaTuristica(
+        eq(attivitaTuristica), any(Date.class))).thenReturn(2);
+    when(prenotazioneAttivitaTuristicaService.savePrenotazioneAttivitaTuristica(
+        eq(attivitaTuristica), any(PrenotazioneAttivitaTuristica.class)))
+        .thenThrow(new PostiNonDisponibiliException("L'attività turistica non è disponibile."));
+
+    mockMvc.perform(post("/api/prenotazioni-attivita-turistica")
+            .param("idItinerario", "1")
+            .param("idAttivita", "1")
+            .param("numAdulti", "2")
+            .param("numBambini", "0")
+            .param("dataInizio", "2026-03-01")
+            .param("dataFine", "2026-03-02")
+            .with(user(visitatore))
+            .with(csrf()))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.data").value("Attività turistica non disponibile"));
+
+    verify(itinerariService, never()).saveItinerario(any());
+  }
+
   @Test
   void testCreaPrenotazioneAttivitaTuristica_DataFineAntecedente() throws Exception {
     when(itinerariService.findById(1L)).thenReturn(itinerario);
@@ -875,6 +905,41 @@ class PrenotazioneAttivitaTuristicaControllerTest {
     verify(attivitaService).findById(1L);
   }
 
+  @Test
+  void testVisualizzaDisponibilitaSettimana_Success() throws Exception {
+    LocalDate inizio = LocalDate.of(2026, 3, 2);
+    Date slot = new Date();
+    when(attivitaService.findById(1L)).thenReturn(attivitaTuristica);
+    when(prenotazioneAttivitaTuristicaService.getDisponibilitaSettimana(attivitaTuristica,
+        inizio, 3)).thenReturn(new DisponibilitaSettimana(1L, inizio, inizio.plusDays(6), 10, 2,
+        List.of(new DisponibilitaSettimana.Slot(slot, 8, 2)),
+        new DisponibilitaSettimana.Slot(slot, 8, 2)));
+
+    mockMvc.perform(get("/api/prenotazioni-attivita-turistica/perAttivita/1/settimana")
+            .param("dataInizio", "2026-03-02")
+            .param("posti", "3")
+            .with(user(visitatore)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.fine").value("2026-03-08"))
+        .andExpect(jsonPath("$.data.postiGarantiti").value(2))
+        .andExpect(jsonPath("$.data.slot[0].liberi").value(2))
+        .andExpect(jsonPath("$.data.prossimo.occupati").value(8));
+  }
+
+  @Test
+  void testVisualizzaDisponibilitaSettimana_NonValida() throws Exception {
+    when(attivitaService.findById(1L)).thenReturn(attivitaTuristica);
+
+    mockMvc.perform(get("/api/prenotazioni-attivita-turistica/perAttivita/1/settimana")
+            .param("dataInizio", "2026-03-02")
+            .param("posti", "0")
+            .with(user(visitatore)))
+        .andExpect(status().isBadRequest());
+
+    verify(prenotazioneAttivitaTuristicaService, never()).getDisponibilitaSettimana(any(),
+        any(), anyInt());
+  }
+
   @Test
   void testVisualizzaPrenotazioniAttivitaTuristicaPerVisitatore_Success() throws Exception {
     List<PrenotazioneAttivitaTuristica> prenotazioni = new ArrayList<>();
@@ -10,7 +10,11 @@ import it.greentrails.backend.entities.PrenotazioneAlloggio;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
 import it.greentrails.backend.gestioneattivita.service.CameraService;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioCamere;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAlloggioRepository;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -22,7 +26,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -38,6 +44,15 @@ class PrenotazioneAlloggioServiceImplTest {
   @Mock
   private CameraService cameraService;
 
+  @Mock
+  private CalendarioCamere calendarioCamere;
+
+  @Spy
+  private AmmissionePrenotazioni ammissione = new AmmissionePrenotazioni();
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private PrenotazioneAlloggioServiceImpl service;
 
@@ -101,6 +116,21 @@ class PrenotazioneAlloggioServiceImplTest {
     assertNotNull(result);
     assertEquals(camera, result.getCamera());
     verify(repository, times(1)).save(prenotazione);
+    verify(eventPublisher).publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazione,
+        false));
+  }
+
+  @Test
+  void testSavePrenotazioneAlloggio_CameraNonDisponibile() {
+    // Given
+    when(calendarioCamere.isPronto()).thenReturn(true);
+    when(calendarioCamere.getPostiOccupatiCamera(1L, dataInizio, dataFine)).thenReturn(9);
+
+    // When & Then
+    assertThrows(PostiNonDisponibiliException.class, () ->
+        service.savePrenotazioneAlloggio(camera, prenotazione));
+    verify(repository, never()).save(any());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -145,6 +175,8 @@ class PrenotazioneAlloggioServiceImplTest {
     assertTrue(result);
     verify(repository, times(1)).delete(prenotazione);
     verify(repository, times(1)).flush();
+    verify(eventPublisher).publishEvent(new PrenotazioneAlloggioModificataEvent(prenotazione,
+        true));
   }
 
   @Test
@@ -421,6 +453,18 @@ class PrenotazioneAlloggioServiceImplTest {
         exception.getMessage());
   }
 
+  @Test
+  void testControllaDisponibilitaAlloggio_DaCalendario() throws Exception {
+    when(calendarioCamere.isPronto()).thenReturn(true);
+    when(calendarioCamere.getCapienzaAlloggio(alloggio.getId())).thenReturn(15);
+    when(calendarioCamere.getPostiOccupatiAlloggio(alloggio.getId(), dataInizio, dataFine))
+        .thenReturn(4);
+
+    assertEquals(11, service.controllaDisponibilitaAlloggio(alloggio, dataInizio, dataFine));
+    verify(cameraService, never()).getCamereByAlloggio(any());
+    verify(repository, never()).getPostiOccupatiAlloggioTra(anyLong(), any(), any());
+  }
+
   // Test controllaDisponibilitaCamera
   @Test
   void testControllaDisponibilitaCamera_Success() throws Exception {
@@ -435,6 +479,16 @@ class PrenotazioneAlloggioServiceImplTest {
     assertEquals(6, result); // 10 - 4 = 6
   }
 
+  @Test
+  void testControllaDisponibilitaCamera_DaCalendario() throws Exception {
+    when(calendarioCamere.isPronto()).thenReturn(true);
+    when(calendarioCamere.getPostiOccupatiCamera(camera.getId(), dataInizio, dataFine))
+        .thenReturn(12);
+
+    assertEquals(0, service.controllaDisponibilitaCamera(camera, dataInizio, dataFine));
+    verify(repository, never()).getPostiOccupatiCameraTra(anyLong(), any(), any());
+  }
+
   @Test
   void testControllaDisponibilitaCamera_CameraNull() {
     // When & Then
@@ -6,7 +6,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -16,7 +18,14 @@ import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.events.PrenotazioneAttivitaTuristicaModificataEvent;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.repository.OccupazioneAttivita;
 import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -25,7 +34,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +47,15 @@ class PrenotazioneAttivitaTuristicaServiceImplTest {
   @Mock
   PrenotazioneAttivitaTuristicaRepository repositoryMock;
 
+  @Spy
+  AmmissionePrenotazioni ammissione = new AmmissionePrenotazioni();
+
+  @Mock
+  CalendarioAttivita calendarioAttivita;
+
+  @Mock
+  ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   PrenotazioneAttivitaTuristicaServiceImpl service;
 
@@ -106,8 +126,11 @@ class PrenotazioneAttivitaTuristicaServiceImplTest {
     Attivita attivita = new Attivita();
     attivita.setId(1L);
     attivita.setAlloggio(false);
+    attivita.setDisponibilita(10);
 
     PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+    prenotazione.setDataInizio(new Date());
+    prenotazione.setNumAdulti(2);
     PrenotazioneAttivitaTuristica savedPrenotazione = new PrenotazioneAttivitaTuristica();
     savedPrenotazione.setId(1L);
 
@@ -117,6 +140,28 @@ class PrenotazioneAttivitaTuristicaServiceImplTest {
 
     assertNotNull(risultato);
     verify(repositoryMock).save(prenotazione);
+    verify(eventPublisher).publishEvent(
+        new PrenotazioneAttivitaTuristicaModificataEvent(savedPrenotazione, false));
+  }
+
+  @Test
+  void testSavePrenotazioneAttivitaTuristicaNonDisponibile() throws Exception {
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    attivita.setAlloggio(false);
+    attivita.setDisponibilita(10);
+    Date dataInizio = new Date();
+
+    PrenotazioneAttivitaTuristica prenotazione = new PrenotazioneAttivitaTuristica();
+    prenotazione.setDataInizio(dataInizio);
+    prenotazione.setNumAdulti(2);
+    prenotazione.setNumBambini(1);
+
+    when(repositoryMock.getPostiOccupatiIn(1L, dataInizio)).thenReturn(8);
+
+    assertThrows(PostiNonDisponibiliException.class, () ->
+        service.savePrenotazioneAttivitaTuristica(attivita, prenotazione));
+    verify(repositoryMock, never()).save(any(PrenotazioneAttivitaTuristica.class));
   }
 
   // Test per deletePrenotazioneAttivitaTuristica
@@ -139,6 +184,8 @@ class PrenotazioneAttivitaTuristicaServiceImplTest {
     assertTrue(risultato);
     verify(repositoryMock).delete(prenotazione);
     verify(repositoryMock).flush();
+    verify(eventPublisher).publishEvent(
+        new PrenotazioneAttivitaTuristicaModificataEvent(prenotazione, true));
   }
 
   @Test
@@ -313,4 +360,86 @@ class PrenotazioneAttivitaTuristicaServiceImplTest {
 
     assertEquals(7, risultato);
   }
+
+  @Test
+  void testControllaDisponibilitaAttivitaTuristicaDalCalendario() throws Exception {
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    attivita.setDisponibilita(10);
+    Date dataInizio = new Date();
+    when(calendarioAttivita.isPronto()).thenReturn(true);
+    when(calendarioAttivita.getPostiOccupati(1L, dataInizio)).thenReturn(4);
+
+    assertEquals(6, service.controllaDisponibilitaAttivitaTuristica(attivita, dataInizio));
+    verify(repositoryMock, never()).getPostiOccupatiIn(anyLong(), any(Date.class));
+  }
+
+  private static Date data(LocalDate giorno, int ora) {
+    return Date.from(giorno.atTime(ora, 0).atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  @Test
+  void testGetDisponibilitaSettimanaDalCalendario() throws Exception {
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    attivita.setDisponibilita(10);
+    LocalDate lunedi = LocalDate.of(2026, 3, 2);
+    Date da = data(lunedi, 0);
+    Date a = data(lunedi.plusDays(7), 0);
+    when(calendarioAttivita.isPronto()).thenReturn(true);
+    when(calendarioAttivita.getSlot(1L, da, a)).thenReturn(List.of(
+        new CalendarioAttivita.Slot(data(lunedi, 10), 8),
+        new CalendarioAttivita.Slot(data(lunedi.plusDays(2), 10), 12)));
+    when(calendarioAttivita.getMassimoOccupati(1L, da, a)).thenReturn(12);
+    when(calendarioAttivita.getPrimoSlot(1L, da, 7))
+        .thenReturn(new CalendarioAttivita.Slot(data(lunedi.plusDays(9), 10), 1));
+
+    DisponibilitaSettimana risultato = service.getDisponibilitaSettimana(attivita, lunedi, 3);
+
+    assertEquals(lunedi.plusDays(6), risultato.fine());
+    assertEquals(10, risultato.disponibilita());
+    assertEquals(0, risultato.postiGarantiti());
+    assertEquals(List.of(new DisponibilitaSettimana.Slot(data(lunedi, 10), 8, 2),
+        new DisponibilitaSettimana.Slot(data(lunedi.plusDays(2), 10), 12, 0)),
+        risultato.slot());
+    assertEquals(new DisponibilitaSettimana.Slot(data(lunedi.plusDays(9), 10), 1, 9),
+        risultato.prossimo());
+  }
+
+  @Test
+  void testGetDisponibilitaSettimanaPrimaDelCalendario() throws Exception {
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    attivita.setDisponibilita(10);
+    LocalDate lunedi = LocalDate.of(2026, 3, 2);
+    when(repositoryMock.findOccupazioniByAttivita(1L)).thenReturn(List.of(
+        new OccupazioneAttivita(1L, 1L, data(lunedi.minusDays(1), 10), 1),
+        new OccupazioneAttivita(2L, 1L, data(lunedi, 10), 5),
+        new OccupazioneAttivita(3L, 1L, data(lunedi, 10), 4),
+        new OccupazioneAttivita(4L, 1L, data(lunedi.plusDays(3), 10), 2),
+        new OccupazioneAttivita(5L, 1L, data(lunedi.plusDays(7), 10), 6)));
+
+    DisponibilitaSettimana risultato = service.getDisponibilitaSettimana(attivita, lunedi, 5);
+
+    assertEquals(1, risultato.postiGarantiti());
+    assertEquals(List.of(new DisponibilitaSettimana.Slot(data(lunedi, 10), 9, 1),
+        new DisponibilitaSettimana.Slot(data(lunedi.plusDays(3), 10), 2, 8)),
+        risultato.slot());
+    assertEquals(data(lunedi.plusDays(3), 10), risultato.prossimo().inizio());
+  }
+
+  @Test
+  void testGetDisponibilitaSettimanaNonValida() {
+    Attivita alloggio = new Attivita();
+    alloggio.setAlloggio(true);
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    attivita.setDisponibilita(10);
+
+    assertThrows(Exception.class,
+        () -> service.getDisponibilitaSettimana(alloggio, LocalDate.now(), 1));
+    assertThrows(Exception.class, () -> service.getDisponibilitaSettimana(attivita, null, 1));
+    assertThrows(Exception.class,
+        () -> service.getDisponibilitaSettimana(attivita, LocalDate.now(), 0));
+  }
 }
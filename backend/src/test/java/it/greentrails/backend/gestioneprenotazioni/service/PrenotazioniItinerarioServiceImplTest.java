@@ -0,0 +1,260 @@
+package it.greentrails.backend.gestioneprenotazioni.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Camera;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAlloggio;
+import it.greentrails.backend.events.PrenotazioneAlloggioModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.CameraRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.ammissione.AmmissionePrenotazioni;
+import it.greentrails.backend.gestioneprenotazioni.calendario.CalendarioAttivita;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PostiNonDisponibiliException;
+import it.greentrails.backend.gestioneprenotazioni.exceptions.PrenotazioneNonValidaException;
+import it.greentrails.backend.gestioneprenotazioni.repository.PostiOccupatiAttivita;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import it.greentrails.backend.utils.service.BulkWriter;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class PrenotazioniItinerarioServiceImplTest {
+
+  @Mock
+  private ItinerariRepository itinerariRepository;
+
+  @Mock
+  private CameraRepository cameraRepository;
+
+  @Mock
+  private AttivitaRepository attivitaRepository;
+
+  @Mock
+  private BulkWriter bulkWriter;
+
+  @Mock
+  private PrenotazioneAttivitaTuristicaRepository prenotazioneAttivitaTuristicaRepository;
+
+  @Mock
+  private PrenotazioneAlloggioService prenotazioneAlloggioService;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private CalendarioAttivita calendarioAttivita;
+
+  private PrenotazioniItinerarioServiceImpl service;
+  private Itinerario itinerario;
+  private Camera camera;
+  private Attivita attivita;
+
+  private final LocalDate inizio = LocalDate.of(2026, 3, 1);
+
+  @BeforeEach
+  void setUp() {
+    service = new PrenotazioniItinerarioServiceImpl(itinerariRepository, cameraRepository,
+        attivitaRepository, prenotazioneAttivitaTuristicaRepository, prenotazioneAlloggioService,
+        new AmmissionePrenotazioni(), calendarioAttivita, bulkWriter,
+        TransactionOperations.withoutTransaction(),
+        eventPublisher);
+
+    itinerario = new Itinerario();
+    itinerario.setId(1L);
+    itinerario.setTotale(100.0);
+
+    Attivita alloggio = new Attivita();
+    alloggio.setId(10L);
+    alloggio.setAlloggio(true);
+    camera = new Camera();
+    camera.setId(1L);
+    camera.setAlloggio(alloggio);
+    camera.setCapienza(2);
+    camera.setDisponibilita(3);
+    camera.setPrezzo(50.0);
+
+    attivita = new Attivita();
+    attivita.setId(2L);
+    attivita.setAlloggio(false);
+    attivita.setDisponibilita(10);
+    attivita.setPrezzo(20.0);
+  }
+
+  private static Date data(LocalDate giorno) {
+    return Date.from(giorno.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+  private RichiestaPrenotazioni.Alloggio alloggio(int numCamere, LocalDate da, LocalDate a) {
+    return new RichiestaPrenotazioni.Alloggio(1L, 2, 0, numCamere, da, a);
+  }
+
+  private RichiestaPrenotazioni.AttivitaTuristica turistica(int adulti) {
+    return new RichiestaPrenotazioni.AttivitaTuristica(2L, adulti, 0, inizio, null);
+  }
+
+  private void salvataggiRestituisconoGliArgomenti() {
+    when(bulkWriter.inserisci(anyList()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<List<?>>getArgument(0)));
+    when(itinerariRepository.save(itinerario)).thenReturn(itinerario);
+  }
+
+  @Test
+  void prenotaRegistraTuttoInsiemeEAggiornaIlTotaleUnaVolta() throws Exception {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of(camera));
+    when(attivitaRepository.findAllConDettagli(anyCollection())).thenReturn(List.of(attivita));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(camera, data(inizio),
+        data(inizio.plusDays(2)))).thenReturn(3);
+    when(prenotazioneAttivitaTuristicaRepository.getPostiOccupatiIn(anyCollection(),
+        anyCollection())).thenReturn(List.of());
+    salvataggiRestituisconoGliArgomenti();
+
+    EsitoPrenotazioni esito = service.prenota(itinerario, new RichiestaPrenotazioni(
+        List.of(alloggio(1, inizio, inizio.plusDays(2))), List.of(turistica(2), turistica(3))));
+
+    assertEquals(1, esito.prenotazioniAlloggio().size());
+    assertEquals(2, esito.prenotazioniAttivitaTuristica().size());
+    // 50 per due notti, più 2 e 3 partecipanti a 20
+    assertEquals(100.0 + 100.0 + 40.0 + 60.0, esito.itinerario().getTotale(), 0.01);
+    verify(itinerariRepository, times(1)).save(itinerario);
+    verify(prenotazioneAttivitaTuristicaRepository, times(1))
+        .getPostiOccupatiIn(anyCollection(), anyCollection());
+    verify(eventPublisher).publishEvent(new PrenotazioneAlloggioModificataEvent(
+        esito.prenotazioniAlloggio().get(0), false));
+  }
+
+  @Test
+  void prenotaRifiutaCameraInesistente() {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of());
+
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(alloggio(1, inizio, inizio)), List.of())));
+    verify(bulkWriter, never()).inserisci(anyList());
+  }
+
+  @Test
+  void prenotaRifiutaCapienzaInsufficiente() {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of(camera));
+
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(new RichiestaPrenotazioni.Alloggio(1L, 4, 1, 2, inizio,
+            inizio)), List.of())));
+  }
+
+  @Test
+  void prenotaSommaLePrenotazioniDellaStessaRichiesta() throws Exception {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of(camera));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(any(Camera.class),
+        any(Date.class), any(Date.class))).thenReturn(3);
+
+    // Ognuna da sola ci starebbe, ma si sovrappongono il giorno 3
+    assertThrows(PostiNonDisponibiliException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(alloggio(2, inizio, inizio.plusDays(2)),
+            alloggio(2, inizio.plusDays(2), inizio.plusDays(4))), List.of())));
+    verify(bulkWriter, never()).inserisci(anyList());
+    verify(itinerariRepository, never()).save(any());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void prenotaAccettaPeriodiDisgiuntiSullaStessaCamera() throws Exception {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of(camera));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(any(Camera.class),
+        any(Date.class), any(Date.class))).thenReturn(3);
+    salvataggiRestituisconoGliArgomenti();
+
+    EsitoPrenotazioni esito = service.prenota(itinerario, new RichiestaPrenotazioni(
+        List.of(alloggio(2, inizio, inizio.plusDays(1)),
+            alloggio(2, inizio.plusDays(2), inizio.plusDays(3))), List.of()));
+
+    assertEquals(2, esito.prenotazioniAlloggio().size());
+  }
+
+  @Test
+  void prenotaUsaIPostiOccupatiRaggruppati() {
+    when(attivitaRepository.findAllConDettagli(anyCollection())).thenReturn(List.of(attivita));
+    when(prenotazioneAttivitaTuristicaRepository.getPostiOccupatiIn(anyCollection(),
+        anyCollection())).thenReturn(List.of(new PostiOccupatiAttivita(2L, data(inizio), 6L)));
+
+    // 6 già occupati, 3 in questa richiesta: i 2 successivi superano i 10 posti
+    assertThrows(PostiNonDisponibiliException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(), List.of(turistica(3), turistica(2)))));
+    verify(bulkWriter, never()).inserisci(anyList());
+  }
+
+  @Test
+  void prenotaRifiutaRichiesteVuoteOTroppoGrandi() {
+    assertThrows(PrenotazioneNonValidaException.class,
+        () -> service.prenota(itinerario, new RichiestaPrenotazioni(null, null)));
+
+    List<RichiestaPrenotazioni.AttivitaTuristica> troppe = new ArrayList<>();
+    for (int i = 0; i <= PrenotazioniItinerarioServiceImpl.MASSIMO_PRENOTAZIONI; i++) {
+      troppe.add(turistica(1));
+    }
+    assertThrows(PrenotazioneNonValidaException.class,
+        () -> service.prenota(itinerario, new RichiestaPrenotazioni(List.of(), troppe)));
+  }
+
+  @Test
+  void prenotaRifiutaElementiNulliEPersoneNegative() {
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(Arrays.asList(alloggio(1, inizio, inizio), null), null)));
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(null, Arrays.asList(turistica(1), null))));
+    // Con -5 adulti le altre prenotazioni sulla stessa attività sembrerebbero avere più posti
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(), List.of(turistica(-5), turistica(12)))));
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(), List.of(
+            new RichiestaPrenotazioni.AttivitaTuristica(2L, 1, -1, inizio, null)))));
+    assertThrows(PrenotazioneNonValidaException.class, () -> service.prenota(itinerario,
+        new RichiestaPrenotazioni(List.of(new RichiestaPrenotazioni.Alloggio(1L, 2, -2, 1,
+            inizio, inizio)), List.of())));
+    verify(attivitaRepository, never()).findAllConDettagli(anyCollection());
+    verify(cameraRepository, never()).findAllConAlloggio(anyCollection());
+    verify(bulkWriter, never()).inserisci(anyList());
+  }
+
+  @Test
+  void prenotaRifiutaItinerarioNullo() {
+    assertThrows(Exception.class, () -> service.prenota(null,
+        new RichiestaPrenotazioni(List.of(), List.of(turistica(1)))));
+  }
+
+  @Test
+  void prenotaSalvaPrenotazioniCollegateAllItinerario() throws Exception {
+    when(cameraRepository.findAllConAlloggio(anyCollection())).thenReturn(List.of(camera));
+    when(prenotazioneAlloggioService.controllaDisponibilitaCamera(any(Camera.class),
+        any(Date.class), any(Date.class))).thenReturn(3);
+    salvataggiRestituisconoGliArgomenti();
+
+    PrenotazioneAlloggio prenotazione = service.prenota(itinerario, new RichiestaPrenotazioni(
+        List.of(alloggio(1, inizio, inizio)), List.of())).prenotazioniAlloggio().get(0);
+
+    assertEquals(itinerario, prenotazione.getItinerario());
+    assertEquals(camera, prenotazione.getCamera());
+    assertEquals(data(inizio), prenotazione.getDataInizio());
+  }
+
+}
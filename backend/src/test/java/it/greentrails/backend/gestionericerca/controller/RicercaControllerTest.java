@@ -5,7 +5,7 @@ import it.greentrails.backend.entities.Categoria;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.entities.ValoriEcosostenibilita;
 import it.greentrails.backend.enums.RuoloUtente;
-import it.greentrails.backend.gestioneattivita.service.CategoriaService;
+import it.greentrails.backend.gestionericerca.service.CriteriRicerca;
 import it.greentrails.backend.gestionericerca.service.RicercaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,11 +17,13 @@ import org.springframework.data.geo.Point;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -39,9 +41,6 @@ class RicercaControllerTest {
   @MockBean
   private RicercaService ricercaService;
 
-  @MockBean
-  private CategoriaService categoriaService;
-
   private Attivita attivita1;
   private Attivita attivita2;
   private Attivita attivita3;
@@ -100,9 +99,16 @@ class RicercaControllerTest {
     attivitaFiltrate = Arrays.asList(attivita1, attivita3);
   }
 
+  private static CriteriRicerca criteri(String query, List<Long> idCategorie, Double latitudine,
+      Double longitudine, Double raggio) {
+    Point coordinate = latitudine == null ? null : new Point(latitudine, longitudine);
+    return new CriteriRicerca(query, idCategorie, coordinate, raggio);
+  }
+
   @Test
   void testCerca_SoloQuery() throws Exception {
-    when(ricercaService.findAttivita("hotel")).thenReturn(tutteAttivita);
+    CriteriRicerca attesi = criteri("hotel", List.of(), null, null, null);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(tutteAttivita);
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "hotel")
@@ -111,15 +117,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(3));
 
-    verify(ricercaService).findAttivita("hotel");
+    verify(ricercaService).cerca(attesi, 0, 20);
   }
 
   @Test
   void testCerca_ConCategorie() throws Exception {
-    when(ricercaService.findAttivita("eco")).thenReturn(tutteAttivita);
-    when(categoriaService.findById(1L)).thenReturn(categoria1);
-    when(categoriaService.findById(2L)).thenReturn(categoria2);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(attivitaFiltrate);
+    CriteriRicerca attesi = criteri("eco", List.of(1L, 2L), null, null, null);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(attivitaFiltrate);
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "eco")
@@ -129,17 +133,51 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(2));
 
-    verify(ricercaService).findAttivita("eco");
-    verify(categoriaService).findById(1L);
-    verify(categoriaService).findById(2L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(attesi, 0, 20);
+    verify(ricercaService, never()).findAttivita(any());
+    verify(ricercaService, never()).findAttivitaByCategorie(anyList());
+  }
+
+  @Test
+  void testCerca_ConCategorieAlternativeEdEscluse() throws Exception {
+    CriteriRicerca attesi = new CriteriRicerca("eco", List.of(1L), List.of(2L, 3L), List.of(4L),
+        null, null);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(attivitaFiltrate);
+
+    mockMvc.perform(post("/api/ricerca")
+            .param("query", "eco")
+            .param("idCategorie", "1")
+            .param("idCategorieAlternative", "2", "3")
+            .param("idCategorieEscluse", "4")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2));
+
+    verify(ricercaService).cerca(attesi, 0, 20);
+  }
+
+  @Test
+  void testCercaPerPosizione_SenzaCategorieEscluse() throws Exception {
+    CriteriRicerca attesi = new CriteriRicerca(null, List.of(), List.of(), List.of(5L),
+        new Point(41.9, 12.5), 20.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(tutteAttivita);
+
+    mockMvc.perform(post("/api/ricerca/perPosizione")
+            .param("latitudine", "41.9")
+            .param("longitudine", "12.5")
+            .param("raggio", "20.0")
+            .param("idCategorieEscluse", "5")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(3));
+
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCerca_ConPosizione() throws Exception {
-    when(ricercaService.findAttivita("roma")).thenReturn(tutteAttivita);
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(10.0)))
-        .thenReturn(Arrays.asList(attivita1));
+    CriteriRicerca attesi = criteri("roma", List.of(), 41.0, 12.0, 10.0);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(Arrays.asList(attivita1));
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "roma")
@@ -151,17 +189,14 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(1));
 
-    verify(ricercaService).findAttivita("roma");
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(10.0));
+    verify(ricercaService).cerca(attesi, 0, 20);
+    verify(ricercaService, never()).findAttivitaByPosizione(any(Point.class), anyDouble());
   }
 
   @Test
   void testCerca_ConCategorieEPosizione() throws Exception {
-    when(ricercaService.findAttivita("hotel")).thenReturn(tutteAttivita);
-    when(categoriaService.findById(1L)).thenReturn(categoria1);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(attivitaFiltrate);
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(50.0)))
-        .thenReturn(Arrays.asList(attivita1, attivita3));
+    CriteriRicerca attesi = criteri("hotel", List.of(1L), 41.0, 12.0, 50.0);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(Arrays.asList(attivita1, attivita3));
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "hotel")
@@ -174,29 +209,43 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(2));
 
-    verify(ricercaService).findAttivita("hotel");
-    verify(categoriaService).findById(1L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(50.0));
+    verify(ricercaService).cerca(attesi, 0, 20);
+  }
+
+  @Test
+  void testCerca_Paginazione() throws Exception {
+    CriteriRicerca attesi = criteri("hotel", List.of(), null, null, null);
+    when(ricercaService.cerca(attesi, 2, 5)).thenReturn(Arrays.asList(attivita2));
+
+    mockMvc.perform(post("/api/ricerca")
+            .param("query", "hotel")
+            .param("pagina", "2")
+            .param("dimensione", "5")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1));
+
+    verify(ricercaService).cerca(attesi, 2, 5);
   }
 
   @Test
   void testCerca_QueryVuota() throws Exception {
-    when(ricercaService.findAttivita("")).thenReturn(new ArrayList<>());
+    when(ricercaService.cerca(any(CriteriRicerca.class), eq(0), eq(20)))
+        .thenThrow(new InvalidParameterException("I criteri di ricerca sono vuoti."));
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "")
             .with(csrf()))
-        .andExpect(status().isOk())
-        .andExpect(jsonPath("$.data").isArray())
-        .andExpect(jsonPath("$.data.length()").value(0));
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.data").value("I criteri di ricerca sono vuoti."));
 
-    verify(ricercaService).findAttivita("");
+    verify(ricercaService).cerca(criteri("", List.of(), null, null, null), 0, 20);
   }
 
   @Test
   void testCerca_NessunRisultato() throws Exception {
-    when(ricercaService.findAttivita("nonEsiste")).thenReturn(new ArrayList<>());
+    when(ricercaService.cerca(any(CriteriRicerca.class), eq(0), eq(20)))
+        .thenReturn(new ArrayList<>());
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "nonEsiste")
@@ -205,12 +254,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(0));
 
-    verify(ricercaService).findAttivita("nonEsiste");
+    verify(ricercaService).cerca(criteri("nonEsiste", List.of(), null, null, null), 0, 20);
   }
 
   @Test
   void testCerca_CategorieVuote() throws Exception {
-    when(ricercaService.findAttivita("hotel")).thenReturn(tutteAttivita);
+    when(ricercaService.cerca(any(CriteriRicerca.class), eq(0), eq(20)))
+        .thenReturn(tutteAttivita);
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "hotel")
@@ -220,13 +270,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(3));
 
-    verify(ricercaService).findAttivita("hotel");
-    verify(ricercaService, never()).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(argThat(c -> !c.haCategorie()), eq(0), eq(20));
   }
 
   @Test
   void testCerca_SoloPosizioneSenzaRaggio() throws Exception {
-    when(ricercaService.findAttivita("hotel")).thenReturn(tutteAttivita);
+    when(ricercaService.cerca(any(CriteriRicerca.class), eq(0), eq(20)))
+        .thenReturn(tutteAttivita);
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "hotel")
@@ -237,13 +287,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(3));
 
-    verify(ricercaService).findAttivita("hotel");
-    verify(ricercaService, never()).findAttivitaByPosizione(any(Point.class), anyDouble());
+    verify(ricercaService).cerca(argThat(c -> !c.haPosizione()), eq(0), eq(20));
   }
 
   @Test
   void testCercaPerPosizione_Success() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(20.0)))
+    CriteriRicerca attesi = criteri(null, List.of(), 41.9, 12.5, 20.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE))
         .thenReturn(Arrays.asList(attivita1, attivita3));
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
@@ -255,38 +305,31 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(2));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(20.0));
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCercaPerPosizione_ConCategorie() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(30.0)))
-        .thenReturn(tutteAttivita);
-    when(categoriaService.findById(1L)).thenReturn(categoria1);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(attivitaFiltrate);
+    CriteriRicerca attesi = criteri(null, List.of(2L), 45.5, 9.2, 30.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(Arrays.asList(attivita2));
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
-            .param("latitudine", "42.0")
-            .param("longitudine", "13.0")
+            .param("latitudine", "45.5")
+            .param("longitudine", "9.2")
             .param("raggio", "30.0")
-            .param("idCategorie", "1")
+            .param("idCategorie", "2")
             .with(csrf()))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.data").isArray())
-        .andExpect(jsonPath("$.data.length()").value(2));
+        .andExpect(jsonPath("$.data.length()").value(1));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(30.0));
-    verify(categoriaService).findById(1L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCercaPerPosizione_ConPiuCategorie() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(15.0)))
-        .thenReturn(tutteAttivita);
-    when(categoriaService.findById(1L)).thenReturn(categoria1);
-    when(categoriaService.findById(2L)).thenReturn(categoria2);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(attivitaFiltrate);
+    CriteriRicerca attesi = criteri(null, List.of(1L, 2L), 40.8, 14.3, 15.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(attivitaFiltrate);
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
             .param("latitudine", "40.8")
@@ -298,16 +341,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(2));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(15.0));
-    verify(categoriaService).findById(1L);
-    verify(categoriaService).findById(2L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCercaPerPosizione_NessunRisultato() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(5.0)))
-        .thenReturn(new ArrayList<>());
+    CriteriRicerca attesi = criteri(null, List.of(), 60.0, 10.0, 5.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(new ArrayList<>());
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
             .param("latitudine", "60.0")
@@ -318,12 +358,12 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(0));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(5.0));
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCercaPerPosizione_CategorieVuote() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(25.0)))
+    when(ricercaService.cerca(any(CriteriRicerca.class), eq(0), eq(Integer.MAX_VALUE)))
         .thenReturn(tutteAttivita);
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
@@ -336,14 +376,14 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(3));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(25.0));
-    verify(ricercaService, never()).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(argThat(c -> !c.haCategorie() && c.haPosizione()), eq(0),
+        eq(Integer.MAX_VALUE));
   }
 
   @Test
   void testCercaPerPosizione_RaggioGrande() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(100.0)))
-        .thenReturn(tutteAttivita);
+    CriteriRicerca attesi = criteri(null, List.of(), 41.9, 12.5, 100.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(tutteAttivita);
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
             .param("latitudine", "41.9")
@@ -354,13 +394,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(3));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(100.0));
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
 
   @Test
   void testCercaPerPosizione_CoordinateDecimali() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(12.5)))
-        .thenReturn(Arrays.asList(attivita1));
+    CriteriRicerca attesi = criteri(null, List.of(), 41.9028, 12.4964, 12.5);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(Arrays.asList(attivita1));
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
             .param("latitudine", "41.9028")
@@ -371,14 +411,31 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(1));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(12.5));
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
+  }
+
+  @Test
+  void testCercaPerPosizione_Paginazione() throws Exception {
+    CriteriRicerca attesi = criteri(null, List.of(), 41.9, 12.5, 100.0);
+    when(ricercaService.cerca(attesi, 1, 2)).thenReturn(Arrays.asList(attivita3));
+
+    mockMvc.perform(post("/api/ricerca/perPosizione")
+            .param("latitudine", "41.9")
+            .param("longitudine", "12.5")
+            .param("raggio", "100.0")
+            .param("pagina", "1")
+            .param("dimensione", "2")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1));
+
+    verify(ricercaService).cerca(attesi, 1, 2);
   }
 
   @Test
   void testCerca_ConUnaSolaCategoria() throws Exception {
-    when(ricercaService.findAttivita("hotel")).thenReturn(tutteAttivita);
-    when(categoriaService.findById(1L)).thenReturn(categoria1);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(attivitaFiltrate);
+    CriteriRicerca attesi = criteri("hotel", List.of(1L), null, null, null);
+    when(ricercaService.cerca(attesi, 0, 20)).thenReturn(attivitaFiltrate);
 
     mockMvc.perform(post("/api/ricerca")
             .param("query", "hotel")
@@ -388,17 +445,13 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(2));
 
-    verify(ricercaService).findAttivita("hotel");
-    verify(categoriaService).findById(1L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(attesi, 0, 20);
   }
 
   @Test
   void testCercaPerPosizione_ConUnaSolaCategoria() throws Exception {
-    when(ricercaService.findAttivitaByPosizione(any(Point.class), eq(30.0)))
-        .thenReturn(tutteAttivita);
-    when(categoriaService.findById(2L)).thenReturn(categoria2);
-    when(ricercaService.findAttivitaByCategorie(anyList())).thenReturn(Arrays.asList(attivita2));
+    CriteriRicerca attesi = criteri(null, List.of(2L), 45.5, 9.2, 30.0);
+    when(ricercaService.cerca(attesi, 0, Integer.MAX_VALUE)).thenReturn(Arrays.asList(attivita2));
 
     mockMvc.perform(post("/api/ricerca/perPosizione")
             .param("latitudine", "45.5")
@@ -410,10 +463,39 @@ class RicercaControllerTest {
         .andExpect(jsonPath("$.data").isArray())
         .andExpect(jsonPath("$.data.length()").value(1));
 
-    verify(ricercaService).findAttivitaByPosizione(any(Point.class), eq(30.0));
-    verify(categoriaService).findById(2L);
-    verify(ricercaService).findAttivitaByCategorie(anyList());
+    verify(ricercaService).cerca(attesi, 0, Integer.MAX_VALUE);
   }
-}
 
+  @Test
+  void testCercaPiuVicine_Success() throws Exception {
+    when(ricercaService.findAttivitaPiuVicine(any(Point.class), eq(2)))
+        .thenReturn(Arrays.asList(attivita1, attivita3));
+
+    mockMvc.perform(post("/api/ricerca/vicine")
+            .param("latitudine", "41.9")
+            .param("longitudine", "12.5")
+            .param("numero", "2")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").isArray())
+        .andExpect(jsonPath("$.data.length()").value(2));
+
+    verify(ricercaService).findAttivitaPiuVicine(new Point(41.9, 12.5), 2);
+  }
+
+  @Test
+  void testCercaPiuVicine_NumeroPredefinito() throws Exception {
+    when(ricercaService.findAttivitaPiuVicine(any(Point.class), eq(10)))
+        .thenReturn(new ArrayList<>());
+
+    mockMvc.perform(post("/api/ricerca/vicine")
+            .param("latitudine", "41.9")
+            .param("longitudine", "12.5")
+            .with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").isArray())
+        .andExpect(jsonPath("$.data.length()").value(0));
 
+    verify(ricercaService).findAttivitaPiuVicine(any(Point.class), eq(10));
+  }
+}
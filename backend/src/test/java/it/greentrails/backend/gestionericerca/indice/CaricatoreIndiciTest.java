@@ -0,0 +1,132 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.events.AttivitaModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AssegnazioneCategoria;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Point;
+
+class CaricatoreIndiciTest {
+
+  @Mock
+  private AttivitaRepository repository;
+
+  private IndiceTestuale indiceTestuale;
+  private IndiceSpaziale indiceSpaziale;
+  private IndiceCategorie indiceCategorie;
+  private CaricatoreIndici caricatore;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    indiceTestuale = new IndiceTestuale();
+    indiceSpaziale = new IndiceSpaziale();
+    indiceCategorie = new IndiceCategorie();
+    caricatore = new CaricatoreIndici(repository,
+        List.of(indiceTestuale, indiceSpaziale, indiceCategorie), indiceCategorie);
+  }
+
+  private Attivita creaAttivita(long id, String nome, double latitudine, double longitudine) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    attivita.setNome(nome);
+    attivita.setCitta("Roma");
+    attivita.setCoordinate(new Point(latitudine, longitudine));
+    return attivita;
+  }
+
+  @Test
+  void ricostruisciCaricaTutteLePagine() {
+    Attivita attivita1 = creaAttivita(1L, "Hotel", 41.9028, 12.4964);
+    Attivita attivita2 = creaAttivita(2L, "Tour", 41.9030, 12.4760);
+    Attivita eliminata = creaAttivita(3L, "Ostello", 41.9029, 12.4965);
+    eliminata.setEliminata(true);
+    List<Attivita> primo = new ArrayList<>(List.of(attivita1, attivita2));
+    for (long id = 4; primo.size() < CaricatoreIndici.DIMENSIONE_BLOCCO; id++) {
+      Attivita altra = creaAttivita(id, "Altra", 45.0, 9.0);
+      altra.setEliminata(true);
+      primo.add(altra);
+    }
+    long ultimo = primo.getLast().getId();
+    when(repository.findDopo(0L, Limit.of(CaricatoreIndici.DIMENSIONE_BLOCCO)))
+        .thenReturn(primo);
+    when(repository.findDopo(ultimo, Limit.of(CaricatoreIndici.DIMENSIONE_BLOCCO)))
+        .thenReturn(List.of(eliminata));
+    when(repository.findAssegnazioniCategorie(List.of(1L, 2L))).thenReturn(List.of(
+        new AssegnazioneCategoria(1L, 5L), new AssegnazioneCategoria(2L, 5L),
+        new AssegnazioneCategoria(2L, 6L)));
+
+    assertFalse(indiceTestuale.isPronto());
+    caricatore.ricostruisci();
+
+    assertTrue(indiceTestuale.isPronto());
+    assertTrue(indiceSpaziale.isPronto());
+    assertEquals(2, indiceTestuale.size());
+    assertEquals(2, indiceSpaziale.size());
+    assertEquals(List.of(1L, 2L), indiceTestuale.cerca("roma").stream().sorted().toList());
+    assertTrue(indiceCategorie.isPronto());
+    assertEquals(2, indiceCategorie.size());
+    assertEquals(BitSet.valueOf(new long[] {0b110}),
+        indiceCategorie.filtra(List.of(5L), List.of(), List.of()));
+    assertEquals(BitSet.valueOf(new long[] {0b100}),
+        indiceCategorie.filtra(List.of(5L, 6L), List.of(), List.of()));
+    verify(repository, never()).findAssegnazioniCategorie(List.of(3L));
+    verify(repository, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  void ricostruisciRepositorySenzaPagine() {
+    caricatore.ricostruisci();
+
+    assertTrue(indiceTestuale.isPronto());
+    assertEquals(0, indiceSpaziale.size());
+  }
+
+  @Test
+  void eventoAggiornaTuttiGliIndici() {
+    Attivita attivita = creaAttivita(1L, "Hotel", 41.9028, 12.4964);
+
+    caricatore.onAttivitaModificata(new AttivitaModificataEvent(attivita));
+
+    assertEquals(List.of(1L), indiceTestuale.cerca("hotel"));
+    assertEquals(1, indiceSpaziale.cercaNelRaggio(41.9028, 12.4964, 10).size());
+  }
+
+  @Test
+  void eventoEliminazioneRimuoveDaTuttiGliIndici() {
+    Attivita attivita = creaAttivita(1L, "Hotel", 41.9028, 12.4964);
+    caricatore.onAttivitaModificata(new AttivitaModificataEvent(attivita));
+    attivita.setEliminata(true);
+
+    caricatore.onAttivitaModificata(new AttivitaModificataEvent(attivita));
+
+    assertEquals(0, indiceTestuale.size());
+    assertEquals(0, indiceSpaziale.size());
+  }
+
+  @Test
+  void eventoSenzaIdIgnorato() {
+    caricatore.onAttivitaModificata(new AttivitaModificataEvent(new Attivita()));
+
+    assertEquals(0, indiceTestuale.size());
+    assertEquals(0, indiceSpaziale.size());
+  }
+
+}
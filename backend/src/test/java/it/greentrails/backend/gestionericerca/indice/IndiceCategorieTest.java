@@ -0,0 +1,138 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Categoria;
+import it.greentrails.backend.events.CategoriaModificataEvent;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.hibernate.collection.spi.PersistentSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndiceCategorieTest {
+
+  private IndiceCategorie indice;
+
+  @BeforeEach
+  void setUp() {
+    indice = new IndiceCategorie();
+    // 1: sport, natura - 2: natura - 3: sport, cultura - 4: nessuna categoria
+    indice.assegna(1L, 10L);
+    indice.assegna(1L, 20L);
+    indice.assegna(2L, 20L);
+    indice.assegna(3L, 10L);
+    indice.assegna(3L, 30L);
+    indice.aggiorna(creaAttivita(4L));
+  }
+
+  private Attivita creaAttivita(long id, long... idCategorie) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    Set<Categoria> categorie = new LinkedHashSet<>();
+    for (long idCategoria : idCategorie) {
+      Categoria categoria = new Categoria();
+      categoria.setId(idCategoria);
+      categorie.add(categoria);
+    }
+    attivita.setCategorie(categorie);
+    return attivita;
+  }
+
+  private static List<Long> ids(BitSet bitset) {
+    return bitset.stream().mapToObj(Long::valueOf).toList();
+  }
+
+  private List<Long> filtra(List<Long> tutte, List<Long> almenoUna, List<Long> escluse) {
+    return ids(indice.filtra(tutte, almenoUna, escluse));
+  }
+
+  @Test
+  void filtraTutteLeCategorie() {
+    assertEquals(List.of(1L, 3L), filtra(List.of(10L), List.of(), List.of()));
+    assertEquals(List.of(1L), filtra(List.of(10L, 20L), List.of(), List.of()));
+    assertTrue(filtra(List.of(20L, 30L), List.of(), List.of()).isEmpty());
+  }
+
+  @Test
+  void filtraAlmenoUnaCategoria() {
+    assertEquals(List.of(1L, 2L, 3L), filtra(List.of(), List.of(20L, 30L), List.of()));
+    assertEquals(List.of(3L), filtra(List.of(10L), List.of(30L, 99L), List.of()));
+  }
+
+  @Test
+  void categoriaEliminataTolta() {
+    Categoria sport = new Categoria();
+    sport.setId(10L);
+    indice.onCategoriaModificata(new CategoriaModificataEvent(sport, false));
+    assertEquals(List.of(1L, 3L), filtra(List.of(10L), List.of(), List.of()));
+
+    indice.onCategoriaModificata(new CategoriaModificataEvent(sport, true));
+
+    assertTrue(filtra(List.of(10L), List.of(), List.of()).isEmpty());
+    assertEquals(List.of(1L, 2L, 3L, 4L), filtra(List.of(), List.of(), List.of(10L)));
+    assertEquals(List.of(3L), filtra(List.of(30L), List.of(), List.of()));
+  }
+
+  @Test
+  void filtraCategorieEscluse() {
+    assertEquals(List.of(2L, 4L), filtra(List.of(), List.of(), List.of(10L)));
+    assertEquals(List.of(2L), filtra(List.of(20L), List.of(), List.of(10L)));
+    assertEquals(List.of(1L, 2L, 3L, 4L), filtra(List.of(), List.of(), List.of(99L)));
+  }
+
+  @Test
+  void categoriaSconosciutaSvuotaLIntersezione() {
+    assertTrue(filtra(List.of(10L, 99L), List.of(), List.of()).isEmpty());
+  }
+
+  @Test
+  void aggiornaRiassegnaLeCategorie() {
+    indice.aggiorna(creaAttivita(1L, 30L));
+
+    assertEquals(List.of(3L), filtra(List.of(10L), List.of(), List.of()));
+    assertEquals(List.of(2L), filtra(List.of(20L), List.of(), List.of()));
+    assertEquals(List.of(1L, 3L), filtra(List.of(30L), List.of(), List.of()));
+  }
+
+  @Test
+  void aggiornaSenzaCategorieCaricateLeConserva() {
+    Attivita attivita = new Attivita();
+    attivita.setId(1L);
+    PersistentSet<Categoria> nonCaricate = mock(PersistentSet.class);
+    when(nonCaricate.wasInitialized()).thenReturn(false);
+    attivita.setCategorie(nonCaricate);
+
+    indice.aggiorna(attivita);
+
+    assertEquals(List.of(1L), filtra(List.of(10L, 20L), List.of(), List.of()));
+  }
+
+  @Test
+  void rimuoviTogliePureDalleCategorie() {
+    indice.rimuovi(1L);
+
+    assertEquals(List.of(3L), filtra(List.of(10L), List.of(), List.of()));
+    assertEquals(List.of(2L, 3L, 4L), filtra(List.of(), List.of(), List.of()));
+    assertEquals(3, indice.size());
+  }
+
+  @Test
+  void svuotaAzzeraLIndice() {
+    indice.segnaPronto();
+
+    indice.svuota();
+
+    assertFalse(indice.isPronto());
+    assertEquals(0, indice.size());
+    assertTrue(filtra(List.of(), List.of(20L), List.of()).isEmpty());
+  }
+
+}
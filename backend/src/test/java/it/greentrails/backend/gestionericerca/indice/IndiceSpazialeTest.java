@@ -0,0 +1,164 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale.Risultato;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+
+class IndiceSpazialeTest {
+
+  private IndiceSpaziale indice;
+
+  @BeforeEach
+  void setUp() {
+    indice = new IndiceSpaziale();
+  }
+
+  private Attivita creaAttivita(long id, double latitudine, double longitudine) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    attivita.setCoordinate(new Point(latitudine, longitudine));
+    return attivita;
+  }
+
+  private List<Long> ids(List<Risultato> risultati) {
+    return risultati.stream().map(Risultato::idAttivita).toList();
+  }
+
+  @Test
+  void haversineRomaMilano() {
+    double distanza = IndiceSpaziale.haversine(41.9028, 12.4964, 45.4642, 9.1900);
+    assertEquals(477_000, distanza, 3_000);
+  }
+
+  @Test
+  void cercaNelRaggioOrdinaPerDistanza() {
+    indice.aggiorna(creaAttivita(1L, 41.8902, 12.4922)); // Colosseo
+    indice.aggiorna(creaAttivita(2L, 41.9009, 12.4833)); // Fontana di Trevi
+    indice.aggiorna(creaAttivita(3L, 45.4642, 9.1900)); // Milano
+
+    List<Risultato> risultati = indice.cercaNelRaggio(41.9028, 12.4964, 5000);
+
+    assertEquals(List.of(2L, 1L), ids(risultati));
+    assertTrue(risultati.get(0).distanza() <= risultati.get(1).distanza());
+  }
+
+  @Test
+  void cercaNelRaggioZero() {
+    indice.aggiorna(creaAttivita(1L, 41.9028, 12.4964));
+    indice.aggiorna(creaAttivita(2L, 41.9029, 12.4965));
+
+    assertEquals(List.of(1L), ids(indice.cercaNelRaggio(41.9028, 12.4964, 0)));
+  }
+
+  @Test
+  void cercaNelRaggioAmpio() {
+    indice.aggiorna(creaAttivita(1L, 41.9028, 12.4964)); // Roma
+    indice.aggiorna(creaAttivita(2L, 45.4642, 9.1900)); // Milano
+    indice.aggiorna(creaAttivita(3L, -33.8688, 151.2093)); // Sydney
+
+    assertEquals(List.of(1L, 2L), ids(indice.cercaNelRaggio(41.9028, 12.4964, 1_000_000)));
+    assertEquals(3, indice.cercaNelRaggio(0, 0, 30_000_000).size());
+  }
+
+  @Test
+  void cercaNelRaggioConfrontoConScansione() {
+    Random random = new Random(7);
+    List<Attivita> attivita = new ArrayList<>();
+    for (long id = 0; id < 2000; id++) {
+      Attivita a = creaAttivita(id, 36 + random.nextDouble() * 11, 6 + random.nextDouble() * 13);
+      attivita.add(a);
+      indice.aggiorna(a);
+    }
+    for (double raggio : new double[] {1_000, 25_000, 150_000, 600_000}) {
+      List<Long> attesi = attivita.stream()
+          .filter(a -> IndiceSpaziale.haversine(41.9, 12.5, a.getCoordinate().getX(),
+              a.getCoordinate().getY()) <= raggio)
+          .map(Attivita::getId)
+          .sorted()
+          .toList();
+      List<Long> trovati = ids(indice.cercaNelRaggio(41.9, 12.5, raggio)).stream()
+          .sorted()
+          .toList();
+      assertEquals(attesi, trovati);
+    }
+  }
+
+  @Test
+  void cercaPiuVicineConfrontoConScansione() {
+    Random random = new Random(11);
+    List<Attivita> attivita = new ArrayList<>();
+    for (long id = 0; id < 2000; id++) {
+      Attivita a = creaAttivita(id, 36 + random.nextDouble() * 11, 6 + random.nextDouble() * 13);
+      attivita.add(a);
+      indice.aggiorna(a);
+    }
+    for (int numero : new int[] {1, 5, 50}) {
+      List<Long> attesi = attivita.stream()
+          .sorted(Comparator.comparingDouble((Attivita a) -> IndiceSpaziale.haversine(40.85,
+              14.27, a.getCoordinate().getX(), a.getCoordinate().getY())))
+          .limit(numero)
+          .map(Attivita::getId)
+          .toList();
+      assertEquals(attesi, ids(indice.cercaPiuVicine(40.85, 14.27, numero)));
+    }
+  }
+
+  @Test
+  void cercaPiuVicinePuntiLontani() {
+    indice.aggiorna(creaAttivita(1L, 45.4642, 9.1900)); // Milano
+    indice.aggiorna(creaAttivita(2L, -33.8688, 151.2093)); // Sydney
+
+    assertEquals(List.of(1L, 2L), ids(indice.cercaPiuVicine(41.9028, 12.4964, 5)));
+    assertTrue(indice.cercaPiuVicine(41.9028, 12.4964, 0).isEmpty());
+  }
+
+  @Test
+  void aggiornaSpostaIlPunto() {
+    Attivita attivita = creaAttivita(1L, 41.9028, 12.4964);
+    indice.aggiorna(attivita);
+    attivita.setCoordinate(new Point(45.4642, 9.1900));
+
+    indice.aggiorna(attivita);
+
+    assertEquals(1, indice.size());
+    assertTrue(indice.cercaNelRaggio(41.9028, 12.4964, 1000).isEmpty());
+    assertEquals(List.of(1L), ids(indice.cercaNelRaggio(45.4642, 9.1900, 1000)));
+  }
+
+  @Test
+  void rimuoviESvuota() {
+    indice.aggiorna(creaAttivita(1L, 41.9028, 12.4964));
+    indice.aggiorna(creaAttivita(2L, 41.9029, 12.4965));
+    indice.segnaPronto();
+
+    indice.rimuovi(1L);
+    assertEquals(List.of(2L), ids(indice.cercaNelRaggio(41.9028, 12.4964, 1000)));
+
+    indice.svuota();
+    assertFalse(indice.isPronto());
+    assertEquals(0, indice.size());
+  }
+
+  @Test
+  void filtraNelRaggioEStima() {
+    indice.aggiorna(creaAttivita(1L, 41.8902, 12.4922)); // Colosseo
+    indice.aggiorna(creaAttivita(2L, 41.9009, 12.4833)); // Fontana di Trevi
+    indice.aggiorna(creaAttivita(3L, 45.4642, 9.1900)); // Milano
+
+    assertEquals(List.of(2L),
+        ids(indice.filtraNelRaggio(41.9028, 12.4964, 5000, new long[] {2L, 3L, 9L})));
+    assertEquals(2, indice.stimaNelRaggio(41.9028, 12.4964, 5000));
+    assertEquals(0, indice.stimaNelRaggio(0, 0, 5000));
+  }
+
+}
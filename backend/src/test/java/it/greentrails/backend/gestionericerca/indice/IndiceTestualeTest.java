@@ -0,0 +1,139 @@
+package it.greentrails.backend.gestionericerca.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.greentrails.backend.entities.Attivita;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndiceTestualeTest {
+
+  private IndiceTestuale indice;
+
+  @BeforeEach
+  void setUp() {
+    indice = new IndiceTestuale();
+  }
+
+  private Attivita creaAttivita(long id, String nome, String citta, String breve, String lunga) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    attivita.setNome(nome);
+    attivita.setCitta(citta);
+    attivita.setDescrizioneBreve(breve);
+    attivita.setDescrizioneLunga(lunga);
+    return attivita;
+  }
+
+  @Test
+  void tokenizzaRimuoveAccentiEStopword() {
+    assertEquals(List.of("citt", "etna"), IndiceTestuale.tokenizza("Città dell'Etna"));
+    assertEquals(IndiceTestuale.tokenizza("citta"), IndiceTestuale.tokenizza("CITTÀ"));
+    assertEquals(List.of("escursion", "mare"), IndiceTestuale.tokenizza("Escursioni al mare"));
+    assertTrue(IndiceTestuale.tokenizza("  ").isEmpty());
+    assertTrue(IndiceTestuale.tokenizza(null).isEmpty());
+  }
+
+  @Test
+  void svuotaAzzeraLIndice() {
+    indice.aggiorna(creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel"));
+    indice.segnaPronto();
+
+    indice.svuota();
+
+    assertFalse(indice.isPronto());
+    assertEquals(0, indice.size());
+    assertTrue(indice.cerca("roma").isEmpty());
+  }
+
+  @Test
+  void cercaOrdinaPerRilevanza() {
+    indice.aggiorna(creaAttivita(1L, "Agriturismo Bio", "Siena",
+        "Soggiorno in campagna", "Vicino a Roma ma immerso nel verde"));
+    indice.aggiorna(creaAttivita(2L, "Hotel Roma Centro", "Roma",
+        "Hotel nel centro di Roma", "Hotel moderno"));
+    indice.aggiorna(creaAttivita(3L, "Ostello Milano", "Milano",
+        "Ostello economico", "Ostello in centro"));
+
+    assertEquals(List.of(2L, 1L), indice.cerca("Roma"));
+  }
+
+  @Test
+  void cercaRichiedeTuttiITermini() {
+    indice.aggiorna(creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel"));
+    indice.aggiorna(creaAttivita(2L, "Tour Roma", "Roma", "Tour", "Tour"));
+
+    assertEquals(List.of(2L), indice.cerca("tour roma"));
+    assertTrue(indice.cerca("tour napoli").isEmpty());
+  }
+
+  @Test
+  void cercaPerPrefissoEAccenti() {
+    indice.aggiorna(creaAttivita(1L, "Escursione Vesuvio", "Ercolano",
+        "Passeggiata sul vulcano", "Attività all'aperto"));
+
+    assertEquals(List.of(1L), indice.cerca("vesu"));
+    assertEquals(List.of(1L), indice.cerca("ESCURSIONI"));
+    assertEquals(List.of(1L), indice.cerca("attivita"));
+    assertTrue(indice.cerca("ve").isEmpty());
+  }
+
+  @Test
+  void cercaSoloStopwordRestituisceVuoto() {
+    indice.aggiorna(creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel"));
+
+    assertTrue(indice.cerca("della").isEmpty());
+  }
+
+  @Test
+  void aggiornaSostituisceITerminiPrecedenti() {
+    Attivita attivita = creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel");
+    indice.aggiorna(attivita);
+    attivita.setNome("Hotel Napoli");
+    attivita.setCitta("Napoli");
+
+    indice.aggiorna(attivita);
+
+    assertTrue(indice.cerca("roma").isEmpty());
+    assertEquals(List.of(1L), indice.cerca("napoli"));
+    assertEquals(1, indice.size());
+  }
+
+  @Test
+  void eliminazioneRimuoveDallIndice() {
+    Attivita attivita = creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel");
+    indice.aggiorna(attivita);
+
+    indice.rimuovi(1L);
+
+    assertTrue(indice.cerca("roma").isEmpty());
+    assertEquals(0, indice.size());
+  }
+
+  @Test
+  void punteggiLimitatiAiCandidati() {
+    indice.aggiorna(creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel"));
+    indice.aggiorna(creaAttivita(2L, "Tour Roma", "Roma", "Tour", "Tour"));
+    indice.aggiorna(creaAttivita(3L, "Hotel Milano", "Milano", "Hotel", "Hotel"));
+
+    assertEquals(Set.of(1L, 2L), indice.punteggi("roma", null).keySet());
+    assertEquals(Set.of(2L), indice.punteggi("roma", new long[] {2L, 3L}).keySet());
+    assertTrue(indice.punteggi("roma", new long[] {3L}).isEmpty());
+  }
+
+  @Test
+  void stimaUsaIlTerminePiuRaro() {
+    indice.aggiorna(creaAttivita(1L, "Hotel Roma", "Roma", "Hotel", "Hotel"));
+    indice.aggiorna(creaAttivita(2L, "Tour Roma", "Roma", "Tour", "Tour"));
+
+    assertEquals(2, indice.stima("roma"));
+    assertEquals(1, indice.stima("tour roma"));
+    assertEquals(0, indice.stima("napoli roma"));
+    assertEquals(0, indice.stima("della"));
+  }
+
+}
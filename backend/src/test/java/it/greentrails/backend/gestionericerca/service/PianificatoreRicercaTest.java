@@ -0,0 +1,118 @@
+package it.greentrails.backend.gestionericerca.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+
+class PianificatoreRicercaTest {
+
+  private static final Point ROMA = new Point(41.9028, 12.4964);
+
+  private IndiceTestuale indiceTestuale;
+  private IndiceSpaziale indiceSpaziale;
+  private IndiceCategorie indiceCategorie;
+  private PianificatoreRicerca pianificatore;
+
+  @BeforeEach
+  void setUp() {
+    indiceTestuale = new IndiceTestuale();
+    indiceSpaziale = new IndiceSpaziale();
+    indiceCategorie = new IndiceCategorie();
+    pianificatore = new PianificatoreRicerca(indiceTestuale, indiceSpaziale, indiceCategorie);
+    aggiungi(1L, "Hotel Colosseo", "Roma", 41.8902, 12.4922);
+    aggiungi(2L, "Tour Trevi", "Roma", 41.9009, 12.4833);
+    aggiungi(3L, "Hotel Navigli", "Milano", 45.4642, 9.1900);
+    aggiungi(4L, "Hotel Roma Centro", "Roma", 41.9030, 12.4960);
+    indiceCategorie.assegna(1L, 7L);
+    indiceCategorie.assegna(1L, 8L);
+    indiceCategorie.assegna(3L, 7L);
+    indiceCategorie.assegna(3L, 8L);
+    indiceCategorie.assegna(4L, 7L);
+    indiceCategorie.assegna(2L, 9L);
+    indiceTestuale.segnaPronto();
+    indiceSpaziale.segnaPronto();
+    indiceCategorie.segnaPronto();
+  }
+
+  private void aggiungi(long id, String nome, String citta, double latitudine,
+      double longitudine) {
+    Attivita attivita = new Attivita();
+    attivita.setId(id);
+    attivita.setNome(nome);
+    attivita.setCitta(citta);
+    attivita.setCoordinate(new Point(latitudine, longitudine));
+    indiceTestuale.aggiorna(attivita);
+    indiceSpaziale.aggiorna(attivita);
+    indiceCategorie.aggiorna(attivita);
+  }
+
+  @Test
+  void isProntoRichiedeTuttiGliIndici() {
+    assertTrue(pianificatore.isPronto());
+    indiceSpaziale.svuota();
+    assertEquals(false, pianificatore.isPronto());
+  }
+
+  @Test
+  void soloQueryOrdinataPerRilevanza() {
+    assertEquals(indiceTestuale.cerca("hotel"),
+        pianificatore.pianifica(new CriteriRicerca("hotel", null, null, null)));
+  }
+
+  @Test
+  void soloPosizioneOrdinataPerDistanza() {
+    assertEquals(List.of(4L, 2L, 1L),
+        pianificatore.pianifica(new CriteriRicerca(null, null, ROMA, 5000.0)));
+  }
+
+  @Test
+  void queryEPosizioneOrdinataPerRilevanza() {
+    List<Long> risultati = pianificatore.pianifica(
+        new CriteriRicerca("hotel roma", null, ROMA, 5000.0));
+
+    assertEquals(List.of(4L, 1L), risultati);
+  }
+
+  @Test
+  void categorieFiltranoICandidati() {
+    List<Long> risultati = pianificatore.pianifica(
+        new CriteriRicerca("hotel", List.of(7L, 8L, 7L), ROMA, 5000.0));
+
+    assertEquals(List.of(1L), risultati);
+  }
+
+  @Test
+  void soloCategorieOrdinatePerId() {
+    assertEquals(List.of(1L, 3L, 4L),
+        pianificatore.pianifica(new CriteriRicerca(null, List.of(7L), null, null)));
+  }
+
+  @Test
+  void categorieAlternativeEdEscluse() {
+    assertEquals(List.of(2L, 4L), pianificatore.pianifica(
+        new CriteriRicerca(null, null, List.of(7L, 9L), List.of(8L), null, null)));
+    assertEquals(List.of(4L, 2L), pianificatore.pianifica(
+        new CriteriRicerca(null, null, null, List.of(8L), ROMA, 5000.0)));
+  }
+
+  @Test
+  void categoriaSconosciutaSvuotaIRisultati() {
+    assertTrue(pianificatore.pianifica(
+        new CriteriRicerca("hotel", List.of(7L, 99L), null, null)).isEmpty());
+  }
+
+  @Test
+  void isProntoRichiedeLIndiceCategorie() {
+    indiceCategorie.svuota();
+    assertEquals(false, pianificatore.isPronto());
+  }
+
+}
@@ -4,21 +4,32 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.greentrails.backend.entities.Attivita;
 import it.greentrails.backend.entities.Categoria;
 import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestionericerca.indice.IndiceCategorie;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale;
+import it.greentrails.backend.gestionericerca.indice.IndiceSpaziale.Risultato;
+import it.greentrails.backend.gestionericerca.indice.IndiceTestuale;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.geo.Point;
 
 class RicercaServiceImplTest {
@@ -26,6 +37,18 @@ class RicercaServiceImplTest {
   @Mock
   private AttivitaRepository repository;
 
+  @Mock
+  private IndiceTestuale indiceTestuale;
+
+  @Mock
+  private IndiceSpaziale indiceSpaziale;
+
+  @Mock
+  private IndiceCategorie indiceCategorie;
+
+  @Mock
+  private PianificatoreRicerca pianificatore;
+
   @InjectMocks
   private RicercaServiceImpl ricercaService;
 
@@ -47,17 +70,47 @@ class RicercaServiceImplTest {
     attivita2.setNome("Tour Roma");
     attivita2.setCitta("Roma");
 
-    List<Attivita> expectedList = Arrays.asList(attivita1, attivita2);
-
-    when(repository.findByQuery(query)).thenReturn(expectedList);
+    when(indiceTestuale.isPronto()).thenReturn(true);
+    when(indiceTestuale.cerca(query)).thenReturn(List.of(2L, 1L));
+    when(repository.findAllById(List.of(2L, 1L))).thenReturn(
+        Arrays.asList(attivita1, attivita2));
 
     List<Attivita> result = ricercaService.findAttivita(query);
 
     assertNotNull(result);
     assertEquals(2, result.size());
-    assertEquals("Hotel Roma", result.get(0).getNome());
-    assertEquals("Tour Roma", result.get(1).getNome());
+    assertEquals("Tour Roma", result.get(0).getNome());
+    assertEquals("Hotel Roma", result.get(1).getNome());
+    verify(repository, never()).findByQuery(query);
+  }
+
+  @Test
+  void findAttivitaNoResultsFromIndice() throws InvalidParameterException {
+    when(indiceTestuale.isPronto()).thenReturn(true);
+    when(indiceTestuale.cerca("Inesistente")).thenReturn(List.of());
+
+    List<Attivita> result = ricercaService.findAttivita("Inesistente");
+
+    assertNotNull(result);
+    assertTrue(result.isEmpty());
+    verify(repository, never()).findAllById(any());
+  }
+
+  @Test
+  void findAttivitaIndiceNonProntoFallback() throws InvalidParameterException {
+    String query = "Roma";
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(1L);
+    attivita1.setNome("Hotel Roma");
+
+    when(indiceTestuale.isPronto()).thenReturn(false);
+    when(repository.findByQuery(query)).thenReturn(List.of(attivita1));
+
+    List<Attivita> result = ricercaService.findAttivita(query);
+
+    assertEquals(1, result.size());
     verify(repository).findByQuery(query);
+    verify(indiceTestuale, never()).cerca(query);
   }
 
   @Test
@@ -127,6 +180,31 @@ class RicercaServiceImplTest {
     verify(repository).findByCategorie(categorie, categorie.size());
   }
 
+  @Test
+  void findAttivitaByCategorieDaIndice() throws InvalidParameterException {
+    Categoria categoria1 = new Categoria();
+    categoria1.setId(1L);
+    Categoria categoria2 = new Categoria();
+    categoria2.setId(2L);
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(4L);
+    Attivita attivita2 = new Attivita();
+    attivita2.setId(9L);
+    BitSet ammesse = new BitSet();
+    ammesse.set(4);
+    ammesse.set(9);
+
+    when(indiceCategorie.isPronto()).thenReturn(true);
+    when(indiceCategorie.filtra(List.of(1L, 2L), List.of(), List.of())).thenReturn(ammesse);
+    when(repository.findAllById(List.of(4L, 9L))).thenReturn(List.of(attivita2, attivita1));
+
+    List<Attivita> result = ricercaService.findAttivitaByCategorie(
+        List.of(categoria1, categoria2, categoria1));
+
+    assertEquals(List.of(attivita1, attivita2), result);
+    verify(repository, never()).findByCategorie(any(), anyLong());
+  }
+
   @Test
   void findAttivitaByCategorieNullListExceptionThrown() {
     List<Categoria> nullList = null;
@@ -286,4 +364,176 @@ class RicercaServiceImplTest {
     verify(repository).findByPosizione(coordinate.getY(), coordinate.getX(), raggio);
   }
 
+  @Test
+  void findAttivitaByPosizioneDaIndice() throws InvalidParameterException {
+    Point coordinate = new Point(41.9028, 12.4964);
+    Attivita colosseo = new Attivita();
+    colosseo.setId(1L);
+    colosseo.setNome("Colosseo");
+    Attivita trevi = new Attivita();
+    trevi.setId(2L);
+    trevi.setNome("Fontana di Trevi");
+
+    when(indiceSpaziale.isPronto()).thenReturn(true);
+    when(indiceSpaziale.cercaNelRaggio(41.9028, 12.4964, 5000.0)).thenReturn(
+        List.of(new Risultato(2L, 1100.0), new Risultato(1L, 1500.0)));
+    when(repository.findAllById(List.of(2L, 1L))).thenReturn(List.of(colosseo, trevi));
+
+    List<Attivita> result = ricercaService.findAttivitaByPosizione(coordinate, 5000.0);
+
+    assertEquals(List.of(trevi, colosseo), result);
+    verify(repository, never()).findByPosizione(anyDouble(), anyDouble(), anyDouble());
+  }
+
+  @Test
+  void findAttivitaPiuVicineDaIndice() throws InvalidParameterException {
+    Point coordinate = new Point(41.9028, 12.4964);
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(1L);
+
+    when(indiceSpaziale.isPronto()).thenReturn(true);
+    when(indiceSpaziale.cercaPiuVicine(41.9028, 12.4964, 1)).thenReturn(
+        List.of(new Risultato(1L, 10.0)));
+    when(repository.findAllById(List.of(1L))).thenReturn(List.of(attivita1));
+
+    List<Attivita> result = ricercaService.findAttivitaPiuVicine(coordinate, 1);
+
+    assertEquals(List.of(attivita1), result);
+    verify(repository, never()).findPiuVicine(anyDouble(), anyDouble(), anyInt());
+  }
+
+  @Test
+  void findAttivitaPiuVicineIndiceNonProntoFallback() throws InvalidParameterException {
+    Point coordinate = new Point(41.9028, 12.4964);
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(1L);
+
+    when(indiceSpaziale.isPronto()).thenReturn(false);
+    when(repository.findPiuVicine(coordinate.getY(), coordinate.getX(), 3)).thenReturn(
+        List.of(attivita1));
+
+    List<Attivita> result = ricercaService.findAttivitaPiuVicine(coordinate, 3);
+
+    assertEquals(1, result.size());
+    verify(repository).findPiuVicine(coordinate.getY(), coordinate.getX(), 3);
+  }
+
+  @Test
+  void findAttivitaPiuVicineParametriNonValidi() {
+    InvalidParameterException exception = assertThrows(InvalidParameterException.class,
+        () -> ricercaService.findAttivitaPiuVicine(null, 3));
+    assertEquals("Le coordinate sono vuote.", exception.getMessage());
+
+    exception = assertThrows(InvalidParameterException.class,
+        () -> ricercaService.findAttivitaPiuVicine(new Point(41.9, 12.5), 0));
+    assertEquals("Il numero di risultati non è valido.", exception.getMessage());
+  }
+
+  @Test
+  void cercaCaricaSoloLaPagina() throws InvalidParameterException {
+    CriteriRicerca criteri = new CriteriRicerca("roma", List.of(1L), null, null);
+    Attivita attivita3 = new Attivita();
+    attivita3.setId(3L);
+    Attivita attivita4 = new Attivita();
+    attivita4.setId(4L);
+
+    when(pianificatore.isPronto()).thenReturn(true);
+    when(pianificatore.pianifica(criteri)).thenReturn(List.of(5L, 4L, 3L, 2L, 1L));
+    when(repository.findAllById(List.of(3L, 2L))).thenReturn(List.of(attivita3));
+
+    List<Attivita> result = ricercaService.cerca(criteri, 1, 2);
+
+    assertEquals(List.of(attivita3), result);
+    verify(repository).findAllById(List.of(3L, 2L));
+    verify(repository, never()).findByQuery(any());
+  }
+
+  @Test
+  void cercaPaginaOltreLaFine() throws InvalidParameterException {
+    CriteriRicerca criteri = new CriteriRicerca("roma", null, null, null);
+
+    when(pianificatore.isPronto()).thenReturn(true);
+    when(pianificatore.pianifica(criteri)).thenReturn(List.of(1L, 2L));
+
+    assertTrue(ricercaService.cerca(criteri, 3, 10).isEmpty());
+    verify(repository, never()).findAllById(any());
+  }
+
+  @Test
+  void cercaIndiciNonProntiFallback() throws InvalidParameterException {
+    Point coordinate = new Point(41.9028, 12.4964);
+    CriteriRicerca criteri = new CriteriRicerca("roma", List.of(1L, 1L), coordinate, 5000.0);
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(1L);
+    Attivita attivita2 = new Attivita();
+    attivita2.setId(2L);
+    Attivita attivita3 = new Attivita();
+    attivita3.setId(3L);
+
+    when(pianificatore.isPronto()).thenReturn(false);
+    when(repository.findByQuery("roma")).thenReturn(List.of(attivita1, attivita2, attivita3));
+    when(repository.findByPosizione(coordinate.getY(), coordinate.getX(), 5000.0))
+        .thenReturn(List.of(attivita3, attivita2));
+    when(repository.findIdByCategorie(List.of(1L), 1)).thenReturn(List.of(2L, 7L));
+
+    List<Attivita> result = ricercaService.cerca(criteri, 0, 10);
+
+    assertEquals(List.of(attivita2), result);
+    verify(pianificatore, never()).pianifica(any());
+  }
+
+  @Test
+  void cercaCategorieAlternativeEdEscluseFallback() throws InvalidParameterException {
+    CriteriRicerca criteri = new CriteriRicerca(null, null, List.of(1L, 2L), List.of(3L),
+        null, null);
+    Attivita attivita1 = new Attivita();
+    attivita1.setId(1L);
+    Attivita attivita2 = new Attivita();
+    attivita2.setId(2L);
+
+    when(pianificatore.isPronto()).thenReturn(false);
+    when(repository.findIdByAlmenoUnaCategoria(List.of(1L, 2L))).thenReturn(List.of(1L, 2L));
+    when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(attivita1, attivita2));
+    when(repository.findIdByAlmenoUnaCategoria(List.of(3L))).thenReturn(List.of(2L, 5L));
+
+    assertEquals(List.of(attivita1), ricercaService.cerca(criteri, 0, 10));
+  }
+
+  @Test
+  void cercaSoloCategorieEscluseFallback() throws InvalidParameterException {
+    CriteriRicerca criteri = new CriteriRicerca(null, null, null, List.of(3L), null, null);
+    Attivita attivita2 = new Attivita();
+    attivita2.setId(2L);
+    Attivita attivita4 = new Attivita();
+    attivita4.setId(4L);
+
+    when(pianificatore.isPronto()).thenReturn(false);
+    when(repository.findIdSenzaCategorie(List.of(3L), PageRequest.of(1, 2)))
+        .thenReturn(List.of(4L, 2L));
+    when(repository.findAllById(List.of(4L, 2L))).thenReturn(List.of(attivita2, attivita4));
+
+    assertEquals(List.of(attivita4, attivita2), ricercaService.cerca(criteri, 1, 2));
+    verify(repository, never()).findAll();
+    verify(repository, never()).findIdByAlmenoUnaCategoria(any());
+  }
+
+  @Test
+  void cercaCriteriNonValidi() {
+    InvalidParameterException exception = assertThrows(InvalidParameterException.class,
+        () -> ricercaService.cerca(new CriteriRicerca(" ", List.of(), null, 10.0), 0, 10));
+    assertEquals("I criteri di ricerca sono vuoti.", exception.getMessage());
+
+    exception = assertThrows(InvalidParameterException.class, () -> ricercaService.cerca(
+        new CriteriRicerca(null, null, new Point(41.9, 12.5), -1.0), 0, 10));
+    assertEquals("Il raggio non è valido.", exception.getMessage());
+
+    exception = assertThrows(InvalidParameterException.class,
+        () -> ricercaService.cerca(new CriteriRicerca("roma", null, null, null), -1, 10));
+    assertEquals("La pagina non è valida.", exception.getMessage());
+
+    exception = assertThrows(InvalidParameterException.class,
+        () -> ricercaService.cerca(new CriteriRicerca("roma", null, null, null), 0, 0));
+    assertEquals("La pagina non è valida.", exception.getMessage());
+  }
+
 }
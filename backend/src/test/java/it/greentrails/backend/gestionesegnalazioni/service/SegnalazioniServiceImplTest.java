@@ -10,6 +10,7 @@ import static org.mockito.Mockito.when;
 import it.greentrails.backend.entities.Segnalazione;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.StatoSegnalazione;
+import it.greentrails.backend.events.SegnalazioneModificataEvent;
 import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
 import java.util.Arrays;
 import java.util.Date;
@@ -20,12 +21,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 class SegnalazioniServiceImplTest {
 
   @Mock
   private SegnalazioniRepository repository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private SegnalazioniServiceImpl segnalazioniService;
 
@@ -56,6 +61,7 @@ class SegnalazioniServiceImplTest {
     assertEquals("Segnalazione di test", savedSegnalazione.getDescrizione());
     assertEquals(StatoSegnalazione.CREATA, savedSegnalazione.getStato());
     verify(repository).save(segnalazione);
+    verify(eventPublisher).publishEvent(new SegnalazioneModificataEvent(segnalazione, false));
   }
 
   @Test
@@ -1,14 +1,11 @@
 package it.greentrails.backend.gestioneupload.controller;
 
-import it.greentrails.backend.entities.Attivita;
-import it.greentrails.backend.entities.Recensione;
-import it.greentrails.backend.entities.Segnalazione;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
-import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
-import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
-import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
+import it.greentrails.backend.enums.TipoProprietarioMedia;
 import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
+import it.greentrails.backend.gestioneupload.registro.RegistroMedia;
+import it.greentrails.backend.gestioneupload.registro.RegistroMedia.Proprietario;
 import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
 import it.greentrails.backend.utils.DataSeeder;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,9 +23,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -49,13 +48,7 @@ class GestioneUploadControllerTest {
   private ArchiviazioneService archiviazioneService;
 
   @MockBean
-  private AttivitaRepository attivitaRepository;
-
-  @MockBean
-  private RecensioneRepository recensioneRepository;
-
-  @MockBean
-  private SegnalazioniRepository segnalazioniRepository;
+  private RegistroMedia registroMedia;
 
   @MockBean
   private DataSeeder dataSeeder;
@@ -64,9 +57,9 @@ class GestioneUploadControllerTest {
   private Utente gestore;
   private Utente amministratore;
   private Utente altroUtente;
-  private Attivita attivita;
-  private Recensione recensione;
-  private Segnalazione segnalazione;
+  private Proprietario attivita;
+  private Proprietario recensione;
+  private Proprietario segnalazione;
 
   @BeforeEach
   void setUp() {
@@ -90,20 +83,9 @@ class GestioneUploadControllerTest {
     altroUtente.setEmail("altro@test.com");
     altroUtente.setRuolo(RuoloUtente.VISITATORE);
 
-    attivita = new Attivita();
-    attivita.setId(1L);
-    attivita.setGestore(gestore);
-    attivita.setMedia("media123");
-
-    recensione = new Recensione();
-    recensione.setId(1L);
-    recensione.setVisitatore(visitatore);
-    recensione.setMedia("media456");
-
-    segnalazione = new Segnalazione();
-    segnalazione.setId(1L);
-    segnalazione.setUtente(visitatore);
-    segnalazione.setMedia("media789");
+    attivita = new Proprietario(TipoProprietarioMedia.ATTIVITA, gestore.getId());
+    recensione = new Proprietario(TipoProprietarioMedia.RECENSIONE, visitatore.getId());
+    segnalazione = new Proprietario(TipoProprietarioMedia.SEGNALAZIONE, visitatore.getId());
   }
 
   @Test
@@ -130,6 +112,23 @@ class GestioneUploadControllerTest {
     verify(archiviazioneService).loadAll("mediaVuoto");
   }
 
+  @Test
+  void testElencaFileCaricati_Etag() throws Exception {
+    when(archiviazioneService.loadAll("media123")).thenReturn(List.of("a.jpg", "b.jpg"));
+
+    String etag = mockMvc.perform(get("/api/file/media123"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/api/file/media123").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    when(archiviazioneService.loadAll("media123")).thenReturn(List.of("a.jpg"));
+    mockMvc.perform(get("/api/file/media123").header("If-None-Match", etag))
+        .andExpect(status().isOk());
+  }
+
   @Test
   void testServiFile_Success() throws Exception {
     // Crea un file temporaneo reale
@@ -151,6 +150,106 @@ class GestioneUploadControllerTest {
     Files.deleteIfExists(tempFile);
   }
 
+  @Test
+  void testServiFile_TipoEIntestazioni() throws Exception {
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    Files.write(tempFile, "0123456789".getBytes());
+    when(archiviazioneService.loadAsResource("media123", "video.mp4"))
+        .thenReturn(new UrlResource(tempFile.toUri()));
+
+    mockMvc.perform(get("/api/file/media123/video.mp4"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("video/mp4"))
+        .andExpect(content().string("0123456789"))
+        .andExpect(header().string("Accept-Ranges", "bytes"))
+        .andExpect(header().longValue("Content-Length", 10))
+        .andExpect(header().exists("ETag"))
+        .andExpect(header().exists("Last-Modified"))
+        .andExpect(header().string("Content-Disposition", startsWith("inline")));
+
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void testServiFile_Range() throws Exception {
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    Files.write(tempFile, "0123456789".getBytes());
+    when(archiviazioneService.loadAsResource("media123", "video.mp4"))
+        .thenReturn(new UrlResource(tempFile.toUri()));
+
+    mockMvc.perform(get("/api/file/media123/video.mp4").header("Range", "bytes=2-5"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+        .andExpect(header().longValue("Content-Length", 4))
+        .andExpect(content().string("2345"));
+    mockMvc.perform(get("/api/file/media123/video.mp4").header("Range", "bytes=-3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(content().string("789"));
+    mockMvc.perform(get("/api/file/media123/video.mp4").header("Range", "bytes=20-"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string("Content-Range", "bytes */10"));
+
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void testServiFile_NonModificato() throws Exception {
+    Path tempFile = Files.createTempFile("test", ".png");
+    Files.write(tempFile, "test content".getBytes());
+    when(archiviazioneService.loadAsResource("media123", "test.png"))
+        .thenReturn(new UrlResource(tempFile.toUri()));
+
+    String etag = mockMvc.perform(get("/api/file/media123/test.png"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/api/file/media123/test.png").header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(content().string(""));
+    mockMvc.perform(get("/api/file/media123/test.png").header("If-None-Match", "\"altro\""))
+        .andExpect(status().isOk());
+
+    // Un Range con un If-Range non più valido riceve il file intero
+    mockMvc.perform(get("/api/file/media123/test.png")
+            .header("Range", "bytes=0-3")
+            .header("If-Range", "\"altro\""))
+        .andExpect(status().isOk())
+        .andExpect(content().string("test content"));
+
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void testServiFile_Derivato() throws Exception {
+    Path originale = Files.createTempFile("test", ".jpg");
+    Files.write(originale, "originale".getBytes());
+    Path ridotto = Files.createTempFile("test", ".jpg");
+    Files.write(ridotto, "ridotta".getBytes());
+    when(archiviazioneService.loadAsResource("media123", "foto.jpg"))
+        .thenReturn(new UrlResource(originale.toUri()));
+    when(archiviazioneService.loadDerivato("media123", "foto.jpg", 640))
+        .thenReturn(new UrlResource(ridotto.toUri()));
+
+    // Il derivato più piccolo che basta, se c'è
+    mockMvc.perform(get("/api/file/media123/foto.jpg").param("w", "500"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("ridotta"));
+    // Altrimenti l'originale
+    mockMvc.perform(get("/api/file/media123/foto.jpg").param("w", "200"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("originale"));
+    mockMvc.perform(get("/api/file/media123/foto.jpg").param("w", "5000"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("originale"));
+
+    verify(archiviazioneService).loadDerivato("media123", "foto.jpg", 320);
+    verify(archiviazioneService, never()).loadDerivato("media123", "foto.jpg", 0);
+
+    Files.deleteIfExists(originale);
+    Files.deleteIfExists(ridotto);
+  }
+
   @Test
   void testServiFile_FileNonTrovato() throws Exception {
     when(archiviazioneService.loadAsResource("media123", "nonEsiste.jpg"))
@@ -178,7 +277,7 @@ class GestioneUploadControllerTest {
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.jpg", "image/jpeg", "test content".getBytes());
 
-    when(attivitaRepository.findOneByMedia("media123")).thenReturn(Optional.of(attivita));
+    when(registroMedia.proprietario("media123")).thenReturn(Optional.of(attivita));
     doNothing().when(archiviazioneService).store(eq("media123"), any(MockMultipartFile.class));
 
     mockMvc.perform(multipart("/api/file")
@@ -188,7 +287,7 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media123");
+    verify(registroMedia).proprietario("media123");
     verify(archiviazioneService).store(eq("media123"), any(MockMultipartFile.class));
   }
 
@@ -197,8 +296,7 @@ class GestioneUploadControllerTest {
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.jpg", "image/jpeg", "test content".getBytes());
 
-    when(attivitaRepository.findOneByMedia("media456")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("media456")).thenReturn(Optional.of(recensione));
+    when(registroMedia.proprietario("media456")).thenReturn(Optional.of(recensione));
     doNothing().when(archiviazioneService).store(eq("media456"), any(MockMultipartFile.class));
 
     mockMvc.perform(multipart("/api/file")
@@ -208,8 +306,7 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media456");
-    verify(recensioneRepository).findOneByMedia("media456");
+    verify(registroMedia).proprietario("media456");
     verify(archiviazioneService).store(eq("media456"), any(MockMultipartFile.class));
   }
 
@@ -218,9 +315,7 @@ class GestioneUploadControllerTest {
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.jpg", "image/jpeg", "test content".getBytes());
 
-    when(attivitaRepository.findOneByMedia("media789")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("media789")).thenReturn(Optional.empty());
-    when(segnalazioniRepository.findOneByMedia("media789")).thenReturn(Optional.of(segnalazione));
+    when(registroMedia.proprietario("media789")).thenReturn(Optional.of(segnalazione));
     doNothing().when(archiviazioneService).store(eq("media789"), any(MockMultipartFile.class));
 
     mockMvc.perform(multipart("/api/file")
@@ -230,9 +325,7 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media789");
-    verify(recensioneRepository).findOneByMedia("media789");
-    verify(segnalazioniRepository).findOneByMedia("media789");
+    verify(registroMedia).proprietario("media789");
     verify(archiviazioneService).store(eq("media789"), any(MockMultipartFile.class));
   }
 
@@ -258,7 +351,7 @@ class GestioneUploadControllerTest {
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.jpg", "image/jpeg", "test content".getBytes());
 
-    when(attivitaRepository.findOneByMedia("media123")).thenReturn(Optional.of(attivita));
+    when(registroMedia.proprietario("media123")).thenReturn(Optional.of(attivita));
 
     mockMvc.perform(multipart("/api/file")
             .file(file)
@@ -267,7 +360,7 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isForbidden());
 
-    verify(attivitaRepository).findOneByMedia("media123");
+    verify(registroMedia).proprietario("media123");
     verify(archiviazioneService, never()).store(any(), any());
   }
 
@@ -276,9 +369,7 @@ class GestioneUploadControllerTest {
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.jpg", "image/jpeg", "test content".getBytes());
 
-    when(attivitaRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
-    when(segnalazioniRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
+    when(registroMedia.proprietario("mediaNonEsiste")).thenReturn(Optional.empty());
 
     mockMvc.perform(multipart("/api/file")
             .file(file)
@@ -287,15 +378,13 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isForbidden());
 
-    verify(attivitaRepository).findOneByMedia("mediaNonEsiste");
-    verify(recensioneRepository).findOneByMedia("mediaNonEsiste");
-    verify(segnalazioniRepository).findOneByMedia("mediaNonEsiste");
+    verify(registroMedia).proprietario("mediaNonEsiste");
     verify(archiviazioneService, never()).store(any(), any());
   }
 
   @Test
   void testCancellaMedia_AttivitaProprietario() throws Exception {
-    when(attivitaRepository.findOneByMedia("media123")).thenReturn(Optional.of(attivita));
+    when(registroMedia.proprietario("media123")).thenReturn(Optional.of(attivita));
     doNothing().when(archiviazioneService).delete("media123", "test.jpg");
 
     mockMvc.perform(delete("/api/file/media123/test.jpg")
@@ -303,14 +392,13 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media123");
+    verify(registroMedia).proprietario("media123");
     verify(archiviazioneService).delete("media123", "test.jpg");
   }
 
   @Test
   void testCancellaMedia_RecensioneProprietario() throws Exception {
-    when(attivitaRepository.findOneByMedia("media456")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("media456")).thenReturn(Optional.of(recensione));
+    when(registroMedia.proprietario("media456")).thenReturn(Optional.of(recensione));
     doNothing().when(archiviazioneService).delete("media456", "test.jpg");
 
     mockMvc.perform(delete("/api/file/media456/test.jpg")
@@ -318,16 +406,13 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media456");
-    verify(recensioneRepository).findOneByMedia("media456");
+    verify(registroMedia).proprietario("media456");
     verify(archiviazioneService).delete("media456", "test.jpg");
   }
 
   @Test
   void testCancellaMedia_SegnalazioneProprietario() throws Exception {
-    when(attivitaRepository.findOneByMedia("media789")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("media789")).thenReturn(Optional.empty());
-    when(segnalazioniRepository.findOneByMedia("media789")).thenReturn(Optional.of(segnalazione));
+    when(registroMedia.proprietario("media789")).thenReturn(Optional.of(segnalazione));
     doNothing().when(archiviazioneService).delete("media789", "test.jpg");
 
     mockMvc.perform(delete("/api/file/media789/test.jpg")
@@ -335,9 +420,7 @@ class GestioneUploadControllerTest {
             .with(csrf()))
         .andExpect(status().isOk());
 
-    verify(attivitaRepository).findOneByMedia("media789");
-    verify(recensioneRepository).findOneByMedia("media789");
-    verify(segnalazioniRepository).findOneByMedia("media789");
+    verify(registroMedia).proprietario("media789");
     verify(archiviazioneService).delete("media789", "test.jpg");
   }
 
@@ -355,31 +438,27 @@ class GestioneUploadControllerTest {
 
   @Test
   void testCancellaMedia_NonAutorizzato() throws Exception {
-    when(attivitaRepository.findOneByMedia("media123")).thenReturn(Optional.of(attivita));
+    when(registroMedia.proprietario("media123")).thenReturn(Optional.of(attivita));
 
     mockMvc.perform(delete("/api/file/media123/test.jpg")
             .with(user(altroUtente))
             .with(csrf()))
         .andExpect(status().isForbidden());
 
-    verify(attivitaRepository).findOneByMedia("media123");
+    verify(registroMedia).proprietario("media123");
     verify(archiviazioneService, never()).delete(any(), any());
   }
 
   @Test
   void testCancellaMedia_MediaNonEsiste() throws Exception {
-    when(attivitaRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
-    when(recensioneRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
-    when(segnalazioniRepository.findOneByMedia("mediaNonEsiste")).thenReturn(Optional.empty());
+    when(registroMedia.proprietario("mediaNonEsiste")).thenReturn(Optional.empty());
 
     mockMvc.perform(delete("/api/file/mediaNonEsiste/test.jpg")
             .with(user(visitatore))
             .with(csrf()))
         .andExpect(status().isForbidden());
 
-    verify(attivitaRepository).findOneByMedia("mediaNonEsiste");
-    verify(recensioneRepository).findOneByMedia("mediaNonEsiste");
-    verify(segnalazioniRepository).findOneByMedia("mediaNonEsiste");
+    verify(registroMedia).proprietario("mediaNonEsiste");
     verify(archiviazioneService, never()).delete(any(), any());
   }
 }
@@ -0,0 +1,145 @@
+package it.greentrails.backend.gestioneupload.derivati;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.greentrails.backend.events.FileArchiviatoEvent;
+import it.greentrails.backend.gestioneupload.service.ArchiviazioneFileSystemService;
+import it.greentrails.backend.gestioneupload.service.ArchiviazioneService;
+import it.greentrails.backend.utils.ArchiviazioneProperties;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+class GeneratoreDerivatiTest {
+
+  private Path tempRoot;
+  private ArchiviazioneFileSystemService service;
+  private SimpleMeterRegistry registry;
+  private GeneratoreDerivati generatore;
+  private final List<FileArchiviatoEvent> eventi = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempRoot = Files.createTempDirectory("derivati-test");
+    ArchiviazioneProperties props = new ArchiviazioneProperties();
+    props.setLocation(tempRoot.toString());
+    service = new ArchiviazioneFileSystemService(props,
+        event -> eventi.add((FileArchiviatoEvent) event));
+    registry = new SimpleMeterRegistry();
+    generatore = new GeneratoreDerivati(service, registry, 1, 16);
+  }
+
+  @AfterEach
+  void tearDown() {
+    generatore.chiudi();
+    FileSystemUtils.deleteRecursively(tempRoot.toFile());
+  }
+
+  private String carica(int larghezza, int altezza) throws IOException {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(larghezza, altezza, BufferedImage.TYPE_INT_RGB), "jpg",
+        jpeg);
+    MultipartFile file = mock(MultipartFile.class);
+    when(file.isEmpty()).thenReturn(false);
+    when(file.getContentType()).thenReturn("image/jpeg");
+    when(file.getInputStream()).thenReturn(new ByteArrayInputStream(jpeg.toByteArray()));
+    service.store("m", file);
+    FileArchiviatoEvent evento = eventi.getLast();
+    generatore.onFileArchiviato(evento);
+    return evento.filename();
+  }
+
+  private static int larghezza(Resource risorsa) throws IOException {
+    try (InputStream ingresso = risorsa.getInputStream()) {
+      return ImageIO.read(ingresso).getWidth();
+    }
+  }
+
+  private double conteggio(String esito) {
+    return registry.get("greentrails.upload.derivati").tag("esito", esito).counter().count();
+  }
+
+  @Test
+  void generaLeLarghezzePiuPiccoleDellOriginale() throws Exception {
+    String filename = carica(1000, 500);
+    assertTrue(generatore.attendi(10_000));
+
+    assertEquals(320, larghezza(service.loadDerivato("m", filename, 320)));
+    Resource media = service.loadDerivato("m", filename, 640);
+    assertNotNull(media);
+    assertEquals(640, larghezza(media));
+    try (InputStream ingresso = media.getInputStream()) {
+      assertEquals(320, ImageIO.read(ingresso).getHeight());
+    }
+    // Più largo dell'originale: si serve l'originale
+    assertNull(service.loadDerivato("m", filename, 1280));
+    assertEquals(2, conteggio("generato"));
+  }
+
+  @Test
+  void iFileNonImmagineVengonoIgnorati() throws Exception {
+    generatore.onFileArchiviato(new FileArchiviatoEvent("m", "video.mp4"));
+    assertTrue(generatore.attendi(10_000));
+
+    assertEquals(0, conteggio("generato") + conteggio("errore") + conteggio("scartato"));
+  }
+
+  @Test
+  void conLaCodaPienaIlLavoroVieneScartato() throws Exception {
+    ArchiviazioneService lento = mock(ArchiviazioneService.class);
+    CountDownLatch sblocca = new CountDownLatch(1);
+    when(lento.loadAsResource(anyString(), anyString())).thenAnswer(inv -> {
+      sblocca.await();
+      return null;
+    });
+    registry = new SimpleMeterRegistry();
+    GeneratoreDerivati piccolo = new GeneratoreDerivati(lento, registry, 1, 1);
+    try {
+      // Il primo è in esecuzione, il secondo in coda, il terzo non trova posto
+      piccolo.onFileArchiviato(new FileArchiviatoEvent("m", "a.jpg"));
+      while (piccolo.inCoda() > 0) {
+        Thread.onSpinWait();
+      }
+      piccolo.onFileArchiviato(new FileArchiviatoEvent("m", "b.jpg"));
+      piccolo.onFileArchiviato(new FileArchiviatoEvent("m", "c.jpg"));
+
+      assertEquals(1, piccolo.inCoda());
+      assertEquals(1, registry.get("greentrails.upload.derivati.coda").gauge().value());
+      assertEquals(1, conteggio("scartato"));
+    } finally {
+      sblocca.countDown();
+      piccolo.chiudi();
+    }
+  }
+
+  @Test
+  void larghezzaPerRichiesta() {
+    assertEquals(320, GeneratoreDerivati.larghezzaPerRichiesta(1));
+    assertEquals(320, GeneratoreDerivati.larghezzaPerRichiesta(320));
+    assertEquals(640, GeneratoreDerivati.larghezzaPerRichiesta(321));
+    assertEquals(1280, GeneratoreDerivati.larghezzaPerRichiesta(1000));
+    assertEquals(0, GeneratoreDerivati.larghezzaPerRichiesta(4000));
+  }
+
+}
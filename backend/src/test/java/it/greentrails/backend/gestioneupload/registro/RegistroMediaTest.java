@@ -0,0 +1,149 @@
+package it.greentrails.backend.gestioneupload.registro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Recensione;
+import it.greentrails.backend.entities.Segnalazione;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.TipoProprietarioMedia;
+import it.greentrails.backend.events.AttivitaModificataEvent;
+import it.greentrails.backend.events.RecensioneModificataEvent;
+import it.greentrails.backend.events.SegnalazioneModificataEvent;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneattivita.repository.MediaProprietario;
+import it.greentrails.backend.gestioneattivita.repository.RecensioneRepository;
+import it.greentrails.backend.gestionesegnalazioni.repository.SegnalazioniRepository;
+import it.greentrails.backend.gestioneupload.registro.RegistroMedia.Proprietario;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+class RegistroMediaTest {
+
+  @Mock
+  private AttivitaRepository attivitaRepository;
+
+  @Mock
+  private RecensioneRepository recensioneRepository;
+
+  @Mock
+  private SegnalazioniRepository segnalazioniRepository;
+
+  private RegistroMedia registro;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    registro = new RegistroMedia(attivitaRepository, recensioneRepository,
+        segnalazioniRepository);
+  }
+
+  private static Utente utente(long id) {
+    Utente utente = new Utente();
+    utente.setId(id);
+    return utente;
+  }
+
+  @Test
+  void ricostruisciLeggeLeTreTabelleABlocchi() {
+    String media = UUID.randomUUID().toString();
+    List<MediaProprietario> pieno = new ArrayList<>();
+    for (long i = 1; i <= RegistroMedia.DIMENSIONE_BLOCCO; i++) {
+      pieno.add(new MediaProprietario(i, UUID.randomUUID().toString(), 2L));
+    }
+    when(attivitaRepository.findMediaDopo(eq(0L), any(Limit.class))).thenReturn(pieno);
+    when(attivitaRepository.findMediaDopo(eq((long) RegistroMedia.DIMENSIONE_BLOCCO),
+        any(Limit.class))).thenReturn(List.of(new MediaProprietario(1001L, media, 2L)));
+    when(recensioneRepository.findMediaDopo(anyLong(), any(Limit.class)))
+        .thenReturn(List.of(new MediaProprietario(1L, "vecchio-media", 1L)));
+    when(segnalazioniRepository.findMediaDopo(anyLong(), any(Limit.class)))
+        .thenReturn(List.of());
+
+    registro.ricostruisci();
+
+    assertTrue(registro.isPronto());
+    assertEquals(RegistroMedia.DIMENSIONE_BLOCCO + 2, registro.size());
+    assertEquals(new Proprietario(TipoProprietarioMedia.ATTIVITA, 2L),
+        registro.proprietario(media).orElseThrow());
+    assertEquals(new Proprietario(TipoProprietarioMedia.RECENSIONE, 1L),
+        registro.proprietario("vecchio-media").orElseThrow());
+    verify(attivitaRepository, never()).findOneByMedia(any());
+  }
+
+  @Test
+  void gliEventiAggiornanoIlRegistro() {
+    String mediaAttivita = UUID.randomUUID().toString();
+    String mediaRecensione = UUID.randomUUID().toString();
+    String mediaSegnalazione = UUID.randomUUID().toString();
+    Attivita attivita = new Attivita();
+    attivita.setGestore(utente(2L));
+    attivita.setMedia(mediaAttivita);
+    Recensione recensione = new Recensione();
+    recensione.setVisitatore(utente(1L));
+    recensione.setMedia(mediaRecensione);
+    Segnalazione segnalazione = new Segnalazione();
+    segnalazione.setUtente(utente(3L));
+    segnalazione.setMedia(mediaSegnalazione);
+
+    registro.onAttivitaModificata(new AttivitaModificataEvent(attivita));
+    registro.onRecensioneModificata(new RecensioneModificataEvent(recensione, false));
+    registro.onSegnalazioneModificata(new SegnalazioneModificataEvent(segnalazione, false));
+
+    assertEquals(new Proprietario(TipoProprietarioMedia.ATTIVITA, 2L),
+        registro.trova(mediaAttivita));
+    assertEquals(new Proprietario(TipoProprietarioMedia.RECENSIONE, 1L),
+        registro.trova(mediaRecensione));
+    assertEquals(new Proprietario(TipoProprietarioMedia.SEGNALAZIONE, 3L),
+        registro.trova(mediaSegnalazione));
+
+    registro.onRecensioneModificata(new RecensioneModificataEvent(recensione, true));
+    assertNull(registro.trova(mediaRecensione));
+    registro.onSegnalazioneModificata(new SegnalazioneModificataEvent(segnalazione, true));
+    assertNull(registro.trova(mediaSegnalazione));
+    assertEquals(1, registro.size());
+  }
+
+  @Test
+  void unMediaSconosciutoVieneCercatoNelDatabaseUnaVoltaSola() {
+    String media = UUID.randomUUID().toString();
+    Recensione recensione = new Recensione();
+    recensione.setVisitatore(utente(1L));
+    when(attivitaRepository.findOneByMedia(media)).thenReturn(Optional.empty());
+    when(recensioneRepository.findOneByMedia(media)).thenReturn(Optional.of(recensione));
+
+    assertEquals(1L, registro.proprietario(media).orElseThrow().idUtente());
+    assertEquals(1L, registro.proprietario(media).orElseThrow().idUtente());
+
+    verify(recensioneRepository, times(1)).findOneByMedia(media);
+    verify(segnalazioniRepository, never()).findOneByMedia(any());
+  }
+
+  @Test
+  void unMediaSenzaProprietarioNonVieneMemorizzato() {
+    when(attivitaRepository.findOneByMedia(any())).thenReturn(Optional.empty());
+    when(recensioneRepository.findOneByMedia(any())).thenReturn(Optional.empty());
+    when(segnalazioniRepository.findOneByMedia(any())).thenReturn(Optional.empty());
+
+    assertFalse(registro.proprietario("inesistente").isPresent());
+    assertFalse(registro.proprietario(null).isPresent());
+    assertEquals(0, registro.size());
+  }
+
+}
@@ -1,20 +1,27 @@
 package it.greentrails.backend.gestioneupload.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
+import it.greentrails.backend.events.FileArchiviatoEvent;
 import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
 import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
 import it.greentrails.backend.utils.ArchiviazioneProperties;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
@@ -29,13 +36,14 @@ class ArchiviazioneFileSystemServiceTest {
 
   private Path tempRoot;
   private ArchiviazioneFileSystemService service;
+  private final List<Object> eventi = new ArrayList<>();
 
   @BeforeEach
   void setUp() throws IOException {
     tempRoot = Files.createTempDirectory("archiviazione-test");
     ArchiviazioneProperties props = new ArchiviazioneProperties();
     props.setLocation(tempRoot.toString());
-    service = new ArchiviazioneFileSystemService(props);
+    service = new ArchiviazioneFileSystemService(props, eventi::add);
     service.init();
   }
 
@@ -60,7 +68,7 @@ class ArchiviazioneFileSystemServiceTest {
   void constructorEmptyLocationThrows() {
     ArchiviazioneProperties p = new ArchiviazioneProperties();
     p.setLocation("   ");
-    assertThrows(ArchiviazioneException.class, () -> new ArchiviazioneFileSystemService(p));
+    assertThrows(ArchiviazioneException.class, () -> new ArchiviazioneFileSystemService(p, eventi::add));
   }
 
   @Test
@@ -68,7 +76,7 @@ class ArchiviazioneFileSystemServiceTest {
     Path newRoot = tempRoot.resolve("newroot");
     ArchiviazioneProperties p = new ArchiviazioneProperties();
     p.setLocation(newRoot.toString());
-    ArchiviazioneFileSystemService svc = new ArchiviazioneFileSystemService(p);
+    ArchiviazioneFileSystemService svc = new ArchiviazioneFileSystemService(p, eventi::add);
     svc.init();
     assertTrue(Files.exists(newRoot));
     assertTrue(Files.isDirectory(newRoot));
@@ -231,4 +239,142 @@ class ArchiviazioneFileSystemServiceTest {
     assertThrows(ArchiviazioneException.class, () -> service.loadAll("non_esiste"));
   }
 
-}
\ No newline at end of file
+  private static MultipartFile immagine(String contenuto) throws IOException {
+    MultipartFile file = Mockito.mock(MultipartFile.class);
+    when(file.isEmpty()).thenReturn(false);
+    when(file.getContentType()).thenReturn("image/jpeg");
+    when(file.getOriginalFilename()).thenReturn("foto.jpg");
+    when(file.getInputStream()).thenAnswer(
+        inv -> new ByteArrayInputStream(contenuto.getBytes()));
+    return file;
+  }
+
+  private long contenutiSalvati() throws IOException {
+    try (var walk = Files.walk(tempRoot.resolve(ArchiviazioneFileSystemService.CONTENUTI))) {
+      return walk.filter(Files::isRegularFile).count();
+    }
+  }
+
+  @Test
+  void storeSameContentIsSavedOnce() throws Exception {
+    service.store("a", immagine("stessa foto"));
+    service.store("b", immagine("stessa foto"));
+    service.store("b", immagine("stessa foto"));
+
+    assertEquals(1, service.loadAll("a").size());
+    assertEquals(1, service.loadAll("b").size());
+    assertEquals(service.loadAll("a"), service.loadAll("b"));
+    assertEquals(1, contenutiSalvati());
+    Path primo = tempRoot.resolve("a").resolve(service.loadAll("a").getFirst());
+    Path secondo = tempRoot.resolve("b").resolve(service.loadAll("b").getFirst());
+    assertEquals("stessa foto", Files.readString(secondo));
+    assertTrue(Files.isSameFile(primo, secondo));
+  }
+
+  @Test
+  void storeDifferentContentsInTheSameSecondDoNotCollide() throws Exception {
+    service.store("m", immagine("prima"));
+    service.store("m", immagine("seconda"));
+
+    List<String> all = service.loadAll("m");
+    assertEquals(2, all.size());
+    assertNotEquals(all.get(0), all.get(1));
+  }
+
+  @Test
+  void deleteRemovesContentAfterLastReference() throws Exception {
+    service.store("a", immagine("condivisa"));
+    service.store("b", immagine("condivisa"));
+    String filename = service.loadAll("a").getFirst();
+
+    service.delete("a", filename);
+    assertEquals(1, contenutiSalvati());
+    assertEquals("condivisa", Files.readString(tempRoot.resolve("b").resolve(filename)));
+
+    service.delete("b", filename);
+    // Senza collegamenti fisici il numero di riferimenti non è noto e il contenuto resta
+    if (!(Files.getAttribute(tempRoot, "unix:nlink") instanceof Integer)) {
+      return;
+    }
+    assertEquals(0, contenutiSalvati());
+  }
+
+  @Test
+  void hiddenFoldersAreNotMedia() throws Exception {
+    service.store("a", immagine("nascosta"));
+
+    assertThrows(ArchiviazioneException.class,
+        () -> service.store(ArchiviazioneFileSystemService.CONTENUTI, immagine("x")));
+    assertThrows(ArchiviazioneException.class,
+        () -> service.loadAll(ArchiviazioneFileSystemService.CONTENUTI));
+    assertThrows(FileNonTrovatoException.class,
+        () -> service.loadAsResource(ArchiviazioneFileSystemService.CONTENUTI, "x"));
+  }
+
+  @Test
+  void storePublishesTheStoredFile() throws Exception {
+    service.store("m", immagine("evento"));
+
+    assertEquals(List.of(new FileArchiviatoEvent("m", service.loadAll("m").getFirst())), eventi);
+  }
+
+  @Test
+  void derivativesAreStoredLoadedAndDeletedWithTheFile() throws Exception {
+    service.store("m", immagine("originale"));
+    String filename = service.loadAll("m").getFirst();
+    assertNull(service.loadDerivato("m", filename, 320));
+
+    service.storeDerivato("m", filename, 320, "ridotta".getBytes());
+
+    Resource derivato = service.loadDerivato("m", filename, 320);
+    assertNotNull(derivato);
+    assertEquals("ridotta", derivato.getContentAsString(StandardCharsets.UTF_8));
+    // I derivati non compaiono nell'elenco dei file del media
+    assertEquals(List.of(filename), service.loadAll("m"));
+
+    service.delete("m", filename);
+    assertNull(service.loadDerivato("m", filename, 320));
+  }
+
+  @Test
+  void loadAllIsServedFromMemoryAndFollowsStoreAndDelete() throws Exception {
+    service.store("m", immagine("uno"));
+    List<String> primo = service.loadAll("m");
+    assertEquals(1, primo.size());
+
+    // Un file scritto da fuori non compare: l'elenco non viene riletto
+    Files.writeString(tempRoot.resolve("m").resolve("esterno.jpg"), "x");
+    assertSame(primo, service.loadAll("m"));
+
+    service.store("m", immagine("due"));
+    assertEquals(2, service.loadAll("m").size());
+    assertFalse(service.loadAll("m").contains("esterno.jpg"));
+    service.delete("m", primo.getFirst());
+    assertFalse(service.loadAll("m").contains(primo.getFirst()));
+    assertEquals(service.loadAll("m").stream().sorted().toList(), service.loadAll("m"));
+  }
+
+  @Test
+  void loadAllWithWatchServiceSeesExternalChanges() throws Exception {
+    ArchiviazioneProperties props = new ArchiviazioneProperties();
+    props.setLocation(tempRoot.toString());
+    props.setOsservaCartelle(true);
+    ArchiviazioneFileSystemService osservato =
+        new ArchiviazioneFileSystemService(props, eventi::add);
+    try {
+      Files.createDirectories(tempRoot.resolve("w"));
+      assertTrue(osservato.loadAll("w").isEmpty());
+
+      Files.writeString(tempRoot.resolve("w").resolve("esterno.jpg"), "x");
+
+      long limite = System.currentTimeMillis() + 30_000;
+      while (osservato.loadAll("w").isEmpty() && System.currentTimeMillis() < limite) {
+        Thread.sleep(50);
+      }
+      assertEquals(List.of("esterno.jpg"), osservato.loadAll("w"));
+    } finally {
+      osservato.chiudi();
+    }
+  }
+
+}
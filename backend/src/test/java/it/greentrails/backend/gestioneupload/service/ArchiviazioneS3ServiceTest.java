@@ -0,0 +1,333 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.events.FileArchiviatoEvent;
+import it.greentrails.backend.gestioneupload.exceptions.ArchiviazioneException;
+import it.greentrails.backend.gestioneupload.exceptions.FileNonTrovatoException;
+import it.greentrails.backend.utils.ArchiviazioneProperties;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+class ArchiviazioneS3ServiceTest {
+
+  private static class OrologioManuale extends Clock {
+
+    private Instant adesso = Instant.parse("2025-07-01T10:00:00Z");
+
+    void avanza(Duration durata) {
+      adesso = adesso.plus(durata);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return adesso;
+    }
+  }
+
+  private final OrologioManuale orologio = new OrologioManuale();
+  private FakeS3 s3;
+  private Path tempRoot;
+  private final List<ArchiviazioneS3Service> servizi = new ArrayList<>();
+  private final List<Object> eventi = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    s3 = new FakeS3();
+    tempRoot = Files.createTempDirectory("archiviazione-s3-test");
+  }
+
+  @AfterEach
+  void tearDown() {
+    servizi.forEach(ArchiviazioneS3Service::chiudi);
+    s3.close();
+    FileSystemUtils.deleteRecursively(tempRoot.toFile());
+  }
+
+  // Ogni servizio ha la sua cache, come istanze diverse dell'applicazione sullo stesso bucket
+  private ArchiviazioneS3Service servizio(DataSize parte, DataSize capienzaCache) {
+    ArchiviazioneProperties props = new ArchiviazioneProperties();
+    props.setBackend("s3");
+    props.getS3().setEndpoint(s3.endpoint().toString());
+    props.getS3().setBucket(FakeS3.BUCKET);
+    props.getS3().setRegione(FakeS3.REGIONE);
+    props.getS3().setAccessKey(FakeS3.ACCESS_KEY);
+    props.getS3().setSecretKey(FakeS3.SECRET_KEY);
+    props.getS3().setDimensioneParte(parte);
+    props.getS3().setCache(tempRoot.resolve("cache-" + servizi.size()).toString());
+    props.getS3().setCapienzaCache(capienzaCache);
+    ArchiviazioneS3Service servizio = new ArchiviazioneS3Service(props, eventi::add, orologio);
+    servizi.add(servizio);
+    return servizio;
+  }
+
+  private ArchiviazioneS3Service servizio() {
+    return servizio(DataSize.ofMegabytes(8), DataSize.ofMegabytes(64));
+  }
+
+  private static MultipartFile file(String tipo, byte[] contenuto) throws IOException {
+    MultipartFile file = mock(MultipartFile.class);
+    when(file.isEmpty()).thenReturn(contenuto.length == 0);
+    when(file.getContentType()).thenReturn(tipo);
+    when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(contenuto));
+    return file;
+  }
+
+  private static byte[] casuali(int dimensione) {
+    byte[] contenuto = new byte[dimensione];
+    new Random(dimensione).nextBytes(contenuto);
+    return contenuto;
+  }
+
+  private static byte[] leggi(Resource risorsa) throws IOException {
+    try (InputStream ingresso = risorsa.getInputStream()) {
+      return ingresso.readAllBytes();
+    }
+  }
+
+  @Test
+  void constructorWithoutBucketThrows() {
+    ArchiviazioneProperties props = new ArchiviazioneProperties();
+    props.getS3().setEndpoint(s3.endpoint().toString());
+    assertThrows(ArchiviazioneException.class,
+        () -> new ArchiviazioneS3Service(props, eventi::add));
+  }
+
+  @Test
+  void storeUploadsListsAndLoads() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+    byte[] contenuto = casuali(1000);
+    service.store("m", file("image/png", contenuto));
+
+    List<String> elenco = service.loadAll("m");
+    assertEquals(1, elenco.size());
+    String filename = elenco.getFirst();
+    assertTrue(filename.matches("[0-9a-f]{64}\\.png"));
+    assertArrayEquals(contenuto, s3.contenuto("m/" + filename));
+    assertEquals(new FileArchiviatoEvent("m", filename), eventi.getLast());
+    assertArrayEquals(contenuto, leggi(service.loadAsResource("m", filename)));
+    // Appena caricato è già nella cache: la lettura non passa dal bucket
+    assertEquals(0, s3.conta("GET", "m/" + filename));
+    assertNotNull(service.load("m", filename));
+  }
+
+  @Test
+  void theSameContentIsUploadedOnce() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+    byte[] contenuto = casuali(1000);
+    service.store("m", file("image/jpeg", contenuto));
+    service.store("m", file("image/jpeg", contenuto));
+
+    String filename = service.loadAll("m").getFirst();
+    assertEquals(1, service.loadAll("m").size());
+    assertEquals(1, s3.conta("PUT", "m/" + filename));
+  }
+
+  @Test
+  void largeFilesAreUploadedInParallelParts() throws IOException {
+    ArchiviazioneS3Service service = servizio(DataSize.ofKilobytes(64), DataSize.ofMegabytes(64));
+    s3.ritardoParti = 100;
+    byte[] contenuto = casuali(5 * 64 * 1024 + 10);
+    service.store("m", file("video/mp4", contenuto));
+
+    String filename = service.loadAll("m").getFirst();
+    assertArrayEquals(contenuto, s3.contenuto("m/" + filename));
+    assertEquals(6, s3.conta("PUT", "m/" + filename));
+    assertTrue(s3.partiMassime.get() > 1, "parti caricate una alla volta");
+  }
+
+  @Test
+  void aFailedPartAbortsTheUpload() throws IOException {
+    ArchiviazioneS3Service service = servizio(DataSize.ofKilobytes(64), DataSize.ofMegabytes(64));
+    s3.parteInErrore = 2;
+
+    assertThrows(ArchiviazioneException.class,
+        () -> service.store("m", file("video/mp4", casuali(3 * 64 * 1024))));
+    assertEquals(1, s3.annullati.get());
+    assertTrue(s3.chiavi().isEmpty());
+    assertThrows(ArchiviazioneException.class, () -> service.loadAll("m"));
+  }
+
+  @Test
+  void readsGoThroughTheDiskCache() throws IOException {
+    byte[] contenuto = casuali(1000);
+    servizio().store("m", file("image/png", contenuto));
+    ArchiviazioneS3Service altra = servizio();
+    String filename = altra.loadAll("m").getFirst();
+
+    assertNull(altra.load("m", filename));
+    assertArrayEquals(contenuto, leggi(altra.loadAsResource("m", filename)));
+    assertArrayEquals(contenuto, leggi(altra.loadAsResource("m", filename)));
+    assertEquals(1, s3.conta("GET", "m/" + filename));
+    assertNotNull(altra.load("m", filename));
+  }
+
+  @Test
+  void objectsTooLargeForTheCacheAreStreamedByRange() throws IOException {
+    byte[] contenuto = casuali(8 * 1024);
+    servizio().store("m", file("video/mp4", contenuto));
+    ArchiviazioneS3Service piccola = servizio(DataSize.ofMegabytes(8), DataSize.ofKilobytes(16));
+    String filename = piccola.loadAll("m").getFirst();
+
+    Resource risorsa = piccola.loadAsResource("m", filename);
+    RisorsaConIntervalli remota = assertInstanceOf(RisorsaConIntervalli.class, risorsa);
+    assertEquals(contenuto.length, risorsa.contentLength());
+    assertEquals(filename, risorsa.getFilename());
+    try (InputStream ingresso = remota.apriIntervallo(100, 199)) {
+      assertArrayEquals(Arrays.copyOfRange(contenuto, 100, 200), ingresso.readAllBytes());
+    }
+    assertArrayEquals(contenuto, leggi(risorsa));
+    assertNull(piccola.load("m", filename));
+  }
+
+  @Test
+  void cacheEvictsTheLeastRecentlyUsedObjects() throws IOException {
+    ArchiviazioneS3Service scrittura = servizio();
+    for (int i = 0; i < 5; i++) {
+      byte[] contenuto = casuali(1000);
+      contenuto[0] = (byte) i;
+      scrittura.store("m", file("image/png", contenuto));
+    }
+    // Ogni oggetto occupa un quarto della cache: ne restano solo gli ultimi quattro letti
+    ArchiviazioneS3Service lettura = servizio(DataSize.ofMegabytes(8), DataSize.ofBytes(4000));
+    List<String> elenco = lettura.loadAll("m");
+    for (String filename : elenco) {
+      lettura.loadAsResource("m", filename);
+    }
+
+    assertNull(lettura.load("m", elenco.getFirst()));
+    for (String filename : elenco.subList(1, elenco.size())) {
+      assertNotNull(lettura.load("m", filename));
+    }
+  }
+
+  @Test
+  void anotherInstanceSeesUploadsAndDeletesOnceItsListingExpires() throws IOException {
+    ArchiviazioneS3Service a = servizio();
+    ArchiviazioneS3Service b = servizio();
+    a.store("m", file("image/png", casuali(1000)));
+    List<String> prima = b.loadAll("m");
+    assertEquals(1, prima.size());
+
+    a.store("m", file("image/png", casuali(2000)));
+    a.delete("m", prima.getFirst());
+    List<String> dopo = a.loadAll("m");
+    assertEquals(1, dopo.size());
+    assertEquals(prima, b.loadAll("m"));
+
+    orologio.avanza(new ArchiviazioneProperties().getS3().getDurataElenchi().plusMillis(1));
+
+    assertEquals(dopo, b.loadAll("m"));
+  }
+
+  @Test
+  void deleteRemovesTheObjectItsDerivativesAndTheCachedCopy() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+    service.store("m", file("image/jpeg", casuali(1000)));
+    String filename = service.loadAll("m").getFirst();
+    service.storeDerivato("m", filename, 320, new byte[]{1, 2, 3});
+    assertArrayEquals(new byte[]{1, 2, 3}, leggi(service.loadDerivato("m", filename, 320)));
+    assertNull(service.loadDerivato("m", filename, 640));
+
+    service.delete("m", filename);
+
+    assertTrue(s3.chiavi().isEmpty());
+    assertTrue(service.loadAll("m").isEmpty());
+    assertNull(service.load("m", filename));
+    assertNull(service.loadDerivato("m", filename, 320));
+    assertThrows(FileNonTrovatoException.class, () -> service.loadAsResource("m", filename));
+  }
+
+  @Test
+  void namesOutsideTheMediaFoldersAreRejected() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+    s3.metti(".derivati/m/320/x.jpg", new byte[]{1});
+    MultipartFile file = file("image/png", new byte[]{1});
+
+    assertThrows(ArchiviazioneException.class, () -> service.store("../m", file));
+    assertThrows(ArchiviazioneException.class, () -> service.store(".derivati", file));
+    assertThrows(ArchiviazioneException.class, () -> service.loadAll("a/b"));
+    assertThrows(FileNonTrovatoException.class,
+        () -> service.loadAsResource(".derivati", "m/320/x.jpg"));
+    assertThrows(ArchiviazioneException.class, () -> service.delete("m", "../x"));
+    assertThrows(ArchiviazioneException.class,
+        () -> service.store("m", file("text/plain", new byte[]{1})));
+  }
+
+  @Test
+  void deleteAllEmptiesTheBucket() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+    for (int i = 1; i <= 5; i++) {
+      service.store("m" + i, file("image/png", casuali(i)));
+    }
+    assertEquals(5, s3.chiavi().size());
+
+    service.deleteAll();
+
+    assertTrue(s3.chiavi().isEmpty());
+    assertThrows(ArchiviazioneException.class, () -> service.loadAll("m1"));
+  }
+
+  @Test
+  void unknownMediaAreNotRemembered() throws IOException {
+    ArchiviazioneS3Service service = servizio();
+
+    assertThrows(ArchiviazioneException.class, () -> service.loadAll("inesistente"));
+    assertThrows(ArchiviazioneException.class, () -> service.loadAll("inesistente"));
+    // Nessun elenco vuoto in memoria: il media caricato dopo viene trovato
+    service.store("inesistente", file("image/png", casuali(10)));
+    assertEquals(1, service.loadAll("inesistente").size());
+    assertEquals(3, s3.conta("GET", ""));
+  }
+
+  @Test
+  void uploadsTooLargeForTheCacheAreNotKept() throws IOException {
+    ArchiviazioneS3Service service = servizio(DataSize.ofMegabytes(8), DataSize.ofKilobytes(16));
+    service.store("m", file("image/png", casuali(1000)));
+    String piccolo = service.loadAll("m").getFirst();
+
+    service.store("m", file("video/mp4", casuali(8 * 1024)));
+
+    String grande = service.loadAll("m").stream().filter(nome -> nome.endsWith(".mp4"))
+        .findFirst().orElseThrow();
+    assertNull(service.load("m", grande));
+    assertNotNull(service.load("m", piccolo));
+  }
+
+}
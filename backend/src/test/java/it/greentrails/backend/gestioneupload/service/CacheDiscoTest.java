@@ -0,0 +1,97 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+class CacheDiscoTest {
+
+  private Path cartella;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    cartella = Files.createTempDirectory("cache-disco-test");
+  }
+
+  @AfterEach
+  void tearDown() {
+    FileSystemUtils.deleteRecursively(cartella.toFile());
+  }
+
+  private static void aggiungi(CacheDisco cache, String chiave, int dimensione)
+      throws IOException {
+    Path temporaneo = cache.temporaneo();
+    Files.write(temporaneo, new byte[dimensione]);
+    cache.aggiungi(chiave, temporaneo);
+  }
+
+  @Test
+  void eliminaIMenoUsatiDiRecente() throws IOException {
+    CacheDisco cache = new CacheDisco(cartella, 100);
+    aggiungi(cache, "m/a.jpg", 40);
+    aggiungi(cache, "m/b.jpg", 40);
+    assertNotNull(cache.trova("m/a.jpg"));
+    aggiungi(cache, "m/c.jpg", 40);
+
+    assertNotNull(cache.trova("m/a.jpg"));
+    assertNull(cache.trova("m/b.jpg"));
+    assertNotNull(cache.trova("m/c.jpg"));
+    assertEquals(80, cache.occupati());
+  }
+
+  @Test
+  void unOggettoPiuGrandeDellaCapienzaRestaDaSolo() throws IOException {
+    CacheDisco cache = new CacheDisco(cartella, 100);
+    aggiungi(cache, "m/a.jpg", 40);
+    aggiungi(cache, "m/grande.mp4", 150);
+
+    assertNull(cache.trova("m/a.jpg"));
+    assertNotNull(cache.trova("m/grande.mp4"));
+    assertEquals(150, cache.occupati());
+  }
+
+  @Test
+  void riprendeIFileGiaSalvatiAlRiavvio() throws IOException {
+    CacheDisco cache = new CacheDisco(cartella, 100);
+    aggiungi(cache, ".derivati/m/320/a.jpg", 30);
+    Files.write(cache.temporaneo(), new byte[10]);
+
+    CacheDisco riavviata = new CacheDisco(cartella, 100);
+
+    Path file = riavviata.trova(".derivati/m/320/a.jpg");
+    assertNotNull(file);
+    assertEquals(cartella, file.getParent());
+    assertEquals(30, riavviata.occupati());
+    try (var temporanei = Files.list(cartella.resolve(CacheDisco.TEMPORANEI))) {
+      assertEquals(0, temporanei.count());
+    }
+  }
+
+  @Test
+  void rimuoviESvuota() throws IOException {
+    CacheDisco cache = new CacheDisco(cartella, 100);
+    aggiungi(cache, "m/a.jpg", 10);
+    aggiungi(cache, "m/b.jpg", 10);
+
+    cache.rimuovi("m/a.jpg");
+    assertNull(cache.trova("m/a.jpg"));
+    assertEquals(10, cache.occupati());
+
+    cache.svuota();
+    assertNull(cache.trova("m/b.jpg"));
+    assertEquals(0, cache.occupati());
+    try (var file = Files.list(cartella)) {
+      assertTrue(file.allMatch(Files::isDirectory));
+    }
+  }
+
+}
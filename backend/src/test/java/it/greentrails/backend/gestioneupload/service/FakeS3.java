@@ -0,0 +1,287 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Object store S3 minimo nello stesso processo, per provare ArchiviazioneS3Service con richieste
+// HTTP vere: PUT, HEAD, GET anche con Range, DELETE, ListObjectsV2 a pagine di due chiavi e
+// caricamenti multipart. Verifica la firma V4 di ogni richiesta e tiene traccia delle richieste
+// ricevute e delle parti caricate nello stesso momento.
+class FakeS3 implements AutoCloseable {
+
+  static final String BUCKET = "greentrails";
+  static final String ACCESS_KEY = "chiave";
+  static final String SECRET_KEY = "segreto";
+  static final String REGIONE = "eu-south-1";
+  private static final int PAGINA = 2;
+
+  private record Oggetto(byte[] contenuto, Instant modifica) {
+
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+  private final ClientS3 verifica;
+  private final ConcurrentSkipListMap<String, Oggetto> oggetti = new ConcurrentSkipListMap<>();
+  private final Map<String, ConcurrentSkipListMap<Integer, byte[]>> caricamenti =
+      new ConcurrentHashMap<>();
+  final List<String> richieste = Collections.synchronizedList(new ArrayList<>());
+  final AtomicInteger partiAttive = new AtomicInteger();
+  final AtomicInteger partiMassime = new AtomicInteger();
+  final AtomicInteger annullati = new AtomicInteger();
+  // Attesa durante il caricamento di ogni parte, per rendere visibile il parallelismo
+  volatile long ritardoParti;
+  // Il numero della parte che risponde con un errore, 0 per nessuna
+  volatile int parteInErrore;
+
+  FakeS3() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::gestisci);
+    server.start();
+    verifica = new ClientS3(endpoint(), BUCKET, REGIONE, ACCESS_KEY, SECRET_KEY,
+        Clock.systemUTC());
+  }
+
+  URI endpoint() {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+  }
+
+  byte[] contenuto(String chiave) {
+    Oggetto oggetto = oggetti.get(chiave);
+    return oggetto == null ? null : oggetto.contenuto();
+  }
+
+  void metti(String chiave, byte[] contenuto) {
+    oggetti.put(chiave, new Oggetto(contenuto, Instant.now()));
+  }
+
+  List<String> chiavi() {
+    return List.copyOf(oggetti.keySet());
+  }
+
+  long conta(String metodo, String chiave) {
+    synchronized (richieste) {
+      return richieste.stream().filter((metodo + " " + chiave)::equals).count();
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void gestisci(HttpExchange scambio) throws IOException {
+    try (scambio) {
+      String metodo = scambio.getRequestMethod();
+      String percorso = scambio.getRequestURI().getRawPath();
+      String query = scambio.getRequestURI().getRawQuery();
+      if (!firmaValida(scambio, metodo, percorso, query == null ? "" : query)) {
+        rispondi(scambio, 403, "<Error><Code>SignatureDoesNotMatch</Code></Error>");
+        return;
+      }
+      Map<String, String> parametri = parametri(query);
+      String chiave = URLDecoder.decode(percorso.substring(("/" + BUCKET).length()),
+          StandardCharsets.UTF_8).replaceFirst("^/", "");
+      richieste.add(metodo + " " + chiave);
+      byte[] corpo = scambio.getRequestBody().readAllBytes();
+
+      if (chiave.isEmpty() && "GET".equals(metodo)) {
+        elenca(scambio, parametri);
+      } else if ("POST".equals(metodo) && parametri.containsKey("uploads")) {
+        String id = UUID.randomUUID().toString();
+        caricamenti.put(id, new ConcurrentSkipListMap<>());
+        rispondi(scambio, 200, "<InitiateMultipartUploadResult><UploadId>" + id
+            + "</UploadId></InitiateMultipartUploadResult>");
+      } else if ("POST".equals(metodo) && parametri.containsKey("uploadId")) {
+        completa(scambio, chiave, parametri.get("uploadId"), corpo);
+      } else if ("PUT".equals(metodo) && parametri.containsKey("uploadId")) {
+        caricaParte(scambio, parametri, corpo);
+      } else if ("PUT".equals(metodo)) {
+        metti(chiave, corpo);
+        rispondi(scambio, 200, null);
+      } else if ("DELETE".equals(metodo) && parametri.containsKey("uploadId")) {
+        caricamenti.remove(parametri.get("uploadId"));
+        annullati.incrementAndGet();
+        rispondi(scambio, 204, null);
+      } else if ("DELETE".equals(metodo)) {
+        oggetti.remove(chiave);
+        rispondi(scambio, 204, null);
+      } else if ("HEAD".equals(metodo) || "GET".equals(metodo)) {
+        leggi(scambio, metodo, chiave);
+      } else {
+        rispondi(scambio, 405, null);
+      }
+    }
+  }
+
+  private void elenca(HttpExchange scambio, Map<String, String> parametri) throws IOException {
+    String prefisso = parametri.getOrDefault("prefix", "");
+    List<String> chiavi = oggetti.keySet().stream().filter(c -> c.startsWith(prefisso))
+        .toList();
+    int inizio = Integer.parseInt(parametri.getOrDefault("continuation-token", "0"));
+    int fine = Math.min(chiavi.size(), inizio + PAGINA);
+    StringBuilder xml = new StringBuilder("<ListBucketResult>");
+    for (String chiave : chiavi.subList(inizio, fine)) {
+      xml.append("<Contents><Key>").append(chiave).append("</Key></Contents>");
+    }
+    xml.append("<IsTruncated>").append(fine < chiavi.size()).append("</IsTruncated>");
+    if (fine < chiavi.size()) {
+      xml.append("<NextContinuationToken>").append(fine).append("</NextContinuationToken>");
+    }
+    rispondi(scambio, 200, xml.append("</ListBucketResult>").toString());
+  }
+
+  private void caricaParte(HttpExchange scambio, Map<String, String> parametri, byte[] corpo)
+      throws IOException {
+    int numero = Integer.parseInt(parametri.get("partNumber"));
+    ConcurrentSkipListMap<Integer, byte[]> parti = caricamenti.get(parametri.get("uploadId"));
+    int attive = partiAttive.incrementAndGet();
+    partiMassime.accumulateAndGet(attive, Math::max);
+    try {
+      Thread.sleep(ritardoParti);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      partiAttive.decrementAndGet();
+    }
+    if (parti == null) {
+      rispondi(scambio, 404, null);
+    } else if (numero == parteInErrore) {
+      rispondi(scambio, 500, "<Error><Code>InternalError</Code></Error>");
+    } else {
+      parti.put(numero, corpo);
+      scambio.getResponseHeaders().set("ETag", "\"parte-" + numero + "\"");
+      rispondi(scambio, 200, null);
+    }
+  }
+
+  private void completa(HttpExchange scambio, String chiave, String id, byte[] corpo)
+      throws IOException {
+    ConcurrentSkipListMap<Integer, byte[]> parti = caricamenti.remove(id);
+    String richiesta = new String(corpo, StandardCharsets.UTF_8);
+    if (parti == null) {
+      rispondi(scambio, 404, null);
+      return;
+    }
+    ByteArrayOutputStream unito = new ByteArrayOutputStream();
+    for (Map.Entry<Integer, byte[]> parte : parti.entrySet()) {
+      if (!richiesta.contains("<PartNumber>" + parte.getKey() + "</PartNumber><ETag>&quot;parte-"
+          + parte.getKey() + "&quot;</ETag>")) {
+        rispondi(scambio, 200, "<Error><Code>InvalidPart</Code></Error>");
+        return;
+      }
+      unito.writeBytes(parte.getValue());
+    }
+    metti(chiave, unito.toByteArray());
+    rispondi(scambio, 200, "<CompleteMultipartUploadResult><Key>" + chiave
+        + "</Key></CompleteMultipartUploadResult>");
+  }
+
+  private void leggi(HttpExchange scambio, String metodo, String chiave) throws IOException {
+    Oggetto oggetto = oggetti.get(chiave);
+    if (oggetto == null) {
+      rispondi(scambio, 404, "HEAD".equals(metodo) ? null : "<Error><Code>NoSuchKey</Code>"
+          + "</Error>");
+      return;
+    }
+    byte[] contenuto = oggetto.contenuto();
+    scambio.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME
+        .format(oggetto.modifica().atZone(ZoneOffset.UTC)));
+    if ("HEAD".equals(metodo)) {
+      scambio.getResponseHeaders().set("Content-Length", Integer.toString(contenuto.length));
+      scambio.sendResponseHeaders(200, -1);
+      return;
+    }
+    String range = scambio.getRequestHeaders().getFirst("Range");
+    int stato = 200;
+    int inizio = 0;
+    int fine = contenuto.length - 1;
+    if (range != null) {
+      String[] estremi = range.substring("bytes=".length()).split("-", -1);
+      inizio = Integer.parseInt(estremi[0]);
+      if (!estremi[1].isEmpty()) {
+        fine = Math.min(fine, Integer.parseInt(estremi[1]));
+      }
+      stato = 206;
+      scambio.getResponseHeaders().set("Content-Range",
+          "bytes " + inizio + "-" + fine + "/" + contenuto.length);
+    }
+    scambio.sendResponseHeaders(stato, fine - inizio + 1);
+    try (OutputStream uscita = scambio.getResponseBody()) {
+      uscita.write(contenuto, inizio, fine - inizio + 1);
+    }
+  }
+
+  // Ricalcola la firma con le stesse credenziali a partire da quello che è arrivato
+  private boolean firmaValida(HttpExchange scambio, String metodo, String percorso,
+      String query) {
+    String autorizzazione = scambio.getRequestHeaders().getFirst("Authorization");
+    if (autorizzazione == null) {
+      return false;
+    }
+    TreeMap<String, String> firmati = new TreeMap<>();
+    String nomi = autorizzazione.replaceFirst(".*SignedHeaders=([^,]*),.*", "$1");
+    for (String nome : nomi.split(";")) {
+      String valore = scambio.getRequestHeaders().getFirst(nome);
+      if (valore == null) {
+        return false;
+      }
+      firmati.put(nome, valore);
+    }
+    return autorizzazione.equals(verifica.autorizzazione(metodo, percorso, query, firmati));
+  }
+
+  private static Map<String, String> parametri(String query) {
+    Map<String, String> parametri = new HashMap<>();
+    if (query == null || query.isEmpty()) {
+      return parametri;
+    }
+    for (String coppia : query.split("&")) {
+      int uguale = coppia.indexOf('=');
+      String nome = uguale < 0 ? coppia : coppia.substring(0, uguale);
+      String valore = uguale < 0 ? "" : coppia.substring(uguale + 1);
+      parametri.put(URLDecoder.decode(nome, StandardCharsets.UTF_8),
+          URLDecoder.decode(valore, StandardCharsets.UTF_8));
+    }
+    return parametri;
+  }
+
+  private static void rispondi(HttpExchange scambio, int stato, String xml) throws IOException {
+    if (xml == null) {
+      scambio.sendResponseHeaders(stato, -1);
+      return;
+    }
+    byte[] corpo = xml.getBytes(StandardCharsets.UTF_8);
+    scambio.getResponseHeaders().set("Content-Type", "application/xml");
+    scambio.sendResponseHeaders(stato, corpo.length);
+    try (OutputStream uscita = scambio.getResponseBody()) {
+      uscita.write(corpo);
+    }
+  }
+
+}
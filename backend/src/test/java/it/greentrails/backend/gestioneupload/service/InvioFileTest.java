@@ -0,0 +1,145 @@
+package it.greentrails.backend.gestioneupload.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import it.greentrails.backend.gestioneupload.service.InvioFile.Intervallo;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class InvioFileTest {
+
+  private final InvioFile invioFile = new InvioFile();
+  private Path file;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = Files.createTempFile("invio", ".mp4");
+    Files.write(file, new byte[(int) InvioFile.SOGLIA_SENDFILE * 2]);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  void conSendfileIlCorpoVieneLasciatoATomcat() throws IOException {
+    MockHttpServletRequest richiesta = new MockHttpServletRequest("GET", "/");
+    richiesta.setAttribute(InvioFile.SENDFILE_SUPPORTATO, Boolean.TRUE);
+    richiesta.addHeader("Range", "bytes=100-");
+    MockHttpServletResponse risposta = new MockHttpServletResponse();
+
+    invioFile.invia(new FileSystemResource(file), richiesta, risposta);
+
+    long dimensione = InvioFile.SOGLIA_SENDFILE * 2;
+    assertEquals(206, risposta.getStatus());
+    assertEquals(dimensione - 100, risposta.getContentLengthLong());
+    assertEquals(0, risposta.getContentAsByteArray().length);
+    assertEquals(file.toAbsolutePath().toString(),
+        richiesta.getAttribute(InvioFile.SENDFILE_FILE));
+    assertEquals(100L, richiesta.getAttribute(InvioFile.SENDFILE_INIZIO));
+    assertEquals(dimensione, richiesta.getAttribute(InvioFile.SENDFILE_FINE));
+  }
+
+  @Test
+  void senzaSendfileIlFileVieneTrasferito() throws IOException {
+    MockHttpServletRequest richiesta = new MockHttpServletRequest("GET", "/");
+    MockHttpServletResponse risposta = new MockHttpServletResponse();
+
+    invioFile.invia(new FileSystemResource(file), richiesta, risposta);
+
+    assertEquals(200, risposta.getStatus());
+    assertEquals(InvioFile.SOGLIA_SENDFILE * 2, risposta.getContentAsByteArray().length);
+    assertNull(richiesta.getAttribute(InvioFile.SENDFILE_FILE));
+  }
+
+  @Test
+  void unaRisorsaNonSuFileVieneCopiataPerIntervallo() throws IOException {
+    ByteArrayResource risorsa = new ByteArrayResource("0123456789".getBytes()) {
+      @Override
+      public String getFilename() {
+        return "dati.bin";
+      }
+
+      @Override
+      public long lastModified() {
+        return 1_700_000_000_000L;
+      }
+    };
+    MockHttpServletRequest richiesta = new MockHttpServletRequest("GET", "/");
+    richiesta.addHeader("Range", "bytes=3-4");
+    MockHttpServletResponse risposta = new MockHttpServletResponse();
+
+    invioFile.invia(risorsa, richiesta, risposta);
+
+    assertEquals(206, risposta.getStatus());
+    assertEquals("34", risposta.getContentAsString());
+    assertEquals("application/octet-stream", risposta.getContentType());
+  }
+
+  // Una risorsa remota legge dal server solo l'intervallo richiesto
+  @Test
+  void unaRisorsaRemotaVieneLettaSoloNellIntervallo() throws IOException {
+    byte[] contenuto = "0123456789".getBytes();
+    class Remota extends ByteArrayResource implements RisorsaConIntervalli {
+
+      Remota() {
+        super(contenuto);
+      }
+
+      @Override
+      public String getFilename() {
+        return "video.mp4";
+      }
+
+      @Override
+      public long lastModified() {
+        return 1_700_000_000_000L;
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        throw new AssertionError("letta per intero");
+      }
+
+      @Override
+      public InputStream apriIntervallo(long inizio, long fine) {
+        return new ByteArrayInputStream(contenuto, (int) inizio, (int) (fine - inizio + 1));
+      }
+    }
+    MockHttpServletRequest richiesta = new MockHttpServletRequest("GET", "/");
+    richiesta.addHeader("Range", "bytes=6-");
+    MockHttpServletResponse risposta = new MockHttpServletResponse();
+
+    invioFile.invia(new Remota(), richiesta, risposta);
+
+    assertEquals(206, risposta.getStatus());
+    assertEquals("6789", risposta.getContentAsString());
+  }
+
+  @Test
+  void leggiRange() {
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("bytes=0-", 10));
+    assertEquals(new Intervallo(5, 9), InvioFile.leggiRange("bytes=5-100", 10));
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("bytes=-50", 10));
+    // Più intervalli o una sintassi non valida: il file intero
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("bytes=0-1,4-5", 10));
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("bytes=5-2", 10));
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("righe=0-1", 10));
+    assertEquals(new Intervallo(0, 9), InvioFile.leggiRange("bytes=--5", 10));
+    assertNull(InvioFile.leggiRange("bytes=10-", 10));
+    assertNull(InvioFile.leggiRange("bytes=-0", 10));
+  }
+
+}
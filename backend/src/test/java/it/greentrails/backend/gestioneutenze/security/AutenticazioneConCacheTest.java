@@ -0,0 +1,93 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.RuoloUtente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@ExtendWith(MockitoExtension.class)
+class AutenticazioneConCacheTest {
+
+  @Mock
+  private UserDetailsService userDetailsService;
+
+  private PasswordEncoder encoder;
+  private CacheCredenziali cache;
+  private AutenticazioneConCache provider;
+  private Utente utente;
+
+  @BeforeEach
+  void setUp() {
+    // Costo minimo: il test conta le verifiche, non le misura
+    encoder = spy(new BCryptPasswordEncoder(4));
+    cache = new CacheCredenziali();
+    provider = new AutenticazioneConCache(userDetailsService, encoder, cache);
+    utente = new Utente();
+    utente.setId(1L);
+    utente.setEmail("marco@test.it");
+    utente.setPassword(encoder.encode("password"));
+    utente.setRuolo(RuoloUtente.VISITATORE);
+    when(userDetailsService.loadUserByUsername("marco@test.it")).thenReturn(utente);
+  }
+
+  private Authentication autentica(String password) {
+    return provider.authenticate(
+        UsernamePasswordAuthenticationToken.unauthenticated("marco@test.it", password));
+  }
+
+  @Test
+  void laSecondaRichiestaNonRipeteLaVerifica() {
+    Authentication prima = autentica("password");
+    Authentication seconda = autentica("password");
+
+    assertEquals(utente, prima.getPrincipal());
+    assertEquals(utente, seconda.getPrincipal());
+    verify(encoder, times(1)).matches(any(), anyString());
+  }
+
+  @Test
+  void lePasswordErrateNonVengonoMemorizzate() {
+    assertThrows(BadCredentialsException.class, () -> autentica("sbagliata"));
+    assertThrows(BadCredentialsException.class, () -> autentica("sbagliata"));
+
+    verify(encoder, times(2)).matches(any(), anyString());
+  }
+
+  @Test
+  void dopoIlCambioPasswordLaVecchiaNonVale() {
+    autentica("password");
+
+    utente.setPassword(encoder.encode("nuova"));
+
+    assertThrows(BadCredentialsException.class, () -> autentica("password"));
+    assertEquals(utente, autentica("nuova").getPrincipal());
+  }
+
+  @Test
+  void dopoLInvalidazioneLaVerificaVieneRipetuta() {
+    autentica("password");
+    cache.invalida(1L);
+    autentica("password");
+
+    verify(encoder, times(2)).matches(any(), anyString());
+  }
+
+}
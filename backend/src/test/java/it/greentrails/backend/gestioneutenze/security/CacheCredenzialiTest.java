@@ -0,0 +1,97 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import org.junit.jupiter.api.Test;
+
+class CacheCredenzialiTest {
+
+  private static final String EMAIL = "marco@test.it";
+  private static final String HASH = "$2a$10$hash";
+
+  private static class OrologioManuale extends Clock {
+
+    private Instant adesso = Instant.parse("2025-07-01T10:00:00Z");
+
+    void avanza(Duration durata) {
+      adesso = adesso.plus(durata);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return adesso;
+    }
+  }
+
+  @Test
+  void riconosceSoloLeStesseCredenziali() {
+    CacheCredenziali cache = new CacheCredenziali();
+    cache.registra(1L, EMAIL, HASH, "password");
+
+    assertTrue(cache.isVerificata(EMAIL, HASH, "password"));
+    assertFalse(cache.isVerificata(EMAIL, HASH, "Password"));
+    assertFalse(cache.isVerificata("anna@test.it", HASH, "password"));
+    // Una password cambiata ha un altro hash memorizzato
+    assertFalse(cache.isVerificata(EMAIL, "$2a$10$nuovo", "password"));
+  }
+
+  @Test
+  void leVerificheScadono() {
+    OrologioManuale orologio = new OrologioManuale();
+    CacheCredenziali cache = new CacheCredenziali(Duration.ofMinutes(5), 10, orologio);
+    cache.registra(1L, EMAIL, HASH, "password");
+
+    orologio.avanza(Duration.ofMinutes(4));
+    assertTrue(cache.isVerificata(EMAIL, HASH, "password"));
+    orologio.avanza(Duration.ofMinutes(1));
+    assertFalse(cache.isVerificata(EMAIL, HASH, "password"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void laCapienzaEliminaLaVoceUsataMenoDiRecente() {
+    CacheCredenziali cache = new CacheCredenziali(Duration.ofMinutes(5), 2, Clock.systemUTC());
+    cache.registra(1L, "a@test.it", HASH, "password");
+    cache.registra(2L, "b@test.it", HASH, "password");
+    assertTrue(cache.isVerificata("a@test.it", HASH, "password"));
+
+    cache.registra(3L, "c@test.it", HASH, "password");
+
+    assertEquals(2, cache.size());
+    assertTrue(cache.isVerificata("a@test.it", HASH, "password"));
+    assertFalse(cache.isVerificata("b@test.it", HASH, "password"));
+    assertTrue(cache.isVerificata("c@test.it", HASH, "password"));
+  }
+
+  @Test
+  void invalidaRimuoveLeVociDellUtente() {
+    CacheCredenziali cache = new CacheCredenziali();
+    cache.registra(1L, EMAIL, HASH, "password");
+    cache.registra(1L, EMAIL, HASH, "vecchia");
+    cache.registra(2L, "anna@test.it", HASH, "password");
+
+    cache.invalida(1L);
+    cache.invalida(null);
+
+    assertFalse(cache.isVerificata(EMAIL, HASH, "password"));
+    assertFalse(cache.isVerificata(EMAIL, HASH, "vecchia"));
+    assertTrue(cache.isVerificata("anna@test.it", HASH, "password"));
+  }
+
+}
@@ -0,0 +1,155 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.jayway.jsonpath.JsonPath;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.PreferenzeAlimentari;
+import it.greentrails.backend.enums.PreferenzeAlloggio;
+import it.greentrails.backend.enums.PreferenzeAttivita;
+import it.greentrails.backend.enums.PreferenzeBudget;
+import it.greentrails.backend.enums.PreferenzeStagione;
+import it.greentrails.backend.enums.PreferenzeViaggio;
+import it.greentrails.backend.enums.RuoloUtente;
+import it.greentrails.backend.gestioneutenze.repository.PreferenzeRepository;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Con il token le richieste autenticate non rifanno la verifica BCrypt né cercano l'utente
+// per email: lo leggono per id da CacheUtenti
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokenSessioneIntegrazioneTest {
+
+  private static final String QUERY_UTENTE = "SELECT u FROM Utente u WHERE u.email = ?1";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  @Autowired
+  private PreferenzeRepository preferenzeRepository;
+
+  @Autowired
+  private PasswordEncoder passwordEncoder;
+
+  private Statistics statistiche;
+
+  @BeforeEach
+  void setUp() {
+    statistiche = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  private String token() throws Exception {
+    return token("marco@test.it");
+  }
+
+  private String token(String email) throws Exception {
+    String risposta = mockMvc.perform(post("/api/utenti/token")
+            .with(httpBasic(email, "password")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.scadenza").exists())
+        .andReturn().getResponse().getContentAsString();
+    return JsonPath.read(risposta, "$.data.token");
+  }
+
+  @Test
+  void leRichiesteConIlTokenNonCaricanoLUtente() throws Exception {
+    String token = token();
+    statistiche.clear();
+
+    // Il nuovo itinerario viene associato all'utente ricavato dal token
+    mockMvc.perform(post("/api/itinerari")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.id").exists());
+
+    assertEquals(0, statistiche.getQueryStatistics(QUERY_UTENTE).getExecutionCount());
+  }
+
+  @Test
+  void ilRuoloDelTokenVieneRispettato() throws Exception {
+    mockMvc.perform(get("/api/segnalazioni")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token()))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void unTokenNonValidoVieneRifiutato() throws Exception {
+    mockMvc.perform(post("/api/itinerari")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer abc.def"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void senzaCredenzialiNonSiOttieneUnToken() throws Exception {
+    mockMvc.perform(post("/api/utenti/token"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void ilPrimoQuestionarioConIlTokenNonCancellaIDatiDellUtente() throws Exception {
+    Utente utente = new Utente();
+    utente.setNome("Giulia");
+    utente.setCognome("Gialli");
+    utente.setDataNascita(java.sql.Date.valueOf("1992-04-12"));
+    utente.setEmail("giulia.token@test.it");
+    utente.setPassword(passwordEncoder.encode("password"));
+    utente.setRuolo(RuoloUtente.VISITATORE);
+    Utente salvato = utenteRepository.save(utente);
+    try {
+      mockMvc.perform(post("/api/utenti/questionario")
+              .header(HttpHeaders.AUTHORIZATION, "Bearer " + token("giulia.token@test.it"))
+              .param("viaggioPreferito", PreferenzeViaggio.MARE.name())
+              .param("alloggioPreferito", PreferenzeAlloggio.HOTEL.name())
+              .param("attivitaPreferita", PreferenzeAttivita.ALL_APERTO.name())
+              .param("preferenzaAlimentare", PreferenzeAlimentari.VEGETARIAN.name())
+              .param("animaleDomestico", "false")
+              .param("budgetPreferito", PreferenzeBudget.BASSO.name())
+              .param("souvenir", "true")
+              .param("stagioniPreferite", PreferenzeStagione.PRIMAVERA_ESTATE.name()))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.id").value(salvato.getId()));
+
+      Utente letto = utenteRepository.findById(salvato.getId()).orElseThrow();
+      assertEquals("Giulia", letto.getNome());
+      assertEquals("Gialli", letto.getCognome());
+      assertEquals(salvato.getPassword(), letto.getPassword());
+      assertNotNull(letto.getDataNascita());
+    } finally {
+      preferenzeRepository.deleteById(salvato.getId());
+      utenteRepository.findById(salvato.getId()).ifPresent(utenteRepository::delete);
+    }
+  }
+
+  @Test
+  void unTokenNonPuoRinnovareSeStesso() throws Exception {
+    mockMvc.perform(post("/api/utenti/token")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token()))
+        .andExpect(status().isForbidden());
+  }
+
+}
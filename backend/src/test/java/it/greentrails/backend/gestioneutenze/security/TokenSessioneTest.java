@@ -0,0 +1,83 @@
+package it.greentrails.backend.gestioneutenze.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.enums.RuoloUtente;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenSessioneTest {
+
+  private static final byte[] SEGRETO = "segreto-di-prova-di-32-byte-0000".getBytes(
+      StandardCharsets.US_ASCII);
+  private static final Instant ADESSO = Instant.parse("2025-07-01T10:00:00Z");
+
+  private TokenSessione tokenSessione;
+  private Utente utente;
+
+  @BeforeEach
+  void setUp() {
+    tokenSessione = new TokenSessione(SEGRETO, Duration.ofHours(1),
+        Clock.fixed(ADESSO, ZoneOffset.UTC));
+    utente = new Utente();
+    utente.setId(7L);
+    utente.setEmail("marco@test.it");
+    utente.setRuolo(RuoloUtente.VISITATORE);
+  }
+
+  @Test
+  void ilTokenEmessoVieneVerificato() {
+    TokenSessione.Emesso emesso = tokenSessione.emetti(utente);
+
+    Utente verificato = tokenSessione.verifica(emesso.token());
+
+    assertEquals(ADESSO.plus(Duration.ofHours(1)), emesso.scadenza());
+    assertEquals(7L, verificato.getId());
+    assertEquals("marco@test.it", verificato.getEmail());
+    assertEquals(RuoloUtente.VISITATORE, verificato.getRuolo());
+    assertNull(verificato.getPassword());
+  }
+
+  @Test
+  void unTokenAlteratoNonVale() {
+    String token = tokenSessione.emetti(utente).token();
+    String dati = "7|AMMINISTRATORE|" + ADESSO.plusSeconds(3600).getEpochSecond()
+        + "|marco@test.it";
+    String alterato = Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(dati.getBytes(StandardCharsets.UTF_8))
+        + token.substring(token.indexOf('.'));
+
+    assertNull(tokenSessione.verifica(alterato));
+    assertNull(tokenSessione.verifica(token + "x"));
+    assertNull(tokenSessione.verifica(token.substring(0, token.indexOf('.'))));
+    assertNull(tokenSessione.verifica("non.un.token"));
+    assertNull(tokenSessione.verifica(null));
+  }
+
+  @Test
+  void unTokenScadutoNonVale() {
+    String token = tokenSessione.emetti(utente).token();
+    TokenSessione dopo = new TokenSessione(SEGRETO, Duration.ofHours(1),
+        Clock.fixed(ADESSO.plus(Duration.ofHours(1)), ZoneOffset.UTC));
+
+    assertNull(dopo.verifica(token));
+  }
+
+  @Test
+  void unAltroSegretoNonRiconosceIlToken() {
+    String token = tokenSessione.emetti(utente).token();
+    TokenSessione altro = new TokenSessione("un-altro-segreto".getBytes(StandardCharsets.US_ASCII),
+        Duration.ofHours(1), Clock.fixed(ADESSO, ZoneOffset.UTC));
+
+    assertNull(altro.verifica(token));
+  }
+
+}
@@ -0,0 +1,72 @@
+package it.greentrails.backend.gestioneutenze.service;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Il principal caricato da HTTP Basic serve anche le letture dell'utente nei controller e nelle
+// richieste successive
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CacheUtentiIntegrazioneTest {
+
+  private static final String QUERY_UTENTE = "SELECT u FROM Utente u WHERE u.email = ?1";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  @Autowired
+  private CacheUtenti cacheUtenti;
+
+  @Test
+  void lUtenteVieneLettoUnaVoltaSola() throws Exception {
+    Statistics statistiche = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    cacheUtenti.invalida(utenteRepository.findOneByEmail("lucia@test.it").orElseThrow().getId());
+    statistiche.clear();
+
+    for (int i = 0; i < 2; i++) {
+      mockMvc.perform(get("/api/utenti").with(httpBasic("lucia@test.it", "password")))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.email").value("lucia@test.it"));
+    }
+
+    assertEquals(1, statistiche.getQueryStatistics(QUERY_UTENTE).getExecutionCount());
+  }
+
+  @Test
+  void iConteggiSonoEspostiDallActuator() throws Exception {
+    mockMvc.perform(get("/api/utenti").with(httpBasic("anna@test.it", "password")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/actuator/metrics/greentrails.utenti.cache")
+            .param("tag", "risultato:hit")
+            .with(httpBasic("admin@test.it", "password")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+    mockMvc.perform(get("/actuator/metrics/greentrails.utenti.cache")
+            .with(httpBasic("anna@test.it", "password")))
+        .andExpect(status().isForbidden());
+  }
+
+}
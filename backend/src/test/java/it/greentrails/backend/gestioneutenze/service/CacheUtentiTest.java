@@ -0,0 +1,168 @@
+package it.greentrails.backend.gestioneutenze.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.greentrails.backend.entities.Utente;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class CacheUtentiTest {
+
+  private static class OrologioManuale extends Clock {
+
+    private Instant adesso = Instant.parse("2025-07-01T10:00:00Z");
+
+    void avanza(Duration durata) {
+      adesso = adesso.plus(durata);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return adesso;
+    }
+  }
+
+  private final AtomicInteger letture = new AtomicInteger();
+  private SimpleMeterRegistry registry;
+  private OrologioManuale orologio;
+  private CacheUtenti cache;
+  private Utente utente;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    orologio = new OrologioManuale();
+    cache = new CacheUtenti(registry, Duration.ofSeconds(30), 2, orologio);
+    utente = utente(1L, "marco@test.it");
+  }
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private static Utente utente(Long id, String email) {
+    Utente utente = new Utente();
+    utente.setId(id);
+    utente.setEmail(email);
+    return utente;
+  }
+
+  private <K> Function<K, Optional<Utente>> carica(Utente risultato) {
+    return chiave -> {
+      letture.incrementAndGet();
+      return Optional.ofNullable(risultato);
+    };
+  }
+
+  private double conteggio(String risultato) {
+    return registry.get("greentrails.utenti.cache").tag("risultato", risultato).counter()
+        .count();
+  }
+
+  @Test
+  void lUtenteCaricatoPerEmailVieneTrovatoAnchePerId() {
+    cache.perEmail("marco@test.it", carica(utente));
+
+    assertSame(utente, cache.perId(1L, carica(null)).orElseThrow());
+    assertSame(utente, cache.perEmail("marco@test.it", carica(null)).orElseThrow());
+    assertEquals(1, letture.get());
+    assertEquals(2, conteggio("hit"));
+    assertEquals(1, conteggio("miss"));
+  }
+
+  @Test
+  void gliUtentiScadono() {
+    cache.perId(1L, carica(utente));
+
+    orologio.avanza(Duration.ofSeconds(29));
+    cache.perId(1L, carica(utente));
+    orologio.avanza(Duration.ofSeconds(1));
+    cache.perId(1L, carica(utente));
+
+    assertEquals(2, letture.get());
+  }
+
+  @Test
+  void gliUtentiNonTrovatiNonVengonoMemorizzati() {
+    assertTrue(cache.perEmail("nessuno@test.it", carica(null)).isEmpty());
+    assertTrue(cache.perEmail("nessuno@test.it", carica(null)).isEmpty());
+
+    assertEquals(2, letture.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void invalidaRimuoveLUtenteAnchePerEmail() {
+    cache.perId(1L, carica(utente));
+
+    cache.invalida(1L);
+    cache.invalida(null);
+
+    cache.perEmail("marco@test.it", carica(utente));
+    cache.perId(1L, carica(utente));
+    assertEquals(2, letture.get());
+  }
+
+  @Test
+  void laCapienzaEliminaLUtenteUsatoMenoDiRecente() {
+    cache.perId(1L, carica(utente));
+    cache.perId(2L, carica(utente(2L, "anna@test.it")));
+    cache.perId(1L, carica(utente));
+    cache.perId(3L, carica(utente(3L, "lucia@test.it")));
+
+    assertEquals(2, cache.size());
+    assertEquals(3, letture.get());
+    cache.perEmail("anna@test.it", carica(utente(2L, "anna@test.it")));
+    assertEquals(4, letture.get());
+  }
+
+  @Test
+  void nellaStessaRichiestaLUtenteNonScade() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    cache.perId(1L, carica(utente));
+
+    orologio.avanza(Duration.ofMinutes(5));
+
+    assertSame(utente, cache.perId(1L, carica(null)).orElseThrow());
+    assertEquals(1, letture.get());
+  }
+
+  @Test
+  void invalidaValeAncheNellaRichiestaCorrente() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    cache.perId(1L, carica(utente));
+
+    cache.invalida(1L);
+
+    cache.perEmail("marco@test.it", carica(utente));
+    assertEquals(2, letture.get());
+  }
+
+}
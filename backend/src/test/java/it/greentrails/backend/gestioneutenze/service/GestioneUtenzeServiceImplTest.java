@@ -5,20 +5,26 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.greentrails.backend.entities.Preferenze;
 import it.greentrails.backend.entities.Utente;
 import it.greentrails.backend.enums.RuoloUtente;
 import it.greentrails.backend.gestioneutenze.repository.PreferenzeRepository;
 import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import it.greentrails.backend.gestioneutenze.security.CacheCredenziali;
+import it.greentrails.backend.utils.service.CacheRisposte;
 import java.util.Date;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -34,6 +40,15 @@ class GestioneUtenzeServiceImplTest {
   @Mock
   private UtenteRepository repository;
 
+  @Spy
+  private CacheCredenziali cacheCredenziali = new CacheCredenziali();
+
+  @Spy
+  private CacheUtenti cacheUtenti = new CacheUtenti(new SimpleMeterRegistry());
+
+  @Mock
+  private CacheRisposte cacheRisposte;
+
   @InjectMocks
   private GestioneUtenzeServiceImpl service;
 
@@ -92,6 +107,21 @@ class GestioneUtenzeServiceImplTest {
     assertEquals(utente, service.findById(1L));
   }
 
+  @Test
+  void findByIdRipetutaNonRileggeLUtente() throws Exception {
+    Utente utente = new Utente();
+    utente.setId(1L);
+    utente.setEmail("mario.rossi@example.com");
+    when(repository.findOneByEmail("mario.rossi@example.com")).thenReturn(Optional.of(utente));
+
+    service.loadUserByUsername("mario.rossi@example.com");
+    assertEquals(utente, service.findById(1L));
+    assertEquals(utente, service.findById(1L));
+
+    verify(repository, times(1)).findOneByEmail("mario.rossi@example.com");
+    verify(repository, times(0)).findById(1L);
+  }
+
   // Test per saveUtente
   @Test
   void saveUtenteNullUtente() {
@@ -112,6 +142,35 @@ class GestioneUtenzeServiceImplTest {
     Utente saved = service.saveUtente(utente);
     assertEquals(utente, saved);
     verify(repository).save(utente);
+    verify(cacheRisposte, never()).invalida();
+  }
+
+  // Nome e cognome del gestore sono nelle risposte del catalogo già in cache
+  @Test
+  void saveUtenteGestoreInvalidaLeRisposteDelCatalogo() throws Exception {
+    Utente utente = new Utente();
+    utente.setId(3L);
+    utente.setRuolo(RuoloUtente.GESTORE_ATTIVITA);
+
+    when(repository.save(any(Utente.class))).thenReturn(utente);
+    service.saveUtente(utente);
+
+    verify(cacheRisposte).invalida();
+  }
+
+  @Test
+  void saveUtenteInvalidaLeCredenzialiVerificate() throws Exception {
+    Utente utente = new Utente();
+    utente.setId(7L);
+    utente.setEmail("mario.rossi@example.com");
+    cacheCredenziali.registra(7L, "mario.rossi@example.com", "hash", "password123");
+
+    when(repository.save(any(Utente.class))).thenReturn(utente);
+    service.saveUtente(utente);
+
+    verify(cacheCredenziali).invalida(7L);
+    verify(cacheUtenti).invalida(7L);
+    assertFalse(cacheCredenziali.isVerificata("mario.rossi@example.com", "hash", "password123"));
   }
 
   // Test per savePreferenze
@@ -160,12 +219,16 @@ class GestioneUtenzeServiceImplTest {
     utente.setNome("Mario");
     utente.setCognome("Rossi");
     utente.setEmail("mario.rossi@example.com");
+    utente.setRuolo(RuoloUtente.GESTORE_ATTIVITA);
 
     when(repository.findById(1L)).thenReturn(Optional.empty());
     boolean deleted = service.deleteUtente(utente);
     assertTrue(deleted);
     verify(repository).delete(utente);
     verify(repository).flush();
+    verify(cacheCredenziali).invalida(1L);
+    verify(cacheUtenti).invalida(1L);
+    verify(cacheRisposte).invalida();
   }
 
   @Test
@@ -178,6 +241,7 @@ class GestioneUtenzeServiceImplTest {
     assertFalse(deleted);
     verify(repository).delete(utente);
     verify(repository).flush();
+    verify(cacheCredenziali).invalida(1L);
   }
 
   // Test per loadUserByUsername
@@ -0,0 +1,62 @@
+package it.greentrails.backend.gestioneutenze.service;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Utente;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneutenze.repository.UtenteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Le risposte del catalogo in cache contengono il gestore: le sue modifiche devono vedersi
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RisposteCatalogoIntegrazioneTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private UtenteRepository utenteRepository;
+
+  @Autowired
+  private AttivitaRepository attivitaRepository;
+
+  @Autowired
+  private GestioneUtenzeService gestioneUtenzeService;
+
+  @Test
+  void ilNuovoNomeDelGestoreArrivaAncheAlleRisposteInCache() throws Exception {
+    Utente gestore = utenteRepository.findOneByEmail("mario@test.it").orElseThrow();
+    String nome = gestore.getNome();
+    Attivita attivita = attivitaRepository.findByGestore(gestore.getId(), Pageable.ofSize(1))
+        .getContent().getFirst();
+    String percorso = "/api/attivita/" + attivita.getId();
+
+    mockMvc.perform(get(percorso))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.gestore.nome").value(nome));
+
+    try {
+      gestore.setNome("Mariano");
+      gestioneUtenzeService.saveUtente(gestore);
+
+      mockMvc.perform(get(percorso))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.gestore.nome").value("Mariano"));
+    } finally {
+      gestore.setNome(nome);
+      gestioneUtenzeService.saveUtente(gestore);
+    }
+  }
+
+}
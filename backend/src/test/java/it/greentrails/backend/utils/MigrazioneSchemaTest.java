@@ -0,0 +1,119 @@
+package it.greentrails.backend.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MigrazioneSchemaTest {
+
+  private Connection connessione;
+  private MigrazioneSchema migrazione;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    connessione = DriverManager.getConnection(
+        "jdbc:h2:mem:migrazione;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    migrazione = new MigrazioneSchema(null);
+  }
+
+  @AfterEach
+  void tearDown() throws SQLException {
+    esegui("DROP ALL OBJECTS");
+    connessione.close();
+  }
+
+  private void esegui(String sql) throws SQLException {
+    try (Statement statement = connessione.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private int tipo(String tabella, String colonna) throws SQLException {
+    try (ResultSet colonne = connessione.getMetaData().getColumns(connessione.getCatalog(),
+        null, tabella, colonna)) {
+      colonne.next();
+      return colonne.getInt("DATA_TYPE");
+    }
+  }
+
+  @Test
+  void leDateTimeDiventanoDatetime() throws SQLException {
+    esegui("CREATE TABLE prenotazione_alloggio (id BIGINT PRIMARY KEY, "
+        + "data_inizio TIME NOT NULL, data_fine TIME NOT NULL)");
+
+    migrazione.migra(connessione);
+    // Una seconda esecuzione non trova più niente da cambiare
+    migrazione.migra(connessione);
+
+    assertEquals(Types.TIMESTAMP, tipo("prenotazione_alloggio", "data_inizio"));
+    assertEquals(Types.TIMESTAMP, tipo("prenotazione_alloggio", "data_fine"));
+  }
+
+  @Test
+  void leDateDelleAttivitaDiventanoDatetime() throws SQLException {
+    esegui("CREATE TABLE prenotazione_attivita_turistica (id BIGINT PRIMARY KEY, "
+        + "data_inizio TIME NOT NULL, data_fine TIME)");
+
+    migrazione.migra(connessione);
+
+    assertEquals(Types.TIMESTAMP, tipo("prenotazione_attivita_turistica", "data_inizio"));
+    assertEquals(Types.TIMESTAMP, tipo("prenotazione_attivita_turistica", "data_fine"));
+  }
+
+  private long nextVal(String sequenza) throws SQLException {
+    try (Statement statement = connessione.createStatement();
+        ResultSet risultato = statement.executeQuery("SELECT next_val FROM " + sequenza)) {
+      risultato.next();
+      return risultato.getLong(1);
+    }
+  }
+
+  @Test
+  void leSequenzePartonoDopoGliIdEsistenti() throws SQLException {
+    esegui("CREATE TABLE prenotazione_alloggio (id BIGINT PRIMARY KEY)");
+    esegui("INSERT INTO prenotazione_alloggio VALUES (7), (120)");
+    esegui("CREATE TABLE prenotazione_attivita_turistica (id BIGINT PRIMARY KEY)");
+    esegui("INSERT INTO prenotazione_attivita_turistica VALUES (30)");
+    // Come la crea ddl-auto=update
+    esegui("CREATE TABLE prenotazione_attivita_turistica_seq (next_val BIGINT)");
+    esegui("INSERT INTO prenotazione_attivita_turistica_seq VALUES (1)");
+
+    migrazione.migra(connessione);
+
+    assertEquals(120 + MigrazioneSchema.ALLOCAZIONE_ID, nextVal("prenotazione_alloggio_seq"));
+    assertEquals(30 + MigrazioneSchema.ALLOCAZIONE_ID,
+        nextVal("prenotazione_attivita_turistica_seq"));
+  }
+
+  @Test
+  void leSequenzeGiaAvanzateNonTornanoIndietro() throws SQLException {
+    esegui("CREATE TABLE prenotazione_alloggio (id BIGINT PRIMARY KEY)");
+    esegui("INSERT INTO prenotazione_alloggio VALUES (120)");
+    esegui("CREATE TABLE prenotazione_alloggio_seq (next_val BIGINT)");
+    esegui("INSERT INTO prenotazione_alloggio_seq VALUES (400)");
+
+    migrazione.migra(connessione);
+    migrazione.migra(connessione);
+
+    assertEquals(400, nextVal("prenotazione_alloggio_seq"));
+  }
+
+  @Test
+  void unoSchemaVuotoNonVieneToccato() throws SQLException {
+    migrazione.migra(connessione);
+
+    try (ResultSet tabelle = connessione.getMetaData().getTables(connessione.getCatalog(),
+        null, "prenotazione%", null)) {
+      assertEquals(false, tabelle.next());
+    }
+  }
+
+}
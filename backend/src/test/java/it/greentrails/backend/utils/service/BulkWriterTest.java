@@ -0,0 +1,112 @@
+package it.greentrails.backend.utils.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import it.greentrails.backend.entities.Attivita;
+import it.greentrails.backend.entities.Itinerario;
+import it.greentrails.backend.entities.PrenotazioneAttivitaTuristica;
+import it.greentrails.backend.enums.StatoPrenotazione;
+import it.greentrails.backend.gestioneattivita.repository.AttivitaRepository;
+import it.greentrails.backend.gestioneitinerari.repository.ItinerariRepository;
+import it.greentrails.backend.gestioneprenotazioni.repository.PrenotazioneAttivitaTuristicaRepository;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkWriterTest {
+
+  @Autowired
+  private BulkWriter bulkWriter;
+
+  @Autowired
+  private PrenotazioneAttivitaTuristicaRepository repository;
+
+  @Autowired
+  private AttivitaRepository attivitaRepository;
+
+  @Autowired
+  private ItinerariRepository itinerariRepository;
+
+  private static List<PrenotazioneAttivitaTuristica> prenotazioni(Attivita attivita,
+      Itinerario itinerario, int quante) {
+    Date domani = new Date(System.currentTimeMillis() + 86_400_000L);
+    List<PrenotazioneAttivitaTuristica> prenotazioni = new ArrayList<>();
+    for (int i = 0; i < quante; i++) {
+      PrenotazioneAttivitaTuristica p = new PrenotazioneAttivitaTuristica();
+      p.setAttivitaTuristica(attivita);
+      p.setItinerario(itinerario);
+      p.setNumAdulti(1);
+      p.setNumBambini(0);
+      p.setDataInizio(domani);
+      p.setStato(StatoPrenotazione.CREATA);
+      p.setPrezzo(10.0);
+      prenotazioni.add(p);
+    }
+    return prenotazioni;
+  }
+
+  @Test
+  void inserisciScriveTutteLeRigheAssegnandoGliId() {
+    Attivita attivita = attivitaRepository.findAll().stream().filter(a -> !a.isAlloggio())
+        .findFirst().orElseThrow();
+    Itinerario itinerario = itinerariRepository.findAll().get(0);
+    long prima = repository.count();
+    int quante = 2 * BulkWriter.DIMENSIONE_BLOCCO + 7;
+
+    List<PrenotazioneAttivitaTuristica> inserite = bulkWriter.inserisci(
+        prenotazioni(attivita, itinerario, quante));
+
+    try {
+      assertEquals(quante, inserite.size());
+      Set<Long> id = new HashSet<>();
+      inserite.forEach(p -> {
+        assertNotNull(p.getId());
+        id.add(p.getId());
+      });
+      assertEquals(quante, id.size());
+      assertEquals(prima + quante, repository.count());
+    } finally {
+      repository.deleteAllInBatch(inserite);
+    }
+  }
+
+  @Test
+  void inserisciScaricaUnBloccoAllaVolta() {
+    EntityManager entityManager = mock(EntityManager.class);
+    BulkWriter writer = new BulkWriter(entityManager, TransactionOperations.withoutTransaction());
+
+    writer.inserisci(prenotazioni(null, null, 2 * BulkWriter.DIMENSIONE_BLOCCO + 1));
+
+    verify(entityManager, times(2 * BulkWriter.DIMENSIONE_BLOCCO + 1)).persist(any());
+    verify(entityManager, times(3)).flush();
+    verify(entityManager, times(2 * BulkWriter.DIMENSIONE_BLOCCO + 1)).detach(any());
+  }
+
+  @Test
+  void inserisciIgnoraListeVuote() {
+    EntityManager entityManager = mock(EntityManager.class);
+    BulkWriter writer = new BulkWriter(entityManager, TransactionOperations.withoutTransaction());
+
+    assertTrue(writer.inserisci(List.of()).isEmpty());
+    assertTrue(writer.inserisci(null).isEmpty());
+    verify(entityManager, never()).flush();
+  }
+
+}
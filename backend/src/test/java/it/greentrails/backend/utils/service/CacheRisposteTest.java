@@ -0,0 +1,101 @@
+package it.greentrails.backend.utils.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+class CacheRisposteTest {
+
+  private CacheRisposte cache;
+  private AtomicInteger calcoli;
+
+  @BeforeEach
+  void setUp() {
+    cache = new CacheRisposte(new ObjectMapper());
+    calcoli = new AtomicInteger();
+  }
+
+  private ResponseEntity<Object> calcola(Object dati) {
+    calcoli.incrementAndGet();
+    return ResponseGenerator.generateResponse(HttpStatus.OK, dati);
+  }
+
+  @Test
+  void laSecondaRichiestaNonRicalcolaLaRisposta() {
+    ResponseEntity<Object> prima = cache.risposta("a", () -> calcola("x"));
+    ResponseEntity<Object> seconda = cache.risposta("a", () -> calcola("y"));
+
+    assertEquals(1, calcoli.get());
+    assertEquals(HttpStatus.OK, seconda.getStatusCode());
+    assertEquals(MediaType.APPLICATION_JSON, seconda.getHeaders().getContentType());
+    assertEquals(prima.getHeaders().getETag(), seconda.getHeaders().getETag());
+    assertSame(prima.getBody(), seconda.getBody());
+    assertTrue(new String((byte[]) seconda.getBody(), StandardCharsets.UTF_8)
+        .contains("\"data\":\"x\""));
+    assertEquals("no-cache", seconda.getHeaders().getCacheControl());
+  }
+
+  @Test
+  void chiaviDiverseHannoVociDiverse() {
+    ResponseEntity<Object> a = cache.risposta("a", () -> calcola("x"));
+    ResponseEntity<Object> b = cache.risposta("b", () -> calcola("y"));
+
+    assertEquals(2, calcoli.get());
+    assertEquals(2, cache.dimensione());
+    assertNotEquals(a.getHeaders().getETag(), b.getHeaders().getETag());
+  }
+
+  @Test
+  void lInvalidazioneSvuotaLaCache() {
+    ResponseEntity<Object> prima = cache.risposta("a", () -> calcola("x"));
+    cache.invalida();
+
+    assertEquals(0, cache.dimensione());
+    ResponseEntity<Object> dopo = cache.risposta("a", () -> calcola("y"));
+    assertEquals(2, calcoli.get());
+    assertNotEquals(prima.getHeaders().getETag(), dopo.getHeaders().getETag());
+  }
+
+  // Una risposta calcolata mentre arriva un'invalidazione non viene servita in seguito
+  @Test
+  void unaVoceDiUnaGenerazionePrecedenteVieneRicalcolata() {
+    cache.risposta("a", () -> {
+      cache.invalida();
+      return calcola("vecchio");
+    });
+    ResponseEntity<Object> dopo = cache.risposta("a", () -> calcola("nuovo"));
+
+    assertEquals(2, calcoli.get());
+    assertTrue(new String((byte[]) dopo.getBody(), StandardCharsets.UTF_8)
+        .contains("\"data\":\"nuovo\""));
+  }
+
+  @Test
+  void leRisposteNonRiusciteNonVengonoConservate() {
+    ResponseEntity<Object> errore = ResponseGenerator.generateResponse(HttpStatus.NOT_FOUND,
+        "assente");
+
+    assertSame(errore, cache.risposta("a", () -> errore));
+    assertNull(errore.getHeaders().getETag());
+    assertEquals(0, cache.dimensione());
+  }
+
+  @Test
+  void etag() {
+    byte[] corpo = "{}".getBytes(StandardCharsets.UTF_8);
+    assertEquals(CacheRisposte.etag(corpo), CacheRisposte.etag(corpo.clone()));
+    assertNotEquals(CacheRisposte.etag(corpo), CacheRisposte.etag(new byte[]{'[', ']'}));
+  }
+
+}
@@ -2,6 +2,8 @@ package it.greentrails.backend.utils.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
@@ -21,12 +23,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("success", responseBody.get("status"));
-    assertEquals(data, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("success", responseBody.status());
+    assertEquals(data, responseBody.data());
   }
 
   @Test
@@ -41,12 +40,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.CREATED, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("success", responseBody.get("status"));
-    assertEquals(data, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("success", responseBody.status());
+    assertEquals(data, responseBody.data());
   }
 
   @Test
@@ -61,12 +57,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("failure", responseBody.get("status"));
-    assertEquals(errorMessage, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("failure", responseBody.status());
+    assertEquals(errorMessage, responseBody.data());
   }
 
   @Test
@@ -81,12 +74,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("failure", responseBody.get("status"));
-    assertEquals(errorMessage, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("failure", responseBody.status());
+    assertEquals(errorMessage, responseBody.data());
   }
 
   @Test
@@ -101,12 +91,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("failure", responseBody.get("status"));
-    assertEquals(errorMessage, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("failure", responseBody.status());
+    assertEquals(errorMessage, responseBody.data());
   }
 
   @Test
@@ -121,12 +108,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("error", responseBody.get("status"));
-    assertEquals(errorMessage, responseBody.get("error"));
+    Risposta.Errore responseBody = assertInstanceOf(Risposta.Errore.class, response.getBody());
+    assertEquals("error", responseBody.status());
+    assertEquals(errorMessage, responseBody.error());
   }
 
   @Test
@@ -141,12 +125,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("error", responseBody.get("status"));
-    assertEquals(errorMessage, responseBody.get("error"));
+    Risposta.Errore responseBody = assertInstanceOf(Risposta.Errore.class, response.getBody());
+    assertEquals("error", responseBody.status());
+    assertEquals(errorMessage, responseBody.error());
   }
 
   @Test
@@ -165,12 +146,9 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
-
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("success", responseBody.get("status"));
-    assertEquals(complexData, responseBody.get("data"));
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("success", responseBody.status());
+    assertEquals(complexData, responseBody.data());
   }
 
   @Test
@@ -184,11 +162,25 @@ class ResponseGeneratorTest {
     // Then
     assertNotNull(response);
     assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-    assertTrue(response.getBody() instanceof Map);
+    Risposta.Dati responseBody = assertInstanceOf(Risposta.Dati.class, response.getBody());
+    assertEquals("success", responseBody.status());
+    assertNull(responseBody.data());
+  }
 
-    @SuppressWarnings("unchecked")
-    Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
-    assertEquals("success", responseBody.get("status"));
-    assertNull(responseBody.get("data"));
+  // Il JSON è lo stesso della mappa usata in precedenza
+  @Test
+  void testGenerateResponse_Json() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    assertEquals(objectMapper.readTree("{\"status\":\"success\",\"data\":[1,2]}"),
+        objectMapper.readTree(objectMapper.writeValueAsBytes(
+            ResponseGenerator.generateResponse(HttpStatus.OK, List.of(1, 2)).getBody())));
+    assertEquals(objectMapper.readTree("{\"status\":\"failure\",\"data\":null}"),
+        objectMapper.readTree(objectMapper.writeValueAsBytes(
+            ResponseGenerator.generateResponse(HttpStatus.NOT_FOUND, null).getBody())));
+    assertEquals(objectMapper.readTree(
+            "{\"status\":\"error\",\"error\":\"java.lang.Exception: guasto\"}"),
+        objectMapper.readTree(objectMapper.writeValueAsBytes(ResponseGenerator.generateResponse(
+            HttpStatus.INTERNAL_SERVER_ERROR, new Exception("guasto")).getBody())));
   }
-}
\ No newline at end of file
+}